@@ -0,0 +1,110 @@
+/*
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Universite Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ *
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ *
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.analysis
+
+import fr.isima.ponge.wsprotocol.*
+import fr.isima.ponge.wsprotocol.execution.OperatorContext
+import fr.isima.ponge.wsprotocol.impl.*
+import fr.isima.ponge.wsprotocol.operators.*
+import junit.framework.TestCase
+
+class TraceSamplerTest extends TestCase
+{
+    BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl()
+
+    TraceSampler sampler = new TraceSampler(seed: 42L, parallelism: 2)
+
+    def buildProtocol(String name, List steps, String constraint = null)
+    {
+        BusinessProtocol p = factory.createBusinessProtocol(name)
+        def states = (0..steps.size()).collect { factory.createState("s${it}", it == steps.size()) }
+        states.each { p.addState it }
+        p.setInitialState states[0]
+        steps.eachWithIndex { step, i ->
+            def operation = factory.createOperation("T${i}", states[i], states[i + 1], factory.createMessage(step[0], step[1]))
+            p.addOperation operation
+        }
+        if (constraint != null)
+        {
+            p.operations.find { it.name == "T${steps.size() - 1}" }.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, constraint)
+        }
+        return p
+    }
+
+    void testRefuteInclusion()
+    {
+        def steps = [["a", Polarity.POSITIVE], ["b", Polarity.POSITIVE]]
+        def strict = buildProtocol("P1", steps, "C-Invoke(T0 < 3)")
+        def loose = buildProtocol("P2", steps, "C-Invoke(T0 < 10)")
+
+        def witness = sampler.refuteInclusion(loose, strict, new OperatorContext())
+        assertNotNull witness
+        assertEquals(["a", "b"], witness.collect { it.message })
+        assertTrue witness[1].time - witness[0].time >= 3
+        assertNull sampler.refuteInclusion(strict, loose, new OperatorContext())
+    }
+
+    void testRefuteInclusionWithForeignMessage()
+    {
+        def p1 = buildProtocol("P1", [["a", Polarity.POSITIVE], ["b", Polarity.POSITIVE]], "C-Invoke(T0 < 100)")
+        def p2 = buildProtocol("P2", [["a", Polarity.POSITIVE], ["c", Polarity.POSITIVE]])
+
+        // The complement of p1 only covers its own messages, so the conversations of p2 using c do not count
+        def exact = new IntersectionOperator().apply(new ComplementationOperator().apply(p1), p2)
+        assertTrue exact.operations.empty
+        assertNull sampler.refuteInclusion(p2, p1, new OperatorContext())
+    }
+
+    void testNeverFiredClocks()
+    {
+        // The clock of y starts with the conversation, so a is enabled in p1 more than 5 after the beginning
+        BusinessProtocol p1 = factory.createBusinessProtocol("P1")
+        def s = (0..3).collect { factory.createState("s${it}", it == 2) }
+        s.each { p1.addState it }
+        p1.setInitialState s[0]
+        p1.addOperation factory.createOperation("T0", s[0], s[1], factory.createMessage("x", Polarity.POSITIVE))
+        def a = factory.createOperation("T1", s[1], s[2], factory.createMessage("a", Polarity.POSITIVE))
+        a.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "C-Invoke(T2 > 5)")
+        p1.addOperation a
+        p1.addOperation factory.createOperation("T2", s[0], s[3], factory.createMessage("y", Polarity.POSITIVE))
+
+        def p2 = buildProtocol("P2", [["x", Polarity.POSITIVE], ["a", Polarity.POSITIVE]], "C-Invoke(T0 > 5)")
+        assertNull sampler.refuteInclusion(p2, p1, new OperatorContext())
+
+        a.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "C-Invoke(T2 > 100)")
+        def witness = sampler.refuteInclusion(p2, p1, new OperatorContext())
+        assertNotNull witness
+        assertTrue witness[1].time <= 100
+    }
+
+    void testAnalysisWitness()
+    {
+        def steps = [["a", Polarity.POSITIVE], ["b", Polarity.POSITIVE]]
+        def analysis = new ProtocolAnalysis(traceSampler: sampler)
+
+        // No UPPAAL run is needed to answer
+        assertFalse analysis.isReplaceable(buildProtocol("P1", steps, "C-Invoke(T0 < 3)"), buildProtocol("P2", steps, "C-Invoke(T0 < 10)"))
+        assertNotNull analysis.witness
+        assertTrue analysis.isEquivalent(buildProtocol("P1", steps), buildProtocol("P2", steps))
+        assertNull analysis.witness
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Universite Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ *
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ *
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.operators
+
+import fr.isima.ponge.wsprotocol.*
+import fr.isima.ponge.wsprotocol.cache.ProtocolResultCache
+import fr.isima.ponge.wsprotocol.impl.*
+import junit.framework.TestCase
+
+class CachingOperatorsTest extends TestCase
+{
+    BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl()
+
+    def buildSimpleProtocol(String name = "P")
+    {
+        BusinessProtocol p = factory.createBusinessProtocol(name)
+
+        def states = [
+                factory.createState("s1", false),
+                factory.createState("s2", true)
+        ].each { p.addState it }
+        p.setInitialState states[0]
+
+        def operation = factory.createOperation("T1", states[0], states[1], factory.createMessage("a", Polarity.POSITIVE))
+        p.addOperation operation
+        operation.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "C-Invoke(T1 < 3)")
+
+        return p
+    }
+
+    void testUnaryOperator()
+    {
+        ProtocolResultCache cache = new ProtocolResultCache(factory)
+        def operator = new CachingUnaryOperator(new ComplementationOperator(), cache)
+        def expected = new ComplementationOperator().apply(buildSimpleProtocol())
+
+        def first = operator.apply(buildSimpleProtocol())
+        assertEquals expected, first
+        first.removeState(first.initialState)
+
+        assertEquals expected, operator.apply(buildSimpleProtocol())
+        assertEquals 1, cache.hits
+        assertEquals 1, cache.misses
+    }
+
+    void testBinaryOperators()
+    {
+        ProtocolResultCache cache = new ProtocolResultCache(factory)
+        def intersection = new CachingBinaryOperator(new IntersectionOperator(), cache)
+        def composition = new CachingBinaryOperator(new CompositionOperator(), cache)
+        def p1 = buildSimpleProtocol("P1")
+        def p2 = buildSimpleProtocol("P2")
+
+        def expected = new IntersectionOperator().apply(p1, p2)
+        assertEquals expected, intersection.apply(p1, p2)
+        assertEquals expected, intersection.apply(p1, p2)
+        composition.apply(p1, p2)
+
+        assertEquals 2, cache.size()
+        assertEquals 1, cache.hits
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Universite Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ *
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ *
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.operators
+
+import fr.isima.ponge.wsprotocol.*
+import fr.isima.ponge.wsprotocol.impl.*
+import junit.framework.TestCase
+
+class DeterminizationOperatorTest extends TestCase
+{
+    BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl()
+
+    def buildNondeterministicProtocol()
+    {
+        BusinessProtocol p = factory.createBusinessProtocol("P")
+
+        def states = [
+                factory.createState("s1", false),
+                factory.createState("s2", false),
+                factory.createState("s3", false),
+                factory.createState("s4", true),
+                factory.createState("s5", false)
+        ].each { p.addState it }
+        states[0].initialState = true
+        p.setInitialState states[0]
+
+        [
+                factory.createOperation("T1", states[0], states[1], factory.createMessage("a", Polarity.POSITIVE)),
+                factory.createOperation("T2", states[0], states[2], factory.createMessage("a", Polarity.POSITIVE)),
+                factory.createOperation("T3", states[1], states[3], factory.createMessage("b", Polarity.NEGATIVE)),
+                factory.createOperation("T4", states[2], states[3], factory.createMessage("c", Polarity.NEGATIVE)),
+                factory.createOperation("T5", states[0], states[4], factory.createMessage("d", Polarity.POSITIVE))
+        ].each { p.addOperation it }
+
+        return p
+    }
+
+    void testDeterminization()
+    {
+        BusinessProtocol p = buildNondeterministicProtocol()
+        DeterminizationOperator operator = new DeterminizationOperator(factory)
+        assertTrue operator.canApply(p)
+
+        BusinessProtocol result = operator.apply(p)
+        assertEquals 3, result.states.size()
+        assertEquals 3, result.operations.size()
+        assertNotNull result.states.find { it.name == "{s2,s3}" }
+        assertNull result.messages.find { it.name == "d" }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Universite Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ *
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ *
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.operators
+
+import junit.framework.TestCase
+
+import fr.isima.ponge.wsprotocol.*
+import fr.isima.ponge.wsprotocol.impl.*
+
+class MinimizationOperatorTest extends TestCase
+{
+    BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl()
+
+    def buildRedundantProtocol()
+    {
+        BusinessProtocol p = factory.createBusinessProtocol("P")
+
+        def states = [
+                factory.createState("s1", false),
+                factory.createState("s2", false),
+                factory.createState("s3", false),
+                factory.createState("s4", true),
+                factory.createState("s5", true)
+        ].each { p.addState it }
+        states[0].initialState = true
+        p.setInitialState states[0]
+
+        def operations = [
+                factory.createOperation("T1", states[0], states[1], factory.createMessage("a", Polarity.POSITIVE)),
+                factory.createOperation("T2", states[0], states[2], factory.createMessage("b", Polarity.POSITIVE)),
+                factory.createOperation("T3", states[1], states[3], factory.createMessage("c", Polarity.NEGATIVE)),
+                factory.createOperation("T4", states[2], states[4], factory.createMessage("c", Polarity.NEGATIVE))
+        ].each { p.addOperation it }
+        operations[2].putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "C-Invoke(T1 < 3)")
+        operations[3].putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "C-Invoke(T1 < 3)")
+
+        return p
+    }
+
+    void testMinimization()
+    {
+        BusinessProtocol p = buildRedundantProtocol()
+        BusinessProtocol result = new MinimizationOperator(factory).apply(p)
+
+        assertEquals(3, result.states.size())
+        assertEquals(3, result.operations.size())
+        assertEquals(5, p.states.size())
+        assertEquals("C-Invoke(T1 < 3)", result.states.find { it.name == "s2" }.outgoingOperations[0]
+                .getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT))
+    }
+}
@@ -22,11 +22,29 @@
 package fr.isima.ponge.wsprotocol.analysis
 
 import fr.isima.ponge.wsprotocol.*
+import fr.isima.ponge.wsprotocol.automata.InclusionChecker
+import fr.isima.ponge.wsprotocol.cache.ProtocolResultCache
+import fr.isima.ponge.wsprotocol.execution.OperatorContext
 import fr.isima.ponge.wsprotocol.operators.*
 
 /**
  * This class leverages the protocol operator to implement the full range of protocol
  * compatibility and replaceability analysis.
+ * The complements, intersections, differences, compositions and minimizations are cached across queries,
+ * setting <code>resultCache</code> to <code>null</code> disables the caching.
+ * The operators run within <code>operatorContext</code> when it is set, so that queries can be
+ * cancelled or bounded.
+ * The replaceability query first samples conversations with <code>traceSampler</code>: a
+ * rejected one answers the query, and is kept as <code>witness</code>. The exact operators only
+ * run when no witness is found. Setting <code>traceSampler</code> to <code>null</code> disables
+ * the sampling. Every query resets <code>witness</code>.
+ * The replaceability of protocols without temporal constraints is rather decided by
+ * <code>inclusionChecker</code>, without sampling nor building any complement or product. A conversation of
+ * the replacing protocol that the other one rejects is kept as <code>witness</code>. Setting
+ * <code>inclusionChecker</code> to <code>null</code> always uses the operators.
+ * The inputs of the queries built on products are minimized first with
+ * <code>minimizationOperator</code>, which keeps the products small. Setting it to
+ * <code>null</code> disables the minimization.
  *
  * @author Julien Ponge
  */
@@ -42,28 +60,83 @@ class ProtocolAnalysis extends Operator
 
     IntersectionOperator intersectionOperator = new IntersectionOperator()
 
+    MinimizationOperator minimizationOperator = new MinimizationOperator()
+
     ProjectionOperator projectionOperator = new ProjectionOperator()
 
+    ProtocolResultCache resultCache = new ProtocolResultCache(factory)
+
+    OperatorContext operatorContext
+
+    TraceSampler traceSampler = new TraceSampler(factory)
+
+    InclusionChecker inclusionChecker = new InclusionChecker()
+
+    List<TraceStep> witness
+
+    private OperatorContext context()
+    {
+        return (operatorContext == null) ? new OperatorContext() : operatorContext
+    }
+
+    private boolean refuted(Closure sampling)
+    {
+        witness = (traceSampler == null) ? null : sampling()
+        return witness != null
+    }
+
+    private BusinessProtocol minimized(BusinessProtocol protocol)
+    {
+        return (minimizationOperator == null) ? protocol : cached(minimizationOperator).apply(protocol, context())
+    }
+
+    private UnaryOperator cached(UnaryOperator operator)
+    {
+        return (resultCache == null) ? operator : new CachingUnaryOperator(operator, resultCache)
+    }
+
+    private BinaryOperator cached(BinaryOperator operator)
+    {
+        return (resultCache == null) ? operator : new CachingBinaryOperator(operator, resultCache)
+    }
+
     boolean isPartiallyCompatible(BusinessProtocol p1, BusinessProtocol p2)
     {
-        return !emptinessOperator.isEmpty(compositionOperator.apply(p1, p2))        
+        witness = null
+        return !emptinessOperator.isEmpty(cached(compositionOperator).apply(minimized(p1), minimized(p2), context()))
     }
 
     boolean isFullyCompatible(BusinessProtocol p1, BusinessProtocol p2)
     {
-        BusinessProtocol temp = projectionOperator(compositionOperator.apply(p1, p2), p1)
+        witness = null
+        BusinessProtocol temp = projectionOperator(cached(compositionOperator).apply(p1, p2, context()), p1)
         temp.name = p1.name
         return temp.equals(p1)        
     }
 
     boolean isReplaceable(BusinessProtocol p1, BusinessProtocol p2)
     {
-        BusinessProtocol temp = intersectionOperator.apply(complementationOperator.apply(p1), p2)
+        witness = null
+        if (inclusionChecker != null && inclusionChecker.canCheck(p2, p1))
+        {
+            List<Operation> conversation = inclusionChecker.findCounterexample(p2, p1)
+            witness = conversation?.collect {Operation op ->
+                new TraceStep(message: op.message.name, polarity: op.message.polarity, kind: op.operationKind, time: 0)
+            }
+            return conversation == null
+        }
+        if (refuted { traceSampler.refuteInclusion(p2, p1, context()) })
+        {
+            return false
+        }
+        BusinessProtocol compl = cached(complementationOperator).apply(minimized(p1), context())
+        BusinessProtocol temp = cached(intersectionOperator).apply(compl, minimized(p2), context())
         return emptinessOperator.isEmpty(temp)
     }
 
     boolean isEquivalent(BusinessProtocol p1, BusinessProtocol p2)
     {
+        witness = null
         BusinessProtocol cloneP1 = cloneProtocol(p1)
         cloneP1.name = p2.name
         return cloneP1.equals(p2)
@@ -71,15 +144,17 @@ class ProtocolAnalysis extends Operator
 
     boolean isReplaceableWithClientProtocol(BusinessProtocol p1, BusinessProtocol p2, BusinessProtocol pc)
     {
-        BusinessProtocol diff = differenceOperator.apply(p2, p1)
-        BusinessProtocol comp = compositionOperator.apply(pc, diff)
+        witness = null
+        BusinessProtocol diff = cached(differenceOperator).apply(minimized(p2), minimized(p1), context())
+        BusinessProtocol comp = cached(compositionOperator).apply(minimized(pc), diff, context())
         return emptinessOperator.isEmpty(comp)
     }
 
     boolean isReplaceableWithRole(BusinessProtocol p1, BusinessProtocol p2, BusinessProtocol pr)
     {
-        BusinessProtocol compl = complementationOperator.apply(p1)
-        BusinessProtocol inter = intersectionOperator.apply(pr, p2)
-        return emptinessOperator.isEmpty(intersectionOperator.apply(inter, compl))
+        witness = null
+        BusinessProtocol compl = cached(complementationOperator).apply(minimized(p1), context())
+        BusinessProtocol inter = cached(intersectionOperator).apply(minimized(pr), minimized(p2), context())
+        return emptinessOperator.isEmpty(cached(intersectionOperator).apply(inter, compl, context()))
     }
 }
\ No newline at end of file
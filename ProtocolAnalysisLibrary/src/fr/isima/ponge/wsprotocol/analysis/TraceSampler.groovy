@@ -0,0 +1,383 @@
+/*
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Universite Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ *
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ *
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.analysis
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicReference
+
+import fr.isima.ponge.wsprotocol.*
+import fr.isima.ponge.wsprotocol.execution.OperatorContext
+import fr.isima.ponge.wsprotocol.operators.Operator
+import fr.isima.ponge.wsprotocol.timed.constraints.*
+
+/**
+ * A step of a sampled conversation: the exchanged message, and the time at which it is
+ * exchanged counted from the beginning of the conversation.
+ *
+ * @author Julien Ponge
+ */
+class TraceStep
+{
+    String message
+
+    Polarity polarity
+
+    OperationKind kind
+
+    int time
+
+    String toString()
+    {
+        "${message}(${polarity})@${time}"
+    }
+}
+
+/**
+ * The compiled temporal constraints of a protocol. The slots are the operations names, and the
+ * bounds of each constraint are kept as <code>[slot, constant]</code> pairs to guide the choice of
+ * delays.
+ *
+ * @author Julien Ponge
+ */
+class ProtocolGuards
+{
+    VariableTable variables = new VariableTable()
+
+    Map compiled = new IdentityHashMap()
+
+    Map bounds = new IdentityHashMap()
+}
+
+/**
+ * Refutes protocol replaceability by sampling random conversations of a protocol, and by replaying
+ * them on another protocol. The delays between the messages are chosen so that the temporal
+ * constraints hold. A conversation that the other protocol rejects is a definitive witness,
+ * while finding none proves nothing: the exact operators must then be used.
+ * <p>
+ * The constraints are evaluated as in the UPPAAL translation of the emptiness check: the clock of
+ * an operation that has not been fired yet counts the time since the beginning of the conversation.
+ * <p>
+ * The walks are spread over <code>parallelism</code> threads, which stop at the first witness.
+ * Setting a <code>seed</code> makes each thread draw the same walks from one run to the other.
+ *
+ * @author Julien Ponge
+ */
+class TraceSampler extends Operator
+{
+    static final int STOP_ODDS = 4
+
+    static final int DELAY_TRIES = 4
+
+    int samples = 256
+
+    int maxLength = 32
+
+    int maxDelay = 64
+
+    int parallelism = Runtime.runtime.availableProcessors()
+
+    Long seed
+
+    TraceSampler()
+    {
+        super()
+    }
+
+    TraceSampler(BusinessProtocolFactory factory)
+    {
+        super(factory)
+    }
+
+    /**
+     * Looks for a timed conversation of a protocol that another one does not support, which
+     * refutes the replaceability of the latter by the former. As for the complement used by the
+     * exact check, only the conversations over the messages of <code>including</code> count:
+     * the sampled walks never take the other messages.
+     *
+     * @param included the protocol whose conversations are sampled
+     * @param including the protocol the conversations are replayed on
+     * @param context the execution context, which can stop the sampling
+     * @return the witness conversation, or <code>null</code> if none was found
+     */
+    List<TraceStep> refuteInclusion(BusinessProtocol included, BusinessProtocol including, OperatorContext context)
+    {
+        findCounterexample(included, including, context, including.messages)
+    }
+
+    /**
+     * Samples conversations of a protocol until one gets rejected by another protocol.
+     *
+     * @param source the protocol whose conversations are sampled
+     * @param target the protocol the conversations are replayed on
+     * @param context the execution context, which can stop the sampling
+     * @param messages the messages the sampled conversations can use, or <code>null</code> for all
+     * @return the witness conversation, or <code>null</code> if none was found
+     */
+    List<TraceStep> findCounterexample(BusinessProtocol source, BusinessProtocol target, OperatorContext context,
+            Set messages = null)
+    {
+        if ((source.initialState == null) || (samples <= 0))
+        {
+            return null
+        }
+        ProtocolGuards sourceGuards = guardsOf(source)
+        ProtocolGuards targetGuards = guardsOf(target)
+        def witness = new AtomicReference()
+        int workers = Math.max(1, Math.min(parallelism, samples))
+        def work = { int worker ->
+            Random random = (seed == null) ? new Random() : new Random(seed + worker)
+            for (int i = worker; (i < samples) && (witness.get() == null); i += workers)
+            {
+                context.checkAlive()
+                def trace = walk(source, sourceGuards, random, messages)
+                if ((trace != null) && !accepts(target, targetGuards, trace))
+                {
+                    witness.compareAndSet(null, trace)
+                }
+            }
+            return null
+        }
+
+        if (workers == 1)
+        {
+            work(0)
+        }
+        else
+        {
+            ExecutorService executor = Executors.newFixedThreadPool(workers)
+            try
+            {
+                def futures = (0..<workers).collect { worker -> executor.submit({ work(worker) } as Callable) }
+                futures.each { future ->
+                    try
+                    {
+                        future.get()
+                    }
+                    catch (ExecutionException e)
+                    {
+                        throw e.cause
+                    }
+                }
+            }
+            finally
+            {
+                executor.shutdownNow()
+            }
+        }
+        return witness.get()
+    }
+
+    /**
+     * Tells whether a protocol supports a conversation, following all the operations that exchange
+     * its messages.
+     *
+     * @param guards the compiled constraints of the protocol
+     */
+    boolean accepts(BusinessProtocol protocol, ProtocolGuards guards, List<TraceStep> trace)
+    {
+        if (protocol.initialState == null)
+        {
+            return false
+        }
+
+        // A configuration is a state, with the last firing time of each operation name
+        int[] start = new int[guards.variables.size()]
+        Arrays.fill(start, CompiledConstraint.NEVER_FIRED)
+        def configurations = [[protocol.initialState, start]]
+        for (step in trace)
+        {
+            def next = []
+            def seen = new HashSet()
+            configurations.each { State state, int[] fired ->
+                state.outgoingOperations.each { Operation op ->
+                    if ((step.message != op.message.name) || (step.polarity != op.message.polarity)
+                            || !holds(guards.compiled[op], fired, step.time))
+                    {
+                        return
+                    }
+                    int[] after = new int[fired.length]
+                    System.arraycopy(fired, 0, after, 0, fired.length)
+                    after[guards.variables.idOf(op.name)] = step.time
+                    if (seen.add([op.targetState, after as List]))
+                    {
+                        next << [op.targetState, after]
+                    }
+                }
+            }
+            if (next.empty)
+            {
+                return false
+            }
+            configurations = next
+        }
+        return configurations.any { it[0].finalState }
+    }
+
+    /**
+     * Walks a protocol randomly from its initial state, until a final state where it stops with
+     * some odds. The delays are chosen so that the temporal constraints hold.
+     *
+     * @param messages the messages the walk can use, or <code>null</code> for all
+     * @return the conversation, or <code>null</code> if the walk did not end in a final state
+     */
+    List<TraceStep> walk(BusinessProtocol protocol, ProtocolGuards guards, Random random, Set messages = null)
+    {
+        State state = protocol.initialState
+        int now = 0
+        int[] elapsed = new int[guards.variables.size()]
+        Arrays.fill(elapsed, CompiledConstraint.NEVER_FIRED)
+        def trace = []
+        for (int length = 0; length < maxLength; ++length)
+        {
+            def operations = state.outgoingOperations.findAll { (messages == null) || messages.contains(it.message) }
+            if (state.finalState && (operations.empty || (random.nextInt(STOP_ODDS) == 0)))
+            {
+                return trace
+            }
+            Collections.shuffle(operations, random)
+            Operation fired = null
+            int delay = -1
+            for (op in operations)
+            {
+                delay = chooseDelay(op, guards, elapsed, now, random)
+                if (delay >= 0)
+                {
+                    fired = op
+                    break
+                }
+            }
+            if (fired == null)
+            {
+                break
+            }
+            shift(elapsed, delay, elapsed)
+            elapsed[guards.variables.idOf(fired.name)] = 0
+            now += delay
+            trace << new TraceStep(message: fired.message.name, polarity: fired.message.polarity,
+                    kind: fired.operationKind, time: now)
+            state = fired.targetState
+        }
+        return state.finalState ? trace : null
+    }
+
+    /**
+     * Compiles the temporal constraints of a protocol. The constraints that cannot be parsed are
+     * considered as always holding.
+     */
+    ProtocolGuards guardsOf(BusinessProtocol protocol)
+    {
+        ProtocolGuards guards = new ProtocolGuards()
+        protocol.operations.each { guards.variables.intern(it.name) }
+        protocol.operations.each { Operation op ->
+            if (isOperationConstraintEmpty(op))
+            {
+                return
+            }
+            IConstraintNode node = parseConstraint(op.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT))
+            if (node == null)
+            {
+                return
+            }
+            guards.compiled[op] = CompiledConstraint.compile(node, guards.variables)
+            def bounds = []
+            collectBounds(node, bounds)
+            guards.bounds[op] = bounds.collect { name, constant -> [guards.variables.idOf(name), constant] }
+        }
+        return guards
+    }
+
+    private int chooseDelay(Operation op, ProtocolGuards guards, int[] elapsed, int now, Random random)
+    {
+        CompiledConstraint guard = guards.compiled[op]
+        if (guard == null)
+        {
+            return random.nextInt(maxDelay + 1)
+        }
+
+        // Try the delays that reach the bounds of the constraint, and some random ones
+        def candidates = [0]
+        guards.bounds[op].each { slot, constant ->
+            if (constant != CompiledConstraint.NEVER_FIRED)
+            {
+                int delay = constant - ((elapsed[slot] == CompiledConstraint.NEVER_FIRED) ? now : elapsed[slot])
+                [delay - 1, delay, delay + 1].each { if (it >= 0) { candidates << it } }
+            }
+        }
+        DELAY_TRIES.times { candidates << random.nextInt(maxDelay + 1) }
+        Collections.shuffle(candidates, random)
+        int[] valuation = new int[elapsed.length]
+        for (delay in candidates)
+        {
+            shift(elapsed, delay, valuation)
+            if (guard.evaluate(valuation, now + delay))
+            {
+                return delay
+            }
+        }
+        return -1
+    }
+
+    private boolean holds(CompiledConstraint guard, int[] fired, int time)
+    {
+        if (guard == null)
+        {
+            return true
+        }
+        int[] valuation = new int[fired.length]
+        for (int i = 0; i < fired.length; ++i)
+        {
+            valuation[i] = (fired[i] == CompiledConstraint.NEVER_FIRED) ? CompiledConstraint.NEVER_FIRED : time - fired[i]
+        }
+        return guard.evaluate(valuation, time)
+    }
+
+    private void shift(int[] elapsed, int delay, int[] valuation)
+    {
+        for (int i = 0; i < elapsed.length; ++i)
+        {
+            valuation[i] = (elapsed[i] == CompiledConstraint.NEVER_FIRED) ? CompiledConstraint.NEVER_FIRED : elapsed[i] + delay
+        }
+    }
+
+    private void collectBounds(IConstraintNode node, List bounds)
+    {
+        if (node instanceof ComparisonNode)
+        {
+            def variable = (node.leftChild instanceof VariableNode) ? node.leftChild : node.rightChild
+            def constant = (node.leftChild instanceof ConstantNode) ? node.leftChild : node.rightChild
+            bounds << [variable.variableName, constant.constant]
+        }
+        else if (node instanceof BooleanNode)
+        {
+            collectBounds(node.leftChild, bounds)
+            collectBounds(node.rightChild, bounds)
+        }
+        else if (node instanceof IConstraintFunctionNode)
+        {
+            collectBounds(node.node, bounds)
+        }
+    }
+}
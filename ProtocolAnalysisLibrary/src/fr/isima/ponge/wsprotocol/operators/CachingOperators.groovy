@@ -0,0 +1,100 @@
+/*
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Universite Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ *
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ *
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.operators
+
+import fr.isima.ponge.wsprotocol.*
+import fr.isima.ponge.wsprotocol.cache.ProtocolResultCache
+import fr.isima.ponge.wsprotocol.execution.OperatorContext
+
+/**
+ * Decorates a unary operator with a cache of its results. The results are looked up by the
+ * operator class name and the fingerprint of the protocol, and they are handed out as copies.
+ *
+ * @author Julien Ponge
+ */
+class CachingUnaryOperator extends UnaryOperator
+{
+    UnaryOperator operator
+
+    ProtocolResultCache cache
+
+    CachingUnaryOperator(UnaryOperator operator, ProtocolResultCache cache)
+    {
+        super(operator.factory)
+        this.operator = operator
+        this.cache = cache
+    }
+
+    public BusinessProtocol apply(BusinessProtocol protocol)
+    {
+        return apply(protocol, new OperatorContext())
+    }
+
+    public BusinessProtocol apply(BusinessProtocol protocol, OperatorContext context)
+    {
+        def key = cache.createKey(operator.class.name, [protocol] as BusinessProtocol[])
+        BusinessProtocol result = cache.get(key)
+        if (result == null)
+        {
+            result = operator.apply(protocol, context)
+            cache.put(key, result)
+        }
+        return result
+    }
+}
+
+/**
+ * Decorates a binary operator with a cache of its results. The results are looked up by the
+ * operator class name and the fingerprints of both protocols, and they are handed out as copies.
+ *
+ * @author Julien Ponge
+ */
+class CachingBinaryOperator extends BinaryOperator
+{
+    BinaryOperator operator
+
+    ProtocolResultCache cache
+
+    CachingBinaryOperator(BinaryOperator operator, ProtocolResultCache cache)
+    {
+        super(operator.factory)
+        this.operator = operator
+        this.cache = cache
+    }
+
+    public BusinessProtocol apply(BusinessProtocol protocol1, BusinessProtocol protocol2)
+    {
+        return apply(protocol1, protocol2, new OperatorContext())
+    }
+
+    public BusinessProtocol apply(BusinessProtocol protocol1, BusinessProtocol protocol2, OperatorContext context)
+    {
+        def key = cache.createKey(operator.class.name, [protocol1, protocol2] as BusinessProtocol[])
+        BusinessProtocol result = cache.get(key)
+        if (result == null)
+        {
+            result = operator.apply(protocol1, protocol2, context)
+            cache.put(key, result)
+        }
+        return result
+    }
+}
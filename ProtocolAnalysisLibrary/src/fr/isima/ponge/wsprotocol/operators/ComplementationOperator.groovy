@@ -27,6 +27,8 @@ import fr.isima.ponge.wsprotocol.*
  * Computes the complement of a business protocol.
  * The resulting protocol recognizes all the timed conversations that
  * are not recognized by the input one.
+ * The protocols without temporal constraints are determinized first, since
+ * the complement is only exact for deterministic protocols.
  *
  * @author Julien Ponge
  */
@@ -44,7 +46,8 @@ class ComplementationOperator extends UnaryOperator
 
     public BusinessProtocol apply(BusinessProtocol p)
     {
-        BusinessProtocol protocol = cloneProtocol(p)
+        DeterminizationOperator determinization = new DeterminizationOperator(getFactory())
+        BusinessProtocol protocol = determinization.canApply(p) ? determinization.apply(p) : cloneProtocol(p)
         BusinessProtocol complement = getFactory().createBusinessProtocol("^${protocol.name}")
         def statesMap = [:]
         int newOperationsCounter = 0;
@@ -102,14 +105,21 @@ class ComplementationOperator extends UnaryOperator
                             StandardExtraProperties.TEMPORAL_CONSTRAINT,
                             constraintConjunction(negationOperation, fakeOperation))
                 }
-                if (!isOperationConstraintEmpty(negationOperation))
+                def negation = negationOperation.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT)
+                if (!isConstraintEmpty(negation) && isConstraintSatisfiable(negation))
                 {
+                    // A negation that always holds is kept as-is rather than dropped
+                    def simplified = simplifyConstraint(negationOperation.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT))
+                    if (simplified != "")
+                    {
+                        negationOperation.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, simplified)
+                    }
                     complement.addOperation(negationOperation)
                 }
             }
 
             // Add the remaining negation operations
-            (protocol.messages - operationsMap.keySet()).each {message ->
+            (p.messages - operationsMap.keySet()).each {message ->
                 Operation negationOperation = getFactory().createOperation(
                         "nT${newOperationsCounter++}",
                         statesMap[state], q,
@@ -120,7 +130,7 @@ class ComplementationOperator extends UnaryOperator
         }
 
         // Add q -> q operations
-        protocol.messages.each {message ->
+        p.messages.each {message ->
             Operation negationOperation = getFactory().createOperation(
                     "nT${newOperationsCounter++}",
                     q, q,
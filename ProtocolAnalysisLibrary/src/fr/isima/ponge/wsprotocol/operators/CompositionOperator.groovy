@@ -32,9 +32,11 @@ import fr.isima.ponge.wsprotocol.Polarity
  */
 class CompositionOperator extends IntersectionOperator
 {
-    protected boolean match(Operation o1, Operation o2)
+    protected List<String> probeKeys(Operation o1)
     {
-        (o1.message.name == o2.message.name) && (o1.message.polarity != o2.message.polarity)
+        [Polarity.POSITIVE, Polarity.NEGATIVE, Polarity.NULL].findAll { it != o1.message.polarity }.collect {
+            messageKey(o1.message.name, it)
+        }
     }
 
     protected String protocolName(BusinessProtocol p1, BusinessProtocol p2)
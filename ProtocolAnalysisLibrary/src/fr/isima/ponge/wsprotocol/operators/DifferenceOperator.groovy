@@ -22,6 +22,7 @@
 package fr.isima.ponge.wsprotocol.operators
 
 import fr.isima.ponge.wsprotocol.*
+import fr.isima.ponge.wsprotocol.execution.OperatorContext
 
 /**
  * Computes the difference between 2 protocols.
@@ -50,7 +51,13 @@ class DifferenceOperator extends BinaryOperator
     @Override
     public BusinessProtocol apply(BusinessProtocol protocol1, BusinessProtocol protocol2)
     {
-        def result = intersection.apply(cloneProtocol(protocol1), complement.apply(cloneProtocol(protocol2)))
+        return apply(protocol1, protocol2, new OperatorContext())
+    }
+
+    @Override
+    public BusinessProtocol apply(BusinessProtocol protocol1, BusinessProtocol protocol2, OperatorContext context)
+    {
+        def result = intersection.apply(cloneProtocol(protocol1), complement.apply(cloneProtocol(protocol2), context), context)
         result.name = "(${protocol1.name} ||td ${protocol2.name})"
         return result
     }
@@ -22,6 +22,8 @@
 package fr.isima.ponge.wsprotocol.operators
 
 import fr.isima.ponge.wsprotocol.*
+import fr.isima.ponge.wsprotocol.execution.OperatorContext
+import fr.isima.ponge.wsprotocol.timed.constraints.*
 
 /**
  * Computes the intersection of 2 protocols.
@@ -30,6 +32,8 @@ import fr.isima.ponge.wsprotocol.*
  */
 class IntersectionOperator extends BinaryOperator
 {
+    static final int PROGRESS_INTERVAL = 256
+
     IntersectionOperator()
     {
         super()
@@ -41,45 +45,103 @@ class IntersectionOperator extends BinaryOperator
     }
 
     @Override
-    BusinessProtocol apply(BusinessProtocol protocol1, BusinessProtocol protocol2)
+    BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2)
     {
-        BusinessProtocol p1 = cloneProtocol(protocol1)
-        BusinessProtocol p2 = cloneProtocol(protocol2)
+        return apply(p1, p2, new OperatorContext())
+    }
 
+    /**
+     * Applies the operator, the context being checked after each explored pair of states. The
+     * progress is reported every <code>PROGRESS_INTERVAL</code> pairs.
+     */
+    @Override
+    BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2, OperatorContext context)
+    {
+        context.check(0, 0)
         BusinessProtocol result = getFactory().createBusinessProtocol(protocolName(p1, p2))
         def resultStates = [:]
         def operationMapping = [:]
 
-        // Variables rewriting stuff
-        p1.operations.findAll { !isOperationConstraintEmpty(it) }.each { rewriteConstraintVariables(it) { name -> "_${name}" } }
-        p2.operations.findAll { !isOperationConstraintEmpty(it) }.each { rewriteConstraintVariables(it) { name -> "${name}_" } }
-        p1.operations.each { operationMapping["_${it.name}"] = [] }
-        p2.operations.each { operationMapping["${it.name}_"] = [] }
+        // Variables rewriting stuff: the constraints are parsed once and stay as trees until the end, the
+        // input protocols are left untouched
+        def constraints = new IdentityHashMap()
+        p1.operations.findAll { !isOperationConstraintEmpty(it) }.each { constraints[it] = parseRewrittenConstraint(it) { name -> "_${name}" } }
+        p2.operations.findAll { !isOperationConstraintEmpty(it) }.each { constraints[it] = parseRewrittenConstraint(it) { name -> "${name}_" } }
+        def productConstraints = new IdentityHashMap()
+        def mappingKeys = new IdentityHashMap()
+        p1.operations.each { mappingKeys[it] = "_${it.name}".toString() }
+        p2.operations.each { mappingKeys[it] = "${it.name}_".toString() }
+        mappingKeys.values().each { operationMapping[it] = new LinkedHashSet() }
 
-        // Walk each state combination
-        def stateSpace = [p1.states.asList(), p2.states.asList()].combinations()
-        stateSpace.each {State s1, State s2 ->
+        // Walk the state combinations that are reachable from the pair of initial states. The pairs of
+        // states and of operations are identified by packed ids, the names are only built for the
+        // elements of the result.
+        def stateIds1 = new IdentityHashMap()
+        def stateIds2 = new IdentityHashMap()
+        def operationIds = new IdentityHashMap()
+        def operationNames = [:]
+        def toVisit = new LinkedList()
+        def visited = new HashSet()
+        def joinIndexes = new IdentityHashMap()
+        if ((p1.initialState != null) && (p2.initialState != null))
+        {
+            toVisit << [p1.initialState, p2.initialState]
+            visited << pairKey(stateIds1, p1.initialState, stateIds2, p2.initialState)
+        }
+        int explored = 0
+        while (!toVisit.empty)
+        {
+            if (++explored % PROGRESS_INTERVAL == 0)
+            {
+                context.progress(result.states.size(), result.operations.size())
+            }
+            else
+            {
+                context.check(result.states.size(), result.operations.size())
+            }
+            def pair = toVisit.removeFirst()
+            State s1 = pair[0]
+            State s2 = pair[1]
 
             // Compute the common outgoing operations
             if (s1.outgoingOperations.isEmpty() || s2.outgoingOperations.isEmpty())
             {
-                return
+                continue
+            }
+            def joinIndex = joinIndexes[s2]
+            if (joinIndex == null)
+            {
+                joinIndex = s2.outgoingOperations.groupBy { joinKey(it) }
+                joinIndexes[s2] = joinIndex
+            }
+            def common = []
+            s1.outgoingOperations.each { Operation o1 ->
+                probeKeys(o1).each { key -> joinIndex[key]?.each { Operation o2 -> common << [o1, o2] } }
             }
-            def common = [s1.outgoingOperations, s2.outgoingOperations].combinations().findAll {o1, o2 -> match(o1, o2)}
 
-            // Add each of them to the intersection protocol
+            // Add each of them to the intersection protocol, unless their conjoined constraints can never hold
             common.each {Operation o1, Operation o2 ->
 
-                def sourceState = [s1, s2]
-                def targetState = [o1.targetState, o2.targetState]
+                def conjunction = constraintNodesConjunction(constraints[o1], constraints[o2])
+                if (!isConstraintNodeSatisfiable(conjunction))
+                {
+                    return
+                }
+
+                def sourceKey = pairKey(stateIds1, s1, stateIds2, s2)
+                def targetKey = pairKey(stateIds1, o1.targetState, stateIds2, o2.targetState)
+                if (visited.add(targetKey))
+                {
+                    toVisit << [o1.targetState, o2.targetState]
+                }
 
                 // Ensure each merger state exists...
-                [sourceState, targetState].each {s ->
-                    if (!resultStates.containsKey(s))
+                [[sourceKey, s1, s2], [targetKey, o1.targetState, o2.targetState]].each {key, State m1, State m2 ->
+                    if (!resultStates.containsKey(key))
                     {
-                        def state = getFactory().createState(stateName(s[0], s[1]), s[0].finalState && s[1].finalState)
-                        state.setInitialState(s[0].initialState && s[1].initialState)
-                        resultStates[s] = state
+                        def state = getFactory().createState(stateName(m1, m2), m1.finalState && m2.finalState)
+                        state.setInitialState(m1.initialState && m2.initialState)
+                        resultStates[key] = state
                         result.addState(state)
                         if (state.isInitialState())
                         {
@@ -88,76 +150,113 @@ class IntersectionOperator extends BinaryOperator
                     }
                 }
 
-                // Add the operation
+                // Add the operation, whose name is built once for each pair of operations
+                def operationKey = pairKey(operationIds, o1, operationIds, o2)
+                def name = operationNames[operationKey]
+                if (name == null)
+                {
+                    name = operationName(o1, o2)
+                    operationNames[operationKey] = name
+                }
                 def Operation operation = getFactory().createOperation(
-                        operationName(o1, o2),
-                        resultStates[sourceState],
-                        resultStates[targetState],
+                        name,
+                        resultStates[sourceKey],
+                        resultStates[targetKey],
                         getFactory().createMessage(o1.message.name, polarity(o1.message.polarity)),
                         o1.operationKind)
-                def conjunction = constraintConjunction(o1, o2)
-                if (conjunction != "")
+                if (conjunction != null)
                 {
-                    operation.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, conjunction)
+                    productConstraints[operation] = conjunction
                 }
                 result.addOperation(operation)
 
                 // Keep the mapping for rewriting the constraints
-                ["_${o1.name}", "${o2.name}_"].each {
-                    if (!operationMapping[it].contains(operation.name))
-                    {
-                        operationMapping[it] << operation.name
-                    }
-                }
+                operationMapping[mappingKeys[o1]] << name
+                operationMapping[mappingKeys[o2]] << name
             }
         }
 
         // Prune!
         def removedOperations = pruneProtocol(result)
         operationMapping.each { k, v ->
-            operationMapping[k] = operationMapping[k].findAll { !removedOperations.contains(it) }
+            operationMapping[k] = new ArrayList(v.findAll { !removedOperations.contains(it) })
         }
 
-        // Constraints rewriting
+        // Constraints rewriting: the constraint is compiled once, then each combination of mapped names
+        // is a slots remapping of the compiled form. Merging the variables may reveal dead operations.
+        // This is the only place where the product constraints get printed.
+        def deadOperations = []
         result.operations.each { Operation op ->
-            if (isOperationConstraintEmpty(op)) { return }
-            String originalConstraint = op.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT)
-            def originalVars = listVariablesInOperationConstraint(op)
-            def mappedCombinations = originalVars.collect { operationMapping[it] }.combinations()
-            def fakeOperations = []
-            mappedCombinations.size().times {
-                Operation fakeOperation = factory.createOperation("FAKE", null, null, null)
-                fakeOperation.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, originalConstraint)
-                fakeOperations << fakeOperation
+            IConstraintNode conjunction = productConstraints[op]
+            if (conjunction == null) { return }
+            VariableTable originalVars = new VariableTable()
+            CompiledConstraint compiled = CompiledConstraint.compile(conjunction, originalVars)
+            def mappedCombinations = originalVars.names.collect { operationMapping[it] }.combinations()
+            VariableTable mappedVars = new VariableTable()
+            def slotsMappings = mappedCombinations.collect { combination ->
+                combination.collect { mappedVars.intern(it) } as int[]
             }
-            Iterator<Operation> fakeIterator = fakeOperations.iterator()
-            mappedCombinations.each { combination ->
-                def varPairs = [originalVars, combination].transpose()
-                Operation fakeOp = fakeIterator.next()
-                varPairs.each { pair ->
-                    rewriteConstraintVariables(fakeOp) { name -> (name == pair[0]) ? pair[1] : name }
-                }
+            String[] layout = mappedVars.names
+            def disjunction = slotsMappings.inject(null) { current, mapping ->
+                def next = compiled.remap(mapping, layout)
+                return (current == null) ? next : current.disjunction(next)
             }
-            def disjunction = fakeOperations.inject(null) { current, next ->
-                if (current == null)
-                {
-                    return next.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT)
-                }
-                else
-                {
-                    Operation fakeOperation = factory.createOperation("FAKE", null, null, null)
-                    fakeOperation.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, current)
-                    return constraintDisjunction(fakeOperation, next)
-                }
+            def node = disjunction?.decompile()
+            if ((node != null) && !new SatisfiabilityChecker().isSatisfiable(node))
+            {
+                deadOperations << op
+                return
             }
-            op.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, disjunction)
+            def simplified = (node == null) ? null : new ConstraintSimplifier().simplify(node)
+            if (simplified == null)
+            {
+                op.removeExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT)
+            }
+            else
+            {
+                op.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, simplified.toString())
+            }
+        }
+        if (!deadOperations.empty)
+        {
+            deadOperations.each { result.removeOperation(it) }
+            pruneProtocol(result)
         }
         return result;
     }
 
-    protected boolean match(Operation o1, Operation o2)
+    /**
+     * Packs the ids of 2 components into a key, the ids being given in order of first appearance.
+     */
+    private static Long pairKey(Map ids1, Object c1, Map ids2, Object c2)
+    {
+        ((long) componentId(ids1, c1) << 32) | (componentId(ids2, c2) & 0xFFFFFFFFL)
+    }
+
+    private static int componentId(Map ids, Object component)
+    {
+        def id = ids[component]
+        if (id == null)
+        {
+            id = ids.size()
+            ids[component] = id
+        }
+        return id
+    }
+
+    protected String joinKey(Operation o2)
+    {
+        messageKey(o2.message.name, o2.message.polarity)
+    }
+
+    protected List<String> probeKeys(Operation o1)
+    {
+        [messageKey(o1.message.name, o1.message.polarity)]
+    }
+
+    protected String messageKey(String name, Polarity polarity)
     {
-        (o1.message.name == o2.message.name) && (o1.message.polarity == o2.message.polarity)
+        "${name}${polarity}"
     }
 
     protected String operationName(Operation o1, Operation o2)
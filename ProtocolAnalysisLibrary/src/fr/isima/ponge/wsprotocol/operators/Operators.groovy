@@ -22,6 +22,7 @@
 package fr.isima.ponge.wsprotocol.operators
 
 import fr.isima.ponge.wsprotocol.*
+import fr.isima.ponge.wsprotocol.execution.OperatorContext
 import fr.isima.ponge.wsprotocol.impl.BusinessProtocolFactoryImpl
 import fr.isima.ponge.wsprotocol.timed.constraints.*
 import fr.isima.ponge.wsprotocol.timed.constraints.parser.TemporalConstraintLexer
@@ -82,10 +83,16 @@ abstract class Operator
     }
 
     protected void rewriteConstraintVariables(Operation operation, Closure rewriter)
+    {
+        IConstraintNode root = parseRewrittenConstraint(operation, rewriter)
+        operation.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, root.toString())
+    }
+
+    protected IConstraintNode parseRewrittenConstraint(Operation operation, Closure rewriter)
     {
         IConstraintNode root = parseConstraint(operation.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT))
         findAndRewriteVariables(root, rewriter)
-        operation.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, root.toString())
+        return root
     }
 
     private List collectVariableNames(IConstraintNode node)
@@ -148,6 +155,51 @@ abstract class Operator
         constraintCombination(o1, o2, BooleanNode.OR)
     }
 
+    protected IConstraintNode constraintNodesConjunction(IConstraintNode c1, IConstraintNode c2)
+    {
+        if (c1 == null)
+        {
+            return c2
+        }
+        else if (c2 == null)
+        {
+            return c1
+        }
+
+        // The operands are shared, so the result gets a fresh function node
+        BooleanNode andNode = new BooleanNode(BooleanNode.AND, c1.node, c2.node)
+        return (c1 instanceof MInvokeNode) ? new MInvokeNode(andNode) : new CInvokeNode(andNode)
+    }
+
+    protected String simplifyConstraint(String constraint)
+    {
+        if (isConstraintEmpty(constraint))
+        {
+            return ""
+        }
+        def ast = parseConstraint(constraint)
+        if (ast == null)
+        {
+            return constraint
+        }
+        def simplified = new ConstraintSimplifier().simplify(ast)
+        return (simplified == null) ? "" : simplified.toString()
+    }
+
+    protected boolean isConstraintSatisfiable(String constraint)
+    {
+        if (isConstraintEmpty(constraint))
+        {
+            return true
+        }
+        return isConstraintNodeSatisfiable(parseConstraint(constraint))
+    }
+
+    protected boolean isConstraintNodeSatisfiable(IConstraintNode constraint)
+    {
+        return (constraint == null) || new SatisfiabilityChecker().isSatisfiable(constraint)
+    }
+
     protected String negateConstraint(Operation op)
     {
         def constraint = op.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT)
@@ -156,6 +208,15 @@ abstract class Operator
             return ""
         }
 
+        // Single clock comparisons take the interval path
+        def ast = parseConstraint(constraint)
+        def negation = IntervalConstraint.fromNode(ast)?.negate()?.toNode()
+        if (negation != null)
+        {
+            ast.node = negation
+            return ast.toString()
+        }
+
         def NEGATIONS = [
                 (BooleanNode.AND): BooleanNode.OR,
                 (BooleanNode.OR): BooleanNode.AND,
@@ -167,7 +228,6 @@ abstract class Operator
                 (ComparisonNode.NEQ): ComparisonNode.EQ
         ]
 
-        def ast = parseConstraint(constraint)
         findAndRewriteOperators(ast.node) {operator -> NEGATIONS[operator] }
         return ast.toString()
     }
@@ -299,6 +359,22 @@ abstract class UnaryOperator extends Operator
      * @return the resulting business protocol
      */
     abstract BusinessProtocol apply(BusinessProtocol protocol)
+
+    /**
+     * Applies the operator within an execution context. The context is only checked before and
+     * after, the operators that can take long override this method.
+     *
+     * @param protocol the input business protocol
+     * @param context the execution context, which can stop the operator
+     * @return the resulting business protocol
+     */
+    BusinessProtocol apply(BusinessProtocol protocol, OperatorContext context)
+    {
+        context.check(0, 0)
+        BusinessProtocol result = apply(protocol)
+        context.progress(result.states.size(), result.operations.size())
+        return result
+    }
 }
 
 /**
@@ -326,4 +402,21 @@ abstract class BinaryOperator extends Operator
      * @return the resulting business protocol
      */
     abstract BusinessProtocol apply(BusinessProtocol protocol1, BusinessProtocol protocol2)
+
+    /**
+     * Applies the operator within an execution context. The context is only checked before and
+     * after, the operators that can take long override this method.
+     *
+     * @param protocol1 the first protocol
+     * @param protocol2 the second protocol
+     * @param context the execution context, which can stop the operator
+     * @return the resulting business protocol
+     */
+    BusinessProtocol apply(BusinessProtocol protocol1, BusinessProtocol protocol2, OperatorContext context)
+    {
+        context.check(0, 0)
+        BusinessProtocol result = apply(protocol1, protocol2)
+        context.progress(result.states.size(), result.operations.size())
+        return result
+    }
 }
\ No newline at end of file
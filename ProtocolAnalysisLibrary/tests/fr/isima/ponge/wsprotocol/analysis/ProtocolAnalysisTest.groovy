@@ -0,0 +1,99 @@
+/*
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Universite Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ *
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ *
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.analysis
+
+import fr.isima.ponge.wsprotocol.*
+import fr.isima.ponge.wsprotocol.impl.*
+import fr.isima.ponge.wsprotocol.operators.*
+import junit.framework.TestCase
+
+class ProtocolAnalysisTest extends TestCase
+{
+    BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl()
+
+    def buildProtocol(String name, List messages)
+    {
+        BusinessProtocol p = factory.createBusinessProtocol(name)
+        def states = (0..messages.size()).collect { factory.createState("s${it}", it == messages.size()) }
+        states.each { p.addState it }
+        states[0].initialState = true
+        p.setInitialState states[0]
+        messages.eachWithIndex { message, i ->
+            p.addOperation factory.createOperation("T${i}", states[i], states[i + 1], factory.createMessage(message, Polarity.POSITIVE))
+        }
+        return p
+    }
+
+    /**
+     * Tells whether a protocol has a final state reachable from its initial state.
+     */
+    boolean acceptsSomething(BusinessProtocol p)
+    {
+        if (p.initialState == null)
+        {
+            return false
+        }
+        def reached = new HashSet([p.initialState])
+        def toVisit = [p.initialState]
+        while (!toVisit.empty)
+        {
+            State state = toVisit.remove(0)
+            if (state.finalState)
+            {
+                return true
+            }
+            state.successors.each { if (reached.add(it)) { toVisit << it } }
+        }
+        return false
+    }
+
+    void assertSameReplaceability(List messages1, List messages2)
+    {
+        def analysis = new ProtocolAnalysis()
+        BusinessProtocol p1 = buildProtocol("P1", messages1)
+        BusinessProtocol p2 = buildProtocol("P2", messages2)
+
+        // No UPPAAL run is needed to answer, the product is only explored to compare
+        boolean replaceable = analysis.isReplaceable(p1, p2)
+        def product = new IntersectionOperator().apply(new ComplementationOperator().apply(p1), p2)
+        assertEquals(!acceptsSomething(product), replaceable)
+        assertEquals(replaceable, analysis.witness == null)
+    }
+
+    void testUntimedReplaceability()
+    {
+        assertSameReplaceability(["a", "b"], ["a", "b"])
+        assertSameReplaceability(["a", "b"], ["a"])
+        assertSameReplaceability(["a", "b"], ["a", "b", "a"])
+
+        def analysis = new ProtocolAnalysis()
+        assertFalse analysis.isReplaceable(buildProtocol("P1", ["a", "b"]), buildProtocol("P2", ["a", "b", "a"]))
+        assertEquals(["a", "b", "a"], analysis.witness.collect { it.message })
+    }
+
+    void testForeignMessage()
+    {
+        // The conversations of P2 using c, which P1 does not know, do not count on either path
+        assertSameReplaceability(["a", "b"], ["a", "c"])
+        assertTrue new ProtocolAnalysis().isReplaceable(buildProtocol("P1", ["a", "b"]), buildProtocol("P2", ["a", "c"]))
+    }
+}
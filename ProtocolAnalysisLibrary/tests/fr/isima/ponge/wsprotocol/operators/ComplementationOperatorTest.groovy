@@ -77,4 +77,29 @@ class ComplementationOperatorTest extends TestCase
                     (it.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT) == "C-Invoke((T1 <= 4) && (T1 >= 3))")
         }
     }
-}
\ No newline at end of file
+
+    void testUntimedComplement()
+    {
+        BusinessProtocol protocol = factory.createBusinessProtocol("P")
+        def states = [
+                factory.createState("s1", false),
+                factory.createState("s2", true),
+                factory.createState("s3", false),
+                factory.createState("s4", true)
+        ].each { protocol.addState it }
+        states[0].initialState = true
+        protocol.setInitialState states[0]
+        [
+                factory.createOperation("T1", states[0], states[1], factory.createMessage("a", Polarity.POSITIVE)),
+                factory.createOperation("T2", states[0], states[2], factory.createMessage("a", Polarity.POSITIVE)),
+                factory.createOperation("T3", states[2], states[3], factory.createMessage("b", Polarity.POSITIVE))
+        ].each { protocol.addOperation it }
+
+        def result = new ComplementationOperator().apply(protocol)
+
+        assertEquals 4, result.states.size()
+        State subset = result.states.find { it.name == "{s2,s3}" }
+        assertFalse subset.finalState
+        assertEquals "s4", subset.outgoingOperations.find { it.message.name == "b" }.targetState.name
+    }
+}
@@ -42,6 +42,6 @@ class CompositionOperatorTest extends TestCase
         def t1_t1 = result.operations.find {it.name == "T1_T1"}
 
         assertNotSame t1_t1, null
-        assertEquals "C-Invoke((T0_T0 < 20) && (T0_T0 < 10))", t1_t1.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT)
+        assertEquals "C-Invoke(T0_T0 < 10)", t1_t1.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT)
     }
 }
\ No newline at end of file
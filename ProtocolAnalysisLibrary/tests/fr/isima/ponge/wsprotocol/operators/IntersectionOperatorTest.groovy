@@ -30,6 +30,7 @@ import fr.isima.ponge.wsprotocol.Message
 import fr.isima.ponge.wsprotocol.State
 import fr.isima.ponge.wsprotocol.Polarity
 import fr.isima.ponge.wsprotocol.StandardExtraProperties
+import fr.isima.ponge.wsprotocol.execution.*
 
 class IntersectionOperatorTest extends TestCase
 {
@@ -57,6 +58,41 @@ class IntersectionOperatorTest extends TestCase
         assertTrue result.states.find { it.name == "(s2,s2)" }.finalState 
     }
 
+    void testContext()
+    {
+        def base = "tests/fr/isima/ponge/wsprotocol/operators/"
+        BusinessProtocol p1 = TestingUtils.loadProtocol(base + "intersection/p1.wsprotocol")
+        BusinessProtocol p2 = TestingUtils.loadProtocol(base + "intersection/p2.wsprotocol")
+        def operator = new IntersectionOperator()
+
+        def context = new OperatorContext()
+        context.maxStates = 1
+        try
+        {
+            operator.apply(p1, p2, context)
+            fail()
+        }
+        catch (OperatorLimitExceededException e)
+        {
+            assertSame OperatorLimit.STATES, e.limit
+            assertTrue e.states > 1
+        }
+
+        context = new OperatorContext()
+        context.cancel()
+        try
+        {
+            new DifferenceOperator().apply(p1, p2, context)
+            fail()
+        }
+        catch (OperatorLimitExceededException e)
+        {
+            assertSame OperatorLimit.CANCELLED, e.limit
+        }
+
+        assertEquals operator.apply(p1, p2), operator.apply(p1, p2, new OperatorContext())
+    }
+
     void testConstraintConjunction()
     {
         BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl()
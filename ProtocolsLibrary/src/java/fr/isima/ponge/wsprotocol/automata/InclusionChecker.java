@@ -0,0 +1,305 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.automata;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.Message;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.State;
+
+/**
+ * Checks the inclusion of the languages of two protocols without temporal constraints, without complementing
+ * any of them. The pairs made of a state of the protocol and of the set of states that the reference protocol
+ * can be in after the same messages are explored breadth-first, from the initial states. A pair is a
+ * counterexample when its state is final and none of its states of the reference protocol is.
+ * <p/>
+ * A pair is not explored when the same state was reached with a subset of its states of the reference
+ * protocol: any counterexample from it would also be found from the smaller set. Only the minimal sets are
+ * thus kept for each state, as an antichain. The states that cannot reach a final state are ignored in both
+ * protocols.
+ * <p/>
+ * The exploration stops at the first counterexample, which is also a shortest one. Conversations are
+ * sequences of messages, the operation kinds are ignored. As for the complement of the reference protocol
+ * used by the replaceability operators, only the conversations over the messages of the reference protocol
+ * count: the operations of the protocol with other messages are never followed.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class InclusionChecker
+{
+    /**
+     * Tells whether the inclusion of two protocols can be checked, that is, whether none of them has temporal
+     * constraints.
+     *
+     * @param protocol The protocol.
+     * @param reference The reference protocol.
+     * @return <code>true</code> if the protocols have no temporal constraint.
+     */
+    public boolean canCheck(BusinessProtocol protocol, BusinessProtocol reference)
+    {
+        return ProtocolDeterminizer.isUntimed(protocol) && ProtocolDeterminizer.isUntimed(reference);
+    }
+
+    /**
+     * Checks whether the conversations of a protocol that only use messages of a reference protocol are all
+     * conversations of the reference protocol.
+     *
+     * @param protocol The protocol.
+     * @param reference The reference protocol.
+     * @return <code>true</code> if the language of <code>protocol</code> is included in the language of
+     *         <code>reference</code>.
+     */
+    public boolean isIncluded(BusinessProtocol protocol, BusinessProtocol reference)
+    {
+        return findCounterexample(protocol, reference) == null;
+    }
+
+    /**
+     * Looks for a conversation of a protocol that is not a conversation of a reference protocol, among the
+     * conversations that only use messages of the reference protocol.
+     *
+     * @param protocol The protocol.
+     * @param reference The reference protocol.
+     * @return The operations of <code>protocol</code> of a shortest such conversation, or <code>null</code> if
+     *         there is none.
+     * @throws IllegalArgumentException if one of the protocols has temporal constraints.
+     */
+    public List<Operation> findCounterexample(BusinessProtocol protocol, BusinessProtocol reference)
+    {
+        if (!canCheck(protocol, reference))
+        {
+            throw new IllegalArgumentException("The protocols have temporal constraints: " + protocol.getName()
+                    + ", " + reference.getName());
+        }
+        Map<State, Integer> live = coReachable(protocol);
+        if (protocol.getInitialState() == null || !live.containsKey(protocol.getInitialState()))
+        {
+            return null;
+        }
+
+        // The successors of the live states of the reference protocol, by message
+        Map<State, Integer> ids = coReachable(reference);
+        List<Map<Message, BitSet>> successors = new ArrayList<Map<Message, BitSet>>(ids.size());
+        BitSet finals = new BitSet();
+        for (int i = 0; i < ids.size(); ++i)
+        {
+            successors.add(new HashMap<Message, BitSet>());
+        }
+        for (Map.Entry<State, Integer> entry : ids.entrySet())
+        {
+            int id = entry.getValue();
+            if (entry.getKey().isFinalState())
+            {
+                finals.set(id);
+            }
+            for (Operation operation : entry.getKey().getOutgoingOperations())
+            {
+                Integer target = ids.get(operation.getTargetState());
+                if (target == null)
+                {
+                    continue;
+                }
+                BitSet targets = successors.get(id).get(operation.getMessage());
+                if (targets == null)
+                {
+                    targets = new BitSet();
+                    successors.get(id).put(operation.getMessage(), targets);
+                }
+                targets.set(target);
+            }
+        }
+
+        // Explore the pairs, keeping the minimal sets for each state
+        Set<Message> messages = new HashSet<Message>(reference.getMessages());
+        Map<State, List<Pair>> antichains = new IdentityHashMap<State, List<Pair>>();
+        LinkedList<Pair> toVisit = new LinkedList<Pair>();
+        BitSet initial = new BitSet();
+        Integer initialId = (reference.getInitialState() == null) ? null : ids.get(reference.getInitialState());
+        if (initialId != null)
+        {
+            initial.set(initialId);
+        }
+        Pair start = new Pair(protocol.getInitialState(), initial, null, null);
+        if (isCounterexample(start, finals))
+        {
+            return start.conversation();
+        }
+        insert(start, antichains);
+        toVisit.add(start);
+        while (!toVisit.isEmpty())
+        {
+            Pair pair = toVisit.removeFirst();
+            if (pair.subsumed)
+            {
+                continue;
+            }
+            for (Operation operation : pair.state.getOutgoingOperations())
+            {
+                if (!live.containsKey(operation.getTargetState()) || !messages.contains(operation.getMessage()))
+                {
+                    continue;
+                }
+                BitSet next = new BitSet();
+                for (int s = pair.states.nextSetBit(0); s >= 0; s = pair.states.nextSetBit(s + 1))
+                {
+                    BitSet targets = successors.get(s).get(operation.getMessage());
+                    if (targets != null)
+                    {
+                        next.or(targets);
+                    }
+                }
+                Pair successor = new Pair(operation.getTargetState(), next, pair, operation);
+                if (isCounterexample(successor, finals))
+                {
+                    return successor.conversation();
+                }
+                if (insert(successor, antichains))
+                {
+                    toVisit.add(successor);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isCounterexample(Pair pair, BitSet finals)
+    {
+        return pair.state.isFinalState() && !pair.states.intersects(finals);
+    }
+
+    /**
+     * Adds a pair to the antichain of its state, unless a pair with a subset of its states is already there.
+     * The pairs with a superset of its states are removed.
+     *
+     * @return <code>true</code> if the pair was added.
+     */
+    private static boolean insert(Pair pair, Map<State, List<Pair>> antichains)
+    {
+        List<Pair> antichain = antichains.get(pair.state);
+        if (antichain == null)
+        {
+            antichain = new ArrayList<Pair>();
+            antichains.put(pair.state, antichain);
+        }
+        for (Pair other : antichain)
+        {
+            if (isSubset(other.states, pair.states))
+            {
+                return false;
+            }
+        }
+        Iterator<Pair> it = antichain.iterator();
+        while (it.hasNext())
+        {
+            Pair other = it.next();
+            if (isSubset(pair.states, other.states))
+            {
+                other.subsumed = true;
+                it.remove();
+            }
+        }
+        antichain.add(pair);
+        return true;
+    }
+
+    private static boolean isSubset(BitSet subset, BitSet set)
+    {
+        BitSet difference = (BitSet) subset.clone();
+        difference.andNot(set);
+        return difference.isEmpty();
+    }
+
+    /**
+     * Numbers the states of a protocol that can reach a final state.
+     */
+    private static Map<State, Integer> coReachable(BusinessProtocol protocol)
+    {
+        Map<State, Integer> ids = new IdentityHashMap<State, Integer>();
+        List<State> states = new ArrayList<State>(protocol.getFinalStates());
+        for (State state : states)
+        {
+            ids.put(state, ids.size());
+        }
+        for (int i = 0; i < states.size(); ++i)
+        {
+            for (Operation operation : states.get(i).getIncomingOperations())
+            {
+                State source = operation.getSourceState();
+                if (!ids.containsKey(source))
+                {
+                    ids.put(source, ids.size());
+                    states.add(source);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * A state of the protocol with the states of the reference protocol, and the operation it was reached
+     * with.
+     */
+    private static class Pair
+    {
+        final State state;
+
+        final BitSet states;
+
+        final Pair parent;
+
+        final Operation operation;
+
+        boolean subsumed;
+
+        Pair(State state, BitSet states, Pair parent, Operation operation)
+        {
+            this.state = state;
+            this.states = states;
+            this.parent = parent;
+            this.operation = operation;
+        }
+
+        List<Operation> conversation()
+        {
+            List<Operation> operations = new ArrayList<Operation>();
+            for (Pair pair = this; pair.parent != null; pair = pair.parent)
+            {
+                operations.add(pair.operation);
+            }
+            Collections.reverse(operations);
+            return operations;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.automata;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
+import fr.isima.ponge.wsprotocol.Message;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.OperationKind;
+import fr.isima.ponge.wsprotocol.StandardExtraProperties;
+import fr.isima.ponge.wsprotocol.State;
+
+/**
+ * Determinizes the business protocols that have no temporal constraint, using the subset construction. Only
+ * the subsets reachable from the initial state are built, and the states that cannot reach a final state are
+ * left out of the subsets, so that the result is trimmed. An operation is identified by its message and its
+ * kind. As the operation names are the clocks of the temporal constraints, they must stay unique: the
+ * operations of the result are numbered <code>dT0</code>, <code>dT1</code>, and so on.
+ * <p/>
+ * The subsets are interned bit sets over the state numbers: each subset is built once and gets a state of
+ * the result. A subset with a single state is named after that state, the other ones are named after their
+ * states between braces. Note that the pruned operations are lost, hence the result can have fewer messages
+ * than the input protocol.
+ * <p/>
+ * This class is not thread-safe.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class ProtocolDeterminizer
+{
+    private final BusinessProtocolFactory factory;
+
+    /**
+     * Instanciates a new determinizer.
+     *
+     * @param factory The factory to create the protocol elements.
+     */
+    public ProtocolDeterminizer(BusinessProtocolFactory factory)
+    {
+        this.factory = factory;
+    }
+
+    /**
+     * Tells whether a protocol can be determinized, that is, whether none of its operations has a temporal
+     * constraint.
+     *
+     * @param protocol The protocol.
+     * @return <code>true</code> if the protocol has no temporal constraint.
+     */
+    public boolean canDeterminize(BusinessProtocol protocol)
+    {
+        return isUntimed(protocol);
+    }
+
+    static boolean isUntimed(BusinessProtocol protocol)
+    {
+        for (Operation operation : protocol.getOperations())
+        {
+            String constraint = (String) operation.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT);
+            if (constraint != null && !"".equals(constraint.trim()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determinizes a protocol. The input protocol is left untouched.
+     *
+     * @param protocol The protocol, which must not have temporal constraints.
+     * @return The deterministic protocol, with the same name.
+     * @throws IllegalArgumentException if the protocol has temporal constraints.
+     */
+    public BusinessProtocol determinize(BusinessProtocol protocol)
+    {
+        if (!canDeterminize(protocol))
+        {
+            throw new IllegalArgumentException("The protocol has temporal constraints: " + protocol.getName());
+        }
+
+        // Number the states that can reach a final state
+        List<State> states = new ArrayList<State>();
+        Map<State, Integer> ids = new IdentityHashMap<State, Integer>();
+        for (State state : protocol.getFinalStates())
+        {
+            ids.put(state, states.size());
+            states.add(state);
+        }
+        for (int i = 0; i < states.size(); ++i)
+        {
+            for (Operation operation : states.get(i).getIncomingOperations())
+            {
+                State source = operation.getSourceState();
+                if (!ids.containsKey(source))
+                {
+                    ids.put(source, states.size());
+                    states.add(source);
+                }
+            }
+        }
+
+        // The successors of each state, by label
+        List<Map<Label, BitSet>> successors = new ArrayList<Map<Label, BitSet>>(states.size());
+        for (State state : states)
+        {
+            Map<Label, BitSet> byLabel = new LinkedHashMap<Label, BitSet>();
+            for (Operation operation : state.getOutgoingOperations())
+            {
+                Integer target = ids.get(operation.getTargetState());
+                if (target == null)
+                {
+                    continue;
+                }
+                Label label = new Label(operation.getMessage(), operation.getOperationKind());
+                BitSet targets = byLabel.get(label);
+                if (targets == null)
+                {
+                    targets = new BitSet();
+                    byLabel.put(label, targets);
+                }
+                targets.set(target);
+            }
+            successors.add(byLabel);
+        }
+
+        // Build the reachable subsets
+        BusinessProtocol result = factory.createBusinessProtocol(protocol.getName());
+        Map<BitSet, State> subsets = new HashMap<BitSet, State>();
+        List<BitSet> toVisit = new ArrayList<BitSet>();
+        BitSet initial = new BitSet();
+        Integer initialId = (protocol.getInitialState() == null) ? null : ids.get(protocol.getInitialState());
+        if (initialId != null)
+        {
+            initial.set(initialId);
+        }
+        int operationsCounter = 0;
+        State initialState = intern(initial, states, subsets, toVisit, result);
+        initialState.setInitialState(true);
+        result.setInitialState(initialState);
+
+        for (int i = 0; i < toVisit.size(); ++i)
+        {
+            BitSet subset = toVisit.get(i);
+            State source = subsets.get(subset);
+            Map<Label, BitSet> byLabel = new LinkedHashMap<Label, BitSet>();
+            for (int s = subset.nextSetBit(0); s >= 0; s = subset.nextSetBit(s + 1))
+            {
+                for (Map.Entry<Label, BitSet> entry : successors.get(s).entrySet())
+                {
+                    BitSet targets = byLabel.get(entry.getKey());
+                    if (targets == null)
+                    {
+                        targets = new BitSet();
+                        byLabel.put(entry.getKey(), targets);
+                    }
+                    targets.or(entry.getValue());
+                }
+            }
+            for (Map.Entry<Label, BitSet> entry : byLabel.entrySet())
+            {
+                Label label = entry.getKey();
+                State target = intern(entry.getValue(), states, subsets, toVisit, result);
+                result.addOperation(factory.createOperation("dT" + operationsCounter++, source, target, factory
+                        .createMessage(label.message.getName(), label.message.getPolarity()), label.kind));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the state of a subset, creating it on the first lookup.
+     */
+    private State intern(BitSet subset, List<State> states, Map<BitSet, State> subsets, List<BitSet> toVisit,
+            BusinessProtocol result)
+    {
+        State state = subsets.get(subset);
+        if (state != null)
+        {
+            return state;
+        }
+        boolean finalState = false;
+        StringBuilder name = new StringBuilder();
+        for (int s = subset.nextSetBit(0); s >= 0; s = subset.nextSetBit(s + 1))
+        {
+            finalState = finalState || states.get(s).isFinalState();
+            if (name.length() > 0)
+            {
+                name.append(",");
+            }
+            name.append(states.get(s).getName());
+        }
+        if (subset.cardinality() != 1)
+        {
+            name.insert(0, "{").append("}");
+        }
+        state = factory.createState(name.toString(), finalState);
+        result.addState(state);
+        subsets.put(subset, state);
+        toVisit.add(subset);
+        return state;
+    }
+
+    /**
+     * The label of an operation.
+     */
+    private static class Label
+    {
+        final Message message;
+
+        final OperationKind kind;
+
+        Label(Message message, OperationKind kind)
+        {
+            this.message = message;
+            this.kind = kind;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Label))
+            {
+                return false;
+            }
+            Label other = (Label) obj;
+            return message.equals(other.message) && kind.equals(other.kind);
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#hashCode()
+         */
+        public int hashCode()
+        {
+            return 31 * message.hashCode() + kind.hashCode();
+        }
+    }
+}
@@ -0,0 +1,480 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.automata;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
+import fr.isima.ponge.wsprotocol.ExtraPropertiesKeeper;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.OperationKind;
+import fr.isima.ponge.wsprotocol.Polarity;
+import fr.isima.ponge.wsprotocol.StandardExtraProperties;
+import fr.isima.ponge.wsprotocol.State;
+import fr.isima.ponge.wsprotocol.timed.constraints.ConstraintHelper;
+import fr.isima.ponge.wsprotocol.timed.constraints.ConstraintSimplifier;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintFunctionNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.IRootConstraintNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.VariableNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.interned.InternTable;
+
+/**
+ * Minimizes business protocols by partition refinement. The reachable states are split until the
+ * partition is stable: two states stay in the same block when they agree on being final, and when
+ * their operations with the same label lead to the same blocks. A label is made of the message,
+ * the polarity, the operation kind and the temporal constraint, compared by canonical form. The
+ * name of an operation is also part of its label when a constraint refers to it, since it then
+ * denotes a clock.
+ * <p/>
+ * Each block that gets split is used as a splitter. For a deterministic protocol, only the
+ * smallest half of a split is scheduled, as in Hopcroft's algorithm. Nondeterministic protocols
+ * are reduced to their coarsest bisimulation, which preserves their language.
+ * <p/>
+ * The minimized protocol has a state per block, named after one of its states, and the input
+ * protocol is left untouched. This class is not thread-safe.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class ProtocolMinimizer
+{
+    private static final ConstraintHelper CONSTRAINT_HELPER = new ConstraintHelper();
+
+    private final BusinessProtocolFactory factory;
+
+    /**
+     * Instanciates a new minimizer.
+     *
+     * @param factory The factory to create the protocol elements.
+     */
+    public ProtocolMinimizer(BusinessProtocolFactory factory)
+    {
+        this.factory = factory;
+    }
+
+    /**
+     * Minimizes a protocol. The states that are not reachable from the initial state are dropped.
+     *
+     * @param protocol The protocol.
+     * @return The minimized protocol, with the same name.
+     */
+    public BusinessProtocol minimize(BusinessProtocol protocol)
+    {
+        // Number the reachable states
+        List<State> states = new ArrayList<State>();
+        Map<State, Integer> ids = new IdentityHashMap<State, Integer>();
+        if (protocol.getInitialState() != null)
+        {
+            states.add(protocol.getInitialState());
+            ids.put(protocol.getInitialState(), 0);
+            for (int i = 0; i < states.size(); ++i)
+            {
+                for (State successor : states.get(i).getSuccessors())
+                {
+                    if (!ids.containsKey(successor))
+                    {
+                        ids.put(successor, states.size());
+                        states.add(successor);
+                    }
+                }
+            }
+        }
+        int n = states.size();
+
+        // The operations, with their labels and the incoming ones of each state
+        Labeller labeller = new Labeller(protocol);
+        List<Operation> operations = new ArrayList<Operation>();
+        List<Integer> labels = new ArrayList<Integer>();
+        List<List<Integer>> incoming = new ArrayList<List<Integer>>(n);
+        for (int i = 0; i < n; ++i)
+        {
+            incoming.add(new ArrayList<Integer>());
+        }
+        boolean deterministic = true;
+        for (State state : states)
+        {
+            Set<Integer> stateLabels = new HashSet<Integer>();
+            for (Operation operation : state.getOutgoingOperations())
+            {
+                int label = labeller.labelOf(operation);
+                deterministic = stateLabels.add(label) && deterministic;
+                incoming.get(ids.get(operation.getTargetState())).add(operations.size());
+                operations.add(operation);
+                labels.add(label);
+            }
+        }
+
+        // Initial partition: the final states, and the other ones
+        Partition partition = new Partition(n);
+        List<Integer> finals = new ArrayList<Integer>();
+        for (int i = 0; i < n; ++i)
+        {
+            if (states.get(i).isFinalState())
+            {
+                finals.add(i);
+            }
+        }
+        LinkedList<long[]> splitters = new LinkedList<long[]>();
+        Set<Long> scheduled = new HashSet<Long>();
+        if (n > 0)
+        {
+            schedule(0, partition, incoming, labels, splitters, scheduled);
+            int split = partition.split(finals);
+            if (split != -1)
+            {
+                schedule(split, partition, incoming, labels, splitters, scheduled);
+            }
+        }
+
+        // Refine until the partition is stable
+        while (!splitters.isEmpty())
+        {
+            long[] splitter = splitters.removeFirst();
+            int block = (int) splitter[0];
+            int label = (int) splitter[1];
+            scheduled.remove(key(block, label));
+
+            Set<Integer> sources = new HashSet<Integer>();
+            for (int target : partition.members(block))
+            {
+                for (int operation : incoming.get(target))
+                {
+                    if (labels.get(operation) == label)
+                    {
+                        sources.add(ids.get(operations.get(operation).getSourceState()));
+                    }
+                }
+            }
+            for (Map.Entry<Integer, List<Integer>> entry : partition.groupByBlock(sources).entrySet())
+            {
+                int splitBlock = entry.getKey();
+                int newBlock = partition.split(entry.getValue());
+                if (newBlock == -1)
+                {
+                    continue;
+                }
+                if (!deterministic || hasScheduled(splitBlock, scheduled))
+                {
+                    schedule(splitBlock, partition, incoming, labels, splitters, scheduled);
+                    schedule(newBlock, partition, incoming, labels, splitters, scheduled);
+                }
+                else if (partition.members(newBlock).size() <= partition.members(splitBlock).size())
+                {
+                    schedule(newBlock, partition, incoming, labels, splitters, scheduled);
+                }
+                else
+                {
+                    schedule(splitBlock, partition, incoming, labels, splitters, scheduled);
+                }
+            }
+        }
+
+        return quotient(protocol, states, ids, partition, labeller);
+    }
+
+    /**
+     * Schedules a block as a splitter, for each label of the operations leading to it.
+     */
+    private void schedule(int block, Partition partition, List<List<Integer>> incoming, List<Integer> labels,
+            LinkedList<long[]> splitters, Set<Long> scheduled)
+    {
+        for (int target : partition.members(block))
+        {
+            for (int operation : incoming.get(target))
+            {
+                int label = labels.get(operation);
+                if (scheduled.add(key(block, label)))
+                {
+                    splitters.add(new long[] { block, label });
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells wether a block was still waiting to be used as a splitter for some label. The halves of
+     * such a block must then both be scheduled.
+     */
+    private boolean hasScheduled(int block, Set<Long> scheduled)
+    {
+        for (Long key : scheduled)
+        {
+            if ((int) (key >>> 32) == block)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Long key(int block, int label)
+    {
+        return ((long) block << 32) | (label & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Builds the protocol with a state per block. A block is named after its initial state if it
+     * has one, otherwise after its first reached state, and it gets the operations of that state.
+     */
+    private BusinessProtocol quotient(BusinessProtocol protocol, List<State> states, Map<State, Integer> ids,
+            Partition partition, Labeller labeller)
+    {
+        BusinessProtocol result = factory.createBusinessProtocol(protocol.getName());
+        copyExtraProperties(protocol, result);
+        if (states.isEmpty())
+        {
+            return result;
+        }
+
+        int blocks = partition.size();
+        State[] representatives = new State[blocks];
+        State[] merged = new State[blocks];
+        for (int i = 0; i < states.size(); ++i)
+        {
+            int block = partition.blockOf(i);
+            if (representatives[block] == null)
+            {
+                State representative = states.get(i);
+                representatives[block] = representative;
+                merged[block] = factory.createState(representative.getName(), representative.isFinalState());
+                copyExtraProperties(representative, merged[block]);
+                result.addState(merged[block]);
+            }
+        }
+        State initial = merged[partition.blockOf(0)];
+        initial.setInitialState(true);
+        result.setInitialState(initial);
+
+        for (int block = 0; block < blocks; ++block)
+        {
+            Set<Long> created = new HashSet<Long>();
+            for (Operation operation : representatives[block].getOutgoingOperations())
+            {
+                int target = partition.blockOf(ids.get(operation.getTargetState()));
+                if (!created.add(key(target, labeller.labelOf(operation))))
+                {
+                    continue;
+                }
+                Operation copy = factory.createOperation(operation.getName(), merged[block], merged[target], factory
+                        .createMessage(operation.getMessage().getName(), operation.getMessage().getPolarity()),
+                        operation.getOperationKind());
+                copyExtraProperties(operation, copy);
+                result.addOperation(copy);
+            }
+        }
+        return result;
+    }
+
+    private static void copyExtraProperties(ExtraPropertiesKeeper from, ExtraPropertiesKeeper to)
+    {
+        for (Object key : from.getExtraPropertiesKeys())
+        {
+            to.putExtraProperty(key, from.getExtraProperty(key));
+        }
+    }
+
+    /**
+     * Gives integer labels to operations. The constraints are simplified then interned, so that
+     * equivalent constraints written differently get the same label.
+     */
+    private static class Labeller
+    {
+        private final Set<String> clocks = new HashSet<String>();
+
+        private final Map<Operation, Integer> cache = new IdentityHashMap<Operation, Integer>();
+
+        private final Map<List<Object>, Integer> labels = new HashMap<List<Object>, Integer>();
+
+        private final Map<Operation, IConstraintNode> constraints = new IdentityHashMap<Operation, IConstraintNode>();
+
+        private final ConstraintSimplifier simplifier = new ConstraintSimplifier();
+
+        private final InternTable internTable = new InternTable();
+
+        Labeller(BusinessProtocol protocol)
+        {
+            for (Operation operation : protocol.getOperations())
+            {
+                IConstraintNode constraint = CONSTRAINT_HELPER.parseOrNull((String) operation
+                        .getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT));
+                if (constraint != null)
+                {
+                    constraints.put(operation, constraint);
+                    collectVariables(constraint, clocks);
+                }
+            }
+        }
+
+        int labelOf(Operation operation)
+        {
+            Integer label = cache.get(operation);
+            if (label != null)
+            {
+                return label;
+            }
+            List<Object> components = new ArrayList<Object>(5);
+            components.add(operation.getMessage().getName());
+            Polarity polarity = operation.getMessage().getPolarity();
+            components.add(polarity.toString());
+            OperationKind kind = operation.getOperationKind();
+            components.add(kind.toString());
+            components.add(canonicalConstraint(operation));
+            components.add(clocks.contains(operation.getName()) ? operation.getName() : null);
+            label = labels.get(components);
+            if (label == null)
+            {
+                label = labels.size();
+                labels.put(components, label);
+            }
+            cache.put(operation, label);
+            return label;
+        }
+
+        private Object canonicalConstraint(Operation operation)
+        {
+            String text = (String) operation.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT);
+            IConstraintNode constraint = constraints.get(operation);
+            if (constraint == null)
+            {
+                // Unparsable constraints are only equal to themselves
+                return (text == null || "".equals(text)) ? null : text;
+            }
+            IConstraintNode simplified = simplifier.simplify(constraint);
+            return (simplified == null) ? null : internTable.intern(simplified);
+        }
+    }
+
+    private static void collectVariables(IConstraintNode node, Set<String> names)
+    {
+        if (node instanceof VariableNode)
+        {
+            names.add(((VariableNode) node).getVariableName());
+        }
+        else if (node instanceof IRootConstraintNode)
+        {
+            collectVariables(((IRootConstraintNode) node).getLeftChild(), names);
+            collectVariables(((IRootConstraintNode) node).getRightChild(), names);
+        }
+        else if (node instanceof IConstraintFunctionNode)
+        {
+            collectVariables(((IConstraintFunctionNode) node).getNode(), names);
+        }
+    }
+
+    /**
+     * A partition of the states <code>0..n-1</code> into blocks.
+     */
+    private static class Partition
+    {
+        private final int[] blockOf;
+
+        private final List<List<Integer>> blocks = new ArrayList<List<Integer>>();
+
+        Partition(int n)
+        {
+            blockOf = new int[n];
+            List<Integer> all = new ArrayList<Integer>(n);
+            for (int i = 0; i < n; ++i)
+            {
+                all.add(i);
+            }
+            blocks.add(all);
+        }
+
+        int size()
+        {
+            return blocks.size();
+        }
+
+        int blockOf(int state)
+        {
+            return blockOf[state];
+        }
+
+        List<Integer> members(int block)
+        {
+            return blocks.get(block);
+        }
+
+        Map<Integer, List<Integer>> groupByBlock(Set<Integer> states)
+        {
+            Map<Integer, List<Integer>> groups = new HashMap<Integer, List<Integer>>();
+            for (int state : states)
+            {
+                List<Integer> group = groups.get(blockOf[state]);
+                if (group == null)
+                {
+                    group = new ArrayList<Integer>();
+                    groups.put(blockOf[state], group);
+                }
+                group.add(state);
+            }
+            return groups;
+        }
+
+        /**
+         * Moves some states of a same block into a new block.
+         *
+         * @param states The states.
+         * @return The new block, or <code>-1</code> if the states are the whole block or none.
+         */
+        int split(List<Integer> states)
+        {
+            if (states.isEmpty())
+            {
+                return -1;
+            }
+            int block = blockOf[states.get(0)];
+            List<Integer> members = blocks.get(block);
+            if (states.size() == members.size())
+            {
+                return -1;
+            }
+            int newBlock = blocks.size();
+            Set<Integer> moved = new HashSet<Integer>(states);
+            List<Integer> remaining = new ArrayList<Integer>(members.size() - states.size());
+            for (int state : members)
+            {
+                if (!moved.contains(state))
+                {
+                    remaining.add(state);
+                }
+            }
+            blocks.set(block, remaining);
+            blocks.add(new ArrayList<Integer>(states));
+            for (int state : states)
+            {
+                blockOf[state] = newBlock;
+            }
+            return newBlock;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.ExtraPropertiesKeeper;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.State;
+
+/**
+ * Computes the fingerprints of business protocols. A fingerprint is a canonical text form of a
+ * protocol: its name, the states and the operations with their extra properties, sorted so that
+ * it does not depend on the sets iteration order. Two protocols have the same fingerprint if and
+ * only if they have the same elements, so fingerprints can be used as cache keys.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public final class ProtocolFingerprint
+{
+    private ProtocolFingerprint()
+    {
+        super();
+    }
+
+    /**
+     * Computes the fingerprint of a protocol.
+     *
+     * @param protocol The protocol.
+     * @return The fingerprint.
+     */
+    public static String compute(BusinessProtocol protocol)
+    {
+        StringBuilder buffer = new StringBuilder();
+        append(buffer, protocol.getName());
+        appendExtraProperties(buffer, protocol);
+
+        List<String> states = new ArrayList<String>();
+        for (State state : protocol.getStates())
+        {
+            StringBuilder stateBuffer = new StringBuilder();
+            append(stateBuffer, state.getName());
+            append(stateBuffer, Boolean.toString(state.isFinalState()));
+            append(stateBuffer, Boolean.toString(state == protocol.getInitialState()));
+            appendExtraProperties(stateBuffer, state);
+            states.add(stateBuffer.toString());
+        }
+        appendSorted(buffer, states);
+
+        List<String> operations = new ArrayList<String>();
+        for (Operation operation : protocol.getOperations())
+        {
+            StringBuilder operationBuffer = new StringBuilder();
+            append(operationBuffer, operation.getName());
+            append(operationBuffer, operation.getSourceState().getName());
+            append(operationBuffer, operation.getTargetState().getName());
+            append(operationBuffer, operation.getMessage().getName());
+            append(operationBuffer, operation.getMessage().getPolarity().toString());
+            append(operationBuffer, operation.getOperationKind().toString());
+            appendExtraProperties(operationBuffer, operation);
+            operations.add(operationBuffer.toString());
+        }
+        appendSorted(buffer, operations);
+
+        return buffer.toString();
+    }
+
+    /**
+     * Appends a field, prefixed by its length so that no separator can be confused with the content.
+     *
+     * @param buffer The buffer.
+     * @param value  The field value, possibly <code>null</code>.
+     */
+    private static void append(StringBuilder buffer, String value)
+    {
+        if (value == null)
+        {
+            buffer.append("-;");
+        }
+        else
+        {
+            buffer.append(value.length()).append(':').append(value).append(';');
+        }
+    }
+
+    private static void appendSorted(StringBuilder buffer, List<String> values)
+    {
+        Collections.sort(values);
+        buffer.append('[').append(values.size()).append(']');
+        for (String value : values)
+        {
+            append(buffer, value);
+        }
+    }
+
+    private static void appendExtraProperties(StringBuilder buffer, ExtraPropertiesKeeper keeper)
+    {
+        List<String> properties = new ArrayList<String>();
+        for (Object key : keeper.getExtraPropertiesKeys())
+        {
+            StringBuilder propertyBuffer = new StringBuilder();
+            append(propertyBuffer, String.valueOf(key));
+            Object value = keeper.getExtraProperty(key);
+            append(propertyBuffer, (value == null) ? null : value.getClass().getName());
+            append(propertyBuffer, (value == null) ? null : value.toString());
+            properties.add(propertyBuffer.toString());
+        }
+        appendSorted(buffer, properties);
+    }
+}
@@ -0,0 +1,243 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
+import fr.isima.ponge.wsprotocol.ExtraPropertiesKeeper;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.State;
+
+/**
+ * A size-bounded cache for the results of protocol operators. The results are stored by keys
+ * made of an operator name and of the fingerprints of the input protocols, the least recently
+ * used ones being evicted first. The cache keeps its own copies of the results and hands out
+ * fresh copies, so callers are free to modify what they get. Caches can be shared between
+ * threads.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ * @see ProtocolFingerprint
+ */
+public class ProtocolResultCache
+{
+    /**
+     * The default maximum number of results.
+     */
+    public static final int DEFAULT_CAPACITY = 128;
+
+    private final BusinessProtocolFactory factory;
+
+    private final Map<List<String>, BusinessProtocol> results;
+
+    private int hits = 0;
+
+    private int misses = 0;
+
+    /**
+     * Instantiates a new cache with the default capacity.
+     *
+     * @param factory The factory to create the copies of the results.
+     */
+    public ProtocolResultCache(BusinessProtocolFactory factory)
+    {
+        this(factory, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Instantiates a new cache.
+     *
+     * @param factory  The factory to create the copies of the results.
+     * @param capacity The maximum number of results.
+     */
+    public ProtocolResultCache(BusinessProtocolFactory factory, final int capacity)
+    {
+        super();
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        this.factory = factory;
+        this.results = new LinkedHashMap<List<String>, BusinessProtocol>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(Map.Entry<List<String>, BusinessProtocol> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Creates the key of an operator application. The fingerprints of the inputs are computed
+     * at that time, so the key remains valid if the inputs get modified afterwards.
+     *
+     * @param operator The operator name. Operators whose results depend on some configuration
+     *                 must be given distinct names for each configuration.
+     * @param inputs   The input protocols.
+     * @return The key.
+     */
+    public List<String> createKey(String operator, BusinessProtocol... inputs)
+    {
+        List<String> key = new ArrayList<String>(inputs.length + 1);
+        key.add(operator);
+        for (BusinessProtocol input : inputs)
+        {
+            key.add(ProtocolFingerprint.compute(input));
+        }
+        return Collections.unmodifiableList(key);
+    }
+
+    /**
+     * Gets a result.
+     *
+     * @param key The key.
+     * @return A copy of the result, or <code>null</code> if it is not in the cache.
+     */
+    public BusinessProtocol get(List<String> key)
+    {
+        BusinessProtocol result;
+        synchronized (this)
+        {
+            result = results.get(key);
+            if (result == null)
+            {
+                ++misses;
+                return null;
+            }
+            ++hits;
+        }
+        return copy(result);
+    }
+
+    /**
+     * Stores a result. A copy is stored, so the result can still be modified by the caller.
+     *
+     * @param key    The key.
+     * @param result The result, nothing gets stored if it is <code>null</code>.
+     */
+    public void put(List<String> key, BusinessProtocol result)
+    {
+        if (result == null)
+        {
+            return;
+        }
+        BusinessProtocol stored = copy(result);
+        synchronized (this)
+        {
+            results.put(key, stored);
+        }
+    }
+
+    /**
+     * Removes every result.
+     */
+    public synchronized void clear()
+    {
+        results.clear();
+    }
+
+    /**
+     * Gets the number of results in the cache.
+     *
+     * @return The number of results.
+     */
+    public synchronized int size()
+    {
+        return results.size();
+    }
+
+    /**
+     * Gets the number of lookups that found a result.
+     *
+     * @return The number of hits.
+     */
+    public synchronized int getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that found no result.
+     *
+     * @return The number of misses.
+     */
+    public synchronized int getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Copies a protocol with its extra properties. The stored results are never modified, so
+     * they can be copied without holding the lock.
+     *
+     * @param protocol The protocol.
+     * @return The copy.
+     */
+    protected BusinessProtocol copy(BusinessProtocol protocol)
+    {
+        BusinessProtocol copy = factory.createBusinessProtocol(protocol.getName());
+        copyExtraProperties(protocol, copy);
+
+        Map<State, State> statesMapping = new IdentityHashMap<State, State>();
+        for (State state : protocol.getStates())
+        {
+            State stateCopy = factory.createState(state.getName(), state.isFinalState());
+            copyExtraProperties(state, stateCopy);
+            copy.addState(stateCopy);
+            if (state == protocol.getInitialState())
+            {
+                stateCopy.setInitialState(true);
+                copy.setInitialState(stateCopy);
+            }
+            statesMapping.put(state, stateCopy);
+        }
+
+        for (Operation operation : protocol.getOperations())
+        {
+            Operation operationCopy = factory.createOperation(operation.getName(), statesMapping.get(operation
+                    .getSourceState()), statesMapping.get(operation.getTargetState()), factory.createMessage(
+                    operation.getMessage().getName(), operation.getMessage().getPolarity()), operation
+                    .getOperationKind());
+            copyExtraProperties(operation, operationCopy);
+            copy.addOperation(operationCopy);
+        }
+
+        return copy;
+    }
+
+    private void copyExtraProperties(ExtraPropertiesKeeper source, ExtraPropertiesKeeper target)
+    {
+        for (Object key : source.getExtraPropertiesKeys())
+        {
+            target.putExtraProperty(key, source.getExtraProperty(key));
+        }
+    }
+}
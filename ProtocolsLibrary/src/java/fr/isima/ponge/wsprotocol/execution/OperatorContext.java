@@ -0,0 +1,211 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.execution;
+
+/**
+ * The execution context of an operator. It supports a cooperative cancellation, limits on the
+ * number of states and operations of the result, a wall-clock deadline and progress reports.
+ * Operators check their context as they work, and they fail fast with an
+ * {@link OperatorLimitExceededException} when one of the conditions is met. A context is meant
+ * for a single operator application, though it can be cancelled from any thread.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class OperatorContext
+{
+    private volatile boolean cancelled = false;
+
+    private int maxStates = Integer.MAX_VALUE;
+
+    private int maxOperations = Integer.MAX_VALUE;
+
+    private long deadline = Long.MAX_VALUE;
+
+    private OperatorProgressListener progressListener;
+
+    private volatile int states = 0;
+
+    private volatile int operations = 0;
+
+    /**
+     * Instantiates a new context without limits.
+     */
+    public OperatorContext()
+    {
+        super();
+    }
+
+    /**
+     * Cancels the execution. The operator stops at its next check.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * Tells wether the execution has been cancelled.
+     *
+     * @return <code>true</code> if the execution has been cancelled.
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Gets the maximum number of states.
+     *
+     * @return The maximum number of states.
+     */
+    public int getMaxStates()
+    {
+        return maxStates;
+    }
+
+    /**
+     * Sets the maximum number of states.
+     *
+     * @param maxStates The maximum number of states.
+     */
+    public void setMaxStates(int maxStates)
+    {
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * Gets the maximum number of operations.
+     *
+     * @return The maximum number of operations.
+     */
+    public int getMaxOperations()
+    {
+        return maxOperations;
+    }
+
+    /**
+     * Sets the maximum number of operations.
+     *
+     * @param maxOperations The maximum number of operations.
+     */
+    public void setMaxOperations(int maxOperations)
+    {
+        this.maxOperations = maxOperations;
+    }
+
+    /**
+     * Gets the deadline.
+     *
+     * @return The deadline, in milliseconds since the epoch.
+     */
+    public long getDeadline()
+    {
+        return deadline;
+    }
+
+    /**
+     * Sets the deadline.
+     *
+     * @param deadline The deadline, in milliseconds since the epoch.
+     */
+    public void setDeadline(long deadline)
+    {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Sets the deadline relatively to the current time.
+     *
+     * @param timeout The timeout, in milliseconds.
+     */
+    public void setTimeout(long timeout)
+    {
+        this.deadline = System.currentTimeMillis() + timeout;
+    }
+
+    /**
+     * Sets the progress listener.
+     *
+     * @param progressListener The listener, or <code>null</code>.
+     */
+    public void setProgressListener(OperatorProgressListener progressListener)
+    {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Records the size of the result and checks every condition.
+     *
+     * @param states     The number of states reached.
+     * @param operations The number of operations reached.
+     * @throws OperatorLimitExceededException If the operator must stop.
+     */
+    public void check(int states, int operations)
+    {
+        this.states = states;
+        this.operations = operations;
+        if (states > maxStates)
+        {
+            throw new OperatorLimitExceededException(OperatorLimit.STATES, states, operations);
+        }
+        if (operations > maxOperations)
+        {
+            throw new OperatorLimitExceededException(OperatorLimit.OPERATIONS, states, operations);
+        }
+        checkAlive();
+    }
+
+    /**
+     * Checks the cancellation and the deadline. This method can be called from the worker threads
+     * of an operator, the last recorded sizes are reported.
+     *
+     * @throws OperatorLimitExceededException If the operator must stop.
+     */
+    public void checkAlive()
+    {
+        if (cancelled || Thread.currentThread().isInterrupted())
+        {
+            throw new OperatorLimitExceededException(OperatorLimit.CANCELLED, states, operations);
+        }
+        if (deadline != Long.MAX_VALUE && System.currentTimeMillis() > deadline)
+        {
+            throw new OperatorLimitExceededException(OperatorLimit.DEADLINE, states, operations);
+        }
+    }
+
+    /**
+     * Records the size of the result, checks every condition and notifies the progress listener.
+     *
+     * @param states     The number of states reached.
+     * @param operations The number of operations reached.
+     * @throws OperatorLimitExceededException If the operator must stop.
+     */
+    public void progress(int states, int operations)
+    {
+        check(states, operations);
+        if (progressListener != null)
+        {
+            progressListener.progress(states, operations);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.execution;
+
+/**
+ * Models the reason why an operator has been stopped.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class OperatorLimit
+{
+    /**
+     * The execution has been cancelled, or its thread has been interrupted.
+     */
+    public static final OperatorLimit CANCELLED = new OperatorLimit("cancelled");
+
+    /**
+     * The deadline has passed.
+     */
+    public static final OperatorLimit DEADLINE = new OperatorLimit("deadline");
+
+    /**
+     * Too many states have been created.
+     */
+    public static final OperatorLimit STATES = new OperatorLimit("states");
+
+    /**
+     * Too many operations have been created.
+     */
+    public static final OperatorLimit OPERATIONS = new OperatorLimit("operations");
+
+    /**
+     * The limit name.
+     */
+    protected String name;
+
+    /**
+     * Instanciates a new limit.
+     *
+     * @param name The limit name.
+     */
+    protected OperatorLimit(String name)
+    {
+        this.name = name;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    public String toString()
+    {
+        return name;
+    }
+}
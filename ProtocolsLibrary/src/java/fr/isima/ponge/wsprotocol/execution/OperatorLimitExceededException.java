@@ -0,0 +1,86 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.execution;
+
+/**
+ * Thrown when an operator is stopped by its execution context. The sizes that the result had
+ * reached are reported, the partial result itself is dropped.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class OperatorLimitExceededException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    private final OperatorLimit limit;
+
+    private final int states;
+
+    private final int operations;
+
+    /**
+     * Instantiates a new exception.
+     *
+     * @param limit      The limit that stopped the operator.
+     * @param states     The number of states reached.
+     * @param operations The number of operations reached.
+     */
+    public OperatorLimitExceededException(OperatorLimit limit, int states, int operations)
+    {
+        super("The operator has been stopped (" + limit + ") after " + states + " states and "
+                + operations + " operations.");
+        this.limit = limit;
+        this.states = states;
+        this.operations = operations;
+    }
+
+    /**
+     * Gets the limit that stopped the operator.
+     *
+     * @return The limit.
+     */
+    public OperatorLimit getLimit()
+    {
+        return limit;
+    }
+
+    /**
+     * Gets the number of states that had been reached.
+     *
+     * @return The number of states.
+     */
+    public int getStates()
+    {
+        return states;
+    }
+
+    /**
+     * Gets the number of operations that had been reached.
+     *
+     * @return The number of operations.
+     */
+    public int getOperations()
+    {
+        return operations;
+    }
+}
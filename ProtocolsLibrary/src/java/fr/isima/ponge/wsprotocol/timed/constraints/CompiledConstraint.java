@@ -0,0 +1,665 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import static fr.isima.ponge.wsprotocol.timed.constraints.ComparisonConstants.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A temporal constraint compiled into a flat program, for fast evaluation against clock valuations.
+ * Variables are resolved to slots of the valuation array at compilation time: evaluating a compiled
+ * constraint neither allocates nor looks up names.
+ * <p/>
+ * A valuation gives, for each slot, the time elapsed since the corresponding operation was last
+ * fired, or {@link #NEVER_FIRED} if it has not been fired yet. As in the UPPAAL translation of the
+ * emptiness check, comparisons with the <code>-1</code> constant test wether the operation has been
+ * fired (<code>T = -1</code> holds if and only if <code>T</code> has never been fired), while the
+ * clock of an operation that has never been fired gives the time elapsed since the beginning of the
+ * conversation in the other comparisons.
+ * <p/>
+ * Slots can also be taken from a {@link VariableTable}, in which case constraints coming from different
+ * protocols can be moved to a common layout with {@link #offset(int, String[])} or
+ * {@link #remap(int[], String[])} and combined without going back to variable names.
+ * <p/>
+ * Compiled constraints are immutable and can be shared between threads.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class CompiledConstraint
+{
+    /**
+     * The valuation of an operation that has never been fired.
+     */
+    public static final int NEVER_FIRED = -1;
+
+    // Instructions are made of INSTRUCTION_SIZE ints: opcode, then up to 4 operands
+    static final int INSTRUCTION_SIZE = 5;
+
+    // (slot, symbol, constant): valuation[slot] # constant
+    static final int OP_COMPARE = 0;
+
+    // (slot1, slot2, symbol, constant): valuation[slot1] - valuation[slot2] # constant
+    static final int OP_DIAGONAL = 1;
+
+    // (slot, symbol): fired(slot) # false, with true = 1 and false = 0
+    static final int OP_FIRED = 2;
+
+    // (target): jumps if the last result is false
+    static final int OP_JUMP_IF_FALSE = 3;
+
+    // (target): jumps if the last result is true
+    static final int OP_JUMP_IF_TRUE = 4;
+
+    static final int SYM_LESS = 0;
+
+    static final int SYM_LESS_EQ = 1;
+
+    static final int SYM_EQ = 2;
+
+    static final int SYM_NEQ = 3;
+
+    static final int SYM_GREATER = 4;
+
+    static final int SYM_GREATER_EQ = 5;
+
+    private static final String[] SYMBOLS = {LESS, LESS_EQ, EQ, NEQ, GREATER, GREATER_EQ};
+
+    private static final int FUNCTION_NONE = 0;
+
+    private static final int FUNCTION_C_INVOKE = 1;
+
+    private static final int FUNCTION_M_INVOKE = 2;
+
+    private final String[] variables;
+
+    private final int[] program;
+
+    private final int function;
+
+    CompiledConstraint(String[] variables, int[] program, int function)
+    {
+        super();
+        this.variables = variables;
+        this.program = program;
+        this.function = function;
+    }
+
+    /**
+     * Compiles a constraint. Slots are allocated to variables in their order of appearance.
+     *
+     * @param constraint The constraint, or <code>null</code> for a constraint that always holds.
+     * @return The compiled constraint.
+     */
+    public static CompiledConstraint compile(IConstraintNode constraint)
+    {
+        List<String> names = new ArrayList<String>();
+        if (constraint != null)
+        {
+            collectVariables(constraint, names);
+        }
+        return compile(constraint, names.toArray(new String[names.size()]));
+    }
+
+    /**
+     * Compiles a constraint against a given slots layout, so that several constraints can be
+     * evaluated against the same valuation array.
+     *
+     * @param constraint The constraint, or <code>null</code> for a constraint that always holds.
+     * @param variables  The variable of each slot.
+     * @return The compiled constraint.
+     * @throws IllegalArgumentException if the constraint references a variable that has no slot.
+     */
+    public static CompiledConstraint compile(IConstraintNode constraint, String[] variables)
+    {
+        String[] layout = variables.clone();
+        Assembler assembler = new Assembler(new VariableTable(layout), false);
+        if (constraint != null)
+        {
+            assembler.emit(constraint);
+        }
+        return new CompiledConstraint(layout, assembler.toArray(), functionOf(constraint));
+    }
+
+    /**
+     * Compiles a constraint using the identifiers of a symbol table as slots. Variables that are not
+     * in the table yet get interned.
+     *
+     * @param constraint The constraint, or <code>null</code> for a constraint that always holds.
+     * @param table      The symbol table.
+     * @return The compiled constraint, whose layout is the table content after compilation.
+     */
+    public static CompiledConstraint compile(IConstraintNode constraint, VariableTable table)
+    {
+        Assembler assembler = new Assembler(table, true);
+        if (constraint != null)
+        {
+            assembler.emit(constraint);
+        }
+        return new CompiledConstraint(table.getNames(), assembler.toArray(), functionOf(constraint));
+    }
+
+    private static int functionOf(IConstraintNode constraint)
+    {
+        if (constraint instanceof CInvokeNode)
+        {
+            return FUNCTION_C_INVOKE;
+        }
+        else if (constraint instanceof MInvokeNode)
+        {
+            return FUNCTION_M_INVOKE;
+        }
+        return FUNCTION_NONE;
+    }
+
+    private static void collectVariables(IConstraintNode node, List<String> names)
+    {
+        if (node instanceof VariableNode)
+        {
+            String name = ((VariableNode) node).getVariableName();
+            if (!names.contains(name))
+            {
+                names.add(name);
+            }
+        }
+        else if (node instanceof IRootConstraintNode)
+        {
+            collectVariables(((IRootConstraintNode) node).getLeftChild(), names);
+            collectVariables(((IRootConstraintNode) node).getRightChild(), names);
+        }
+        else if (node instanceof IConstraintFunctionNode)
+        {
+            collectVariables(((IConstraintFunctionNode) node).getNode(), names);
+        }
+    }
+
+    /**
+     * Gets the variable of each slot.
+     *
+     * @return The slots layout.
+     */
+    public String[] getVariables()
+    {
+        return variables.clone();
+    }
+
+    /**
+     * Gets the slot of a variable.
+     *
+     * @param variable The variable name.
+     * @return The slot, or <code>-1</code> if the variable has no slot.
+     */
+    public int slotOf(String variable)
+    {
+        for (int i = 0; i < variables.length; ++i)
+        {
+            if (variables[i].equals(variable))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Tests wether the constraint always holds, i.e., wether it was compiled from an empty constraint.
+     *
+     * @return <code>true</code> if the program is empty.
+     */
+    public boolean alwaysHolds()
+    {
+        return program.length == 0;
+    }
+
+    /**
+     * Tests wether the compiled constraint was a C-Invoke constraint.
+     *
+     * @return <code>true</code> for a C-Invoke constraint.
+     */
+    public boolean isCInvoke()
+    {
+        return function == FUNCTION_C_INVOKE;
+    }
+
+    /**
+     * Tests wether the compiled constraint was a M-Invoke constraint.
+     *
+     * @return <code>true</code> for a M-Invoke constraint.
+     */
+    public boolean isMInvoke()
+    {
+        return function == FUNCTION_M_INVOKE;
+    }
+
+    /**
+     * Moves the constraint to another slots layout. This is done in a single pass over the program.
+     *
+     * @param mapping   The new slot of each current slot.
+     * @param variables The new slots layout.
+     * @return The remapped constraint.
+     */
+    public CompiledConstraint remap(int[] mapping, String[] variables)
+    {
+        int[] code = program.clone();
+        for (int pc = 0; pc < code.length; pc += INSTRUCTION_SIZE)
+        {
+            switch (code[pc])
+            {
+                case OP_DIAGONAL:
+                    code[pc + 2] = mapping[code[pc + 2]];
+                    // Falls through for the first slot
+                case OP_COMPARE:
+                case OP_FIRED:
+                    code[pc + 1] = mapping[code[pc + 1]];
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new CompiledConstraint(variables.clone(), code, function);
+    }
+
+    /**
+     * Moves the constraint to another slots layout by shifting all its slots. This is typically used
+     * to place the variables of the right protocol of a product after those of the left protocol.
+     *
+     * @param delta     The value to add to each slot.
+     * @param variables The new slots layout.
+     * @return The shifted constraint.
+     */
+    public CompiledConstraint offset(int delta, String[] variables)
+    {
+        int[] mapping = new int[this.variables.length];
+        for (int i = 0; i < mapping.length; ++i)
+        {
+            mapping[i] = i + delta;
+        }
+        return remap(mapping, variables);
+    }
+
+    /**
+     * Computes the conjunction with another constraint compiled against the same slots layout.
+     * The result keeps the function of this constraint.
+     *
+     * @param other The other constraint.
+     * @return The conjunction.
+     * @throws IllegalArgumentException if the two constraints have different layouts.
+     */
+    public CompiledConstraint conjunction(CompiledConstraint other)
+    {
+        return combine(other, OP_JUMP_IF_FALSE);
+    }
+
+    /**
+     * Computes the disjunction with another constraint compiled against the same slots layout.
+     * The result keeps the function of this constraint.
+     *
+     * @param other The other constraint.
+     * @return The disjunction.
+     * @throws IllegalArgumentException if the two constraints have different layouts.
+     */
+    public CompiledConstraint disjunction(CompiledConstraint other)
+    {
+        return combine(other, OP_JUMP_IF_TRUE);
+    }
+
+    private CompiledConstraint combine(CompiledConstraint other, int jump)
+    {
+        if (!Arrays.equals(variables, other.variables))
+        {
+            throw new IllegalArgumentException("The constraints do not share the same slots layout");
+        }
+        if (other.alwaysHolds())
+        {
+            return this;
+        }
+        if (alwaysHolds())
+        {
+            return new CompiledConstraint(variables, other.program, function);
+        }
+        int shift = program.length + INSTRUCTION_SIZE;
+        int[] code = new int[shift + other.program.length];
+        System.arraycopy(program, 0, code, 0, program.length);
+        code[program.length] = jump;
+        code[program.length + 1] = code.length;
+        System.arraycopy(other.program, 0, code, shift, other.program.length);
+        for (int pc = shift; pc < code.length; pc += INSTRUCTION_SIZE)
+        {
+            if (code[pc] == OP_JUMP_IF_FALSE || code[pc] == OP_JUMP_IF_TRUE)
+            {
+                code[pc + 1] += shift;
+            }
+        }
+        return new CompiledConstraint(variables, code, function);
+    }
+
+    /**
+     * Turns the program back into a constraint tree, for instance to print it.
+     *
+     * @return The constraint, or <code>null</code> if it always holds.
+     */
+    public IConstraintNode decompile()
+    {
+        if (alwaysHolds())
+        {
+            return null;
+        }
+        IRootConstraintNode node = decompile(0, program.length);
+        switch (function)
+        {
+            case FUNCTION_C_INVOKE:
+                return new CInvokeNode(node);
+            case FUNCTION_M_INVOKE:
+                return new MInvokeNode(node);
+            default:
+                return node;
+        }
+    }
+
+    /**
+     * A boolean operation spanning <code>[start, end[</code> is its left operand, followed by the
+     * first jump to <code>end</code> and the right operand: jumps of the left operand never go beyond
+     * it, and those of the right operand come after.
+     */
+    private IRootConstraintNode decompile(int start, int end)
+    {
+        for (int pc = start; pc < end; pc += INSTRUCTION_SIZE)
+        {
+            int opcode = program[pc];
+            if ((opcode == OP_JUMP_IF_FALSE || opcode == OP_JUMP_IF_TRUE) && program[pc + 1] == end)
+            {
+                return new BooleanNode((opcode == OP_JUMP_IF_FALSE) ? BooleanConstants.AND : BooleanConstants.OR,
+                        decompile(start, pc), decompile(pc + INSTRUCTION_SIZE, end));
+            }
+        }
+        switch (program[start])
+        {
+            case OP_COMPARE:
+                return new ComparisonNode(symbol(program[start + 2]), new VariableNode(variables[program[start + 1]]),
+                        new ConstantNode(program[start + 3]));
+            case OP_DIAGONAL:
+                return new DiagonalNode(new DiagonalVariablesPair(new VariableNode(variables[program[start + 1]]),
+                        new VariableNode(variables[program[start + 2]])), symbol(program[start + 3]), new ConstantNode(
+                        program[start + 4]));
+            default:
+                return new ComparisonNode(symbol(program[start + 2]), new VariableNode(variables[program[start + 1]]),
+                        new ConstantNode(NEVER_FIRED));
+        }
+    }
+
+    /**
+     * Evaluates the constraint.
+     *
+     * @param valuation  The elapsed time for each slot, or {@link #NEVER_FIRED}.
+     * @param sinceStart The time elapsed since the beginning of the conversation, which is the clock
+     *                   value of the operations that have never been fired.
+     * @return <code>true</code> if the constraint holds for the valuation.
+     */
+    public boolean evaluate(int[] valuation, int sinceStart)
+    {
+        final int[] code = program;
+        boolean result = true;
+        int pc = 0;
+        while (pc < code.length)
+        {
+            switch (code[pc])
+            {
+                case OP_COMPARE:
+                {
+                    int value = clock(valuation[code[pc + 1]], sinceStart);
+                    result = compare(value, code[pc + 2], code[pc + 3]);
+                    pc += INSTRUCTION_SIZE;
+                    break;
+                }
+                case OP_DIAGONAL:
+                {
+                    int first = clock(valuation[code[pc + 1]], sinceStart);
+                    int second = clock(valuation[code[pc + 2]], sinceStart);
+                    result = compare(first - second, code[pc + 3], code[pc + 4]);
+                    pc += INSTRUCTION_SIZE;
+                    break;
+                }
+                case OP_FIRED:
+                {
+                    int fired = (valuation[code[pc + 1]] == NEVER_FIRED) ? 0 : 1;
+                    result = compare(fired, code[pc + 2], 0);
+                    pc += INSTRUCTION_SIZE;
+                    break;
+                }
+                case OP_JUMP_IF_FALSE:
+                    pc = result ? pc + INSTRUCTION_SIZE : code[pc + 1];
+                    break;
+                default:
+                    pc = result ? code[pc + 1] : pc + INSTRUCTION_SIZE;
+                    break;
+            }
+        }
+        return result;
+    }
+
+    private static int clock(int elapsed, int sinceStart)
+    {
+        return (elapsed == NEVER_FIRED) ? sinceStart : elapsed;
+    }
+
+    private static boolean compare(int value, int symbol, int constant)
+    {
+        switch (symbol)
+        {
+            case SYM_LESS:
+                return value < constant;
+            case SYM_LESS_EQ:
+                return value <= constant;
+            case SYM_EQ:
+                return value == constant;
+            case SYM_NEQ:
+                return value != constant;
+            case SYM_GREATER:
+                return value > constant;
+            default:
+                return value >= constant;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int pc = 0; pc < program.length; pc += INSTRUCTION_SIZE)
+        {
+            builder.append(pc).append(": ");
+            switch (program[pc])
+            {
+                case OP_COMPARE:
+                    builder.append(variables[program[pc + 1]]).append(" ").append(SYMBOLS[program[pc + 2]]).append(" ")
+                            .append(program[pc + 3]);
+                    break;
+                case OP_DIAGONAL:
+                    builder.append(variables[program[pc + 1]]).append(" - ").append(variables[program[pc + 2]]).append(" ")
+                            .append(SYMBOLS[program[pc + 3]]).append(" ").append(program[pc + 4]);
+                    break;
+                case OP_FIRED:
+                    builder.append("fired(").append(variables[program[pc + 1]]).append(") ").append(SYMBOLS[program[pc + 2]])
+                            .append(" false");
+                    break;
+                case OP_JUMP_IF_FALSE:
+                    builder.append("jump if false ").append(program[pc + 1]);
+                    break;
+                default:
+                    builder.append("jump if true ").append(program[pc + 1]);
+                    break;
+            }
+            builder.append("\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Translates constraint trees into programs.
+     */
+    private static class Assembler
+    {
+        private final VariableTable table;
+
+        private final boolean extensible;
+
+        private int[] code = new int[4 * INSTRUCTION_SIZE];
+
+        private int size;
+
+        Assembler(VariableTable table, boolean extensible)
+        {
+            this.table = table;
+            this.extensible = extensible;
+        }
+
+        private int slotOf(String variable)
+        {
+            if (extensible)
+            {
+                return table.intern(variable);
+            }
+            int slot = table.idOf(variable);
+            if (slot == -1)
+            {
+                throw new IllegalArgumentException("No slot for variable " + variable);
+            }
+            return slot;
+        }
+
+        private int append(int opcode, int a, int b, int c, int d)
+        {
+            if (size + INSTRUCTION_SIZE > code.length)
+            {
+                int[] larger = new int[code.length * 2];
+                System.arraycopy(code, 0, larger, 0, size);
+                code = larger;
+            }
+            int pc = size;
+            code[size++] = opcode;
+            code[size++] = a;
+            code[size++] = b;
+            code[size++] = c;
+            code[size++] = d;
+            return pc;
+        }
+
+        void emit(IConstraintNode node)
+        {
+            if (node instanceof IConstraintFunctionNode)
+            {
+                emit(((IConstraintFunctionNode) node).getNode());
+            }
+            else if (node instanceof BooleanNode)
+            {
+                BooleanNode bnode = (BooleanNode) node;
+                emit(bnode.getLeftChild());
+                boolean and = BooleanConstants.AND.equals(bnode.getSymbol());
+                int jump = append(and ? OP_JUMP_IF_FALSE : OP_JUMP_IF_TRUE, 0, 0, 0, 0);
+                emit(bnode.getRightChild());
+                code[jump + 1] = size;
+            }
+            else if (node instanceof ComparisonNode)
+            {
+                ComparisonNode cnode = (ComparisonNode) node;
+                boolean variableOnLeft = cnode.getLeftChild() instanceof VariableNode;
+                VariableNode variable = (VariableNode) (variableOnLeft ? cnode.getLeftChild() : cnode.getRightChild());
+                ConstantNode constant = (ConstantNode) (variableOnLeft ? cnode.getRightChild() : cnode.getLeftChild());
+                int symbol = symbolCode(cnode.getSymbol());
+                if (!variableOnLeft)
+                {
+                    symbol = flip(symbol);
+                }
+                int slot = slotOf(variable.getVariableName());
+                if (constant.getConstant() == NEVER_FIRED)
+                {
+                    append(OP_FIRED, slot, symbol, 0, 0);
+                }
+                else
+                {
+                    append(OP_COMPARE, slot, symbol, constant.getConstant(), 0);
+                }
+            }
+            else if (node instanceof DiagonalNode)
+            {
+                DiagonalNode dnode = (DiagonalNode) node;
+                append(OP_DIAGONAL, slotOf(dnode.getFirstVariable().getVariableName()),
+                        slotOf(dnode.getSecondVariable().getVariableName()), symbolCode(dnode.getOperator()),
+                        dnode.getConstant().getConstant());
+            }
+            else
+            {
+                throw new IllegalArgumentException("Unsupported constraint node: " + node);
+            }
+        }
+
+        int[] toArray()
+        {
+            int[] result = new int[size];
+            System.arraycopy(code, 0, result, 0, size);
+            return result;
+        }
+    }
+
+    static int symbolCode(String symbol)
+    {
+        for (int i = 0; i < SYMBOLS.length; ++i)
+        {
+            if (SYMBOLS[i].equals(symbol))
+            {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown comparison symbol: " + symbol);
+    }
+
+    static String symbol(int code)
+    {
+        return SYMBOLS[code];
+    }
+
+    /**
+     * Turns <code>k # x</code> into <code>x #' k</code>.
+     */
+    static int flip(int symbol)
+    {
+        switch (symbol)
+        {
+            case SYM_LESS:
+                return SYM_GREATER;
+            case SYM_LESS_EQ:
+                return SYM_GREATER_EQ;
+            case SYM_GREATER:
+                return SYM_LESS;
+            case SYM_GREATER_EQ:
+                return SYM_LESS_EQ;
+            default:
+                return symbol;
+        }
+    }
+}
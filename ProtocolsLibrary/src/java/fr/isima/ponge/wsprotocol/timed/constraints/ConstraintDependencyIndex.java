@@ -0,0 +1,326 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.StandardExtraProperties;
+import fr.isima.ponge.wsprotocol.impl.BusinessProtocolImpl;
+import fr.isima.ponge.wsprotocol.impl.OperationImpl;
+
+/**
+ * A reverse index from operation names to the operations whose temporal constraints reference them as
+ * clock variables. References are extracted from the parsed constraints, so an operation named
+ * <code>T1</code> is not mistaken for a reference to <code>T10</code>.
+ * <p/>
+ * When the protocol and its operations are the observable model implementations
+ * ({@link BusinessProtocolImpl} and {@link OperationImpl}), the index listens to them: it follows the
+ * added and removed operations and the constraint changes, and renaming an operation rewrites the
+ * constraints that reference it. Other models have to call {@link #update(Operation)} and
+ * {@link #renameVariable(String, String)} themselves. The index is not thread-safe.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class ConstraintDependencyIndex implements PropertyChangeListener
+{
+    private static final ConstraintHelper CONSTRAINT_HELPER = new ConstraintHelper();
+
+    private final BusinessProtocol protocol;
+
+    private final Map<String, Map<Operation, Boolean>> dependents = new HashMap<String, Map<Operation, Boolean>>();
+
+    private final Map<Operation, Set<String>> references = new IdentityHashMap<Operation, Set<String>>();
+
+    private final boolean tracking;
+
+    private boolean rewriting;
+
+    /**
+     * Builds the index of a protocol.
+     *
+     * @param protocol The protocol.
+     */
+    public ConstraintDependencyIndex(BusinessProtocol protocol)
+    {
+        super();
+        this.protocol = protocol;
+        tracking = protocol instanceof BusinessProtocolImpl;
+        if (tracking)
+        {
+            ((BusinessProtocolImpl) protocol).addPropertyChangeListener(BusinessProtocolImpl.OPERATIONS_PROPERTY_CHANGE,
+                    this);
+        }
+        for (Operation operation : protocol.getOperations())
+        {
+            add(operation);
+        }
+    }
+
+    /**
+     * Tells wether the index follows the protocol changes by itself.
+     *
+     * @return <code>true</code> if the protocol can be observed.
+     */
+    public boolean isTracking()
+    {
+        return tracking;
+    }
+
+    /**
+     * Gets the operations whose constraints reference an operation.
+     *
+     * @param operationName The referenced operation name.
+     * @return A snapshot of the referencing operations.
+     */
+    public List<Operation> getDependents(String operationName)
+    {
+        Map<Operation, Boolean> operations = dependents.get(operationName);
+        if (operations == null)
+        {
+            return Collections.emptyList();
+        }
+        return new ArrayList<Operation>(operations.keySet());
+    }
+
+    /**
+     * Gets the variables referenced by the constraint of an operation.
+     *
+     * @param operation The operation.
+     * @return The variables names, empty if the operation is not indexed or has no valid constraint.
+     */
+    public Set<String> getReferences(Operation operation)
+    {
+        Set<String> names = references.get(operation);
+        return (names == null) ? Collections.<String>emptySet() : Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Re-indexes an operation after its constraint has changed.
+     *
+     * @param operation The operation.
+     */
+    public void update(Operation operation)
+    {
+        unindex(operation);
+        index(operation);
+    }
+
+    /**
+     * Rewrites the constraints that reference a variable, only visiting the dependent operations.
+     *
+     * @param oldName The old variable name.
+     * @param newName The new variable name.
+     */
+    public void renameVariable(String oldName, String newName)
+    {
+        if (oldName == null || oldName.equals(newName))
+        {
+            return;
+        }
+        rewriting = true;
+        try
+        {
+            for (Operation operation : getDependents(oldName))
+            {
+                IConstraintNode constraint = CONSTRAINT_HELPER.parseOrNull((String) operation
+                        .getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT));
+                if (constraint == null)
+                {
+                    continue;
+                }
+                renameVariables(constraint, oldName, newName);
+                operation.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, constraint.toString());
+                update(operation);
+            }
+        }
+        finally
+        {
+            rewriting = false;
+        }
+    }
+
+    /**
+     * Stops listening to the protocol and its operations.
+     */
+    public void dispose()
+    {
+        if (tracking)
+        {
+            ((BusinessProtocolImpl) protocol).removePropertyChangeListener(
+                    BusinessProtocolImpl.OPERATIONS_PROPERTY_CHANGE, this);
+        }
+        for (Operation operation : new ArrayList<Operation>(references.keySet()))
+        {
+            remove(operation);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.beans.PropertyChangeListener#propertyChange(java.beans.PropertyChangeEvent)
+     */
+    public void propertyChange(PropertyChangeEvent event)
+    {
+        String property = event.getPropertyName();
+        if (event.getSource() == protocol)
+        {
+            if (event.getOldValue() instanceof Operation)
+            {
+                remove((Operation) event.getOldValue());
+            }
+            if (event.getNewValue() instanceof Operation)
+            {
+                add((Operation) event.getNewValue());
+            }
+        }
+        else if (OperationImpl.NAME_PROPERTY_CHANGE.equals(property))
+        {
+            renameVariable((String) event.getOldValue(), (String) event.getNewValue());
+        }
+        else if (OperationImpl.EXTRA_PROPERTY_CHANGE.equals(property) && !rewriting)
+        {
+            Object key = (event.getNewValue() != null) ? event.getNewValue() : event.getOldValue();
+            if (StandardExtraProperties.TEMPORAL_CONSTRAINT.equals(key))
+            {
+                update((Operation) event.getSource());
+            }
+        }
+    }
+
+    private void add(Operation operation)
+    {
+        if (references.containsKey(operation))
+        {
+            return;
+        }
+        if (operation instanceof OperationImpl)
+        {
+            ((OperationImpl) operation).addPropertyChangeListener(this);
+        }
+        index(operation);
+    }
+
+    private void remove(Operation operation)
+    {
+        if (!references.containsKey(operation))
+        {
+            return;
+        }
+        if (operation instanceof OperationImpl)
+        {
+            ((OperationImpl) operation).removePropertyChangeListener(this);
+        }
+        unindex(operation);
+        references.remove(operation);
+    }
+
+    private void index(Operation operation)
+    {
+        Set<String> names = new LinkedHashSet<String>();
+        IConstraintNode constraint = CONSTRAINT_HELPER.parseOrNull((String) operation.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT));
+        if (constraint != null)
+        {
+            collectVariables(constraint, names);
+        }
+        references.put(operation, names);
+        for (String name : names)
+        {
+            Map<Operation, Boolean> operations = dependents.get(name);
+            if (operations == null)
+            {
+                operations = new IdentityHashMap<Operation, Boolean>();
+                dependents.put(name, operations);
+            }
+            operations.put(operation, Boolean.TRUE);
+        }
+    }
+
+    private void unindex(Operation operation)
+    {
+        Set<String> names = references.get(operation);
+        if (names == null)
+        {
+            return;
+        }
+        for (String name : names)
+        {
+            Map<Operation, Boolean> operations = dependents.get(name);
+            operations.remove(operation);
+            if (operations.isEmpty())
+            {
+                dependents.remove(name);
+            }
+        }
+        names.clear();
+    }
+
+    private static void collectVariables(IConstraintNode node, Set<String> names)
+    {
+        if (node instanceof VariableNode)
+        {
+            names.add(((VariableNode) node).getVariableName());
+        }
+        else if (node instanceof IRootConstraintNode)
+        {
+            collectVariables(((IRootConstraintNode) node).getLeftChild(), names);
+            collectVariables(((IRootConstraintNode) node).getRightChild(), names);
+        }
+        else if (node instanceof IConstraintFunctionNode)
+        {
+            collectVariables(((IConstraintFunctionNode) node).getNode(), names);
+        }
+    }
+
+    private static void renameVariables(IConstraintNode node, String oldName, String newName)
+    {
+        if (node instanceof VariableNode)
+        {
+            VariableNode variable = (VariableNode) node;
+            if (oldName.equals(variable.getVariableName()))
+            {
+                variable.setVariableName(newName);
+            }
+        }
+        else if (node instanceof IRootConstraintNode)
+        {
+            renameVariables(((IRootConstraintNode) node).getLeftChild(), oldName, newName);
+            renameVariables(((IRootConstraintNode) node).getRightChild(), oldName, newName);
+        }
+        else if (node instanceof IConstraintFunctionNode)
+        {
+            renameVariables(((IConstraintFunctionNode) node).getNode(), oldName, newName);
+        }
+    }
+}
@@ -23,11 +23,18 @@ package fr.isima.ponge.wsprotocol.timed.constraints;
 
 import static fr.isima.ponge.wsprotocol.timed.constraints.ComparisonConstants.*;
 
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
+import antlr.RecognitionException;
+import antlr.TokenStreamException;
+import fr.isima.ponge.wsprotocol.timed.constraints.parser.TemporalConstraintLexer;
+import fr.isima.ponge.wsprotocol.timed.constraints.parser.TemporalConstraintParser;
+import fr.isima.ponge.wsprotocol.timed.constraints.parser.TemporalConstraintTreeWalker;
+
 /**
  * Various utilities for constraints manipulation.
  *
@@ -36,65 +43,82 @@ import java.util.TreeMap;
 public class ConstraintHelper
 {
     /**
-     * Computes the set of disjunction-free constraints from a given constraint.
+     * Parses a temporal constraint through the grammar entry point, which also rejects the M-Invoke
+     * constraints that are not valid.
      *
-     * @param constraintNode The original constraint that can contain disjunctions.
-     * @return The list of disjunction-free constraints from <code>constraintNode</code>.
+     * @param constraint The constraint text.
+     * @return The constraint.
+     * @throws RecognitionException if the constraint cannot be parsed or is not a valid M-Invoke constraint.
+     * @throws TokenStreamException if the constraint cannot be tokenized.
      */
-    public List<IConstraintNode> makeDisjunctionFree(IConstraintNode constraintNode)
+    public IConstraintNode parse(String constraint) throws RecognitionException, TokenStreamException
     {
-        List<IConstraintNode> disjunctions = new ArrayList<IConstraintNode>();
-        IConstraintNode startNode = constraintNode.deepCopy();
-        disjunctions.add(startNode);
-
-        boolean allDisjointFree = false;
-        while (!allDisjointFree)
-        {
-            allDisjointFree = true;
-            for (IConstraintNode node : disjunctions)
-            {
-                if (!isDisjunctionFree(node))
-                {
-                    allDisjointFree = false;
-                    IConstraintNode copy = node.deepCopy();
-                    disjunctions.add(copy);
-                    breakDisjunction(node, copy, null, null);
-                    break;
-                }
-            }
-        }
-
-        return disjunctions;
+        TemporalConstraintLexer lexer = new TemporalConstraintLexer(new StringReader(constraint));
+        TemporalConstraintParser parser = new TemporalConstraintParser(lexer);
+        TemporalConstraintTreeWalker walker = new TemporalConstraintTreeWalker();
+        parser.constraint();
+        return walker.constraint(parser.getAST());
     }
 
-    private void breakDisjunction(IConstraintNode node, IConstraintNode copy, IConstraintNode nodeFather, IConstraintNode copyFather)
+    /**
+     * Parses a temporal constraint, as {@link #parse(String)} does, for the tools that ignore the
+     * constraints they cannot parse.
+     *
+     * @param constraint The constraint text, possibly <code>null</code> or empty.
+     * @return The constraint, or <code>null</code> if there is none or if it cannot be parsed.
+     */
+    public IConstraintNode parseOrNull(String constraint)
     {
-        if (node instanceof IConstraintFunctionNode)
+        if (constraint == null || "".equals(constraint))
         {
-            IConstraintFunctionNode fnode = (IConstraintFunctionNode) node;
-            IConstraintFunctionNode fcopy = (IConstraintFunctionNode) copy;
-            breakDisjunction(fnode.getNode(), fcopy.getNode(), node, copy);
+            return null;
         }
-        else if ((node instanceof BooleanNode) && BooleanNode.OR.equals(((BooleanNode) node).getSymbol()))
+        try
         {
-            BooleanNode bnode = (BooleanNode) node;
-            BooleanNode bcopy = (BooleanNode) copy;
-            nodeFather.replaceChildWith(bnode, bnode.getLeftChild());
-            copyFather.replaceChildWith(bcopy, bcopy.getRightChild());
+            return parse(constraint);
         }
-        else if (node instanceof IRootConstraintNode)
+        catch (RecognitionException e)
         {
-            IRootConstraintNode rnode = (IRootConstraintNode) node;
-            IRootConstraintNode rcopy = (IRootConstraintNode) copy;
-            if (isDisjunctionFree(rnode.getLeftChild()))
-            {
-                breakDisjunction(rnode.getRightChild(), rcopy.getRightChild(), rnode, rcopy);
-            }
-            else
-            {
-                breakDisjunction(rnode.getLeftChild(), rcopy.getLeftChild(), rnode, rcopy);
-            }
+            return null;
+        }
+        catch (TokenStreamException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Computes the set of disjunction-free constraints from a given constraint.
+     *
+     * @param constraintNode The original constraint that can contain disjunctions.
+     * @return The list of disjunction-free constraints from <code>constraintNode</code>, as independent copies.
+     * @see DisjunctionIterator
+     */
+    public List<IConstraintNode> makeDisjunctionFree(IConstraintNode constraintNode)
+    {
+        return makeDisjunctionFree(constraintNode, Long.MAX_VALUE);
+    }
+
+    /**
+     * Computes the set of disjunction-free constraints from a given constraint, failing fast if there
+     * are too many of them. The constraints are deep copies, they can be modified without affecting
+     * <code>constraintNode</code> or each other.
+     *
+     * @param constraintNode The original constraint that can contain disjunctions.
+     * @param maxDisjuncts   The maximum number of disjunction-free constraints.
+     * @return The list of disjunction-free constraints from <code>constraintNode</code>, as independent copies.
+     * @throws DisjunctionLimitExceededException
+     *          if there are more than <code>maxDisjuncts</code> disjunction-free constraints.
+     */
+    public List<IConstraintNode> makeDisjunctionFree(IConstraintNode constraintNode, long maxDisjuncts)
+    {
+        List<IConstraintNode> disjunctions = new ArrayList<IConstraintNode>();
+        DisjunctionIterator it = new DisjunctionIterator(constraintNode, maxDisjuncts);
+        while (it.hasNext())
+        {
+            disjunctions.add(it.next());
         }
+        return disjunctions;
     }
 
     /**
@@ -160,10 +184,10 @@ public class ConstraintHelper
      */
     public boolean isValidMInvoke(IConstraintNode node)
     {
-        List<IConstraintNode> disjunctions = makeDisjunctionFree(node);
-        for (IConstraintNode disjunction : disjunctions)
+        DisjunctionIterator it = new DisjunctionIterator(node);
+        while (it.hasNext())
         {
-            if (!containsEqualityCheck(disjunction))
+            if (!containsEqualityCheck(it.nextConjuncts()))
             {
                 return false;
             }
@@ -171,6 +195,18 @@ public class ConstraintHelper
         return true;
     }
 
+    private boolean containsEqualityCheck(List<IRootConstraintNode> conjuncts)
+    {
+        for (IRootConstraintNode conjunct : conjuncts)
+        {
+            if (containsEqualityCheck(conjunct))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean containsEqualityCheck(IConstraintNode node)
     {
         if (node instanceof ComparisonNode)
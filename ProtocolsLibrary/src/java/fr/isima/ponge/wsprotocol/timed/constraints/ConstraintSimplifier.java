@@ -0,0 +1,877 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import static fr.isima.ponge.wsprotocol.timed.constraints.ComparisonConstants.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Simplifies temporal constraints. The following rewritings are performed:
+ * <ul>
+ * <li>bounds on the same variable (or on the same diagonal pair) inside a conjunction are merged
+ * into at most a lower bound, an upper bound and some disequalities,</li>
+ * <li>comparisons that are trivially true or false on clocks (e.g., <code>T &gt;= 0</code> or
+ * <code>T &lt; 0</code>) are folded,</li>
+ * <li>unsatisfiable conjunctions are detected and removed from disjunctions,</li>
+ * <li>disjuncts that are subsumed by another disjunct are removed.</li>
+ * </ul>
+ * Comparisons with the <code>-1</code> constant denote operations that have never been fired: they
+ * are kept as-is.
+ * <p/>
+ * The simplification is sound but not complete: interactions between diagonal constraints and
+ * simple bounds are not taken into account.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class ConstraintSimplifier
+{
+    private static final int NEVER_FIRED = -1;
+
+    /**
+     * Simplifies a constraint. The given constraint is not modified.
+     *
+     * @param constraint The constraint, usually a C-Invoke or M-Invoke node.
+     * @return The simplified constraint, or <code>null</code> if it is always true. Unsatisfiable
+     *         constraints are returned unchanged, see {@link #isUnsatisfiable(IConstraintNode)}.
+     */
+    public IConstraintNode simplify(IConstraintNode constraint)
+    {
+        IConstraintNode expression = constraint;
+        if (constraint instanceof IConstraintFunctionNode)
+        {
+            expression = ((IConstraintFunctionNode) constraint).getNode();
+        }
+
+        Term term = simplifyTerm(expression);
+        if (term == Term.TRUE)
+        {
+            return null;
+        }
+        else if (term == Term.FALSE)
+        {
+            return constraint.deepCopy();
+        }
+
+        IRootConstraintNode node = term.toNode();
+        if (constraint instanceof MInvokeNode)
+        {
+            MInvokeNode result = new MInvokeNode(node);
+            return new ConstraintHelper().isValidMInvoke(result) ? result : constraint.deepCopy();
+        }
+        else if (constraint instanceof CInvokeNode)
+        {
+            return new CInvokeNode(node);
+        }
+        return node;
+    }
+
+    /**
+     * Tests wether a constraint is unsatisfiable. A <code>true</code> answer is always correct,
+     * while some unsatisfiable constraints involving diagonal constraints may not be detected.
+     *
+     * @param constraint The constraint.
+     * @return <code>true</code> if the constraint can never be satisfied.
+     */
+    public boolean isUnsatisfiable(IConstraintNode constraint)
+    {
+        IConstraintNode expression = constraint;
+        if (constraint instanceof IConstraintFunctionNode)
+        {
+            expression = ((IConstraintFunctionNode) constraint).getNode();
+        }
+        return simplifyTerm(expression) == Term.FALSE;
+    }
+
+    private Term simplifyTerm(IConstraintNode node)
+    {
+        if (node instanceof BooleanNode)
+        {
+            BooleanNode bnode = (BooleanNode) node;
+            Term left = simplifyTerm(bnode.getLeftChild());
+            Term right = simplifyTerm(bnode.getRightChild());
+            return BooleanConstants.AND.equals(bnode.getSymbol()) ? conjunction(left, right) : disjunction(left, right);
+        }
+        else if (node instanceof ComparisonNode)
+        {
+            return comparison((ComparisonNode) node);
+        }
+        else if (node instanceof DiagonalNode)
+        {
+            return diagonal((DiagonalNode) node);
+        }
+        Conjunction opaque = new Conjunction();
+        opaque.addOpaque(node);
+        return opaque;
+    }
+
+    private Term comparison(ComparisonNode node)
+    {
+        String symbol = node.getSymbol();
+        VariableNode variable;
+        ConstantNode constant;
+        if (node.getLeftChild() instanceof VariableNode)
+        {
+            variable = (VariableNode) node.getLeftChild();
+            constant = (ConstantNode) node.getRightChild();
+        }
+        else
+        {
+            variable = (VariableNode) node.getRightChild();
+            constant = (ConstantNode) node.getLeftChild();
+            symbol = flip(symbol);
+        }
+
+        Conjunction result = new Conjunction();
+        if (constant.getConstant() == NEVER_FIRED)
+        {
+            result.addOpaque(new ComparisonNode(symbol, (VariableNode) variable.deepCopy(), (ConstantNode) constant.deepCopy()));
+            return result;
+        }
+
+        Bounds bounds = new Bounds(variable.getVariableName(), null);
+        bounds.add(symbol, constant.getConstant());
+        return result.add(bounds) ? result.normalize() : Term.FALSE;
+    }
+
+    private Term diagonal(DiagonalNode node)
+    {
+        String first = node.getFirstVariable().getVariableName();
+        String second = node.getSecondVariable().getVariableName();
+        int k = node.getConstant().getConstant();
+        if (first.equals(second))
+        {
+            return compare(0, node.getOperator(), k) ? Term.TRUE : Term.FALSE;
+        }
+
+        Conjunction result = new Conjunction();
+        Bounds bounds = new Bounds(first, second);
+        bounds.add(node.getOperator(), k);
+        return result.add(bounds) ? result.normalize() : Term.FALSE;
+    }
+
+    private static boolean compare(int value, String symbol, int k)
+    {
+        if (LESS.equals(symbol))
+        {
+            return value < k;
+        }
+        else if (LESS_EQ.equals(symbol))
+        {
+            return value <= k;
+        }
+        else if (EQ.equals(symbol))
+        {
+            return value == k;
+        }
+        else if (NEQ.equals(symbol))
+        {
+            return value != k;
+        }
+        else if (GREATER.equals(symbol))
+        {
+            return value > k;
+        }
+        return value >= k;
+    }
+
+    private static String flip(String symbol)
+    {
+        if (LESS.equals(symbol))
+        {
+            return GREATER;
+        }
+        else if (LESS_EQ.equals(symbol))
+        {
+            return GREATER_EQ;
+        }
+        else if (GREATER.equals(symbol))
+        {
+            return LESS;
+        }
+        else if (GREATER_EQ.equals(symbol))
+        {
+            return LESS_EQ;
+        }
+        return symbol;
+    }
+
+    private Term conjunction(Term left, Term right)
+    {
+        if ((left == Term.FALSE) || (right == Term.FALSE))
+        {
+            return Term.FALSE;
+        }
+        else if (left == Term.TRUE)
+        {
+            return right;
+        }
+        else if (right == Term.TRUE)
+        {
+            return left;
+        }
+
+        Conjunction result = new Conjunction();
+        if (!result.addTerm(left) || !result.addTerm(right))
+        {
+            return Term.FALSE;
+        }
+        return result.normalize();
+    }
+
+    private Term disjunction(Term left, Term right)
+    {
+        if ((left == Term.TRUE) || (right == Term.TRUE))
+        {
+            return Term.TRUE;
+        }
+        else if (left == Term.FALSE)
+        {
+            return right;
+        }
+        else if (right == Term.FALSE)
+        {
+            return left;
+        }
+
+        List<Conjunction> disjuncts = new ArrayList<Conjunction>();
+        addDisjuncts(disjuncts, left);
+        addDisjuncts(disjuncts, right);
+        return makeDisjunction(disjuncts);
+    }
+
+    private static void addDisjuncts(List<Conjunction> disjuncts, Term term)
+    {
+        if (term instanceof Disjunction)
+        {
+            disjuncts.addAll(((Disjunction) term).disjuncts);
+        }
+        else
+        {
+            disjuncts.add((Conjunction) term);
+        }
+    }
+
+    /**
+     * Builds a disjunction, removing the disjuncts that are subsumed by another one.
+     */
+    private static Term makeDisjunction(List<Conjunction> disjuncts)
+    {
+        List<Conjunction> kept = new ArrayList<Conjunction>();
+        for (int i = 0; i < disjuncts.size(); ++i)
+        {
+            Conjunction candidate = disjuncts.get(i);
+            boolean subsumed = false;
+            for (int j = 0; j < disjuncts.size() && !subsumed; ++j)
+            {
+                if (i == j)
+                {
+                    continue;
+                }
+                Conjunction other = disjuncts.get(j);
+                // Equivalent disjuncts: only the first one is kept
+                subsumed = candidate.implies(other) && ((j < i) || !other.implies(candidate));
+            }
+            if (!subsumed)
+            {
+                kept.add(candidate);
+            }
+        }
+
+        if (kept.isEmpty())
+        {
+            return Term.FALSE;
+        }
+        else if (kept.size() == 1)
+        {
+            return kept.get(0);
+        }
+        for (Conjunction conjunction : kept)
+        {
+            if (conjunction.isEmpty())
+            {
+                return Term.TRUE;
+            }
+        }
+        return new Disjunction(kept);
+    }
+
+    /**
+     * Intermediate representation of simplified terms.
+     */
+    private static abstract class Term
+    {
+        static final Term TRUE = new Conjunction();
+
+        static final Term FALSE = new Conjunction();
+
+        abstract IRootConstraintNode toNode();
+    }
+
+    /**
+     * A disjunction of conjunctions.
+     */
+    private static class Disjunction extends Term
+    {
+        final List<Conjunction> disjuncts;
+
+        Disjunction(List<Conjunction> disjuncts)
+        {
+            this.disjuncts = disjuncts;
+        }
+
+        IRootConstraintNode toNode()
+        {
+            IRootConstraintNode result = null;
+            for (Conjunction conjunction : disjuncts)
+            {
+                IRootConstraintNode node = conjunction.toNode();
+                result = (result == null) ? node : new BooleanNode(BooleanConstants.OR, result, node);
+            }
+            return result;
+        }
+
+        public String toString()
+        {
+            return toNode().toString();
+        }
+    }
+
+    /**
+     * A conjunction of bounds, opaque comparisons and disjunctions.
+     */
+    private static class Conjunction extends Term
+    {
+        final Map<String, Bounds> bounds = new LinkedHashMap<String, Bounds>();
+
+        final Map<String, IConstraintNode> opaques = new LinkedHashMap<String, IConstraintNode>();
+
+        final Map<String, Disjunction> disjunctions = new LinkedHashMap<String, Disjunction>();
+
+        /**
+         * Keys of the bounds, opaque comparisons and disjunctions, in order of first occurrence.
+         */
+        final List<String> order = new ArrayList<String>();
+
+        boolean isEmpty()
+        {
+            return order.isEmpty();
+        }
+
+        void addOpaque(IConstraintNode node)
+        {
+            String key = node.toString();
+            if (!opaques.containsKey(key))
+            {
+                opaques.put(key, node);
+                order.add(key);
+            }
+        }
+
+        /**
+         * Adds bounds, returns <code>false</code> if the conjunction becomes unsatisfiable.
+         */
+        boolean add(Bounds other)
+        {
+            Bounds current = bounds.get(other.key);
+            if (current == null)
+            {
+                current = new Bounds(other.first, other.second);
+                bounds.put(other.key, current);
+                order.add(other.key);
+            }
+            return current.merge(other);
+        }
+
+        /**
+         * Adds a term, returns <code>false</code> if the conjunction becomes unsatisfiable.
+         */
+        boolean addTerm(Term term)
+        {
+            if (term instanceof Disjunction)
+            {
+                String key = term.toString();
+                if (!disjunctions.containsKey(key))
+                {
+                    disjunctions.put(key, (Disjunction) term);
+                    order.add(key);
+                }
+                return true;
+            }
+
+            Conjunction other = (Conjunction) term;
+            for (String key : other.order)
+            {
+                if (other.bounds.containsKey(key))
+                {
+                    if (!add(other.bounds.get(key)))
+                    {
+                        return false;
+                    }
+                }
+                else if (other.opaques.containsKey(key))
+                {
+                    addOpaque(other.opaques.get(key));
+                }
+                else if (!disjunctions.containsKey(key))
+                {
+                    disjunctions.put(key, other.disjunctions.get(key));
+                    order.add(key);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Simplifies the nested disjunctions with respect to the bounds of this conjunction, drops
+         * the trivial bounds.
+         */
+        Term normalize()
+        {
+            boolean changed = true;
+            while (changed)
+            {
+                changed = false;
+                Iterator<String> it = disjunctions.keySet().iterator();
+                while (it.hasNext() && !changed)
+                {
+                    String key = it.next();
+                    Disjunction disjunction = disjunctions.get(key);
+                    Conjunction context = withoutDisjunction(key);
+
+                    List<Conjunction> remaining = new ArrayList<Conjunction>();
+                    boolean implied = false;
+                    for (Conjunction disjunct : disjunction.disjuncts)
+                    {
+                        if (context.implies(disjunct))
+                        {
+                            implied = true;
+                            break;
+                        }
+                        Conjunction merged = context.copy();
+                        if (merged.addTerm(disjunct))
+                        {
+                            remaining.add(disjunct);
+                        }
+                    }
+
+                    if (implied || remaining.size() != disjunction.disjuncts.size())
+                    {
+                        disjunctions.remove(key);
+                        int position = order.indexOf(key);
+                        order.remove(position);
+                        changed = true;
+                        if (implied)
+                        {
+                            break;
+                        }
+                        Term replacement = makeDisjunction(remaining);
+                        if (replacement == Term.FALSE)
+                        {
+                            return Term.FALSE;
+                        }
+                        else if (replacement instanceof Disjunction)
+                        {
+                            String newKey = replacement.toString();
+                            if (!disjunctions.containsKey(newKey))
+                            {
+                                disjunctions.put(newKey, (Disjunction) replacement);
+                                order.add(position, newKey);
+                            }
+                        }
+                        else if (replacement != Term.TRUE)
+                        {
+                            Conjunction rest = copy();
+                            order.clear();
+                            bounds.clear();
+                            opaques.clear();
+                            disjunctions.clear();
+                            for (String k : rest.order.subList(0, position))
+                            {
+                                addKeyFrom(rest, k);
+                            }
+                            if (!addTerm(replacement))
+                            {
+                                return Term.FALSE;
+                            }
+                            for (String k : rest.order.subList(position, rest.order.size()))
+                            {
+                                if (!addKeyFrom(rest, k))
+                                {
+                                    return Term.FALSE;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            Iterator<String> it = order.iterator();
+            while (it.hasNext())
+            {
+                String key = it.next();
+                Bounds b = bounds.get(key);
+                if ((b != null) && b.isTrivial())
+                {
+                    bounds.remove(key);
+                    it.remove();
+                }
+            }
+
+            if (order.isEmpty())
+            {
+                return Term.TRUE;
+            }
+            if ((order.size() == 1) && !disjunctions.isEmpty())
+            {
+                return disjunctions.values().iterator().next();
+            }
+            return this;
+        }
+
+        private boolean addKeyFrom(Conjunction other, String key)
+        {
+            if (other.bounds.containsKey(key))
+            {
+                return add(other.bounds.get(key));
+            }
+            else if (other.opaques.containsKey(key))
+            {
+                addOpaque(other.opaques.get(key));
+            }
+            else if (!disjunctions.containsKey(key))
+            {
+                disjunctions.put(key, other.disjunctions.get(key));
+                order.add(key);
+            }
+            return true;
+        }
+
+        private Conjunction withoutDisjunction(String excluded)
+        {
+            Conjunction result = new Conjunction();
+            for (String key : order)
+            {
+                if (!key.equals(excluded))
+                {
+                    result.addKeyFrom(this, key);
+                }
+            }
+            return result;
+        }
+
+        Conjunction copy()
+        {
+            Conjunction result = new Conjunction();
+            for (String key : order)
+            {
+                result.addKeyFrom(this, key);
+            }
+            return result;
+        }
+
+        /**
+         * Tests wether this conjunction implies another one.
+         */
+        boolean implies(Conjunction other)
+        {
+            for (String key : other.order)
+            {
+                if (other.bounds.containsKey(key))
+                {
+                    Bounds mine = bounds.get(key);
+                    if (mine == null)
+                    {
+                        Bounds theirs = other.bounds.get(key);
+                        mine = new Bounds(theirs.first, theirs.second);
+                    }
+                    if (!mine.implies(other.bounds.get(key)))
+                    {
+                        return false;
+                    }
+                }
+                else if (!opaques.containsKey(key) && !disjunctions.containsKey(key))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        IRootConstraintNode toNode()
+        {
+            IRootConstraintNode result = null;
+            for (String key : order)
+            {
+                List<IRootConstraintNode> nodes = new ArrayList<IRootConstraintNode>();
+                if (bounds.containsKey(key))
+                {
+                    bounds.get(key).toNodes(nodes);
+                }
+                else if (opaques.containsKey(key))
+                {
+                    nodes.add((IRootConstraintNode) opaques.get(key).deepCopy());
+                }
+                else
+                {
+                    nodes.add(disjunctions.get(key).toNode());
+                }
+                for (IRootConstraintNode node : nodes)
+                {
+                    result = (result == null) ? node : new BooleanNode(BooleanConstants.AND, result, node);
+                }
+            }
+            return result;
+        }
+
+        public String toString()
+        {
+            return isEmpty() ? "" : toNode().toString();
+        }
+    }
+
+    /**
+     * Bounds on a variable (<code>second == null</code>) or on the difference of two variables.
+     * Variables are clocks, hence they have an implicit lower bound of 0.
+     */
+    private static class Bounds
+    {
+        final String first;
+
+        final String second;
+
+        final String key;
+
+        Integer lower;
+
+        boolean lowerStrict;
+
+        Integer upper;
+
+        boolean upperStrict;
+
+        final Set<Integer> disequalities = new LinkedHashSet<Integer>();
+
+        Bounds(String first, String second)
+        {
+            this.first = first;
+            this.second = second;
+            this.key = (second == null) ? first : first + " - " + second;
+        }
+
+        void add(String symbol, int k)
+        {
+            if (LESS.equals(symbol) || LESS_EQ.equals(symbol))
+            {
+                restrictUpper(k, LESS.equals(symbol));
+            }
+            else if (GREATER.equals(symbol) || GREATER_EQ.equals(symbol))
+            {
+                restrictLower(k, GREATER.equals(symbol));
+            }
+            else if (EQ.equals(symbol))
+            {
+                restrictLower(k, false);
+                restrictUpper(k, false);
+            }
+            else
+            {
+                disequalities.add(k);
+            }
+        }
+
+        private void restrictLower(int k, boolean strict)
+        {
+            if ((lower == null) || (k > lower) || ((k == lower) && strict))
+            {
+                lower = k;
+                lowerStrict = strict;
+            }
+        }
+
+        private void restrictUpper(int k, boolean strict)
+        {
+            if ((upper == null) || (k < upper) || ((k == upper) && strict))
+            {
+                upper = k;
+                upperStrict = strict;
+            }
+        }
+
+        /**
+         * Merges other bounds, returns <code>false</code> if they become unsatisfiable.
+         */
+        boolean merge(Bounds other)
+        {
+            if (other.lower != null)
+            {
+                restrictLower(other.lower, other.lowerStrict);
+            }
+            if (other.upper != null)
+            {
+                restrictUpper(other.upper, other.upperStrict);
+            }
+            disequalities.addAll(other.disequalities);
+            return normalize();
+        }
+
+        private boolean normalize()
+        {
+            if (second == null)
+            {
+                // Clocks are never negative
+                if ((lower != null) && ((lower < 0) || ((lower == 0) && !lowerStrict)))
+                {
+                    lower = null;
+                }
+                if ((upper != null) && ((upper < 0) || ((upper == 0) && upperStrict)))
+                {
+                    return false;
+                }
+            }
+            if ((lower != null) && (upper != null))
+            {
+                if ((lower > upper) || ((lower.equals(upper)) && (lowerStrict || upperStrict)))
+                {
+                    return false;
+                }
+            }
+
+            Iterator<Integer> it = disequalities.iterator();
+            while (it.hasNext())
+            {
+                int k = it.next();
+                if (excludes(k))
+                {
+                    it.remove();
+                }
+                else if ((lower != null) && (upper != null) && (lower == k) && (upper == k))
+                {
+                    return false;
+                }
+                else if ((lower != null) && (lower == k))
+                {
+                    lowerStrict = true;
+                    it.remove();
+                }
+                else if ((upper != null) && (upper == k))
+                {
+                    upperStrict = true;
+                    it.remove();
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Tests wether a value is outside of the [lower, upper] range.
+         */
+        private boolean excludes(int k)
+        {
+            if ((second == null) && (k < 0))
+            {
+                return true;
+            }
+            if ((lower != null) && ((k < lower) || ((k == lower) && lowerStrict)))
+            {
+                return true;
+            }
+            return (upper != null) && ((k > upper) || ((k == upper) && upperStrict));
+        }
+
+        boolean isTrivial()
+        {
+            return (lower == null) && (upper == null) && disequalities.isEmpty();
+        }
+
+        boolean implies(Bounds other)
+        {
+            if (other.lower != null)
+            {
+                int myLower = (lower != null) ? lower : 0;
+                boolean myStrict = (lower != null) && lowerStrict;
+                if ((lower == null) && (second != null))
+                {
+                    return false;
+                }
+                if ((myLower < other.lower) || ((myLower == other.lower) && other.lowerStrict && !myStrict))
+                {
+                    return false;
+                }
+            }
+            if (other.upper != null)
+            {
+                if ((upper == null) || (upper > other.upper) || (upper.equals(other.upper) && other.upperStrict && !upperStrict))
+                {
+                    return false;
+                }
+            }
+            for (Integer k : other.disequalities)
+            {
+                if (!disequalities.contains(k) && !excludes(k))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void toNodes(List<IRootConstraintNode> nodes)
+        {
+            if ((lower != null) && lower.equals(upper))
+            {
+                nodes.add(atom(EQ, lower));
+            }
+            else
+            {
+                if (lower != null)
+                {
+                    nodes.add(atom(lowerStrict ? GREATER : GREATER_EQ, lower));
+                }
+                if (upper != null)
+                {
+                    nodes.add(atom(upperStrict ? LESS : LESS_EQ, upper));
+                }
+            }
+            for (Integer k : disequalities)
+            {
+                nodes.add(atom(NEQ, k));
+            }
+        }
+
+        private IRootConstraintNode atom(String symbol, int k)
+        {
+            if (second == null)
+            {
+                return new ComparisonNode(symbol, new VariableNode(first), new ConstantNode(k));
+            }
+            return new DiagonalNode(new DiagonalVariablesPair(new VariableNode(first), new VariableNode(second)), symbol,
+                    new ConstantNode(k));
+        }
+    }
+}
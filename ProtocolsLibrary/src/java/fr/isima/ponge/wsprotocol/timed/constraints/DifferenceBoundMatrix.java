@@ -0,0 +1,510 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import static fr.isima.ponge.wsprotocol.timed.constraints.ComparisonConstants.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A difference bound matrix (DBM) representing a convex set of clock valuations. Clocks are the
+ * variables of the constraints, plus a reference clock <code>0</code> at index 0. The entry
+ * <code>(i, j)</code> is an upper bound on <code>x_i - x_j</code>.
+ * <p/>
+ * Bounds are encoded in a single <code>int</code>: <code>(c &lt;&lt; 1) | 1</code> stands for
+ * <code>&lt;= c</code>, <code>c &lt;&lt; 1</code> for <code>&lt; c</code>, and {@link #INFINITY}
+ * for no bound. Encoded bounds can thus be compared directly.
+ * <p/>
+ * Matrices are mutable; two matrices can only be combined when they share the same variables.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class DifferenceBoundMatrix
+{
+    /**
+     * The encoded absence of bound.
+     */
+    public static final int INFINITY = Integer.MAX_VALUE;
+
+    /**
+     * The encoded <code>&lt;= 0</code> bound.
+     */
+    public static final int LE_ZERO = bound(0, false);
+
+    private final String[] variables;
+
+    private final int dimension;
+
+    private final int[] bounds;
+
+    private boolean canonical;
+
+    /**
+     * Instantiates a new matrix where the variables are only constrained to be non-negative.
+     *
+     * @param variables The variables.
+     */
+    public DifferenceBoundMatrix(String[] variables)
+    {
+        super();
+        this.variables = variables.clone();
+        dimension = variables.length + 1;
+        bounds = new int[dimension * dimension];
+        Arrays.fill(bounds, INFINITY);
+        for (int i = 0; i < dimension; ++i)
+        {
+            bounds[i * dimension + i] = LE_ZERO;
+            bounds[i] = LE_ZERO;
+        }
+        canonical = true;
+    }
+
+    private DifferenceBoundMatrix(DifferenceBoundMatrix other)
+    {
+        variables = other.variables;
+        dimension = other.dimension;
+        bounds = other.bounds.clone();
+        canonical = other.canonical;
+    }
+
+    /**
+     * Encodes a bound.
+     *
+     * @param constant The constant.
+     * @param strict   <code>true</code> for <code>&lt;</code>, <code>false</code> for <code>&lt;=</code>.
+     * @return The encoded bound.
+     */
+    public static int bound(int constant, boolean strict)
+    {
+        return (constant << 1) | (strict ? 0 : 1);
+    }
+
+    /**
+     * Adds two encoded bounds.
+     *
+     * @param a The first bound.
+     * @param b The second bound.
+     * @return The encoded sum.
+     */
+    public static int add(int a, int b)
+    {
+        if ((a == INFINITY) || (b == INFINITY))
+        {
+            return INFINITY;
+        }
+        return (((a >> 1) + (b >> 1)) << 1) | (a & b & 1);
+    }
+
+    /**
+     * Compiles a disjunction-free constraint. The variables are taken in their order of appearance.
+     *
+     * @param constraint The constraint, without disjunctions nor <code>!=</code> comparisons.
+     * @return The matrix.
+     * @throws IllegalArgumentException if the constraint is not convex.
+     */
+    public static DifferenceBoundMatrix compile(IConstraintNode constraint)
+    {
+        List<String> names = new ArrayList<String>();
+        collectVariables(constraint, names);
+        return compile(constraint, names.toArray(new String[names.size()]));
+    }
+
+    /**
+     * Compiles a disjunction-free constraint over a given set of variables.
+     *
+     * @param constraint The constraint, without disjunctions nor <code>!=</code> comparisons.
+     * @param variables  The variables; they must include those of the constraint.
+     * @return The matrix.
+     * @throws IllegalArgumentException if the constraint is not convex or references an unknown
+     *                                  variable.
+     */
+    public static DifferenceBoundMatrix compile(IConstraintNode constraint, String[] variables)
+    {
+        DifferenceBoundMatrix dbm = new DifferenceBoundMatrix(variables);
+        dbm.constrain(constraint);
+        return dbm;
+    }
+
+    private static void collectVariables(IConstraintNode node, List<String> names)
+    {
+        if (node instanceof VariableNode)
+        {
+            String name = ((VariableNode) node).getVariableName();
+            if (!names.contains(name))
+            {
+                names.add(name);
+            }
+        }
+        else if (node instanceof IRootConstraintNode)
+        {
+            collectVariables(((IRootConstraintNode) node).getLeftChild(), names);
+            collectVariables(((IRootConstraintNode) node).getRightChild(), names);
+        }
+        else if (node instanceof IConstraintFunctionNode)
+        {
+            collectVariables(((IConstraintFunctionNode) node).getNode(), names);
+        }
+    }
+
+    private void constrain(IConstraintNode node)
+    {
+        if (node instanceof IConstraintFunctionNode)
+        {
+            constrain(((IConstraintFunctionNode) node).getNode());
+        }
+        else if (node instanceof BooleanNode)
+        {
+            BooleanNode bnode = (BooleanNode) node;
+            if (!BooleanConstants.AND.equals(bnode.getSymbol()))
+            {
+                throw new IllegalArgumentException("Disjunctions cannot be represented by a DBM: " + node);
+            }
+            constrain(bnode.getLeftChild());
+            constrain(bnode.getRightChild());
+        }
+        else if (node instanceof ComparisonNode)
+        {
+            ComparisonNode cnode = (ComparisonNode) node;
+            if (cnode.getLeftChild() instanceof VariableNode)
+            {
+                constrain(((VariableNode) cnode.getLeftChild()).getVariableName(), null, cnode.getSymbol(),
+                        ((ConstantNode) cnode.getRightChild()).getConstant());
+            }
+            else
+            {
+                // k # x is x #' k
+                String symbol = cnode.getSymbol();
+                if (LESS.equals(symbol))
+                {
+                    symbol = GREATER;
+                }
+                else if (LESS_EQ.equals(symbol))
+                {
+                    symbol = GREATER_EQ;
+                }
+                else if (GREATER.equals(symbol))
+                {
+                    symbol = LESS;
+                }
+                else if (GREATER_EQ.equals(symbol))
+                {
+                    symbol = LESS_EQ;
+                }
+                constrain(((VariableNode) cnode.getRightChild()).getVariableName(), null, symbol,
+                        ((ConstantNode) cnode.getLeftChild()).getConstant());
+            }
+        }
+        else if (node instanceof DiagonalNode)
+        {
+            DiagonalNode dnode = (DiagonalNode) node;
+            constrain(dnode.getFirstVariable().getVariableName(), dnode.getSecondVariable().getVariableName(),
+                    dnode.getOperator(), dnode.getConstant().getConstant());
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unsupported constraint node: " + node);
+        }
+    }
+
+    /**
+     * Intersects the matrix with <code>first - second # constant</code>.
+     *
+     * @param first    The first variable.
+     * @param second   The second variable, or <code>null</code> for the reference clock.
+     * @param symbol   The comparison symbol, other than <code>!=</code>.
+     * @param constant The constant.
+     */
+    public void constrain(String first, String second, String symbol, int constant)
+    {
+        int i = indexOf(first);
+        int j = (second == null) ? 0 : indexOf(second);
+        if (LESS.equals(symbol) || LESS_EQ.equals(symbol))
+        {
+            constrain(i, j, bound(constant, LESS.equals(symbol)));
+        }
+        else if (GREATER.equals(symbol) || GREATER_EQ.equals(symbol))
+        {
+            constrain(j, i, bound(-constant, GREATER.equals(symbol)));
+        }
+        else if (EQ.equals(symbol))
+        {
+            constrain(i, j, bound(constant, false));
+            constrain(j, i, bound(-constant, false));
+        }
+        else
+        {
+            throw new IllegalArgumentException("Disequalities cannot be represented by a DBM: " + symbol);
+        }
+    }
+
+    /**
+     * Intersects the matrix with <code>x_i - x_j</code> bounded by <code>bound</code>.
+     *
+     * @param i     The first clock index.
+     * @param j     The second clock index.
+     * @param bound The encoded bound.
+     */
+    public void constrain(int i, int j, int bound)
+    {
+        int index = i * dimension + j;
+        if (bound < bounds[index])
+        {
+            bounds[index] = bound;
+            canonical = false;
+        }
+    }
+
+    /**
+     * Gets the index of a variable.
+     *
+     * @param variable The variable name.
+     * @return The index, starting at 1.
+     * @throws IllegalArgumentException if the variable is unknown.
+     */
+    public int indexOf(String variable)
+    {
+        for (int i = 0; i < variables.length; ++i)
+        {
+            if (variables[i].equals(variable))
+            {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("Unknown variable: " + variable);
+    }
+
+    /**
+     * Gets the variables.
+     *
+     * @return The variables, index <code>i</code> in the array being clock <code>i + 1</code>.
+     */
+    public String[] getVariables()
+    {
+        return variables.clone();
+    }
+
+    /**
+     * Gets the dimension, that is, the number of variables plus one.
+     *
+     * @return The dimension.
+     */
+    public int getDimension()
+    {
+        return dimension;
+    }
+
+    /**
+     * Gets an encoded bound on <code>x_i - x_j</code>.
+     *
+     * @param i The first clock index.
+     * @param j The second clock index.
+     * @return The encoded bound.
+     */
+    public int getBound(int i, int j)
+    {
+        return bounds[i * dimension + j];
+    }
+
+    /**
+     * Copies the matrix.
+     *
+     * @return The copy.
+     */
+    public DifferenceBoundMatrix copy()
+    {
+        return new DifferenceBoundMatrix(this);
+    }
+
+    /**
+     * Puts the matrix in canonical form (all-pairs shortest paths), so that every bound is tight.
+     */
+    public void canonicalize()
+    {
+        if (canonical)
+        {
+            return;
+        }
+        final int n = dimension;
+        for (int k = 0; k < n; ++k)
+        {
+            int kRow = k * n;
+            for (int i = 0; i < n; ++i)
+            {
+                int ik = bounds[i * n + k];
+                if (ik == INFINITY)
+                {
+                    continue;
+                }
+                int iRow = i * n;
+                for (int j = 0; j < n; ++j)
+                {
+                    int sum = add(ik, bounds[kRow + j]);
+                    if (sum < bounds[iRow + j])
+                    {
+                        bounds[iRow + j] = sum;
+                    }
+                }
+            }
+            if (bounds[kRow + k] < LE_ZERO)
+            {
+                // Negative cycle: the matrix is empty, no need to go further
+                break;
+            }
+        }
+        canonical = true;
+    }
+
+    /**
+     * Tests wether the matrix represents an empty set of valuations.
+     *
+     * @return <code>true</code> if the constraints are unsatisfiable.
+     */
+    public boolean isEmpty()
+    {
+        canonicalize();
+        for (int i = 0; i < dimension; ++i)
+        {
+            if (bounds[i * dimension + i] < LE_ZERO)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the conjunction with another matrix over the same variables.
+     *
+     * @param other The other matrix.
+     * @return A new matrix for the conjunction.
+     */
+    public DifferenceBoundMatrix intersect(DifferenceBoundMatrix other)
+    {
+        checkCompatible(other);
+        DifferenceBoundMatrix result = new DifferenceBoundMatrix(this);
+        for (int i = 0; i < bounds.length; ++i)
+        {
+            if (other.bounds[i] < result.bounds[i])
+            {
+                result.bounds[i] = other.bounds[i];
+                result.canonical = false;
+            }
+        }
+        result.canonicalize();
+        return result;
+    }
+
+    /**
+     * Tests wether this matrix includes another matrix over the same variables.
+     *
+     * @param other The other matrix.
+     * @return <code>true</code> if every valuation of <code>other</code> belongs to this matrix.
+     */
+    public boolean includes(DifferenceBoundMatrix other)
+    {
+        checkCompatible(other);
+        if (other.isEmpty())
+        {
+            return true;
+        }
+        if (isEmpty())
+        {
+            return false;
+        }
+        for (int i = 0; i < bounds.length; ++i)
+        {
+            if (other.bounds[i] > bounds[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkCompatible(DifferenceBoundMatrix other)
+    {
+        if (!Arrays.equals(variables, other.variables))
+        {
+            throw new IllegalArgumentException("The matrices do not share the same variables");
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof DifferenceBoundMatrix))
+        {
+            return false;
+        }
+        DifferenceBoundMatrix other = (DifferenceBoundMatrix) o;
+        if (!Arrays.equals(variables, other.variables))
+        {
+            return false;
+        }
+        if (isEmpty() || other.isEmpty())
+        {
+            return isEmpty() && other.isEmpty();
+        }
+        return Arrays.equals(bounds, other.bounds);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    public int hashCode()
+    {
+        return isEmpty() ? Arrays.hashCode(variables) : 31 * Arrays.hashCode(variables) + Arrays.hashCode(bounds);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < dimension; ++i)
+        {
+            for (int j = 0; j < dimension; ++j)
+            {
+                int b = bounds[i * dimension + j];
+                builder.append((j == 0) ? "[" : " ");
+                builder.append((b == INFINITY) ? "inf" : (((b & 1) == 0) ? "<" : "<=") + (b >> 1));
+            }
+            builder.append("]");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,295 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily enumerates the disjunction-free constraints of a constraint, that is, the disjuncts of its
+ * disjunctive normal form. Disjuncts are computed one at a time: the original tree is never copied
+ * as a whole, and consumers can stop early.
+ * <p/>
+ * As the number of disjuncts can grow exponentially with the constraint size, a limit can be given.
+ * It is checked upfront, so that oversized constraints are rejected before any work is done.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class DisjunctionIterator implements Iterator<IConstraintNode>
+{
+    private final IConstraintNode constraint;
+
+    private final Cursor cursor;
+
+    /**
+     * Instantiates a new iterator, without limit on the number of disjuncts.
+     *
+     * @param constraint The constraint, either a function (C-Invoke, M-Invoke) or an expression node.
+     */
+    public DisjunctionIterator(IConstraintNode constraint)
+    {
+        this(constraint, Long.MAX_VALUE);
+    }
+
+    /**
+     * Instantiates a new iterator.
+     *
+     * @param constraint   The constraint, either a function (C-Invoke, M-Invoke) or an expression node.
+     * @param maxDisjuncts The maximum number of disjuncts.
+     * @throws DisjunctionLimitExceededException
+     *          if the constraint has more than <code>maxDisjuncts</code> disjuncts.
+     */
+    public DisjunctionIterator(IConstraintNode constraint, long maxDisjuncts)
+    {
+        super();
+        this.constraint = constraint;
+        IConstraintNode expression = (constraint instanceof IConstraintFunctionNode) ? ((IConstraintFunctionNode) constraint)
+                .getNode() : constraint;
+        long count = countDisjuncts(expression);
+        if (count > maxDisjuncts)
+        {
+            throw new DisjunctionLimitExceededException(count, maxDisjuncts);
+        }
+        cursor = makeCursor(expression);
+        cursor.reset();
+    }
+
+    /**
+     * Counts the disjuncts of a constraint without enumerating them.
+     *
+     * @param constraint The constraint.
+     * @return The number of disjuncts, or <code>Long.MAX_VALUE</code> if it overflows.
+     */
+    public static long countDisjuncts(IConstraintNode constraint)
+    {
+        if (constraint instanceof IConstraintFunctionNode)
+        {
+            return countDisjuncts(((IConstraintFunctionNode) constraint).getNode());
+        }
+        else if (constraint instanceof BooleanNode)
+        {
+            BooleanNode bnode = (BooleanNode) constraint;
+            long left = countDisjuncts(bnode.getLeftChild());
+            long right = countDisjuncts(bnode.getRightChild());
+            if (BooleanConstants.OR.equals(bnode.getSymbol()))
+            {
+                return (left > Long.MAX_VALUE - right) ? Long.MAX_VALUE : left + right;
+            }
+            return (left > Long.MAX_VALUE / right) ? Long.MAX_VALUE : left * right;
+        }
+        return 1L;
+    }
+
+    private Cursor makeCursor(IConstraintNode node)
+    {
+        if (node instanceof BooleanNode)
+        {
+            BooleanNode bnode = (BooleanNode) node;
+            Cursor left = makeCursor(bnode.getLeftChild());
+            Cursor right = makeCursor(bnode.getRightChild());
+            if (BooleanConstants.OR.equals(bnode.getSymbol()))
+            {
+                return new OrCursor(left, right);
+            }
+            return new AndCursor(left, right);
+        }
+        return new AtomCursor((IRootConstraintNode) node);
+    }
+
+    public boolean hasNext()
+    {
+        return cursor.hasNext();
+    }
+
+    /**
+     * Gets the next disjunct as a list of comparisons and diagonal constraints. The nodes are shared
+     * with the original constraint and must not be modified.
+     *
+     * @return The conjuncts of the next disjunct.
+     */
+    public List<IRootConstraintNode> nextConjuncts()
+    {
+        if (!cursor.hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        List<IRootConstraintNode> conjuncts = new ArrayList<IRootConstraintNode>();
+        cursor.next(conjuncts);
+        return Collections.unmodifiableList(conjuncts);
+    }
+
+    /**
+     * Gets the next disjunct as a fresh constraint tree, which shares no node with the original
+     * constraint or with the other disjuncts. It is wrapped in a C-Invoke or M-Invoke node if the
+     * original constraint was.
+     *
+     * @return The next disjunct.
+     */
+    public IConstraintNode next()
+    {
+        IRootConstraintNode conjunction = null;
+        for (IRootConstraintNode conjunct : nextConjuncts())
+        {
+            IRootConstraintNode copy = (IRootConstraintNode) conjunct.deepCopy();
+            conjunction = (conjunction == null) ? copy : new BooleanNode(BooleanConstants.AND, conjunction, copy);
+        }
+        if (constraint instanceof MInvokeNode)
+        {
+            return new MInvokeNode(conjunction);
+        }
+        else if (constraint instanceof CInvokeNode)
+        {
+            return new CInvokeNode(conjunction);
+        }
+        return conjunction;
+    }
+
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * A restartable enumeration of the disjuncts of a sub-expression.
+     */
+    private static interface Cursor
+    {
+        void reset();
+
+        boolean hasNext();
+
+        /**
+         * Appends the conjuncts of the next disjunct.
+         */
+        void next(List<IRootConstraintNode> conjuncts);
+    }
+
+    private static class AtomCursor implements Cursor
+    {
+        private final IRootConstraintNode atom;
+
+        private boolean consumed;
+
+        AtomCursor(IRootConstraintNode atom)
+        {
+            this.atom = atom;
+        }
+
+        public void reset()
+        {
+            consumed = false;
+        }
+
+        public boolean hasNext()
+        {
+            return !consumed;
+        }
+
+        public void next(List<IRootConstraintNode> conjuncts)
+        {
+            conjuncts.add(atom);
+            consumed = true;
+        }
+    }
+
+    private static class OrCursor implements Cursor
+    {
+        private final Cursor left;
+
+        private final Cursor right;
+
+        OrCursor(Cursor left, Cursor right)
+        {
+            this.left = left;
+            this.right = right;
+        }
+
+        public void reset()
+        {
+            left.reset();
+            right.reset();
+        }
+
+        public boolean hasNext()
+        {
+            return left.hasNext() || right.hasNext();
+        }
+
+        public void next(List<IRootConstraintNode> conjuncts)
+        {
+            if (left.hasNext())
+            {
+                left.next(conjuncts);
+            }
+            else
+            {
+                right.next(conjuncts);
+            }
+        }
+    }
+
+    private static class AndCursor implements Cursor
+    {
+        private final Cursor left;
+
+        private final Cursor right;
+
+        private final List<IRootConstraintNode> current = new ArrayList<IRootConstraintNode>();
+
+        private boolean started;
+
+        AndCursor(Cursor left, Cursor right)
+        {
+            this.left = left;
+            this.right = right;
+        }
+
+        public void reset()
+        {
+            left.reset();
+            right.reset();
+            current.clear();
+            started = false;
+        }
+
+        public boolean hasNext()
+        {
+            return (started && right.hasNext()) || left.hasNext();
+        }
+
+        public void next(List<IRootConstraintNode> conjuncts)
+        {
+            if (!started || !right.hasNext())
+            {
+                current.clear();
+                left.next(current);
+                right.reset();
+                started = true;
+            }
+            conjuncts.addAll(current);
+            right.next(conjuncts);
+        }
+    }
+}
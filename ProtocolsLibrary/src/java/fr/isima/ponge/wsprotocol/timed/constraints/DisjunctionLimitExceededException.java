@@ -0,0 +1,71 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+/**
+ * Thrown when the disjunctive normal form of a constraint has more disjuncts than allowed.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ * @see DisjunctionIterator
+ */
+public class DisjunctionLimitExceededException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    private final long disjunctsCount;
+
+    private final long limit;
+
+    /**
+     * Instantiates a new exception.
+     *
+     * @param disjunctsCount The number of disjuncts of the constraint.
+     * @param limit          The maximum number of disjuncts that was allowed.
+     */
+    public DisjunctionLimitExceededException(long disjunctsCount, long limit)
+    {
+        super("The constraint has " + ((disjunctsCount == Long.MAX_VALUE) ? "too many" : String.valueOf(disjunctsCount))
+                + " disjuncts, the limit is " + limit);
+        this.disjunctsCount = disjunctsCount;
+        this.limit = limit;
+    }
+
+    /**
+     * Gets the number of disjuncts of the constraint, <code>Long.MAX_VALUE</code> if it overflows.
+     *
+     * @return The number of disjuncts.
+     */
+    public long getDisjunctsCount()
+    {
+        return disjunctsCount;
+    }
+
+    /**
+     * Gets the limit.
+     *
+     * @return The maximum number of disjuncts that was allowed.
+     */
+    public long getLimit()
+    {
+        return limit;
+    }
+}
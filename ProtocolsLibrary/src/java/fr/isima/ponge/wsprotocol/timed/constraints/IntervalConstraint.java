@@ -0,0 +1,361 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A fast representation for the constraints that only compare single clocks with constants, which
+ * covers most of the guards found in practice such as <code>C-Invoke(T1 &lt; 3)</code>. A constraint is
+ * either a conjunction or a disjunction of per-variable {@link IntervalSet}s; negation swaps the two
+ * forms, and conjunctions (resp. disjunctions) of conjunctive (resp. disjunctive) constraints are
+ * computed variable by variable.
+ * <p/>
+ * Constraints involving diagonals, the <code>-1</code> constant or boolean combinations that do not
+ * fit one of the two forms are not representable: the factory and combination methods return
+ * <code>null</code> for them, and callers should use the general {@link IConstraintNode} tree path.
+ * <p/>
+ * Instances are kept normalized (no empty set in a disjunction, no full set in a conjunction, single
+ * variable constraints are conjunctions), so that they can be compared with <code>equals</code>.
+ * Interval constraints are immutable.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public final class IntervalConstraint
+{
+    /**
+     * The constraint that always holds.
+     */
+    public static final IntervalConstraint TRUE = new IntervalConstraint(new LinkedHashMap<String, IntervalSet>(),
+            false);
+
+    /**
+     * The constraint that never holds.
+     */
+    public static final IntervalConstraint FALSE = new IntervalConstraint(new LinkedHashMap<String, IntervalSet>(),
+            true);
+
+    private final Map<String, IntervalSet> sets;
+
+    private final boolean disjunctive;
+
+    private IntervalConstraint(Map<String, IntervalSet> sets, boolean disjunctive)
+    {
+        super();
+        this.sets = sets;
+        this.disjunctive = disjunctive;
+    }
+
+    private static IntervalConstraint create(Map<String, IntervalSet> sets, boolean disjunctive)
+    {
+        IntervalSet absorbing = disjunctive ? IntervalSet.FULL : IntervalSet.EMPTY;
+        IntervalSet neutral = disjunctive ? IntervalSet.EMPTY : IntervalSet.FULL;
+        Map<String, IntervalSet> normalized = new LinkedHashMap<String, IntervalSet>();
+        for (Map.Entry<String, IntervalSet> entry : sets.entrySet())
+        {
+            if (entry.getValue().equals(absorbing))
+            {
+                return disjunctive ? TRUE : FALSE;
+            }
+            if (!entry.getValue().equals(neutral))
+            {
+                normalized.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (normalized.isEmpty())
+        {
+            return disjunctive ? FALSE : TRUE;
+        }
+        return new IntervalConstraint(normalized, disjunctive && normalized.size() > 1);
+    }
+
+    /**
+     * Builds the interval form of a constraint.
+     *
+     * @param constraint The constraint, possibly wrapped in a C-Invoke or M-Invoke function.
+     * @return The interval constraint, or <code>null</code> if the constraint cannot be represented.
+     */
+    public static IntervalConstraint fromNode(IConstraintNode constraint)
+    {
+        if (constraint instanceof IConstraintFunctionNode)
+        {
+            return fromNode(((IConstraintFunctionNode) constraint).getNode());
+        }
+        else if (constraint instanceof BooleanNode)
+        {
+            BooleanNode bnode = (BooleanNode) constraint;
+            IntervalConstraint left = fromNode(bnode.getLeftChild());
+            IntervalConstraint right = (left == null) ? null : fromNode(bnode.getRightChild());
+            if (right == null)
+            {
+                return null;
+            }
+            return BooleanConstants.AND.equals(bnode.getSymbol()) ? left.and(right) : left.or(right);
+        }
+        else if (constraint instanceof ComparisonNode)
+        {
+            ComparisonNode cnode = (ComparisonNode) constraint;
+            boolean variableOnLeft = cnode.getLeftChild() instanceof VariableNode;
+            VariableNode variable = (VariableNode) (variableOnLeft ? cnode.getLeftChild() : cnode.getRightChild());
+            int constant = ((ConstantNode) (variableOnLeft ? cnode.getRightChild() : cnode.getLeftChild())).getConstant();
+            if (constant < 0 || constant > IntervalSet.MAX_CONSTANT)
+            {
+                return null;
+            }
+            String symbol = cnode.getSymbol();
+            if (!variableOnLeft)
+            {
+                symbol = CompiledConstraint.symbol(CompiledConstraint.flip(CompiledConstraint.symbolCode(symbol)));
+            }
+            Map<String, IntervalSet> sets = new LinkedHashMap<String, IntervalSet>();
+            sets.put(variable.getVariableName(), IntervalSet.compare(symbol, constant));
+            return create(sets, false);
+        }
+        return null;
+    }
+
+    /**
+     * Tests wether the constraint never holds.
+     *
+     * @return <code>true</code> if the constraint is unsatisfiable.
+     */
+    public boolean isEmpty()
+    {
+        return disjunctive && sets.isEmpty();
+    }
+
+    /**
+     * Tests wether the constraint always holds.
+     *
+     * @return <code>true</code> if the constraint is valid.
+     */
+    public boolean isTrue()
+    {
+        return !disjunctive && sets.isEmpty();
+    }
+
+    /**
+     * Tests wether the constraint is a disjunction over several variables.
+     *
+     * @return <code>true</code> for a disjunction, <code>false</code> for a conjunction.
+     */
+    public boolean isDisjunctive()
+    {
+        return disjunctive;
+    }
+
+    /**
+     * Gets the constrained variables.
+     *
+     * @return The variables, in their order of appearance.
+     */
+    public Set<String> getVariables()
+    {
+        return Collections.unmodifiableSet(sets.keySet());
+    }
+
+    /**
+     * Gets the values allowed for a variable.
+     *
+     * @param variable The variable name.
+     * @return The set of values, or <code>null</code> if the variable is not constrained.
+     */
+    public IntervalSet getIntervals(String variable)
+    {
+        return sets.get(variable);
+    }
+
+    /**
+     * Computes the conjunction with another constraint.
+     *
+     * @param other The other constraint.
+     * @return The conjunction, or <code>null</code> if it cannot be represented.
+     */
+    public IntervalConstraint and(IntervalConstraint other)
+    {
+        return combine(other, false);
+    }
+
+    /**
+     * Computes the disjunction with another constraint.
+     *
+     * @param other The other constraint.
+     * @return The disjunction, or <code>null</code> if it cannot be represented.
+     */
+    public IntervalConstraint or(IntervalConstraint other)
+    {
+        return combine(other, true);
+    }
+
+    private IntervalConstraint combine(IntervalConstraint other, boolean union)
+    {
+        IntervalConstraint absorbing = union ? TRUE : FALSE;
+        IntervalConstraint neutral = union ? FALSE : TRUE;
+        if (equals(absorbing) || other.equals(neutral))
+        {
+            return this;
+        }
+        if (other.equals(absorbing) || equals(neutral))
+        {
+            return other;
+        }
+        if ((disjunctive != union && sets.size() > 1) || (other.disjunctive != union && other.sets.size() > 1))
+        {
+            // A conjunction over several variables in a disjunction, or the converse
+            return null;
+        }
+        Map<String, IntervalSet> result = new LinkedHashMap<String, IntervalSet>(sets);
+        for (Map.Entry<String, IntervalSet> entry : other.sets.entrySet())
+        {
+            IntervalSet current = result.get(entry.getKey());
+            IntervalSet set = entry.getValue();
+            if (current != null)
+            {
+                set = union ? current.union(set) : current.intersect(set);
+            }
+            result.put(entry.getKey(), set);
+        }
+        return create(result, union);
+    }
+
+    /**
+     * Computes the negation of the constraint. This is always representable.
+     *
+     * @return The negation.
+     */
+    public IntervalConstraint negate()
+    {
+        if (sets.isEmpty())
+        {
+            return disjunctive ? TRUE : FALSE;
+        }
+        Map<String, IntervalSet> result = new LinkedHashMap<String, IntervalSet>();
+        for (Map.Entry<String, IntervalSet> entry : sets.entrySet())
+        {
+            result.put(entry.getKey(), entry.getValue().complement());
+        }
+        return create(result, !disjunctive);
+    }
+
+    /**
+     * Converts the constraint back into a tree.
+     *
+     * @return The constraint tree, or <code>null</code> if the constraint always or never holds.
+     */
+    public IRootConstraintNode toNode()
+    {
+        IRootConstraintNode result = null;
+        for (Map.Entry<String, IntervalSet> entry : sets.entrySet())
+        {
+            IRootConstraintNode node = entry.getValue().toNode(entry.getKey());
+            result = (result == null) ? node : new BooleanNode(disjunctive ? BooleanConstants.OR
+                    : BooleanConstants.AND, result, node);
+        }
+        return result;
+    }
+
+    /**
+     * Negates a constraint, taking the interval fast path when possible and falling back to
+     * {@link IConstraintNode#negate()} otherwise. The fallback is also used when the negation always
+     * or never holds, so that the result still mentions the constraint variables.
+     *
+     * @param constraint The constraint, possibly wrapped in a C-Invoke or M-Invoke function.
+     * @return The negation, wrapped like the constraint.
+     */
+    public static IConstraintNode negation(IConstraintNode constraint)
+    {
+        IntervalConstraint intervals = fromNode(constraint);
+        if (intervals != null)
+        {
+            IRootConstraintNode negation = intervals.negate().toNode();
+            if (negation != null)
+            {
+                if (constraint instanceof CInvokeNode)
+                {
+                    return new CInvokeNode(negation);
+                }
+                else if (constraint instanceof MInvokeNode)
+                {
+                    return new MInvokeNode(negation);
+                }
+                return negation;
+            }
+        }
+        return constraint.negate();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof IntervalConstraint))
+        {
+            return false;
+        }
+        IntervalConstraint other = (IntervalConstraint) o;
+        return disjunctive == other.disjunctive && sets.equals(other.sets);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    public int hashCode()
+    {
+        return sets.hashCode() * 2 + (disjunctive ? 1 : 0);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    public String toString()
+    {
+        if (sets.isEmpty())
+        {
+            return disjunctive ? "false" : "true";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, IntervalSet> entry : sets.entrySet())
+        {
+            if (builder.length() > 0)
+            {
+                builder.append(disjunctive ? " || " : " && ");
+            }
+            builder.append(entry.getKey()).append(" in ").append(entry.getValue());
+        }
+        return builder.toString();
+    }
+}
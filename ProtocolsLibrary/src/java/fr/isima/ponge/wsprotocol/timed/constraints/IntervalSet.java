@@ -0,0 +1,389 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import static fr.isima.ponge.wsprotocol.timed.constraints.ComparisonConstants.*;
+
+import java.util.Arrays;
+
+/**
+ * A set of values of a single clock, as a sorted union of disjoint intervals of <code>[0, +inf)</code>
+ * with integer bounds.
+ * <p/>
+ * The non-negative reals are split into atoms: the point <code>k</code> is the atom <code>2k</code> and
+ * the open interval <code>(k, k + 1)</code> is the atom <code>2k + 1</code>. A set is stored as the
+ * increasing boundaries <code>a0, b0, a1, b1, ...</code> of the half-open atom ranges
+ * <code>[ai, bi)</code> it contains, {@link #INFINITY} standing for an unbounded range. Strict and
+ * non-strict bounds thus need no special treatment, and the representation is canonical: union,
+ * intersection and complement are linear merges, equality is an array comparison.
+ * <p/>
+ * Interval sets are immutable.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public final class IntervalSet
+{
+    /**
+     * The boundary of unbounded ranges.
+     */
+    public static final int INFINITY = Integer.MAX_VALUE;
+
+    /**
+     * The greatest constant that can be represented.
+     */
+    public static final int MAX_CONSTANT = (INFINITY - 2) / 2;
+
+    /**
+     * The empty set.
+     */
+    public static final IntervalSet EMPTY = new IntervalSet(new int[0]);
+
+    /**
+     * The set of all the clock values.
+     */
+    public static final IntervalSet FULL = new IntervalSet(new int[]{0, INFINITY});
+
+    private final int[] bounds;
+
+    private IntervalSet(int[] bounds)
+    {
+        super();
+        this.bounds = bounds;
+    }
+
+    /**
+     * Gives the set of values satisfying a comparison <code>x # k</code>.
+     *
+     * @param symbol   The comparison symbol.
+     * @param constant The constant, between <code>0</code> and {@link #MAX_CONSTANT}.
+     * @return The set of values.
+     * @throws IllegalArgumentException for an unknown symbol or a constant out of range.
+     */
+    public static IntervalSet compare(String symbol, int constant)
+    {
+        if (constant < 0 || constant > MAX_CONSTANT)
+        {
+            throw new IllegalArgumentException("Constant out of range: " + constant);
+        }
+        int point = constant << 1;
+        if (LESS.equals(symbol))
+        {
+            return range(0, point);
+        }
+        else if (LESS_EQ.equals(symbol))
+        {
+            return range(0, point + 1);
+        }
+        else if (EQ.equals(symbol))
+        {
+            return range(point, point + 1);
+        }
+        else if (NEQ.equals(symbol))
+        {
+            return (point == 0) ? range(1, INFINITY) : new IntervalSet(new int[]{0, point, point + 1, INFINITY});
+        }
+        else if (GREATER.equals(symbol))
+        {
+            return range(point + 1, INFINITY);
+        }
+        else if (GREATER_EQ.equals(symbol))
+        {
+            return range(point, INFINITY);
+        }
+        throw new IllegalArgumentException("Unknown comparison symbol: " + symbol);
+    }
+
+    private static IntervalSet range(int from, int to)
+    {
+        return (from < to) ? new IntervalSet(new int[]{from, to}) : EMPTY;
+    }
+
+    /**
+     * Tests wether the set is empty.
+     *
+     * @return <code>true</code> if no value is in the set.
+     */
+    public boolean isEmpty()
+    {
+        return bounds.length == 0;
+    }
+
+    /**
+     * Tests wether the set contains all the clock values.
+     *
+     * @return <code>true</code> if the set is <code>[0, +inf)</code>.
+     */
+    public boolean isFull()
+    {
+        return bounds.length == 2 && bounds[0] == 0 && bounds[1] == INFINITY;
+    }
+
+    /**
+     * Computes the intersection with another set.
+     *
+     * @param other The other set.
+     * @return The intersection.
+     */
+    public IntervalSet intersect(IntervalSet other)
+    {
+        int[] a = bounds;
+        int[] b = other.bounds;
+        int[] result = new int[a.length + b.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length)
+        {
+            int from = Math.max(a[i], b[j]);
+            int to = Math.min(a[i + 1], b[j + 1]);
+            if (from < to)
+            {
+                result[size++] = from;
+                result[size++] = to;
+            }
+            if (a[i + 1] < b[j + 1])
+            {
+                i += 2;
+            }
+            else
+            {
+                j += 2;
+            }
+        }
+        return create(result, size);
+    }
+
+    /**
+     * Computes the union with another set.
+     *
+     * @param other The other set.
+     * @return The union.
+     */
+    public IntervalSet union(IntervalSet other)
+    {
+        int[] a = bounds;
+        int[] b = other.bounds;
+        int[] result = new int[a.length + b.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length)
+        {
+            int from;
+            int to;
+            if (j >= b.length || (i < a.length && a[i] <= b[j]))
+            {
+                from = a[i];
+                to = a[i + 1];
+                i += 2;
+            }
+            else
+            {
+                from = b[j];
+                to = b[j + 1];
+                j += 2;
+            }
+            if (size > 0 && from <= result[size - 1])
+            {
+                result[size - 1] = Math.max(result[size - 1], to);
+            }
+            else
+            {
+                result[size++] = from;
+                result[size++] = to;
+            }
+        }
+        return create(result, size);
+    }
+
+    /**
+     * Computes the complement of the set within <code>[0, +inf)</code>.
+     *
+     * @return The complement.
+     */
+    public IntervalSet complement()
+    {
+        int[] result = new int[bounds.length + 2];
+        int size = 0;
+        if (bounds.length == 0 || bounds[0] != 0)
+        {
+            result[size++] = 0;
+        }
+        int start = (bounds.length > 0 && bounds[0] == 0) ? 1 : 0;
+        for (int i = start; i < bounds.length; ++i)
+        {
+            if (bounds[i] != INFINITY)
+            {
+                result[size++] = bounds[i];
+            }
+        }
+        if (bounds.length == 0 || bounds[bounds.length - 1] != INFINITY)
+        {
+            result[size++] = INFINITY;
+        }
+        return create(result, size);
+    }
+
+    private static IntervalSet create(int[] result, int size)
+    {
+        if (size == 0)
+        {
+            return EMPTY;
+        }
+        int[] exact = new int[size];
+        System.arraycopy(result, 0, exact, 0, size);
+        return new IntervalSet(exact);
+    }
+
+    /**
+     * Tests wether a value is in the set.
+     *
+     * @param value The clock value.
+     * @return <code>true</code> if the value belongs to the set.
+     */
+    public boolean contains(int value)
+    {
+        int atom = value << 1;
+        for (int i = 0; i < bounds.length; i += 2)
+        {
+            if (atom < bounds[i])
+            {
+                return false;
+            }
+            if (atom < bounds[i + 1])
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts the set into a constraint over a variable. The set must neither be empty nor full.
+     *
+     * @param variable The variable name.
+     * @return The constraint.
+     * @throws IllegalStateException if the set is empty or full.
+     */
+    public IRootConstraintNode toNode(String variable)
+    {
+        if (isEmpty() || isFull())
+        {
+            throw new IllegalStateException("No constraint for " + this);
+        }
+        if (bounds.length == 4 && bounds[0] == 0 && bounds[3] == INFINITY && bounds[2] == bounds[1] + 1
+                && (bounds[1] & 1) == 0)
+        {
+            return comparison(NEQ, variable, bounds[1] >> 1);
+        }
+        IRootConstraintNode result = null;
+        for (int i = 0; i < bounds.length; i += 2)
+        {
+            IRootConstraintNode node = rangeToNode(variable, bounds[i], bounds[i + 1]);
+            result = (result == null) ? node : new BooleanNode(BooleanConstants.OR, result, node);
+        }
+        return result;
+    }
+
+    private static IRootConstraintNode rangeToNode(String variable, int from, int to)
+    {
+        if ((from & 1) == 0 && to == from + 1)
+        {
+            return comparison(EQ, variable, from >> 1);
+        }
+        IRootConstraintNode lower = null;
+        if (from > 0)
+        {
+            lower = ((from & 1) == 0) ? comparison(GREATER_EQ, variable, from >> 1) : comparison(GREATER,
+                    variable, from >> 1);
+        }
+        IRootConstraintNode upper = null;
+        if (to != INFINITY)
+        {
+            upper = ((to & 1) == 0) ? comparison(LESS, variable, to >> 1) : comparison(LESS_EQ, variable, to >> 1);
+        }
+        if (lower == null)
+        {
+            return upper;
+        }
+        return (upper == null) ? lower : new BooleanNode(BooleanConstants.AND, lower, upper);
+    }
+
+    private static IRootConstraintNode comparison(String symbol, String variable, int constant)
+    {
+        return new ComparisonNode(symbol, new VariableNode(variable), new ConstantNode(constant));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    public boolean equals(Object o)
+    {
+        return (o instanceof IntervalSet) && Arrays.equals(bounds, ((IntervalSet) o).bounds);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    public int hashCode()
+    {
+        return Arrays.hashCode(bounds);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    public String toString()
+    {
+        if (isEmpty())
+        {
+            return "{}";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < bounds.length; i += 2)
+        {
+            if (i > 0)
+            {
+                builder.append(" U ");
+            }
+            int from = bounds[i];
+            int to = bounds[i + 1];
+            builder.append(((from & 1) == 0) ? "[" : "(").append(from >> 1).append(", ");
+            if (to == INFINITY)
+            {
+                builder.append("+inf)");
+            }
+            else
+            {
+                builder.append(to >> 1).append(((to & 1) == 0) ? ")" : "]");
+            }
+        }
+        return builder.toString();
+    }
+}
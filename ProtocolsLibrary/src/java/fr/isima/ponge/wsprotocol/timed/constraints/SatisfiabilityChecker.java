@@ -0,0 +1,212 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import static fr.isima.ponge.wsprotocol.timed.constraints.ComparisonConstants.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks wether temporal constraints, including diagonal constraints, can be satisfied. Constraints
+ * made of single-clock comparisons are decided on their {@link IntervalConstraint} form; the others are
+ * put in disjunctive normal form and each disjunct is checked with a {@link DifferenceBoundMatrix},
+ * <code>!=</code> comparisons being split into <code>&lt;</code> or <code>&gt;</code>.
+ * <p/>
+ * The check is conservative: a constraint is only reported as unsatisfiable when it really is.
+ * Comparisons with the <code>-1</code> "never fired" constant are left unconstrained, and constraints
+ * whose normal form exceeds the disjuncts limit are reported as satisfiable.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class SatisfiabilityChecker
+{
+    /**
+     * The default maximum number of disjuncts to check.
+     */
+    public static final long DEFAULT_MAX_DISJUNCTS = 1024;
+
+    // Disequalities beyond this number in a disjunct are not split but ignored
+    private static final int MAX_SPLITS = 8;
+
+    private static final String[] SPLITS = {LESS, GREATER};
+
+    private final long maxDisjuncts;
+
+    /**
+     * Instantiates a new checker with the default disjuncts limit.
+     */
+    public SatisfiabilityChecker()
+    {
+        this(DEFAULT_MAX_DISJUNCTS);
+    }
+
+    /**
+     * Instantiates a new checker.
+     *
+     * @param maxDisjuncts The maximum number of disjuncts to check before giving up.
+     */
+    public SatisfiabilityChecker(long maxDisjuncts)
+    {
+        super();
+        this.maxDisjuncts = maxDisjuncts;
+    }
+
+    /**
+     * Tests wether a constraint can be satisfied.
+     *
+     * @param constraint The constraint, or <code>null</code> for a constraint that always holds.
+     * @return <code>false</code> if the constraint never holds, <code>true</code> otherwise.
+     */
+    public boolean isSatisfiable(IConstraintNode constraint)
+    {
+        if (constraint == null)
+        {
+            return true;
+        }
+        IntervalConstraint intervals = IntervalConstraint.fromNode(constraint);
+        if (intervals != null)
+        {
+            return !intervals.isEmpty();
+        }
+
+        DisjunctionIterator disjuncts;
+        try
+        {
+            disjuncts = new DisjunctionIterator(constraint, maxDisjuncts);
+        }
+        catch (DisjunctionLimitExceededException e)
+        {
+            return true;
+        }
+        VariableTable table = new VariableTable();
+        collectVariables(constraint, table);
+        String[] variables = table.getNames();
+        while (disjuncts.hasNext())
+        {
+            DifferenceBoundMatrix dbm = new DifferenceBoundMatrix(variables);
+            List<IRootConstraintNode> disequalities = new ArrayList<IRootConstraintNode>();
+            for (IRootConstraintNode atom : disjuncts.nextConjuncts())
+            {
+                if (isNeverFiredComparison(atom))
+                {
+                    continue;
+                }
+                if (NEQ.equals(symbolOf(atom)))
+                {
+                    disequalities.add(atom);
+                }
+                else
+                {
+                    constrain(dbm, atom, null);
+                }
+            }
+            if (!dbm.isEmpty() && splitDisequalities(dbm, disequalities, 0))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean splitDisequalities(DifferenceBoundMatrix dbm, List<IRootConstraintNode> disequalities, int index)
+    {
+        if (index == disequalities.size() || index == MAX_SPLITS)
+        {
+            return true;
+        }
+        for (String symbol : SPLITS)
+        {
+            DifferenceBoundMatrix split = dbm.copy();
+            constrain(split, disequalities.get(index), symbol);
+            if (!split.isEmpty() && splitDisequalities(split, disequalities, index + 1))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNeverFiredComparison(IRootConstraintNode atom)
+    {
+        if (atom instanceof ComparisonNode)
+        {
+            ComparisonNode cnode = (ComparisonNode) atom;
+            IConstraintNode constant = (cnode.getLeftChild() instanceof ConstantNode) ? cnode.getLeftChild() : cnode
+                    .getRightChild();
+            return ((ConstantNode) constant).getConstant() < 0;
+        }
+        return false;
+    }
+
+    private static String symbolOf(IRootConstraintNode atom)
+    {
+        return (atom instanceof DiagonalNode) ? ((DiagonalNode) atom).getOperator() : ((ComparisonNode) atom)
+                .getSymbol();
+    }
+
+    /**
+     * Adds an atom to a matrix, with its variable on the left for single-clock comparisons.
+     *
+     * @param symbol The symbol to use instead of the atom one, or <code>null</code>.
+     */
+    private static void constrain(DifferenceBoundMatrix dbm, IRootConstraintNode atom, String symbol)
+    {
+        if (atom instanceof DiagonalNode)
+        {
+            DiagonalNode dnode = (DiagonalNode) atom;
+            dbm.constrain(dnode.getFirstVariable().getVariableName(), dnode.getSecondVariable().getVariableName(),
+                    (symbol == null) ? dnode.getOperator() : symbol, dnode.getConstant().getConstant());
+        }
+        else
+        {
+            ComparisonNode cnode = (ComparisonNode) atom;
+            boolean variableOnLeft = cnode.getLeftChild() instanceof VariableNode;
+            VariableNode variable = (VariableNode) (variableOnLeft ? cnode.getLeftChild() : cnode.getRightChild());
+            ConstantNode constant = (ConstantNode) (variableOnLeft ? cnode.getRightChild() : cnode.getLeftChild());
+            if (symbol == null)
+            {
+                symbol = variableOnLeft ? cnode.getSymbol() : CompiledConstraint.symbol(CompiledConstraint
+                        .flip(CompiledConstraint.symbolCode(cnode.getSymbol())));
+            }
+            dbm.constrain(variable.getVariableName(), null, symbol, constant.getConstant());
+        }
+    }
+
+    private static void collectVariables(IConstraintNode node, VariableTable table)
+    {
+        if (node instanceof VariableNode)
+        {
+            table.intern(((VariableNode) node).getVariableName());
+        }
+        else if (node instanceof IRootConstraintNode)
+        {
+            collectVariables(((IRootConstraintNode) node).getLeftChild(), table);
+            collectVariables(((IRootConstraintNode) node).getRightChild(), table);
+        }
+        else if (node instanceof IConstraintFunctionNode)
+        {
+            collectVariables(((IConstraintFunctionNode) node).getNode(), table);
+        }
+    }
+}
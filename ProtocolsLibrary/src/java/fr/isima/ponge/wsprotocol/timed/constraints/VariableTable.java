@@ -0,0 +1,125 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A symbol table giving dense integer identifiers to constraint variables. Identifiers are allocated
+ * in increasing order starting from <code>0</code>, so that they can directly be used as slots of a
+ * {@link CompiledConstraint}.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class VariableTable
+{
+    private final List<String> names = new ArrayList<String>();
+
+    private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+    /**
+     * Instantiates an empty table.
+     */
+    public VariableTable()
+    {
+        super();
+    }
+
+    /**
+     * Instantiates a table with some variables, interned in the array order.
+     *
+     * @param variables The variable names.
+     */
+    public VariableTable(String[] variables)
+    {
+        super();
+        for (String variable : variables)
+        {
+            intern(variable);
+        }
+    }
+
+    /**
+     * Gets the identifier of a variable, allocating a new one if needed.
+     *
+     * @param variable The variable name.
+     * @return The variable identifier.
+     */
+    public int intern(String variable)
+    {
+        Integer id = ids.get(variable);
+        if (id == null)
+        {
+            id = names.size();
+            names.add(variable);
+            ids.put(variable, id);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the identifier of a variable.
+     *
+     * @param variable The variable name.
+     * @return The variable identifier, or <code>-1</code> if it is not in the table.
+     */
+    public int idOf(String variable)
+    {
+        Integer id = ids.get(variable);
+        return (id == null) ? -1 : id;
+    }
+
+    /**
+     * Gets the name of a variable.
+     *
+     * @param id The variable identifier.
+     * @return The variable name.
+     */
+    public String nameOf(int id)
+    {
+        return names.get(id);
+    }
+
+    /**
+     * Gets the number of variables.
+     *
+     * @return The number of variables.
+     */
+    public int size()
+    {
+        return names.size();
+    }
+
+    /**
+     * Gets the variable names, indexed by their identifiers.
+     *
+     * @return The variable names.
+     */
+    public String[] getNames()
+    {
+        return names.toArray(new String[names.size()]);
+    }
+}
@@ -0,0 +1,325 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints.interned;
+
+import fr.isima.ponge.wsprotocol.timed.constraints.BooleanConstants;
+import fr.isima.ponge.wsprotocol.timed.constraints.BooleanNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.ComparisonNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.ConstantNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.ConstraintHelper;
+import fr.isima.ponge.wsprotocol.timed.constraints.DiagonalNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintFunctionNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.MInvokeNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.VariableNode;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Intern table for immutable constraint nodes. All the nodes of a session (e.g., one operator
+ * application) should be created from the same table: identical subtrees are then shared and can
+ * be compared by identity.
+ * <p/>
+ * Rewrites (negation, variables renaming) never modify a node: they return new nodes, reusing the
+ * subtrees that did not change.
+ * <p/>
+ * This class is not thread-safe.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class InternTable implements BooleanConstants
+{
+    private static final ConstraintHelper CONSTRAINT_HELPER = new ConstraintHelper();
+
+    private final Map<InternedNode, InternedNode> nodes = new HashMap<InternedNode, InternedNode>();
+
+    /**
+     * Returns the canonical instance of a node.
+     *
+     * @param node The candidate node.
+     * @return The node already in the table if any, <code>node</code> otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends InternedNode> T canonical(T node)
+    {
+        InternedNode existing = nodes.get(node);
+        if (existing != null)
+        {
+            return (T) existing;
+        }
+        nodes.put(node, node);
+        return node;
+    }
+
+    /**
+     * Gets the number of distinct nodes in the table.
+     *
+     * @return The table size.
+     */
+    public int size()
+    {
+        return nodes.size();
+    }
+
+    /**
+     * Empties the table. Nodes obtained before remain valid but will no longer be shared with the
+     * new ones.
+     */
+    public void clear()
+    {
+        nodes.clear();
+    }
+
+    public InternedVariable variable(String name)
+    {
+        return canonical(new InternedVariable(name));
+    }
+
+    public InternedConstant constant(int value)
+    {
+        return canonical(new InternedConstant(value));
+    }
+
+    /**
+     * Gets a comparison of the form <code>variable # constant</code>.
+     *
+     * @param symbol   The comparison symbol.
+     * @param variable The variable.
+     * @param constant The constant.
+     * @return The comparison node.
+     */
+    public InternedComparison comparison(String symbol, InternedVariable variable, InternedConstant constant)
+    {
+        return canonical(new InternedComparison(symbol, variable, constant, true));
+    }
+
+    /**
+     * Gets a comparison of the form <code>constant # variable</code>.
+     *
+     * @param symbol   The comparison symbol.
+     * @param constant The constant.
+     * @param variable The variable.
+     * @return The comparison node.
+     */
+    public InternedComparison comparison(String symbol, InternedConstant constant, InternedVariable variable)
+    {
+        return canonical(new InternedComparison(symbol, variable, constant, false));
+    }
+
+    public InternedDiagonal diagonal(InternedVariable firstVariable, InternedVariable secondVariable, String operator,
+                                     InternedConstant constant)
+    {
+        return canonical(new InternedDiagonal(firstVariable, secondVariable, operator, constant));
+    }
+
+    public InternedBoolean combine(String symbol, InternedExpression leftChild, InternedExpression rightChild)
+    {
+        return canonical(new InternedBoolean(symbol, leftChild, rightChild));
+    }
+
+    public InternedBoolean and(InternedExpression leftChild, InternedExpression rightChild)
+    {
+        return combine(AND, leftChild, rightChild);
+    }
+
+    public InternedBoolean or(InternedExpression leftChild, InternedExpression rightChild)
+    {
+        return combine(OR, leftChild, rightChild);
+    }
+
+    public InternedFunction function(String function, InternedExpression expression)
+    {
+        return canonical(new InternedFunction(function, expression));
+    }
+
+    public InternedFunction cInvoke(InternedExpression expression)
+    {
+        return function(InternedFunction.C_INVOKE, expression);
+    }
+
+    public InternedFunction mInvoke(InternedExpression expression)
+    {
+        return function(InternedFunction.M_INVOKE, expression);
+    }
+
+    /**
+     * Interns a mutable constraint tree. The mutable tree is not retained by the table.
+     *
+     * @param node The mutable constraint tree.
+     * @return The equivalent immutable node.
+     */
+    public InternedNode intern(IConstraintNode node)
+    {
+        if (node instanceof IConstraintFunctionNode)
+        {
+            InternedExpression expression = (InternedExpression) intern(((IConstraintFunctionNode) node).getNode());
+            return (node instanceof MInvokeNode) ? mInvoke(expression) : cInvoke(expression);
+        }
+        else if (node instanceof BooleanNode)
+        {
+            BooleanNode bnode = (BooleanNode) node;
+            return combine(bnode.getSymbol(), (InternedExpression) intern(bnode.getLeftChild()),
+                    (InternedExpression) intern(bnode.getRightChild()));
+        }
+        else if (node instanceof ComparisonNode)
+        {
+            ComparisonNode cnode = (ComparisonNode) node;
+            if (cnode.getLeftChild() instanceof VariableNode)
+            {
+                return comparison(cnode.getSymbol(), (InternedVariable) intern(cnode.getLeftChild()),
+                        (InternedConstant) intern(cnode.getRightChild()));
+            }
+            return comparison(cnode.getSymbol(), (InternedConstant) intern(cnode.getLeftChild()),
+                    (InternedVariable) intern(cnode.getRightChild()));
+        }
+        else if (node instanceof DiagonalNode)
+        {
+            DiagonalNode dnode = (DiagonalNode) node;
+            return diagonal(variable(dnode.getFirstVariable().getVariableName()),
+                    variable(dnode.getSecondVariable().getVariableName()), dnode.getOperator(),
+                    constant(dnode.getConstant().getConstant()));
+        }
+        else if (node instanceof VariableNode)
+        {
+            return variable(((VariableNode) node).getVariableName());
+        }
+        else if (node instanceof ConstantNode)
+        {
+            return constant(((ConstantNode) node).getConstant());
+        }
+        throw new IllegalArgumentException("Unsupported constraint node: " + node);
+    }
+
+    /**
+     * Negates a node, with the same semantics as {@link IConstraintNode#negate()}. Negations of
+     * expressions are cached on the nodes.
+     *
+     * @param node The node to negate.
+     * @return The negated node.
+     */
+    public InternedNode negate(InternedNode node)
+    {
+        if (node instanceof InternedFunction)
+        {
+            InternedFunction fnode = (InternedFunction) node;
+            return function(fnode.getFunction(), negate(fnode.getExpression()));
+        }
+        else if (node instanceof InternedExpression)
+        {
+            return negate((InternedExpression) node);
+        }
+        return node;
+    }
+
+    /**
+     * Negates an expression, see {@link #negate(InternedNode)}.
+     *
+     * @param expression The expression.
+     * @return The negated expression.
+     */
+    public InternedExpression negate(InternedExpression expression)
+    {
+        if (expression.negation != null && nodes.get(expression.negation) == expression.negation)
+        {
+            return expression.negation;
+        }
+
+        InternedExpression result;
+        if (expression instanceof InternedComparison)
+        {
+            InternedComparison cnode = (InternedComparison) expression;
+            result = canonical(new InternedComparison(CONSTRAINT_HELPER.operatorNegation(cnode.getSymbol()),
+                    cnode.getVariable(), cnode.getConstant(), cnode.isVariableOnLeft()));
+        }
+        else if (expression instanceof InternedDiagonal)
+        {
+            InternedDiagonal dnode = (InternedDiagonal) expression;
+            result = diagonal(dnode.getFirstVariable(), dnode.getSecondVariable(),
+                    CONSTRAINT_HELPER.operatorNegation(dnode.getOperator()), dnode.getConstant());
+        }
+        else
+        {
+            InternedBoolean bnode = (InternedBoolean) expression;
+            result = combine(bnode.isConjunction() ? OR : AND, negate(bnode.getLeftChild()),
+                    negate(bnode.getRightChild()));
+        }
+        expression.negation = result;
+        result.negation = expression;
+        return result;
+    }
+
+    /**
+     * Renames variables. Subtrees that do not reference a renamed variable are returned as-is.
+     *
+     * @param node    The node.
+     * @param renames The mapping from old to new variable names; unmapped variables are kept.
+     * @return The rewritten node.
+     */
+    public InternedNode renameVariables(InternedNode node, Map<String, String> renames)
+    {
+        if (node instanceof InternedVariable)
+        {
+            String newName = renames.get(((InternedVariable) node).getName());
+            return (newName == null) ? node : variable(newName);
+        }
+        else if (node instanceof InternedComparison)
+        {
+            InternedComparison cnode = (InternedComparison) node;
+            InternedVariable var = (InternedVariable) renameVariables(cnode.getVariable(), renames);
+            if (var == cnode.getVariable())
+            {
+                return node;
+            }
+            return canonical(new InternedComparison(cnode.getSymbol(), var, cnode.getConstant(), cnode.isVariableOnLeft()));
+        }
+        else if (node instanceof InternedDiagonal)
+        {
+            InternedDiagonal dnode = (InternedDiagonal) node;
+            InternedVariable first = (InternedVariable) renameVariables(dnode.getFirstVariable(), renames);
+            InternedVariable second = (InternedVariable) renameVariables(dnode.getSecondVariable(), renames);
+            if ((first == dnode.getFirstVariable()) && (second == dnode.getSecondVariable()))
+            {
+                return node;
+            }
+            return diagonal(first, second, dnode.getOperator(), dnode.getConstant());
+        }
+        else if (node instanceof InternedBoolean)
+        {
+            InternedBoolean bnode = (InternedBoolean) node;
+            InternedExpression left = (InternedExpression) renameVariables(bnode.getLeftChild(), renames);
+            InternedExpression right = (InternedExpression) renameVariables(bnode.getRightChild(), renames);
+            if ((left == bnode.getLeftChild()) && (right == bnode.getRightChild()))
+            {
+                return node;
+            }
+            return combine(bnode.getSymbol(), left, right);
+        }
+        else if (node instanceof InternedFunction)
+        {
+            InternedFunction fnode = (InternedFunction) node;
+            InternedExpression expression = (InternedExpression) renameVariables(fnode.getExpression(), renames);
+            return (expression == fnode.getExpression()) ? node : function(fnode.getFunction(), expression);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,100 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints.interned;
+
+import fr.isima.ponge.wsprotocol.timed.constraints.BooleanConstants;
+import fr.isima.ponge.wsprotocol.timed.constraints.BooleanNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.IRootConstraintNode;
+
+/**
+ * An immutable boolean combination (AND, OR) of two expressions.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public final class InternedBoolean extends InternedExpression implements BooleanConstants
+{
+    private final String symbol;
+
+    private final InternedExpression leftChild;
+
+    private final InternedExpression rightChild;
+
+    InternedBoolean(String symbol, InternedExpression leftChild, InternedExpression rightChild)
+    {
+        super(hash(symbol, leftChild, rightChild));
+        this.symbol = symbol;
+        this.leftChild = leftChild;
+        this.rightChild = rightChild;
+    }
+
+    private static int hash(String symbol, InternedExpression leftChild, InternedExpression rightChild)
+    {
+        int result = symbol.hashCode();
+        result = 31 * result + leftChild.hashCode();
+        result = 31 * result + rightChild.hashCode();
+        return result;
+    }
+
+    public String getSymbol()
+    {
+        return symbol;
+    }
+
+    /**
+     * Tells wether this node is a conjunction.
+     *
+     * @return <code>true</code> for AND, <code>false</code> for OR.
+     */
+    public boolean isConjunction()
+    {
+        return AND.equals(symbol);
+    }
+
+    public InternedExpression getLeftChild()
+    {
+        return leftChild;
+    }
+
+    public InternedExpression getRightChild()
+    {
+        return rightChild;
+    }
+
+    public IConstraintNode toConstraintNode()
+    {
+        return new BooleanNode(symbol, (IRootConstraintNode) leftChild.toConstraintNode(),
+                (IRootConstraintNode) rightChild.toConstraintNode());
+    }
+
+    protected String render()
+    {
+        return new StringBuilder().append("(").append(leftChild).append(" ").append(symbol).append(" ")
+                .append(rightChild).append(")").toString();
+    }
+
+    protected boolean sameStructure(InternedNode other)
+    {
+        InternedBoolean that = (InternedBoolean) other;
+        return symbol.equals(that.symbol) && same(leftChild, that.leftChild) && same(rightChild, that.rightChild);
+    }
+}
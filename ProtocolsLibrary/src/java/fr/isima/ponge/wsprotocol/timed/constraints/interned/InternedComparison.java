@@ -0,0 +1,122 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints.interned;
+
+import fr.isima.ponge.wsprotocol.timed.constraints.ComparisonNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.ConstantNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.VariableNode;
+
+/**
+ * An immutable comparison between a variable and a constant. As with {@link ComparisonNode}, the
+ * variable can either be placed on the left or on the right of the expression.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public final class InternedComparison extends InternedExpression
+{
+    private final String symbol;
+
+    private final InternedVariable variable;
+
+    private final InternedConstant constant;
+
+    private final boolean variableOnLeft;
+
+    InternedComparison(String symbol, InternedVariable variable, InternedConstant constant, boolean variableOnLeft)
+    {
+        super(hash(symbol, variable, constant, variableOnLeft));
+        this.symbol = symbol;
+        this.variable = variable;
+        this.constant = constant;
+        this.variableOnLeft = variableOnLeft;
+    }
+
+    private static int hash(String symbol, InternedVariable variable, InternedConstant constant, boolean variableOnLeft)
+    {
+        int result = symbol.hashCode();
+        result = 31 * result + variable.hashCode();
+        result = 31 * result + constant.hashCode();
+        return variableOnLeft ? result : ~result;
+    }
+
+    /**
+     * Gets the comparison symbol.
+     *
+     * @return The symbol.
+     */
+    public String getSymbol()
+    {
+        return symbol;
+    }
+
+    /**
+     * Gets the variable.
+     *
+     * @return The variable.
+     */
+    public InternedVariable getVariable()
+    {
+        return variable;
+    }
+
+    /**
+     * Gets the constant.
+     *
+     * @return The constant.
+     */
+    public InternedConstant getConstant()
+    {
+        return constant;
+    }
+
+    /**
+     * Tells wether the variable is on the left of the expression.
+     *
+     * @return <code>true</code> for <code>T # k</code>, <code>false</code> for <code>k # T</code>.
+     */
+    public boolean isVariableOnLeft()
+    {
+        return variableOnLeft;
+    }
+
+    public IConstraintNode toConstraintNode()
+    {
+        VariableNode var = (VariableNode) variable.toConstraintNode();
+        ConstantNode cst = (ConstantNode) constant.toConstraintNode();
+        return variableOnLeft ? new ComparisonNode(symbol, var, cst) : new ComparisonNode(symbol, cst, var);
+    }
+
+    protected String render()
+    {
+        InternedNode left = variableOnLeft ? (InternedNode) variable : constant;
+        InternedNode right = variableOnLeft ? (InternedNode) constant : variable;
+        return new StringBuilder().append("(").append(left).append(" ").append(symbol).append(" ").append(right).append(")").toString();
+    }
+
+    protected boolean sameStructure(InternedNode other)
+    {
+        InternedComparison that = (InternedComparison) other;
+        return (variableOnLeft == that.variableOnLeft) && symbol.equals(that.symbol)
+                && same(variable, that.variable) && same(constant, that.constant);
+    }
+}
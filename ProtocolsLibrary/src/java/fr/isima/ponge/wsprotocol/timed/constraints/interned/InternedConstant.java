@@ -0,0 +1,66 @@
+/*
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ *
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ *
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints.interned;
+
+import fr.isima.ponge.wsprotocol.timed.constraints.ConstantNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+
+/**
+ * An immutable integer constant node.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public final class InternedConstant extends InternedNode
+{
+    private final int value;
+
+    InternedConstant(int value)
+    {
+        super(value);
+        this.value = value;
+    }
+
+    /**
+     * Gets the constant value.
+     *
+     * @return The value.
+     */
+    public int getValue()
+    {
+        return value;
+    }
+
+    public IConstraintNode toConstraintNode()
+    {
+        return new ConstantNode(value);
+    }
+
+    protected String render()
+    {
+        return Integer.toString(value);
+    }
+
+    protected boolean sameStructure(InternedNode other)
+    {
+        return value == ((InternedConstant) other).value;
+    }
+}
@@ -0,0 +1,102 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints.interned;
+
+import fr.isima.ponge.wsprotocol.timed.constraints.ConstantNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.DiagonalNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.DiagonalVariablesPair;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.VariableNode;
+
+/**
+ * An immutable diagonal constraint (x - y # k).
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public final class InternedDiagonal extends InternedExpression
+{
+    private final InternedVariable firstVariable;
+
+    private final InternedVariable secondVariable;
+
+    private final String operator;
+
+    private final InternedConstant constant;
+
+    InternedDiagonal(InternedVariable firstVariable, InternedVariable secondVariable, String operator, InternedConstant constant)
+    {
+        super(hash(firstVariable, secondVariable, operator, constant));
+        this.firstVariable = firstVariable;
+        this.secondVariable = secondVariable;
+        this.operator = operator;
+        this.constant = constant;
+    }
+
+    private static int hash(InternedVariable firstVariable, InternedVariable secondVariable, String operator, InternedConstant constant)
+    {
+        int result = firstVariable.hashCode();
+        result = 31 * result + secondVariable.hashCode();
+        result = 31 * result + operator.hashCode();
+        result = 31 * result + constant.hashCode();
+        return result;
+    }
+
+    public InternedVariable getFirstVariable()
+    {
+        return firstVariable;
+    }
+
+    public InternedVariable getSecondVariable()
+    {
+        return secondVariable;
+    }
+
+    public String getOperator()
+    {
+        return operator;
+    }
+
+    public InternedConstant getConstant()
+    {
+        return constant;
+    }
+
+    public IConstraintNode toConstraintNode()
+    {
+        DiagonalVariablesPair pair = new DiagonalVariablesPair((VariableNode) firstVariable.toConstraintNode(),
+                (VariableNode) secondVariable.toConstraintNode());
+        return new DiagonalNode(pair, operator, (ConstantNode) constant.toConstraintNode());
+    }
+
+    protected String render()
+    {
+        return new StringBuilder().append("(").append(firstVariable).append(" - ").append(secondVariable).append(" ")
+                .append(operator).append(" ").append(constant).append(")").toString();
+    }
+
+    protected boolean sameStructure(InternedNode other)
+    {
+        InternedDiagonal that = (InternedDiagonal) other;
+        return operator.equals(that.operator) && same(firstVariable, that.firstVariable)
+                && same(secondVariable, that.secondVariable) && same(constant, that.constant);
+    }
+}
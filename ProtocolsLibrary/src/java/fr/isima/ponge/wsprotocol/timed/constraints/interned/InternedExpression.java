@@ -0,0 +1,50 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints.interned;
+
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+
+/**
+ * Base class for the immutable nodes that can appear inside a C-Invoke / M-Invoke function:
+ * comparisons, diagonal constraints and boolean combinations.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public abstract class InternedExpression extends InternedNode
+{
+    /**
+     * Cached negation, filled by the owning table.
+     */
+    InternedExpression negation;
+
+    InternedExpression(int hash)
+    {
+        super(hash);
+    }
+
+    /**
+     * Converts this node into a fresh mutable constraint tree.
+     *
+     * @return The mutable equivalent of this node.
+     */
+    public abstract IConstraintNode toConstraintNode();
+}
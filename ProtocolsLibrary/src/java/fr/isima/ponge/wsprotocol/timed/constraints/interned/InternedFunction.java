@@ -0,0 +1,103 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints.interned;
+
+import fr.isima.ponge.wsprotocol.timed.constraints.CInvokeNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.IRootConstraintNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.MInvokeNode;
+
+/**
+ * An immutable C-Invoke or M-Invoke constraint.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public final class InternedFunction extends InternedNode
+{
+    /**
+     * The C-Invoke function name.
+     */
+    public static final String C_INVOKE = "C-Invoke";
+
+    /**
+     * The M-Invoke function name.
+     */
+    public static final String M_INVOKE = "M-Invoke";
+
+    private final String function;
+
+    private final InternedExpression expression;
+
+    InternedFunction(String function, InternedExpression expression)
+    {
+        super(31 * function.hashCode() + expression.hashCode());
+        this.function = function;
+        this.expression = expression;
+    }
+
+    /**
+     * Gets the function name, either {@link #C_INVOKE} or {@link #M_INVOKE}.
+     *
+     * @return The function name.
+     */
+    public String getFunction()
+    {
+        return function;
+    }
+
+    /**
+     * Tells wether this is a M-Invoke constraint.
+     *
+     * @return <code>true</code> for M-Invoke, <code>false</code> for C-Invoke.
+     */
+    public boolean isMInvoke()
+    {
+        return M_INVOKE.equals(function);
+    }
+
+    /**
+     * Gets the expression.
+     *
+     * @return The expression.
+     */
+    public InternedExpression getExpression()
+    {
+        return expression;
+    }
+
+    public IConstraintNode toConstraintNode()
+    {
+        IRootConstraintNode node = (IRootConstraintNode) expression.toConstraintNode();
+        return isMInvoke() ? (IConstraintNode) new MInvokeNode(node) : new CInvokeNode(node);
+    }
+
+    protected String render()
+    {
+        return function + expression.toString();
+    }
+
+    protected boolean sameStructure(InternedNode other)
+    {
+        InternedFunction that = (InternedFunction) other;
+        return function.equals(that.function) && same(expression, that.expression);
+    }
+}
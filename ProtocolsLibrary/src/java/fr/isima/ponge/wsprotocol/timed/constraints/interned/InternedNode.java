@@ -0,0 +1,128 @@
+/*
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ *
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ *
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints.interned;
+
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+
+/**
+ * Base class for immutable, hash-consed constraint nodes. Instances are only obtained through an
+ * {@link InternTable}: two structurally identical nodes created from the same table are the same
+ * object, so they can be compared with <code>==</code>. The hash code is computed once at
+ * construction time and the printed form is computed on first use, then cached.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public abstract class InternedNode
+{
+    private final int hash;
+
+    private String text;
+
+    /**
+     * Instantiates a new node.
+     *
+     * @param hash The precomputed structural hash code.
+     */
+    InternedNode(int hash)
+    {
+        super();
+        this.hash = hash;
+    }
+
+    /**
+     * Converts this node into a fresh mutable constraint tree.
+     *
+     * @return The mutable equivalent of this node.
+     */
+    public abstract IConstraintNode toConstraintNode();
+
+    /**
+     * Renders this node using the same syntax as the mutable constraint nodes.
+     *
+     * @return The printed form.
+     */
+    protected abstract String render();
+
+    /**
+     * Structural comparison with a node of the same class. Children are compared by identity
+     * first, which is enough for nodes that come from the same table.
+     *
+     * @param other The other node, known to be of the same class.
+     * @return <code>true</code> if both nodes are structurally equal.
+     */
+    protected abstract boolean sameStructure(InternedNode other);
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    public final boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass())
+        {
+            return false;
+        }
+        InternedNode other = (InternedNode) o;
+        return (hash == other.hash) && sameStructure(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    public final int hashCode()
+    {
+        return hash;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    public final String toString()
+    {
+        if (text == null)
+        {
+            text = render();
+        }
+        return text;
+    }
+
+    /**
+     * Compares two child nodes, by identity first.
+     *
+     * @param a The first child.
+     * @param b The second child.
+     * @return <code>true</code> if they are structurally equal.
+     */
+    static boolean same(InternedNode a, InternedNode b)
+    {
+        return (a == b) || a.equals(b);
+    }
+}
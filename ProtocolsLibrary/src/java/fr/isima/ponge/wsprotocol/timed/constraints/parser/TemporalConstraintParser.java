@@ -0,0 +1,416 @@
+// $ANTLR 2.7.6 (2005-12-22): "grammar.g" -> "TemporalConstraintParser.java"$
+
+	package fr.isima.ponge.wsprotocol.timed.constraints.parser;
+
+	import fr.isima.ponge.wsprotocol.timed.constraints.*;
+
+import antlr.TokenBuffer;
+import antlr.TokenStreamException;
+import antlr.TokenStreamIOException;
+import antlr.ANTLRException;
+import antlr.LLkParser;
+import antlr.Token;
+import antlr.TokenStream;
+import antlr.RecognitionException;
+import antlr.NoViableAltException;
+import antlr.MismatchedTokenException;
+import antlr.SemanticException;
+import antlr.ParserSharedInputState;
+import antlr.collections.impl.BitSet;
+import antlr.collections.AST;
+import java.util.Hashtable;
+import antlr.ASTFactory;
+import antlr.ASTPair;
+import antlr.collections.impl.ASTArray;
+
+public class TemporalConstraintParser extends antlr.LLkParser       implements TemporalConstraintParserTokenTypes
+ {
+
+protected TemporalConstraintParser(TokenBuffer tokenBuf, int k) {
+  super(tokenBuf,k);
+  tokenNames = _tokenNames;
+  buildTokenTypeASTClassMap();
+  astFactory = new ASTFactory(getTokenTypeToASTClassMap());
+}
+
+public TemporalConstraintParser(TokenBuffer tokenBuf) {
+  this(tokenBuf,2);
+}
+
+protected TemporalConstraintParser(TokenStream lexer, int k) {
+  super(lexer,k);
+  tokenNames = _tokenNames;
+  buildTokenTypeASTClassMap();
+  astFactory = new ASTFactory(getTokenTypeToASTClassMap());
+}
+
+public TemporalConstraintParser(TokenStream lexer) {
+  this(lexer,2);
+}
+
+public TemporalConstraintParser(ParserSharedInputState state) {
+  super(state,2);
+  tokenNames = _tokenNames;
+  buildTokenTypeASTClassMap();
+  astFactory = new ASTFactory(getTokenTypeToASTClassMap());
+}
+
+	public final void constraint() throws RecognitionException, TokenStreamException {
+		
+		returnAST = null;
+		ASTPair currentAST = new ASTPair();
+		AST constraint_AST = null;
+		
+		switch ( LA(1)) {
+		case CINVOKE:
+		{
+			ciConstraint();
+			astFactory.addASTChild(currentAST, returnAST);
+			constraint_AST = (AST)currentAST.root;
+			break;
+		}
+		case MINVOKE:
+		{
+			miConstraint();
+			astFactory.addASTChild(currentAST, returnAST);
+			constraint_AST = (AST)currentAST.root;
+			break;
+		}
+		default:
+		{
+			throw new NoViableAltException(LT(1), getFilename());
+		}
+		}
+		returnAST = constraint_AST;
+	}
+	
+	public final void ciConstraint() throws RecognitionException, TokenStreamException {
+		
+		returnAST = null;
+		ASTPair currentAST = new ASTPair();
+		AST ciConstraint_AST = null;
+		Token  func = null;
+		AST func_AST = null;
+		AST param_AST = null;
+		
+		func = LT(1);
+		func_AST = astFactory.create(func);
+		match(CINVOKE);
+		ciConstraintParam();
+		param_AST = (AST)returnAST;
+		ciConstraint_AST = (AST)currentAST.root;
+		
+				ciConstraint_AST = (AST)astFactory.make( (new ASTArray(2)).add(func_AST).add(param_AST));
+			
+		currentAST.root = ciConstraint_AST;
+		currentAST.child = ciConstraint_AST!=null &&ciConstraint_AST.getFirstChild()!=null ?
+			ciConstraint_AST.getFirstChild() : ciConstraint_AST;
+		currentAST.advanceChildToEnd();
+		returnAST = ciConstraint_AST;
+	}
+	
+	public final void miConstraint() throws RecognitionException, TokenStreamException {
+		
+		returnAST = null;
+		ASTPair currentAST = new ASTPair();
+		AST miConstraint_AST = null;
+		Token  func = null;
+		AST func_AST = null;
+		AST param_AST = null;
+		
+		func = LT(1);
+		func_AST = astFactory.create(func);
+		match(MINVOKE);
+		miConstraintParam();
+		param_AST = (AST)returnAST;
+		miConstraint_AST = (AST)currentAST.root;
+		
+				miConstraint_AST = (AST)astFactory.make( (new ASTArray(2)).add(func_AST).add(param_AST));
+			
+		currentAST.root = miConstraint_AST;
+		currentAST.child = miConstraint_AST!=null &&miConstraint_AST.getFirstChild()!=null ?
+			miConstraint_AST.getFirstChild() : miConstraint_AST;
+		currentAST.advanceChildToEnd();
+		returnAST = miConstraint_AST;
+	}
+	
+	public final void miConstraintParam() throws RecognitionException, TokenStreamException {
+		
+		returnAST = null;
+		ASTPair currentAST = new ASTPair();
+		AST miConstraintParam_AST = null;
+		
+		match(LPAREN);
+		miExpr();
+		astFactory.addASTChild(currentAST, returnAST);
+		{
+		_loop5:
+		do {
+			if ((LA(1)==BOOLOP)) {
+				AST tmp7_AST = null;
+				tmp7_AST = astFactory.create(LT(1));
+				astFactory.makeASTRoot(currentAST, tmp7_AST);
+				match(BOOLOP);
+				miExpr();
+				astFactory.addASTChild(currentAST, returnAST);
+			}
+			else {
+				break _loop5;
+			}
+			
+		} while (true);
+		}
+		match(RPAREN);
+		miConstraintParam_AST = (AST)currentAST.root;
+		returnAST = miConstraintParam_AST;
+	}
+	
+	public final void miExpr() throws RecognitionException, TokenStreamException {
+		
+		returnAST = null;
+		ASTPair currentAST = new ASTPair();
+		AST miExpr_AST = null;
+		
+		switch ( LA(1)) {
+		case CONST:
+		{
+			AST tmp9_AST = null;
+			tmp9_AST = astFactory.create(LT(1));
+			astFactory.addASTChild(currentAST, tmp9_AST);
+			match(CONST);
+			AST tmp10_AST = null;
+			tmp10_AST = astFactory.create(LT(1));
+			astFactory.makeASTRoot(currentAST, tmp10_AST);
+			match(COMPOP);
+			AST tmp11_AST = null;
+			tmp11_AST = astFactory.create(LT(1));
+			astFactory.addASTChild(currentAST, tmp11_AST);
+			match(VAR);
+			miExpr_AST = (AST)currentAST.root;
+			break;
+		}
+		case LPAREN:
+		{
+			match(LPAREN);
+			miExpr();
+			astFactory.addASTChild(currentAST, returnAST);
+			{
+			_loop13:
+			do {
+				if ((LA(1)==BOOLOP)) {
+					AST tmp13_AST = null;
+					tmp13_AST = astFactory.create(LT(1));
+					astFactory.makeASTRoot(currentAST, tmp13_AST);
+					match(BOOLOP);
+					miExpr();
+					astFactory.addASTChild(currentAST, returnAST);
+				}
+				else {
+					break _loop13;
+				}
+				
+			} while (true);
+			}
+			match(RPAREN);
+			miExpr_AST = (AST)currentAST.root;
+			break;
+		}
+		default:
+			if ((LA(1)==VAR) && (LA(2)==COMPOP)) {
+				AST tmp15_AST = null;
+				tmp15_AST = astFactory.create(LT(1));
+				astFactory.addASTChild(currentAST, tmp15_AST);
+				match(VAR);
+				AST tmp16_AST = null;
+				tmp16_AST = astFactory.create(LT(1));
+				astFactory.makeASTRoot(currentAST, tmp16_AST);
+				match(COMPOP);
+				AST tmp17_AST = null;
+				tmp17_AST = astFactory.create(LT(1));
+				astFactory.addASTChild(currentAST, tmp17_AST);
+				match(CONST);
+				miExpr_AST = (AST)currentAST.root;
+			}
+			else if ((LA(1)==VAR) && (LA(2)==MINUSOP)) {
+				diffExpr();
+				astFactory.addASTChild(currentAST, returnAST);
+				AST tmp18_AST = null;
+				tmp18_AST = astFactory.create(LT(1));
+				astFactory.makeASTRoot(currentAST, tmp18_AST);
+				match(COMPOP);
+				AST tmp19_AST = null;
+				tmp19_AST = astFactory.create(LT(1));
+				astFactory.addASTChild(currentAST, tmp19_AST);
+				match(CONST);
+				miExpr_AST = (AST)currentAST.root;
+			}
+		else {
+			throw new NoViableAltException(LT(1), getFilename());
+		}
+		}
+		returnAST = miExpr_AST;
+	}
+	
+	public final void ciConstraintParam() throws RecognitionException, TokenStreamException {
+		
+		returnAST = null;
+		ASTPair currentAST = new ASTPair();
+		AST ciConstraintParam_AST = null;
+		
+		match(LPAREN);
+		ciExpr();
+		astFactory.addASTChild(currentAST, returnAST);
+		{
+		_loop9:
+		do {
+			if ((LA(1)==BOOLOP)) {
+				AST tmp21_AST = null;
+				tmp21_AST = astFactory.create(LT(1));
+				astFactory.makeASTRoot(currentAST, tmp21_AST);
+				match(BOOLOP);
+				ciExpr();
+				astFactory.addASTChild(currentAST, returnAST);
+			}
+			else {
+				break _loop9;
+			}
+			
+		} while (true);
+		}
+		match(RPAREN);
+		ciConstraintParam_AST = (AST)currentAST.root;
+		returnAST = ciConstraintParam_AST;
+	}
+	
+	public final void ciExpr() throws RecognitionException, TokenStreamException {
+		
+		returnAST = null;
+		ASTPair currentAST = new ASTPair();
+		AST ciExpr_AST = null;
+		
+		switch ( LA(1)) {
+		case CONST:
+		{
+			AST tmp23_AST = null;
+			tmp23_AST = astFactory.create(LT(1));
+			astFactory.addASTChild(currentAST, tmp23_AST);
+			match(CONST);
+			AST tmp24_AST = null;
+			tmp24_AST = astFactory.create(LT(1));
+			astFactory.makeASTRoot(currentAST, tmp24_AST);
+			match(COMPOP);
+			AST tmp25_AST = null;
+			tmp25_AST = astFactory.create(LT(1));
+			astFactory.addASTChild(currentAST, tmp25_AST);
+			match(VAR);
+			ciExpr_AST = (AST)currentAST.root;
+			break;
+		}
+		case LPAREN:
+		{
+			match(LPAREN);
+			ciExpr();
+			astFactory.addASTChild(currentAST, returnAST);
+			{
+			_loop16:
+			do {
+				if ((LA(1)==BOOLOP)) {
+					AST tmp27_AST = null;
+					tmp27_AST = astFactory.create(LT(1));
+					astFactory.makeASTRoot(currentAST, tmp27_AST);
+					match(BOOLOP);
+					ciExpr();
+					astFactory.addASTChild(currentAST, returnAST);
+				}
+				else {
+					break _loop16;
+				}
+				
+			} while (true);
+			}
+			match(RPAREN);
+			ciExpr_AST = (AST)currentAST.root;
+			break;
+		}
+		default:
+			if ((LA(1)==VAR) && (LA(2)==COMPOP)) {
+				AST tmp29_AST = null;
+				tmp29_AST = astFactory.create(LT(1));
+				astFactory.addASTChild(currentAST, tmp29_AST);
+				match(VAR);
+				AST tmp30_AST = null;
+				tmp30_AST = astFactory.create(LT(1));
+				astFactory.makeASTRoot(currentAST, tmp30_AST);
+				match(COMPOP);
+				AST tmp31_AST = null;
+				tmp31_AST = astFactory.create(LT(1));
+				astFactory.addASTChild(currentAST, tmp31_AST);
+				match(CONST);
+				ciExpr_AST = (AST)currentAST.root;
+			}
+			else if ((LA(1)==VAR) && (LA(2)==MINUSOP)) {
+				diffExpr();
+				astFactory.addASTChild(currentAST, returnAST);
+				AST tmp32_AST = null;
+				tmp32_AST = astFactory.create(LT(1));
+				astFactory.makeASTRoot(currentAST, tmp32_AST);
+				match(COMPOP);
+				AST tmp33_AST = null;
+				tmp33_AST = astFactory.create(LT(1));
+				astFactory.addASTChild(currentAST, tmp33_AST);
+				match(CONST);
+				ciExpr_AST = (AST)currentAST.root;
+			}
+		else {
+			throw new NoViableAltException(LT(1), getFilename());
+		}
+		}
+		returnAST = ciExpr_AST;
+	}
+	
+	public final void diffExpr() throws RecognitionException, TokenStreamException {
+		
+		returnAST = null;
+		ASTPair currentAST = new ASTPair();
+		AST diffExpr_AST = null;
+		
+		AST tmp34_AST = null;
+		tmp34_AST = astFactory.create(LT(1));
+		astFactory.addASTChild(currentAST, tmp34_AST);
+		match(VAR);
+		AST tmp35_AST = null;
+		tmp35_AST = astFactory.create(LT(1));
+		astFactory.makeASTRoot(currentAST, tmp35_AST);
+		match(MINUSOP);
+		AST tmp36_AST = null;
+		tmp36_AST = astFactory.create(LT(1));
+		astFactory.addASTChild(currentAST, tmp36_AST);
+		match(VAR);
+		diffExpr_AST = (AST)currentAST.root;
+		returnAST = diffExpr_AST;
+	}
+	
+	
+	public static final String[] _tokenNames = {
+		"<0>",
+		"EOF",
+		"<2>",
+		"NULL_TREE_LOOKAHEAD",
+		"a M-Invoke",
+		"a left parenthesis",
+		"a boolean operator",
+		"a right parenthesis",
+		"a C-Invoke",
+		"a variable",
+		"a minus operator",
+		"a comparison operator",
+		"a constant",
+		"a white space"
+	};
+	
+	protected void buildTokenTypeASTClassMap() {
+		tokenTypeToASTClassMap=null;
+	};
+	
+	
+	}
@@ -0,0 +1,20 @@
+// $ANTLR 2.7.6 (2005-12-22): "grammar.g" -> "TemporalConstraintLexer.java"$
+
+	package fr.isima.ponge.wsprotocol.timed.constraints.parser;
+
+	import fr.isima.ponge.wsprotocol.timed.constraints.*;
+
+public interface TemporalConstraintParserTokenTypes {
+	int EOF = 1;
+	int NULL_TREE_LOOKAHEAD = 3;
+	int MINVOKE = 4;
+	int LPAREN = 5;
+	int BOOLOP = 6;
+	int RPAREN = 7;
+	int CINVOKE = 8;
+	int VAR = 9;
+	int MINUSOP = 10;
+	int COMPOP = 11;
+	int CONST = 12;
+	int WS = 13;
+}
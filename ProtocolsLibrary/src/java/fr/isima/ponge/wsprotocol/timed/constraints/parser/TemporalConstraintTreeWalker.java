@@ -0,0 +1,317 @@
+// $ANTLR 2.7.6 (2005-12-22): "grammar.g" -> "TemporalConstraintTreeWalker.java"$
+
+	package fr.isima.ponge.wsprotocol.timed.constraints.parser;
+
+	import fr.isima.ponge.wsprotocol.timed.constraints.*;
+
+import antlr.TreeParser;
+import antlr.Token;
+import antlr.collections.AST;
+import antlr.RecognitionException;
+import antlr.ANTLRException;
+import antlr.NoViableAltException;
+import antlr.MismatchedTokenException;
+import antlr.SemanticException;
+import antlr.collections.impl.BitSet;
+import antlr.ASTPair;
+import antlr.collections.impl.ASTArray;
+
+
+public class TemporalConstraintTreeWalker extends antlr.TreeParser       implements TemporalConstraintParserTokenTypes
+ {
+public TemporalConstraintTreeWalker() {
+	tokenNames = _tokenNames;
+}
+
+	public final IConstraintNode  terminal(AST _t) throws RecognitionException {
+		IConstraintNode node;
+		
+		AST terminal_AST_in = (_t == ASTNULL) ? null : (AST)_t;
+		AST v = null;
+		AST c = null;
+		
+			node = null;
+		
+		
+		try {      // for error handling
+			if (_t==null) _t=ASTNULL;
+			switch ( _t.getType()) {
+			case VAR:
+			{
+				v = (AST)_t;
+				match(_t,VAR);
+				_t = _t.getNextSibling();
+				if ( inputState.guessing==0 ) {
+					node = new VariableNode(v.getText());
+				}
+				break;
+			}
+			case CONST:
+			{
+				c = (AST)_t;
+				match(_t,CONST);
+				_t = _t.getNextSibling();
+				if ( inputState.guessing==0 ) {
+					node = new ConstantNode(Integer.parseInt(c.getText()));
+				}
+				break;
+			}
+			default:
+			{
+				throw new NoViableAltException(_t);
+			}
+			}
+		}
+		catch (RecognitionException ex) {
+			if (inputState.guessing==0) {
+				reportError(ex);
+				if (_t!=null) {_t = _t.getNextSibling();}
+			} else {
+			  throw ex;
+			}
+		}
+		_retTree = _t;
+		return node;
+	}
+	
+	public final IConstraintNode  diagonal(AST _t) throws RecognitionException {
+		IConstraintNode diag;
+		
+		AST diagonal_AST_in = (_t == ASTNULL) ? null : (AST)_t;
+		
+		diag = null;
+		IConstraintNode var1;
+		IConstraintNode var2;
+		
+		
+		try {      // for error handling
+			AST __t37 = _t;
+			AST tmp1_AST_in = (AST)_t;
+			match(_t,MINUSOP);
+			_t = _t.getFirstChild();
+			var1=terminal(_t);
+			_t = _retTree;
+			var2=terminal(_t);
+			_t = _retTree;
+			_t = __t37;
+			_t = _t.getNextSibling();
+			if ( inputState.guessing==0 ) {
+				
+				if (!(var1 instanceof VariableNode) || !(var2 instanceof VariableNode))
+				{
+				throw new RecognitionException("Difference can only be made between variables.");
+				}
+				diag = new DiagonalVariablesPair((VariableNode) var1, (VariableNode) var2);
+				
+			}
+		}
+		catch (RecognitionException ex) {
+			if (inputState.guessing==0) {
+				reportError(ex);
+				if (_t!=null) {_t = _t.getNextSibling();}
+			} else {
+			  throw ex;
+			}
+		}
+		_retTree = _t;
+		return diag;
+	}
+	
+	public final IRootConstraintNode  rootNode(AST _t) throws RecognitionException {
+		IRootConstraintNode node;
+		
+		AST rootNode_AST_in = (_t == ASTNULL) ? null : (AST)_t;
+		AST o2 = null;
+		AST o1 = null;
+		AST o3 = null;
+		
+			IConstraintNode left;
+			IConstraintNode right;
+			node = null;
+		
+		
+		try {      // for error handling
+			boolean synPredMatched41 = false;
+			if (_t==null) _t=ASTNULL;
+			if (((_t.getType()==COMPOP))) {
+				AST __t41 = _t;
+				synPredMatched41 = true;
+				inputState.guessing++;
+				try {
+					{
+					AST __t40 = _t;
+					AST tmp2_AST_in = (AST)_t;
+					match(_t,COMPOP);
+					_t = _t.getFirstChild();
+					AST tmp3_AST_in = (AST)_t;
+					match(_t,MINUSOP);
+					_t = _t.getNextSibling();
+					_t = __t40;
+					_t = _t.getNextSibling();
+					}
+				}
+				catch (RecognitionException pe) {
+					synPredMatched41 = false;
+				}
+				_t = __t41;
+inputState.guessing--;
+			}
+			if ( synPredMatched41 ) {
+				AST __t42 = _t;
+				o2 = _t==ASTNULL ? null :(AST)_t;
+				match(_t,COMPOP);
+				_t = _t.getFirstChild();
+				left=diagonal(_t);
+				_t = _retTree;
+				right=terminal(_t);
+				_t = _retTree;
+				_t = __t42;
+				_t = _t.getNextSibling();
+				if ( inputState.guessing==0 ) {
+					
+						    if (!(right instanceof ConstantNode))
+						    {
+						        throw new RecognitionException("Diagonal constraints require a right-hand constant.");
+						    }
+						    node = new DiagonalNode((DiagonalVariablesPair) left, o2.getText(), (ConstantNode) right);
+						
+				}
+			}
+			else if ((_t.getType()==COMPOP)) {
+				AST __t43 = _t;
+				o1 = _t==ASTNULL ? null :(AST)_t;
+				match(_t,COMPOP);
+				_t = _t.getFirstChild();
+				left=terminal(_t);
+				_t = _retTree;
+				right=terminal(_t);
+				_t = _retTree;
+				_t = __t43;
+				_t = _t.getNextSibling();
+				if ( inputState.guessing==0 ) {
+					
+						  	if (left instanceof VariableNode)
+						  	{
+						  		node = new ComparisonNode(o1.getText(), (VariableNode) left, (ConstantNode) right);
+						  	}
+						  	else
+						  	{
+						  		node = new ComparisonNode(o1.getText(), (ConstantNode) left, (VariableNode) right);
+						  	}
+						
+				}
+			}
+			else if ((_t.getType()==BOOLOP)) {
+				AST __t44 = _t;
+				o3 = _t==ASTNULL ? null :(AST)_t;
+				match(_t,BOOLOP);
+				_t = _t.getFirstChild();
+				left=rootNode(_t);
+				_t = _retTree;
+				right=rootNode(_t);
+				_t = _retTree;
+				_t = __t44;
+				_t = _t.getNextSibling();
+				if ( inputState.guessing==0 ) {
+					
+						  	node = new BooleanNode(o3.getText(), (IRootConstraintNode)left, (IRootConstraintNode)right);
+						
+				}
+			}
+			else {
+				throw new NoViableAltException(_t);
+			}
+			
+		}
+		catch (RecognitionException ex) {
+			if (inputState.guessing==0) {
+				reportError(ex);
+				if (_t!=null) {_t = _t.getNextSibling();}
+			} else {
+			  throw ex;
+			}
+		}
+		_retTree = _t;
+		return node;
+	}
+	
+	public final IConstraintNode  constraint(AST _t) throws RecognitionException {
+		IConstraintNode constraint;
+		
+		AST constraint_AST_in = (_t == ASTNULL) ? null : (AST)_t;
+		
+			constraint = null;
+			IRootConstraintNode root;
+		
+		
+		if (_t==null) _t=ASTNULL;
+		switch ( _t.getType()) {
+		case CINVOKE:
+		{
+			AST __t46 = _t;
+			AST tmp4_AST_in = (AST)_t;
+			match(_t,CINVOKE);
+			_t = _t.getFirstChild();
+			root=rootNode(_t);
+			_t = _retTree;
+			_t = __t46;
+			_t = _t.getNextSibling();
+			if ( inputState.guessing==0 ) {
+				
+					  	constraint = new CInvokeNode(root);
+					
+			}
+			break;
+		}
+		case MINVOKE:
+		{
+			AST __t47 = _t;
+			AST tmp5_AST_in = (AST)_t;
+			match(_t,MINVOKE);
+			_t = _t.getFirstChild();
+			root=rootNode(_t);
+			_t = _retTree;
+			_t = __t47;
+			_t = _t.getNextSibling();
+			if ( inputState.guessing==0 ) {
+				
+					  	ConstraintHelper helper = new ConstraintHelper();
+					  	MInvokeNode miNode = new MInvokeNode(root);
+					  	if (!helper.isValidMInvoke(miNode))
+					    {
+					        throw new RecognitionException(root + " is not a valid M-Invoke constraint.");
+					    }
+					    constraint = miNode;
+					
+			}
+			break;
+		}
+		default:
+		{
+			throw new NoViableAltException(_t);
+		}
+		}
+		_retTree = _t;
+		return constraint;
+	}
+	
+	
+	public static final String[] _tokenNames = {
+		"<0>",
+		"EOF",
+		"<2>",
+		"NULL_TREE_LOOKAHEAD",
+		"a M-Invoke",
+		"a left parenthesis",
+		"a boolean operator",
+		"a right parenthesis",
+		"a C-Invoke",
+		"a variable",
+		"a minus operator",
+		"a comparison operator",
+		"a constant",
+		"a white space"
+	};
+	
+	}
+	
@@ -0,0 +1,107 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.timed.validation;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.Operation;
+
+/**
+ * A problem found in the temporal constraint of an operation.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class ConstraintDiagnostic
+{
+    private final BusinessProtocol protocol;
+
+    private final Operation operation;
+
+    private final DiagnosticKind kind;
+
+    private final String message;
+
+    /**
+     * Instantiates a new diagnostic.
+     *
+     * @param protocol  The protocol.
+     * @param operation The operation holding the constraint.
+     * @param kind      The problem kind.
+     * @param message   The human-readable description.
+     */
+    public ConstraintDiagnostic(BusinessProtocol protocol, Operation operation, DiagnosticKind kind, String message)
+    {
+        super();
+        this.protocol = protocol;
+        this.operation = operation;
+        this.kind = kind;
+        this.message = message;
+    }
+
+    /**
+     * Gets the protocol.
+     *
+     * @return The protocol.
+     */
+    public BusinessProtocol getProtocol()
+    {
+        return protocol;
+    }
+
+    /**
+     * Gets the operation holding the constraint.
+     *
+     * @return The operation.
+     */
+    public Operation getOperation()
+    {
+        return operation;
+    }
+
+    /**
+     * Gets the problem kind.
+     *
+     * @return The kind.
+     */
+    public DiagnosticKind getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * Gets the human-readable description.
+     *
+     * @return The message.
+     */
+    public String getMessage()
+    {
+        return message;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    public String toString()
+    {
+        return protocol.getName() + "/" + operation.getName() + " [" + kind + "]: " + message;
+    }
+}
@@ -0,0 +1,310 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.timed.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import antlr.RecognitionException;
+import antlr.TokenStreamException;
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.OperationKind;
+import fr.isima.ponge.wsprotocol.StandardExtraProperties;
+import fr.isima.ponge.wsprotocol.timed.constraints.CInvokeNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.ConstraintHelper;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintFunctionNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.IRootConstraintNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.MInvokeNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.VariableNode;
+
+/**
+ * Validates the temporal constraints of business protocols outside of any editor. The checks are
+ * the following:
+ * <ul>
+ * <li>the constraint can be parsed, M-Invoke constraints needing an equality check in each disjunct,</li>
+ * <li>explicit operations use C-Invoke constraints and implicit ones use M-Invoke constraints,</li>
+ * <li>every variable is the name of an operation of the protocol.</li>
+ * </ul>
+ * Several protocols are validated in parallel, the work being split into batches of operations.
+ * Validators have no state besides their executor, so a single instance can be shared.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class ConstraintValidator
+{
+    private static final ConstraintHelper CONSTRAINT_HELPER = new ConstraintHelper();
+
+    /**
+     * The default number of operations validated by a single parallel task.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    private final ExecutorService executor;
+
+    private final int batchSize;
+
+    /**
+     * Instantiates a new validator. Parallel validations use a temporary thread pool sized after
+     * the number of available processors.
+     */
+    public ConstraintValidator()
+    {
+        this(null, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Instantiates a new validator.
+     *
+     * @param executor  The executor for parallel validations, or <code>null</code> to use a
+     *                  temporary thread pool for each call. The executor is never shut down by
+     *                  the validator.
+     * @param batchSize The number of operations validated by a single parallel task.
+     */
+    public ConstraintValidator(ExecutorService executor, int batchSize)
+    {
+        super();
+        if (batchSize < 1)
+        {
+            throw new IllegalArgumentException("The batch size must be positive: " + batchSize);
+        }
+        this.executor = executor;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Validates the constraints of a protocol in the calling thread.
+     *
+     * @param protocol The protocol.
+     * @return The diagnostics, in the operations iteration order. The list is empty if every
+     *         constraint is valid.
+     */
+    public List<ConstraintDiagnostic> validate(BusinessProtocol protocol)
+    {
+        List<ConstraintDiagnostic> diagnostics = new ArrayList<ConstraintDiagnostic>();
+        Set<String> names = operationNames(protocol);
+        for (Operation operation : protocol.getOperations())
+        {
+            validate(protocol, operation, names, diagnostics);
+        }
+        return diagnostics;
+    }
+
+    /**
+     * Validates the constraints of many protocols in parallel.
+     *
+     * @param protocols The protocols.
+     * @return The diagnostics, grouped by protocol in the collection iteration order, then in the
+     *         operations iteration order.
+     */
+    public List<ConstraintDiagnostic> validateAll(Collection<? extends BusinessProtocol> protocols)
+    {
+        List<Callable<List<ConstraintDiagnostic>>> tasks = new ArrayList<Callable<List<ConstraintDiagnostic>>>();
+        for (BusinessProtocol protocol : protocols)
+        {
+            Set<String> names = operationNames(protocol);
+            List<Operation> batch = new ArrayList<Operation>(batchSize);
+            for (Operation operation : protocol.getOperations())
+            {
+                batch.add(operation);
+                if (batch.size() == batchSize)
+                {
+                    tasks.add(new BatchTask(protocol, batch, names));
+                    batch = new ArrayList<Operation>(batchSize);
+                }
+            }
+            if (!batch.isEmpty())
+            {
+                tasks.add(new BatchTask(protocol, batch, names));
+            }
+        }
+
+        List<ConstraintDiagnostic> diagnostics = new ArrayList<ConstraintDiagnostic>();
+        if (tasks.isEmpty())
+        {
+            return diagnostics;
+        }
+        if (tasks.size() == 1)
+        {
+            diagnostics.addAll(((BatchTask) tasks.get(0)).call());
+            return diagnostics;
+        }
+
+        ExecutorService service = executor;
+        if (service == null)
+        {
+            int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+            service = Executors.newFixedThreadPool(threads);
+        }
+        try
+        {
+            for (Future<List<ConstraintDiagnostic>> future : service.invokeAll(tasks))
+            {
+                diagnostics.addAll(future.get());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The validation has been interrupted.");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause.getMessage());
+        }
+        finally
+        {
+            if (service != executor)
+            {
+                service.shutdown();
+            }
+        }
+        return diagnostics;
+    }
+
+    private static Set<String> operationNames(BusinessProtocol protocol)
+    {
+        Set<String> names = new HashSet<String>();
+        for (Operation operation : protocol.getOperations())
+        {
+            names.add(operation.getName());
+        }
+        return names;
+    }
+
+    private static void validate(BusinessProtocol protocol, Operation operation, Set<String> names,
+            List<ConstraintDiagnostic> diagnostics)
+    {
+        String constraint = (String) operation.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT);
+        if (constraint == null || "".equals(constraint))
+        {
+            return;
+        }
+
+        IConstraintNode node;
+        try
+        {
+            node = CONSTRAINT_HELPER.parse(constraint);
+        }
+        catch (RecognitionException e)
+        {
+            diagnostics.add(new ConstraintDiagnostic(protocol, operation, DiagnosticKind.PARSE_ERROR, e.getMessage()));
+            return;
+        }
+        catch (TokenStreamException e)
+        {
+            diagnostics.add(new ConstraintDiagnostic(protocol, operation, DiagnosticKind.PARSE_ERROR, e.getMessage()));
+            return;
+        }
+
+        if (OperationKind.EXPLICIT.equals(operation.getOperationKind()))
+        {
+            if (!(node instanceof CInvokeNode))
+            {
+                diagnostics.add(new ConstraintDiagnostic(protocol, operation, DiagnosticKind.EXPLICIT_NOT_C_INVOKE,
+                        "Explicit operations only support C-Invoke temporal constraints."));
+            }
+        }
+        else if (!(node instanceof MInvokeNode))
+        {
+            diagnostics.add(new ConstraintDiagnostic(protocol, operation, DiagnosticKind.IMPLICIT_NOT_M_INVOKE,
+                    "Implicit operations only support M-Invoke temporal constraints."));
+        }
+
+        Set<String> variables = new LinkedHashSet<String>();
+        collectVariables(node, variables);
+        for (String variable : variables)
+        {
+            if (!names.contains(variable))
+            {
+                diagnostics.add(new ConstraintDiagnostic(protocol, operation, DiagnosticKind.UNKNOWN_VARIABLE,
+                        "Unknown operation: " + variable));
+            }
+        }
+    }
+
+    private static void collectVariables(IConstraintNode node, Set<String> variables)
+    {
+        if (node instanceof VariableNode)
+        {
+            variables.add(((VariableNode) node).getVariableName());
+        }
+        else if (node instanceof IRootConstraintNode)
+        {
+            collectVariables(((IRootConstraintNode) node).getLeftChild(), variables);
+            collectVariables(((IRootConstraintNode) node).getRightChild(), variables);
+        }
+        else if (node instanceof IConstraintFunctionNode)
+        {
+            collectVariables(((IConstraintFunctionNode) node).getNode(), variables);
+        }
+    }
+
+    /**
+     * Validates a batch of operations from the same protocol.
+     */
+    private static class BatchTask implements Callable<List<ConstraintDiagnostic>>
+    {
+        private final BusinessProtocol protocol;
+
+        private final List<Operation> operations;
+
+        private final Set<String> names;
+
+        BatchTask(BusinessProtocol protocol, List<Operation> operations, Set<String> names)
+        {
+            this.protocol = protocol;
+            this.operations = operations;
+            this.names = names;
+        }
+
+        public List<ConstraintDiagnostic> call()
+        {
+            List<ConstraintDiagnostic> diagnostics = new ArrayList<ConstraintDiagnostic>();
+            for (Operation operation : operations)
+            {
+                validate(protocol, operation, names, diagnostics);
+            }
+            return diagnostics;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.timed.validation;
+
+/**
+ * Models the kind of a temporal constraint problem.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class DiagnosticKind
+{
+    /**
+     * The constraint cannot be parsed, or it is a M-Invoke constraint with a disjunct without equality check.
+     */
+    public static final DiagnosticKind PARSE_ERROR = new DiagnosticKind("parse-error");
+
+    /**
+     * An explicit operation has a constraint other than C-Invoke.
+     */
+    public static final DiagnosticKind EXPLICIT_NOT_C_INVOKE = new DiagnosticKind("explicit-not-c-invoke");
+
+    /**
+     * An implicit operation has a constraint other than M-Invoke.
+     */
+    public static final DiagnosticKind IMPLICIT_NOT_M_INVOKE = new DiagnosticKind("implicit-not-m-invoke");
+
+    /**
+     * A constraint references a variable that is not an operation of the protocol.
+     */
+    public static final DiagnosticKind UNKNOWN_VARIABLE = new DiagnosticKind("unknown-variable");
+
+    /**
+     * The kind name.
+     */
+    protected String name;
+
+    /**
+     * Instanciates a new diagnostic kind.
+     *
+     * @param name The kind name.
+     */
+    protected DiagnosticKind(String name)
+    {
+        this.name = name;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    public String toString()
+    {
+        return name;
+    }
+}
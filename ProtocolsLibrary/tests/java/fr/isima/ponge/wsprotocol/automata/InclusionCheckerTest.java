@@ -0,0 +1,126 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package fr.isima.ponge.wsprotocol.automata;
+
+import java.util.List;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.Polarity;
+import fr.isima.ponge.wsprotocol.StandardExtraProperties;
+import fr.isima.ponge.wsprotocol.State;
+import fr.isima.ponge.wsprotocol.impl.BusinessProtocolFactoryImpl;
+import junit.framework.TestCase;
+
+public class InclusionCheckerTest extends TestCase
+{
+    private BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl();
+
+    private InclusionChecker checker = new InclusionChecker();
+
+    /**
+     * Builds a protocol accepting <code>a.b</code> and <code>a.c</code>, through two <code>a</code>
+     * operations, and <code>a.b.extension</code> and <code>a.c.extension</code> when <code>extension</code> is
+     * not <code>null</code>.
+     */
+    private BusinessProtocol buildProtocol(String name, String extension)
+    {
+        BusinessProtocol protocol = factory.createBusinessProtocol(name);
+        State s0 = factory.createState("s0", false);
+        State s1 = factory.createState("s1", false);
+        State s2 = factory.createState("s2", false);
+        State s3 = factory.createState("s3", true);
+        protocol.addState(s0);
+        protocol.addState(s1);
+        protocol.addState(s2);
+        protocol.addState(s3);
+        s0.setInitialState(true);
+        protocol.setInitialState(s0);
+        protocol.addOperation(factory.createOperation("T1", s0, s1, factory.createMessage("a", Polarity.POSITIVE)));
+        protocol.addOperation(factory.createOperation("T2", s0, s2, factory.createMessage("a", Polarity.POSITIVE)));
+        protocol.addOperation(factory.createOperation("T3", s1, s3, factory.createMessage("b", Polarity.NEGATIVE)));
+        protocol.addOperation(factory.createOperation("T4", s2, s3, factory.createMessage("c", Polarity.NEGATIVE)));
+        if (extension != null)
+        {
+            State s4 = factory.createState("s4", true);
+            protocol.addState(s4);
+            protocol.addOperation(factory.createOperation("T5", s3, s4, factory.createMessage(extension,
+                    Polarity.NEGATIVE)));
+        }
+        return protocol;
+    }
+
+    public void testIncluded()
+    {
+        BusinessProtocol p1 = buildProtocol("p1", null);
+        BusinessProtocol p2 = buildProtocol("p2", "b");
+        assertTrue(checker.isIncluded(p1, p2));
+        assertTrue(checker.isIncluded(p1, p1));
+    }
+
+    public void testCounterexample()
+    {
+        BusinessProtocol p1 = buildProtocol("p1", null);
+        BusinessProtocol p2 = buildProtocol("p2", "b");
+        List<Operation> conversation = checker.findCounterexample(p2, p1);
+        assertNotNull(conversation);
+        assertEquals(3, conversation.size());
+        assertEquals("a", conversation.get(0).getMessage().getName());
+        assertFalse("a".equals(conversation.get(1).getMessage().getName()));
+        assertEquals("b", conversation.get(2).getMessage().getName());
+    }
+
+    public void testForeignMessage()
+    {
+        // The conversations using d, which p1 does not know, do not count
+        BusinessProtocol p1 = buildProtocol("p1", null);
+        BusinessProtocol p2 = buildProtocol("p2", "d");
+        assertNull(checker.findCounterexample(p2, p1));
+    }
+
+    public void testEmptyConversation()
+    {
+        BusinessProtocol p1 = buildProtocol("p1", null);
+        BusinessProtocol p2 = factory.createBusinessProtocol("p2");
+        State s0 = factory.createState("s0", true);
+        p2.addState(s0);
+        s0.setInitialState(true);
+        p2.setInitialState(s0);
+        List<Operation> conversation = checker.findCounterexample(p2, p1);
+        assertNotNull(conversation);
+        assertTrue(conversation.isEmpty());
+    }
+
+    public void testConstrainedProtocols()
+    {
+        BusinessProtocol p1 = buildProtocol("p1", null);
+        BusinessProtocol p2 = buildProtocol("p2", null);
+        assertTrue(checker.canCheck(p1, p2));
+        p1.getOperations().iterator().next().putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT,
+                "C-Invoke(T1 < 3)");
+        assertFalse(checker.canCheck(p1, p2));
+        assertFalse(checker.canCheck(p2, p1));
+    }
+}
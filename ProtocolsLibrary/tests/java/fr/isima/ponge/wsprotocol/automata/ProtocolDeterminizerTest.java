@@ -0,0 +1,153 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package fr.isima.ponge.wsprotocol.automata;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.Polarity;
+import fr.isima.ponge.wsprotocol.StandardExtraProperties;
+import fr.isima.ponge.wsprotocol.State;
+import fr.isima.ponge.wsprotocol.impl.BusinessProtocolFactoryImpl;
+import junit.framework.TestCase;
+
+public class ProtocolDeterminizerTest extends TestCase
+{
+    private BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl();
+
+    private ProtocolDeterminizer determinizer = new ProtocolDeterminizer(factory);
+
+    private BusinessProtocol protocol;
+
+    private Operation t1;
+
+    protected void setUp() throws Exception
+    {
+        protocol = factory.createBusinessProtocol("p");
+        State s0 = factory.createState("s0", false);
+        State s1 = factory.createState("s1", false);
+        State s2 = factory.createState("s2", false);
+        State s3 = factory.createState("s3", true);
+        State s4 = factory.createState("s4", false);
+        protocol.addState(s0);
+        protocol.addState(s1);
+        protocol.addState(s2);
+        protocol.addState(s3);
+        protocol.addState(s4);
+        s0.setInitialState(true);
+        protocol.setInitialState(s0);
+        t1 = factory.createOperation("T1", s0, s1, factory.createMessage("a", Polarity.POSITIVE));
+        protocol.addOperation(t1);
+        protocol.addOperation(factory.createOperation("T2", s0, s2, factory.createMessage("a", Polarity.POSITIVE)));
+        protocol.addOperation(factory.createOperation("T3", s0, s4, factory.createMessage("a", Polarity.POSITIVE)));
+        protocol.addOperation(factory.createOperation("T4", s1, s3, factory.createMessage("b", Polarity.NEGATIVE)));
+        protocol.addOperation(factory.createOperation("T5", s2, s3, factory.createMessage("c", Polarity.NEGATIVE)));
+        protocol.addOperation(factory.createOperation("T6", s4, s4, factory.createMessage("d", Polarity.NEGATIVE)));
+    }
+
+    public void testDeterminize()
+    {
+        BusinessProtocol result = determinizer.determinize(protocol);
+        assertEquals("p", result.getName());
+        assertEquals(3, result.getStates().size());
+        assertEquals(3, result.getOperations().size());
+        assertEquals("s0", result.getInitialState().getName());
+        assertEquals(1, result.getInitialState().getOutgoingOperations().size());
+        State subset = result.getInitialState().getSuccessors().get(0);
+        assertEquals("{s1,s2}", subset.getName());
+        assertEquals(2, subset.getOutgoingOperations().size());
+        assertEquals(1, result.getFinalStates().size());
+        assertEquals(5, protocol.getStates().size());
+        assertUniqueOperationNames(result);
+    }
+
+    public void testUniqueOperationNames()
+    {
+        BusinessProtocol chain = factory.createBusinessProtocol("c");
+        State s0 = factory.createState("s0", false);
+        State s1 = factory.createState("s1", false);
+        State s2 = factory.createState("s2", true);
+        chain.addState(s0);
+        chain.addState(s1);
+        chain.addState(s2);
+        s0.setInitialState(true);
+        chain.setInitialState(s0);
+        chain.addOperation(factory.createOperation("T0", s0, s1, factory.createMessage("a", Polarity.POSITIVE)));
+        chain.addOperation(factory.createOperation("T1", s1, s2, factory.createMessage("a", Polarity.POSITIVE)));
+        chain.addOperation(factory.createOperation("T2", s0, s2, factory.createMessage("a", Polarity.POSITIVE)));
+
+        BusinessProtocol result = determinizer.determinize(chain);
+        assertEquals(3, result.getStates().size());
+        assertEquals(2, result.getOperations().size());
+        assertUniqueOperationNames(result);
+    }
+
+    private void assertUniqueOperationNames(BusinessProtocol result)
+    {
+        Set<String> names = new HashSet<String>();
+        for (Operation operation : result.getOperations())
+        {
+            assertTrue(operation.getName(), names.add(operation.getName()));
+        }
+    }
+
+    public void testDeterministicProtocol()
+    {
+        BusinessProtocol deterministic = determinizer.determinize(protocol);
+        BusinessProtocol result = determinizer.determinize(deterministic);
+        assertEquals(deterministic.getStates().size(), result.getStates().size());
+        assertEquals(deterministic.getOperations().size(), result.getOperations().size());
+    }
+
+    public void testEmptyLanguage()
+    {
+        BusinessProtocol empty = factory.createBusinessProtocol("e");
+        State s0 = factory.createState("s0", false);
+        empty.addState(s0);
+        empty.setInitialState(s0);
+        empty.addOperation(factory.createOperation("T1", s0, s0, factory.createMessage("a", Polarity.POSITIVE)));
+        BusinessProtocol result = determinizer.determinize(empty);
+        assertEquals(1, result.getStates().size());
+        assertTrue(result.getOperations().isEmpty());
+        assertFalse(result.getInitialState().isFinalState());
+    }
+
+    public void testConstrainedProtocol()
+    {
+        assertTrue(determinizer.canDeterminize(protocol));
+        t1.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "C-Invoke(T1 < 3)");
+        assertFalse(determinizer.canDeterminize(protocol));
+        try
+        {
+            determinizer.determinize(protocol);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package fr.isima.ponge.wsprotocol.automata;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.Polarity;
+import fr.isima.ponge.wsprotocol.StandardExtraProperties;
+import fr.isima.ponge.wsprotocol.State;
+import fr.isima.ponge.wsprotocol.impl.BusinessProtocolFactoryImpl;
+import junit.framework.TestCase;
+
+public class ProtocolMinimizerTest extends TestCase
+{
+    private BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl();
+
+    private ProtocolMinimizer minimizer = new ProtocolMinimizer(factory);
+
+    private BusinessProtocol protocol;
+
+    private Operation t3;
+
+    private Operation t4;
+
+    protected void setUp() throws Exception
+    {
+        protocol = factory.createBusinessProtocol("p");
+        State s0 = factory.createState("s0", false);
+        State s1 = factory.createState("s1", false);
+        State s2 = factory.createState("s2", false);
+        State s3 = factory.createState("s3", true);
+        State s4 = factory.createState("s4", true);
+        State s5 = factory.createState("s5", false);
+        protocol.addState(s0);
+        protocol.addState(s1);
+        protocol.addState(s2);
+        protocol.addState(s3);
+        protocol.addState(s4);
+        protocol.addState(s5);
+        s0.setInitialState(true);
+        protocol.setInitialState(s0);
+        protocol.addOperation(factory.createOperation("T1", s0, s1, factory.createMessage("a", Polarity.POSITIVE)));
+        protocol.addOperation(factory.createOperation("T2", s0, s2, factory.createMessage("b", Polarity.POSITIVE)));
+        t3 = factory.createOperation("T3", s1, s3, factory.createMessage("c", Polarity.NEGATIVE));
+        t4 = factory.createOperation("T4", s2, s4, factory.createMessage("c", Polarity.NEGATIVE));
+        protocol.addOperation(t3);
+        protocol.addOperation(t4);
+        protocol.addOperation(factory.createOperation("T5", s5, s0, factory.createMessage("d", Polarity.POSITIVE)));
+    }
+
+    public void testMergeEquivalentStates()
+    {
+        BusinessProtocol result = minimizer.minimize(protocol);
+        assertEquals("p", result.getName());
+        assertEquals(3, result.getStates().size());
+        assertEquals(3, result.getOperations().size());
+        assertEquals("s0", result.getInitialState().getName());
+        assertTrue(result.getInitialState().isInitialState());
+        assertEquals(1, result.getFinalStates().size());
+        assertEquals(6, protocol.getStates().size());
+    }
+
+    public void testGuardsDistinguishStates()
+    {
+        t3.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "C-Invoke(T1 < 3)");
+        BusinessProtocol result = minimizer.minimize(protocol);
+        assertEquals(4, result.getStates().size());
+        assertEquals(4, result.getOperations().size());
+
+        t4.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "C-Invoke((T1 < 3) && (T1 < 3))");
+        result = minimizer.minimize(protocol);
+        assertEquals(3, result.getStates().size());
+    }
+
+    public void testMinimalProtocol()
+    {
+        BusinessProtocol minimal = minimizer.minimize(protocol);
+        BusinessProtocol result = minimizer.minimize(minimal);
+        assertEquals(minimal.getStates().size(), result.getStates().size());
+        assertEquals(minimal.getOperations().size(), result.getOperations().size());
+        assertEquals(minimal, result);
+    }
+}
@@ -0,0 +1,139 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.cache;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.Polarity;
+import fr.isima.ponge.wsprotocol.StandardExtraProperties;
+import fr.isima.ponge.wsprotocol.State;
+import fr.isima.ponge.wsprotocol.impl.BusinessProtocolFactoryImpl;
+
+/**
+ * Test case for the <code>ProtocolResultCache</code> and <code>ProtocolFingerprint</code>
+ * classes.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class ProtocolResultCacheTest extends TestCase
+{
+    private BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl();
+
+    public void testFingerprint()
+    {
+        BusinessProtocol p1 = createProtocol("P", "C-Invoke(T1 < 3)", false);
+        BusinessProtocol p2 = createProtocol("P", "C-Invoke(T1 < 3)", true);
+        BusinessProtocol p3 = createProtocol("P", "C-Invoke(T1 < 4)", false);
+
+        assertEquals(ProtocolFingerprint.compute(p1), ProtocolFingerprint.compute(p2));
+        assertFalse(ProtocolFingerprint.compute(p1).equals(ProtocolFingerprint.compute(p3)));
+        assertFalse(ProtocolFingerprint.compute(p1).equals(
+                ProtocolFingerprint.compute(createProtocol("Q", "C-Invoke(T1 < 3)", false))));
+    }
+
+    public void testCopies()
+    {
+        ProtocolResultCache cache = new ProtocolResultCache(factory);
+        BusinessProtocol input = createProtocol("P", "C-Invoke(T1 < 3)", false);
+        BusinessProtocol result = createProtocol("R", "C-Invoke(T1 < 5)", false);
+        List<String> key = cache.createKey("op", input);
+
+        assertNull(cache.get(key));
+        cache.put(key, result);
+        result.removeOperation(result.getOperations().iterator().next());
+
+        BusinessProtocol cached = cache.get(cache.createKey("op", createProtocol("P", "C-Invoke(T1 < 3)", true)));
+        assertEquals(createProtocol("R", "C-Invoke(T1 < 5)", false), cached);
+        assertEquals("C-Invoke(T1 < 5)", getOperation(cached, "T2").getExtraProperty(
+                StandardExtraProperties.TEMPORAL_CONSTRAINT));
+        cached.removeState(cached.getInitialState());
+        assertEquals(createProtocol("R", "C-Invoke(T1 < 5)", false), cache.get(key));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        assertNull(cache.get(cache.createKey("other", input)));
+    }
+
+    public void testEviction()
+    {
+        ProtocolResultCache cache = new ProtocolResultCache(factory, 2);
+        List<String> k1 = cache.createKey("op", createProtocol("P1", "", false));
+        List<String> k2 = cache.createKey("op", createProtocol("P2", "", false));
+        List<String> k3 = cache.createKey("op", createProtocol("P3", "", false));
+        cache.put(k1, createProtocol("R1", "", false));
+        cache.put(k2, createProtocol("R2", "", false));
+        assertNotNull(cache.get(k1));
+        cache.put(k3, createProtocol("R3", "", false));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(k1));
+        assertNull(cache.get(k2));
+        assertNotNull(cache.get(k3));
+    }
+
+    private BusinessProtocol createProtocol(String name, String constraint, boolean reversed)
+    {
+        BusinessProtocol protocol = factory.createBusinessProtocol(name);
+        State s0 = factory.createState("s0", false);
+        State s1 = factory.createState("s1", false);
+        State s2 = factory.createState("s2", true);
+        s0.setInitialState(true);
+        Operation t1 = factory.createOperation("T1", s0, s1, factory.createMessage("a", Polarity.POSITIVE));
+        Operation t2 = factory.createOperation("T2", s1, s2, factory.createMessage("b", Polarity.NEGATIVE));
+        t2.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, constraint);
+        if (reversed)
+        {
+            protocol.addState(s2);
+            protocol.addState(s1);
+            protocol.addState(s0);
+            protocol.addOperation(t2);
+            protocol.addOperation(t1);
+        }
+        else
+        {
+            protocol.addState(s0);
+            protocol.addState(s1);
+            protocol.addState(s2);
+            protocol.addOperation(t1);
+            protocol.addOperation(t2);
+        }
+        protocol.setInitialState(s0);
+        return protocol;
+    }
+
+    private Operation getOperation(BusinessProtocol protocol, String name)
+    {
+        for (Operation operation : protocol.getOperations())
+        {
+            if (operation.getName().equals(name))
+            {
+                return operation;
+            }
+        }
+        return null;
+    }
+}
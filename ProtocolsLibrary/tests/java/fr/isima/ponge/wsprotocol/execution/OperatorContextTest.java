@@ -0,0 +1,115 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for the <code>OperatorContext</code> class.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class OperatorContextTest extends TestCase
+{
+    public void testLimits()
+    {
+        OperatorContext context = new OperatorContext();
+        context.setMaxStates(10);
+        context.setMaxOperations(20);
+        context.check(10, 20);
+
+        try
+        {
+            context.check(11, 5);
+            fail();
+        }
+        catch (OperatorLimitExceededException e)
+        {
+            assertSame(OperatorLimit.STATES, e.getLimit());
+            assertEquals(11, e.getStates());
+            assertEquals(5, e.getOperations());
+        }
+        try
+        {
+            context.check(3, 21);
+            fail();
+        }
+        catch (OperatorLimitExceededException e)
+        {
+            assertSame(OperatorLimit.OPERATIONS, e.getLimit());
+        }
+    }
+
+    public void testCancellationAndDeadline()
+    {
+        OperatorContext context = new OperatorContext();
+        context.checkAlive();
+        context.setDeadline(System.currentTimeMillis() - 1);
+        try
+        {
+            context.check(1, 2);
+            fail();
+        }
+        catch (OperatorLimitExceededException e)
+        {
+            assertSame(OperatorLimit.DEADLINE, e.getLimit());
+        }
+
+        context = new OperatorContext();
+        context.check(4, 7);
+        context.cancel();
+        try
+        {
+            context.checkAlive();
+            fail();
+        }
+        catch (OperatorLimitExceededException e)
+        {
+            assertSame(OperatorLimit.CANCELLED, e.getLimit());
+            assertEquals(4, e.getStates());
+            assertEquals(7, e.getOperations());
+        }
+    }
+
+    public void testProgress()
+    {
+        final List<String> reports = new ArrayList<String>();
+        OperatorContext context = new OperatorContext();
+        context.setProgressListener(new OperatorProgressListener()
+        {
+            public void progress(int states, int operations)
+            {
+                reports.add(states + "/" + operations);
+            }
+        });
+        context.progress(1, 0);
+        context.progress(3, 4);
+        context.check(5, 6);
+
+        assertEquals(2, reports.size());
+        assertEquals("3/4", reports.get(1));
+    }
+}
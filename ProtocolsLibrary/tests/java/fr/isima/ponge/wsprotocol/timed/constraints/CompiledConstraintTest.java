@@ -0,0 +1,193 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import antlr.RecognitionException;
+import antlr.TokenStreamException;
+import junit.framework.TestCase;
+
+import static fr.isima.ponge.wsprotocol.timed.constraints.parser.ConstraintFixtures.parse;
+
+public class CompiledConstraintTest extends TestCase
+{
+    private static final String[] VARIABLES = {"T1", "T2", "T3"};
+
+    private static final int NEVER = CompiledConstraint.NEVER_FIRED;
+
+    private CompiledConstraint compile(String constraint) throws TokenStreamException, RecognitionException
+    {
+        return CompiledConstraint.compile(parse(constraint), VARIABLES);
+    }
+
+    public void testComparisons() throws TokenStreamException, RecognitionException
+    {
+        CompiledConstraint c = compile("C-Invoke(T2 < 3)");
+        assertTrue(c.evaluate(new int[]{10, 2, 10}, 20));
+        assertFalse(c.evaluate(new int[]{0, 3, 0}, 20));
+        assertFalse(c.evaluate(new int[]{0, NEVER, 0}, 20));
+
+        c = compile("M-Invoke(10 = T1)");
+        assertTrue(c.evaluate(new int[]{10, 0, 0}, 20));
+        assertFalse(c.evaluate(new int[]{11, 0, 0}, 20));
+
+        c = compile("C-Invoke(5 > T3)");
+        assertTrue(c.evaluate(new int[]{0, 0, 4}, 20));
+        assertFalse(c.evaluate(new int[]{0, 0, 5}, 20));
+
+        c = compile("C-Invoke(T1 - T3 >= 2)");
+        assertTrue(c.evaluate(new int[]{7, 0, 5}, 20));
+        assertFalse(c.evaluate(new int[]{6, 0, 5}, 20));
+        assertFalse(c.evaluate(new int[]{7, 0, NEVER}, 20));
+    }
+
+    public void testBooleans() throws TokenStreamException, RecognitionException
+    {
+        CompiledConstraint c = compile("C-Invoke(((T1 < 3) || (T2 > 4)) && ((T3 = 1) || (T1 - T2 < 0)))");
+        assertTrue(c.evaluate(new int[]{2, 0, 1}, 20));
+        assertTrue(c.evaluate(new int[]{9, 5, 1}, 20));
+        assertFalse(c.evaluate(new int[]{9, 4, 1}, 20));
+        assertTrue(c.evaluate(new int[]{2, 3, 0}, 20));
+        assertFalse(c.evaluate(new int[]{2, 1, 0}, 20));
+
+        assertTrue(CompiledConstraint.compile(null).evaluate(new int[0], 20));
+    }
+
+    public void testNeverFired()
+    {
+        VariableNode t1 = new VariableNode("T1");
+        CompiledConstraint notFired = CompiledConstraint.compile(
+                new CInvokeNode(new ComparisonNode(ComparisonConstants.EQ, t1, new ConstantNode(-1))), VARIABLES);
+        CompiledConstraint fired = CompiledConstraint.compile(
+                new CInvokeNode(new ComparisonNode(ComparisonConstants.GREATER, new ConstantNode(-1), t1)), VARIABLES);
+
+        assertTrue(notFired.evaluate(new int[]{NEVER, 0, 0}, 20));
+        assertFalse(notFired.evaluate(new int[]{0, 0, 0}, 20));
+        assertFalse(fired.evaluate(new int[]{NEVER, 0, 0}, 20));
+        assertFalse(fired.evaluate(new int[]{3, 0, 0}, 20));
+
+        CompiledConstraint hasFired = CompiledConstraint.compile(
+                new CInvokeNode(new ComparisonNode(ComparisonConstants.NEQ, t1, new ConstantNode(-1))), VARIABLES);
+        assertTrue(hasFired.evaluate(new int[]{3, 0, 0}, 20));
+        assertFalse(hasFired.evaluate(new int[]{NEVER, 0, 0}, 20));
+    }
+
+    public void testSinceStart() throws TokenStreamException, RecognitionException
+    {
+        // The clock of an operation that has never been fired starts with the conversation
+        CompiledConstraint c = compile("C-Invoke(T2 < 3)");
+        assertTrue(c.evaluate(new int[]{0, NEVER, 0}, 2));
+        assertFalse(c.evaluate(new int[]{0, NEVER, 0}, 3));
+
+        c = compile("M-Invoke(T2 = 5)");
+        assertTrue(c.evaluate(new int[]{0, NEVER, 0}, 5));
+        assertFalse(c.evaluate(new int[]{0, 4, 0}, 5));
+
+        c = compile("C-Invoke(T1 - T3 >= 2)");
+        assertTrue(c.evaluate(new int[]{7, 0, NEVER}, 5));
+        assertTrue(c.evaluate(new int[]{NEVER, 0, 3}, 5));
+        assertFalse(c.evaluate(new int[]{NEVER, 0, 4}, 5));
+        assertFalse(c.evaluate(new int[]{NEVER, 0, NEVER}, 5));
+
+        VariableNode t1 = new VariableNode("T1");
+        c = CompiledConstraint.compile(new CInvokeNode(new BooleanNode(BooleanConstants.AND, new ComparisonNode(
+                ComparisonConstants.GREATER, t1, new ConstantNode(5)), new ComparisonNode(ComparisonConstants.NEQ, t1,
+                new ConstantNode(-1)))), VARIABLES);
+        assertFalse(c.evaluate(new int[]{NEVER, 0, 0}, 10));
+        assertTrue(c.evaluate(new int[]{6, 0, 0}, 10));
+    }
+
+    public void testSlots() throws TokenStreamException, RecognitionException
+    {
+        CompiledConstraint c = compile("C-Invoke(T3 < 1)");
+        assertEquals(2, c.slotOf("T3"));
+        assertEquals(-1, c.slotOf("T4"));
+        try
+        {
+            compile("C-Invoke(T4 < 1)");
+            fail("T4 has no slot");
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+    }
+
+    public void testVariableTable() throws TokenStreamException, RecognitionException
+    {
+        VariableTable table = new VariableTable(new String[]{"T1"});
+        CompiledConstraint c = CompiledConstraint.compile(compile("C-Invoke((T2 < 3) && (T1 > 1))").decompile(), table);
+        assertEquals(2, table.size());
+        assertEquals(1, table.idOf("T2"));
+        assertEquals(-1, table.idOf("T3"));
+        assertEquals("T2", table.nameOf(1));
+        assertEquals(1, c.slotOf("T2"));
+        assertTrue(c.evaluate(new int[]{2, 2}, 20));
+        assertFalse(c.evaluate(new int[]{2, 3}, 20));
+    }
+
+    public void testDecompile() throws TokenStreamException, RecognitionException
+    {
+        assertNull(CompiledConstraint.compile(null).decompile());
+        assertEquals("C-Invoke(T1 < 3)", compile("C-Invoke(T1 < 3)").decompile().toString());
+        assertEquals("M-Invoke(T1 = 3)", compile("M-Invoke(3 = T1)").decompile().toString());
+        assertEquals("C-Invoke(((T1 < 3) || (T2 > 4)) && (T3 = 1))",
+                compile("C-Invoke(((T1 < 3) || (T2 > 4)) && (T3 = 1))").decompile().toString());
+        assertEquals("C-Invoke((T1 < 3) || ((T2 > 4) && ((T3 = 1) || (T1 - T2 < 0))))",
+                compile("C-Invoke((T1 < 3) || ((T2 > 4) && ((T3 = 1) || (T1 - T2 < 0))))").decompile().toString());
+    }
+
+    public void testRemap() throws TokenStreamException, RecognitionException
+    {
+        String[] layout = {"A", "B", "C", "D"};
+        CompiledConstraint c = compile("C-Invoke((T1 < 3) && (T3 - T1 >= 2))");
+        assertEquals("C-Invoke((C < 3) && (A - C >= 2))", c.remap(new int[]{2, 1, 0}, layout).decompile().toString());
+        assertEquals("C-Invoke((B < 3) && (D - B >= 2))", c.offset(1, layout).decompile().toString());
+    }
+
+    public void testCombinations() throws TokenStreamException, RecognitionException
+    {
+        CompiledConstraint c1 = compile("C-Invoke((T1 < 3) || (T2 > 4))");
+        CompiledConstraint c2 = compile("C-Invoke((T3 = 1) && (T1 > 1))");
+        CompiledConstraint empty = CompiledConstraint.compile(null, VARIABLES);
+
+        CompiledConstraint and = c1.conjunction(c2);
+        assertEquals("C-Invoke(((T1 < 3) || (T2 > 4)) && ((T3 = 1) && (T1 > 1)))", and.decompile().toString());
+        assertTrue(and.evaluate(new int[]{2, 0, 1}, 20));
+        assertFalse(and.evaluate(new int[]{1, 5, 1}, 20));
+        assertFalse(and.evaluate(new int[]{9, 0, 1}, 20));
+
+        CompiledConstraint or = c2.disjunction(c1);
+        assertEquals("C-Invoke(((T3 = 1) && (T1 > 1)) || ((T1 < 3) || (T2 > 4)))", or.decompile().toString());
+        assertTrue(or.evaluate(new int[]{9, 5, 0}, 20));
+        assertFalse(or.evaluate(new int[]{9, 0, 0}, 20));
+
+        assertSame(c1, c1.conjunction(empty));
+        assertEquals(c1.toString(), empty.disjunction(c1).toString());
+        try
+        {
+            c1.conjunction(CompiledConstraint.compile(null));
+            fail("Layouts differ");
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
+import fr.isima.ponge.wsprotocol.Message;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.Polarity;
+import fr.isima.ponge.wsprotocol.StandardExtraProperties;
+import fr.isima.ponge.wsprotocol.State;
+import fr.isima.ponge.wsprotocol.impl.BusinessProtocolFactoryImpl;
+import fr.isima.ponge.wsprotocol.impl.OperationImpl;
+import junit.framework.TestCase;
+
+public class ConstraintDependencyIndexTest extends TestCase
+{
+    private BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl();
+
+    private BusinessProtocol protocol;
+
+    private Operation t1;
+
+    private Operation t10;
+
+    private Operation t2;
+
+    private Operation t3;
+
+    protected void setUp() throws Exception
+    {
+        protocol = factory.createBusinessProtocol("p");
+        State s0 = factory.createState("s0", false);
+        State s1 = factory.createState("s1", false);
+        State s2 = factory.createState("s2", true);
+        protocol.addState(s0);
+        protocol.addState(s1);
+        protocol.addState(s2);
+        protocol.setInitialState(s0);
+        Message a = factory.createMessage("a", Polarity.POSITIVE);
+        Message b = factory.createMessage("b", Polarity.POSITIVE);
+        t1 = factory.createOperation("T1", s0, s1, a);
+        t10 = factory.createOperation("T10", s0, s1, b);
+        t2 = factory.createOperation("T2", s1, s2, a);
+        t3 = factory.createOperation("T3", s1, s2, b);
+        t2.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "C-Invoke((T1 < 3) && (T10 > 1))");
+        t3.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "C-Invoke(T10 < 5)");
+        protocol.addOperation(t1);
+        protocol.addOperation(t10);
+        protocol.addOperation(t2);
+        protocol.addOperation(t3);
+    }
+
+    public void testIndex()
+    {
+        ConstraintDependencyIndex index = new ConstraintDependencyIndex(protocol);
+        assertTrue(index.isTracking());
+        assertEquals(1, index.getDependents("T1").size());
+        assertSame(t2, index.getDependents("T1").get(0));
+        assertEquals(2, index.getDependents("T10").size());
+        assertTrue(index.getDependents("T2").isEmpty());
+        assertEquals(2, index.getReferences(t2).size());
+        assertTrue(index.getReferences(t1).isEmpty());
+    }
+
+    public void testTracking()
+    {
+        ConstraintDependencyIndex index = new ConstraintDependencyIndex(protocol);
+
+        ((OperationImpl) t1).setName("A");
+        assertEquals("C-Invoke((A < 3) && (T10 > 1))", t2.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT));
+        assertTrue(index.getDependents("T1").isEmpty());
+        assertSame(t2, index.getDependents("A").get(0));
+
+        t3.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "C-Invoke(A < 2)");
+        assertEquals(2, index.getDependents("A").size());
+        assertEquals(1, index.getDependents("T10").size());
+
+        protocol.removeOperation(t2);
+        assertEquals(1, index.getDependents("A").size());
+        assertTrue(index.getDependents("T10").isEmpty());
+
+        Operation t4 = factory.createOperation("T4", t3.getTargetState(), t3.getTargetState(), t3.getMessage());
+        t4.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "C-Invoke(T3 = 1)");
+        protocol.addOperation(t4);
+        assertSame(t4, index.getDependents("T3").get(0));
+
+        t4.removeExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT);
+        assertTrue(index.getDependents("T3").isEmpty());
+
+        index.dispose();
+        ((OperationImpl) t1).setName("B");
+        assertEquals("C-Invoke(A < 2)", t3.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT));
+    }
+}
@@ -30,7 +30,10 @@ import fr.isima.ponge.wsprotocol.timed.constraints.parser.TemporalConstraintTree
 import junit.framework.TestCase;
 
 import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class ConstraintHelperTest extends TestCase
 {
@@ -80,10 +83,18 @@ public class ConstraintHelperTest extends TestCase
                 "C-Invoke((T1 < 2) && (T3 = 5))",
                 "C-Invoke((T1 < 2) && (T2 >= 6))"
         };
-        for (int i = 0; i < expected.length; ++i)
+        Set<String> actual = new HashSet<String>();
+        for (IConstraintNode disjunction : disjunctions)
         {
-            assertEquals(expected[i], disjunctions.get(i).toString());
+            actual.add(disjunction.toString());
         }
+        assertEquals(new HashSet<String>(Arrays.asList(expected)), actual);
+
+        // The disjunctions do not share nodes with the constraint
+        ((ComparisonNode) ((CInvokeNode) disjunctions.get(0)).getNode().getLeftChild()).setSymbol(">");
+        assertEquals("C-Invoke((T1 < 2) && (((T1 < 3) || (T2 >= 6)) || (T3 = 5)))", constraint.toString());
+        assertTrue(actual.contains(disjunctions.get(1).toString()));
+        assertTrue(actual.contains(disjunctions.get(2).toString()));
     }
 
     public void testIsValidMInvoke() throws TokenStreamException, RecognitionException
@@ -111,4 +122,24 @@ public class ConstraintHelperTest extends TestCase
         {
         }
     }
+
+    public void testParse() throws TokenStreamException, RecognitionException
+    {
+        ConstraintHelper helper = new ConstraintHelper();
+        assertEquals("C-Invoke((T1 < 3) && (T2 >= 6))", helper.parse("C-Invoke((T1< 3) && (T2 >=6))").toString());
+        try
+        {
+            helper.parse("M-Invoke((T1 = 3) || (T2 < 5))");
+            fail("M-Invoke((T1 = 3) || (T2 < 5)) is not a valid M-Invoke constraint.");
+        }
+        catch (RecognitionException e)
+        {
+        }
+
+        assertEquals("M-Invoke(T1 = 3)", helper.parseOrNull("M-Invoke(T1 = 3)").toString());
+        assertNull(helper.parseOrNull(null));
+        assertNull(helper.parseOrNull(""));
+        assertNull(helper.parseOrNull("C-Invoke(T1 <"));
+        assertNull(helper.parseOrNull("M-Invoke((T1 = 3) || (T2 < 5))"));
+    }
 }
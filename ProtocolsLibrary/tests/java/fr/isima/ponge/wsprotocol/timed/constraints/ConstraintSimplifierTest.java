@@ -0,0 +1,88 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import antlr.RecognitionException;
+import antlr.TokenStreamException;
+import junit.framework.TestCase;
+
+import static fr.isima.ponge.wsprotocol.timed.constraints.parser.ConstraintFixtures.parse;
+
+public class ConstraintSimplifierTest extends TestCase
+{
+    private String simplify(String constraint) throws TokenStreamException, RecognitionException
+    {
+        IConstraintNode result = new ConstraintSimplifier().simplify(parse(constraint));
+        return (result == null) ? null : result.toString();
+    }
+
+    public void testMergeBounds() throws TokenStreamException, RecognitionException
+    {
+        assertEquals("C-Invoke(T1 < 3)", simplify("C-Invoke((T1 < 3) && ((T1 < 5) && (T1 < 3)))"));
+        assertEquals("C-Invoke((T1 = 2) && (T2 > 4))", simplify("C-Invoke((T1 >= 2) && ((T1 <= 2) && (T2 > 4)))"));
+        assertEquals("C-Invoke(T1 < 3)", simplify("C-Invoke((3 > T1) && (T1 < 5))"));
+        assertEquals("C-Invoke(T1 - T2 <= 4)", simplify("C-Invoke((T1 - T2 < 10) && (T1 - T2 <= 4))"));
+        assertEquals("C-Invoke(T1 > 2)", simplify("C-Invoke((T1 >= 2) && (T1 != 2))"));
+        assertEquals("M-Invoke(T1 = 3)", simplify("M-Invoke((T1 = 3) && (T1 <= 5))"));
+    }
+
+    public void testFolding() throws TokenStreamException, RecognitionException
+    {
+        assertNull(simplify("C-Invoke(T1 >= 0)"));
+        assertEquals("C-Invoke(T2 < 4)", simplify("C-Invoke((T1 >= 0) && (T2 < 4))"));
+        assertEquals("C-Invoke(T2 < 4)", simplify("C-Invoke((T1 < 0) || (T2 < 4))"));
+        assertNull(simplify("C-Invoke((T1 >= 0) || (T2 < 4))"));
+
+        // The -1 sentinel cannot be parsed, it is only introduced by the tools
+        ComparisonNode neverFired = new ComparisonNode(ComparisonConstants.EQ, new VariableNode("T1"), new ConstantNode(-1));
+        ConstraintSimplifier simplifier = new ConstraintSimplifier();
+        assertEquals("C-Invoke(T1 = -1)", simplifier.simplify(new CInvokeNode(
+                new BooleanNode(BooleanConstants.AND, neverFired, (IRootConstraintNode) neverFired.deepCopy()))).toString());
+        ComparisonNode bound = new ComparisonNode(ComparisonConstants.LESS, new VariableNode("T1"), new ConstantNode(4));
+        assertEquals("C-Invoke((T1 = -1) && (T1 < 4))", simplifier.simplify(new CInvokeNode(
+                new BooleanNode(BooleanConstants.AND, neverFired, bound))).toString());
+    }
+
+    public void testDisjunctions() throws TokenStreamException, RecognitionException
+    {
+        assertEquals("C-Invoke(T1 < 5)", simplify("C-Invoke((T1 < 3) || (T1 < 5))"));
+        assertEquals("C-Invoke((T1 < 3) || (T2 = 1))", simplify("C-Invoke(((T1 < 3) || (T2 = 1)) || (T1 < 3))"));
+        assertEquals("C-Invoke((T1 < 3) && (T2 = 1))", simplify("C-Invoke((T1 < 3) && ((T1 > 5) || (T2 = 1)))"));
+        assertEquals("C-Invoke(T1 < 3)", simplify("C-Invoke((T1 < 3) && ((T1 < 4) || (T2 = 1)))"));
+        assertEquals("C-Invoke((T1 < 3) || ((T2 > 1) && (T2 < 5)))",
+                simplify("C-Invoke((T1 < 3) || (((T2 > 1) && (T1 < 2)) || ((T2 > 1) && (T2 < 5))))"));
+    }
+
+    public void testUnsatisfiable() throws TokenStreamException, RecognitionException
+    {
+        ConstraintSimplifier simplifier = new ConstraintSimplifier();
+        IConstraintNode node = parse("C-Invoke((T1 < 2) && ((T1 >= 3) && (T3 < 4)))");
+        assertTrue(simplifier.isUnsatisfiable(node));
+        assertEquals(node, simplifier.simplify(node));
+
+        assertTrue(simplifier.isUnsatisfiable(parse("C-Invoke((T1 = 2) && (T1 != 2))")));
+        assertTrue(simplifier.isUnsatisfiable(parse("C-Invoke(((T1 < 2) || (T2 < 0)) && (T1 > 4))")));
+        assertTrue(simplifier.isUnsatisfiable(parse("C-Invoke((T1 - T2 < 3) && (T1 - T2 > 3))")));
+        assertFalse(simplifier.isUnsatisfiable(parse("C-Invoke((T1 > 2) && (T1 < 3))")));
+        assertFalse(simplifier.isUnsatisfiable(parse("C-Invoke((T1 - T2 < 3) && (T1 - T2 > 2))")));
+    }
+}
@@ -0,0 +1,107 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import antlr.RecognitionException;
+import antlr.TokenStreamException;
+import junit.framework.TestCase;
+
+import static fr.isima.ponge.wsprotocol.timed.constraints.parser.ConstraintFixtures.parse;
+
+public class DifferenceBoundMatrixTest extends TestCase
+{
+    private static final String[] VARIABLES = {"T1", "T2"};
+
+    private DifferenceBoundMatrix compile(String constraint) throws TokenStreamException, RecognitionException
+    {
+        return DifferenceBoundMatrix.compile(parse(constraint), VARIABLES);
+    }
+
+    public void testBounds()
+    {
+        assertTrue(DifferenceBoundMatrix.bound(3, true) < DifferenceBoundMatrix.bound(3, false));
+        assertTrue(DifferenceBoundMatrix.bound(3, false) < DifferenceBoundMatrix.bound(4, true));
+        assertEquals(DifferenceBoundMatrix.bound(5, true),
+                DifferenceBoundMatrix.add(DifferenceBoundMatrix.bound(3, true), DifferenceBoundMatrix.bound(2, false)));
+        assertEquals(DifferenceBoundMatrix.bound(1, false),
+                DifferenceBoundMatrix.add(DifferenceBoundMatrix.bound(3, false), DifferenceBoundMatrix.bound(-2, false)));
+        assertEquals(DifferenceBoundMatrix.INFINITY,
+                DifferenceBoundMatrix.add(DifferenceBoundMatrix.INFINITY, DifferenceBoundMatrix.bound(-2, false)));
+    }
+
+    public void testEmptiness() throws TokenStreamException, RecognitionException
+    {
+        assertFalse(compile("C-Invoke((T1 < 3) && (T2 >= 5))").isEmpty());
+        assertTrue(compile("C-Invoke((T1 < 3) && (T1 > 4))").isEmpty());
+        assertTrue(compile("C-Invoke((T1 < 3) && (T1 >= 3))").isEmpty());
+        assertFalse(compile("C-Invoke((T1 <= 3) && (T1 >= 3))").isEmpty());
+        assertFalse(compile("C-Invoke((T1 - T2 > 2) && (T1 < 3))").isEmpty());
+        assertTrue(compile("C-Invoke((T1 - T2 > 2) && (T1 < 2))").isEmpty());
+        assertTrue(compile("C-Invoke(((T1 - T2 <= 1) && (T2 < 2)) && (T1 > 3))").isEmpty());
+        assertTrue(compile("M-Invoke((T1 = 4) && (T1 - T2 > 5))").isEmpty());
+    }
+
+    public void testCanonicalForm() throws TokenStreamException, RecognitionException
+    {
+        DifferenceBoundMatrix dbm = compile("C-Invoke((T1 - T2 <= 1) && (T2 < 2))");
+        dbm.canonicalize();
+        // T1 < 3 is implied
+        assertEquals(DifferenceBoundMatrix.bound(3, true), dbm.getBound(dbm.indexOf("T1"), 0));
+        assertEquals(dbm, compile("C-Invoke(((T1 - T2 <= 1) && (T2 < 2)) && (T1 < 3))"));
+        assertEquals(dbm.hashCode(), compile("C-Invoke(((T1 - T2 <= 1) && (T2 < 2)) && (T1 < 3))").hashCode());
+    }
+
+    public void testConjunctionAndInclusion() throws TokenStreamException, RecognitionException
+    {
+        DifferenceBoundMatrix lessThan3 = compile("C-Invoke(T1 < 3)");
+        DifferenceBoundMatrix lessThan2 = compile("C-Invoke(T1 < 2)");
+        DifferenceBoundMatrix greaterThan4 = compile("C-Invoke(T1 > 4)");
+
+        assertTrue(lessThan3.includes(lessThan2));
+        assertFalse(lessThan2.includes(lessThan3));
+        assertTrue(lessThan3.intersect(greaterThan4).isEmpty());
+        assertTrue(lessThan2.includes(lessThan3.intersect(greaterThan4)));
+        assertFalse(lessThan3.intersect(greaterThan4).includes(lessThan2));
+        assertEquals(lessThan2, lessThan3.intersect(lessThan2));
+        assertFalse(lessThan3.isEmpty());
+    }
+
+    public void testNonConvex() throws TokenStreamException, RecognitionException
+    {
+        try
+        {
+            compile("C-Invoke((T1 < 3) || (T1 > 4))");
+            fail("Disjunctions are not convex");
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+        try
+        {
+            compile("C-Invoke(T1 != 3)");
+            fail("Disequalities are not convex");
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import antlr.RecognitionException;
+import antlr.TokenStreamException;
+import junit.framework.TestCase;
+
+import java.util.List;
+
+import static fr.isima.ponge.wsprotocol.timed.constraints.parser.ConstraintFixtures.parse;
+
+public class DisjunctionIteratorTest extends TestCase
+{
+    public void testIteration() throws TokenStreamException, RecognitionException
+    {
+        IConstraintNode constraint = parse("M-Invoke(((T1 = 1) || (T2 = 2)) && ((T3 = 3) || ((T4 = 4) && (T5 = 5))))");
+        assertEquals(4, DisjunctionIterator.countDisjuncts(constraint));
+
+        String[] expected = {
+                "M-Invoke((T1 = 1) && (T3 = 3))",
+                "M-Invoke(((T1 = 1) && (T4 = 4)) && (T5 = 5))",
+                "M-Invoke((T2 = 2) && (T3 = 3))",
+                "M-Invoke(((T2 = 2) && (T4 = 4)) && (T5 = 5))"
+        };
+        DisjunctionIterator it = new DisjunctionIterator(constraint);
+        for (String disjunct : expected)
+        {
+            assertTrue(it.hasNext());
+            assertEquals(disjunct, it.next().toString());
+        }
+        assertFalse(it.hasNext());
+        assertEquals("M-Invoke(((T1 = 1) || (T2 = 2)) && ((T3 = 3) || ((T4 = 4) && (T5 = 5))))", constraint.toString());
+    }
+
+    public void testConjuncts() throws TokenStreamException, RecognitionException
+    {
+        IConstraintNode constraint = parse("C-Invoke((T1 < 3) && (T2 > 4))");
+        DisjunctionIterator it = new DisjunctionIterator(constraint);
+        List<IRootConstraintNode> conjuncts = it.nextConjuncts();
+        assertEquals(2, conjuncts.size());
+        assertSame(((CInvokeNode) constraint).getNode().getLeftChild(), conjuncts.get(0));
+        assertFalse(it.hasNext());
+    }
+
+    public void testLimit() throws TokenStreamException, RecognitionException
+    {
+        StringBuilder builder = new StringBuilder("C-Invoke((T0 < 1) || (T0 > 2))");
+        for (int i = 1; i < 70; ++i)
+        {
+            builder.insert(9, "(").append(" && ((T").append(i).append(" < 1) || (T").append(i).append(" > 2)))");
+        }
+        IConstraintNode constraint = parse(builder.toString());
+        assertEquals(Long.MAX_VALUE, DisjunctionIterator.countDisjuncts(constraint));
+        try
+        {
+            new DisjunctionIterator(constraint, 1000);
+            fail("The constraint has 2^70 disjuncts");
+        }
+        catch (DisjunctionLimitExceededException e)
+        {
+            assertEquals(1000, e.getLimit());
+        }
+
+        DisjunctionIterator it = new DisjunctionIterator(constraint);
+        assertTrue(it.hasNext());
+        assertEquals(70, it.nextConjuncts().size());
+    }
+}
@@ -0,0 +1,120 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import antlr.RecognitionException;
+import antlr.TokenStreamException;
+import junit.framework.TestCase;
+
+import static fr.isima.ponge.wsprotocol.timed.constraints.parser.ConstraintFixtures.parse;
+
+public class IntervalConstraintTest extends TestCase
+{
+    private IntervalConstraint intervals(String constraint) throws TokenStreamException, RecognitionException
+    {
+        return IntervalConstraint.fromNode(parse(constraint));
+    }
+
+    public void testIntervalSets()
+    {
+        IntervalSet lt3 = IntervalSet.compare(ComparisonConstants.LESS, 3);
+        IntervalSet ge1 = IntervalSet.compare(ComparisonConstants.GREATER_EQ, 1);
+        IntervalSet neq2 = IntervalSet.compare(ComparisonConstants.NEQ, 2);
+
+        assertEquals("[0, 3)", lt3.toString());
+        assertEquals("[1, 3)", lt3.intersect(ge1).toString());
+        assertEquals("[1, 2) U (2, 3)", lt3.intersect(ge1).intersect(neq2).toString());
+        assertTrue(lt3.union(ge1).isFull());
+        assertEquals("[3, +inf)", lt3.complement().toString());
+        assertEquals(neq2, IntervalSet.compare(ComparisonConstants.EQ, 2).complement());
+        assertEquals(lt3, lt3.complement().complement());
+        assertTrue(lt3.intersect(lt3.complement()).isEmpty());
+        assertTrue(IntervalSet.compare(ComparisonConstants.LESS, 0).isEmpty());
+        assertEquals("(2, +inf)", IntervalSet.compare(ComparisonConstants.GREATER, 2).toString());
+        assertEquals("[0, 2]", IntervalSet.compare(ComparisonConstants.LESS_EQ, 2).toString());
+
+        assertTrue(lt3.contains(2));
+        assertFalse(lt3.contains(3));
+        assertFalse(neq2.contains(2));
+        assertTrue(neq2.contains(7));
+    }
+
+    public void testFromNode() throws TokenStreamException, RecognitionException
+    {
+        IntervalConstraint c = intervals("C-Invoke((T1 >= 2) && (T1 < 5))");
+        assertFalse(c.isDisjunctive());
+        assertEquals("[2, 5)", c.getIntervals("T1").toString());
+
+        c = intervals("C-Invoke((T1 < 2) || (3 < T1))");
+        assertEquals("[0, 2) U (3, +inf)", c.getIntervals("T1").toString());
+
+        c = intervals("C-Invoke((T1 < 2) || (T2 > 3))");
+        assertTrue(c.isDisjunctive());
+        assertEquals(2, c.getVariables().size());
+
+        assertNull(intervals("C-Invoke(((T1 < 2) || (T2 > 3)) && (T3 = 1))"));
+        assertNull(intervals("C-Invoke(T1 - T2 < 3)"));
+        assertNull(IntervalConstraint.fromNode(new ComparisonNode(ComparisonConstants.EQ, new VariableNode("T1"),
+                new ConstantNode(-1))));
+    }
+
+    public void testEmptinessAndEquality() throws TokenStreamException, RecognitionException
+    {
+        assertTrue(intervals("C-Invoke((T1 < 3) && (T1 > 4))").isEmpty());
+        assertTrue(intervals("C-Invoke((T1 < 3) || (T1 >= 3))").isTrue());
+        assertTrue(intervals("C-Invoke((T1 < 3) && ((T2 > 4) && (T1 > 5)))").isEmpty());
+        assertEquals(intervals("C-Invoke((T1 >= 2) && (T1 < 5))"), intervals("C-Invoke((T1 < 5) && (2 <= T1))"));
+        assertEquals(intervals("C-Invoke((T1 < 2) || (T2 > 3))"), intervals("C-Invoke((T2 > 3) || (T1 < 2))"));
+        assertFalse(intervals("C-Invoke(T1 < 2)").equals(intervals("C-Invoke(T1 <= 2)")));
+    }
+
+    public void testNegation() throws TokenStreamException, RecognitionException
+    {
+        IntervalConstraint c = intervals("C-Invoke((T1 >= 3) && (T3 < 4))");
+        assertEquals("((T1 < 3) || (T3 >= 4))", c.negate().toNode().toString());
+        assertEquals(c, c.negate().negate());
+        assertNull(c.and(c.negate()));
+        IntervalConstraint d = intervals("C-Invoke((T1 >= 2) && (T1 < 5))");
+        assertTrue(d.and(d.negate()).isEmpty());
+        assertTrue(d.or(d.negate()).isTrue());
+        assertEquals(IntervalConstraint.FALSE, IntervalConstraint.TRUE.negate());
+
+        assertEquals("M-Invoke(T1 != 5)", IntervalConstraint.negation(parse("M-Invoke(T1 = 5)")).toString());
+        assertEquals("C-Invoke((T1 < 2) || (T1 >= 5))", IntervalConstraint.negation(
+                parse("C-Invoke((T1 >= 2) && (T1 < 5))")).toString());
+        assertEquals("C-Invoke(T1 - T2 >= 3)", IntervalConstraint.negation(parse("C-Invoke(T1 - T2 < 3)")).toString());
+        assertEquals("C-Invoke(T1 < 0)", IntervalConstraint.negation(parse("C-Invoke(T1 >= 0)")).toString());
+    }
+
+    public void testCombinations() throws TokenStreamException, RecognitionException
+    {
+        IntervalConstraint c1 = intervals("C-Invoke(T1 < 3)");
+        IntervalConstraint c2 = intervals("C-Invoke(T2 > 1)");
+        IntervalConstraint and = c1.and(c2);
+        assertEquals("((T1 < 3) && (T2 > 1))", and.toNode().toString());
+        assertNull(and.or(intervals("C-Invoke(T3 = 1)")));
+        assertEquals("((T1 < 3) && ((T2 > 1) && (T2 <= 6)))", and.and(intervals("C-Invoke(T2 <= 6)")).toNode()
+                .toString());
+        assertEquals("((T1 < 3) || (T2 > 1))", c1.or(c2).toNode().toString());
+        assertNull(c1.or(c2).and(intervals("C-Invoke(T2 <= 6)")));
+    }
+}
@@ -0,0 +1,67 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints;
+
+import antlr.RecognitionException;
+import antlr.TokenStreamException;
+import junit.framework.TestCase;
+
+import static fr.isima.ponge.wsprotocol.timed.constraints.parser.ConstraintFixtures.parse;
+
+public class SatisfiabilityCheckerTest extends TestCase
+{
+    public void testSingleClocks() throws TokenStreamException, RecognitionException
+    {
+        SatisfiabilityChecker checker = new SatisfiabilityChecker();
+        assertTrue(checker.isSatisfiable(null));
+        assertTrue(checker.isSatisfiable(parse("C-Invoke((T1 < 3) && (T2 > 4))")));
+        assertFalse(checker.isSatisfiable(parse("C-Invoke((T1 < 3) && (T1 > 4))")));
+        assertFalse(checker.isSatisfiable(parse("C-Invoke((T1 < 3) && ((T2 > 4) && (3 <= T1)))")));
+        assertFalse(checker.isSatisfiable(parse("C-Invoke(T1 < 0)")));
+        assertTrue(checker.isSatisfiable(parse("C-Invoke(((T1 < 3) && (T1 > 4)) || (T2 = 1))")));
+    }
+
+    public void testDiagonals() throws TokenStreamException, RecognitionException
+    {
+        SatisfiabilityChecker checker = new SatisfiabilityChecker();
+        assertTrue(checker.isSatisfiable(parse("C-Invoke((T1 - T2 > 5) && (T2 < 3))")));
+        assertFalse(checker.isSatisfiable(parse("C-Invoke((T1 - T2 > 5) && (T1 < 3))")));
+        assertFalse(checker.isSatisfiable(parse("C-Invoke((T1 - T2 < 1) && ((T2 - T3 < 1) && (T1 - T3 > 2)))")));
+        assertTrue(checker.isSatisfiable(parse("C-Invoke(((T1 < 3) && (T1 > 4)) || (T1 - T2 < 1))")));
+        assertFalse(checker.isSatisfiable(parse("C-Invoke((T1 - T2 != 0) && ((T1 - T2 <= 0) && (T1 - T2 >= 0)))")));
+        assertTrue(checker.isSatisfiable(parse("C-Invoke((T1 - T2 != 0) && (T1 - T2 <= 0))")));
+        assertFalse(checker.isSatisfiable(parse("C-Invoke((T1 != 2) && ((T1 - T2 <= 0) && ((T2 <= 2) && (T1 >= 2))))")));
+    }
+
+    public void testConservativeAnswers() throws TokenStreamException, RecognitionException
+    {
+        VariableNode t1 = new VariableNode("T1");
+        IConstraintNode neverFired = new CInvokeNode(new BooleanNode(BooleanConstants.AND, new ComparisonNode(
+                ComparisonConstants.EQ, t1, new ConstantNode(-1)), new ComparisonNode(ComparisonConstants.GREATER,
+                new VariableNode("T1"), new ConstantNode(3))));
+        assertTrue(new SatisfiabilityChecker().isSatisfiable(neverFired));
+
+        IConstraintNode unsatisfiable = parse("C-Invoke(((T1 < 3) && (T1 > 4)) || ((T1 - T2 < 1) && (T1 - T2 > 2)))");
+        assertFalse(new SatisfiabilityChecker().isSatisfiable(unsatisfiable));
+        assertTrue(new SatisfiabilityChecker(1).isSatisfiable(unsatisfiable));
+    }
+}
@@ -0,0 +1,103 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints.interned;
+
+import antlr.RecognitionException;
+import antlr.TokenStreamException;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+import junit.framework.TestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static fr.isima.ponge.wsprotocol.timed.constraints.parser.ConstraintFixtures.parse;
+
+public class InternTableTest extends TestCase
+{
+    public void testSharing() throws TokenStreamException, RecognitionException
+    {
+        InternTable table = new InternTable();
+        InternedNode n1 = table.intern(parse("C-Invoke((T1 < 3) && (T2 >= 6))"));
+        InternedNode n2 = table.intern(parse("C-Invoke((T1 < 3) && (T2 >= 6))"));
+        InternedNode n3 = table.intern(parse("C-Invoke((T1 < 3) || (T2 >= 6))"));
+
+        assertSame(n1, n2);
+        assertNotSame(n1, n3);
+
+        InternedBoolean b1 = (InternedBoolean) ((InternedFunction) n1).getExpression();
+        InternedBoolean b3 = (InternedBoolean) ((InternedFunction) n3).getExpression();
+        assertSame(b1.getLeftChild(), b3.getLeftChild());
+        assertSame(b1.getRightChild(), b3.getRightChild());
+
+        // T1, 3, T2, 6, 2 comparisons, 2 booleans, 2 functions
+        assertEquals(10, table.size());
+    }
+
+    public void testPrinting() throws TokenStreamException, RecognitionException
+    {
+        InternTable table = new InternTable();
+        String[] constraints = {
+                "C-Invoke((T1 < 2) && (((T1 < 3) || (T2 >= 6)) || (T3 = 5)))",
+                "M-Invoke((T1 = 3) && ((T2 >= 6) || (5 > T3)))",
+                "C-Invoke(T1 - T2 <= 10)"
+        };
+        for (String constraint : constraints)
+        {
+            IConstraintNode node = parse(constraint);
+            InternedNode interned = table.intern(node);
+            assertEquals(node.toString(), interned.toString());
+            assertEquals(node, interned.toConstraintNode());
+        }
+    }
+
+    public void testNegate() throws TokenStreamException, RecognitionException
+    {
+        InternTable table = new InternTable();
+        IConstraintNode node = parse("C-Invoke((T1 < 3) && ((T2 >= 6) || (T1 - T2 = 4)))");
+        InternedNode interned = table.intern(node);
+        InternedNode negated = table.negate(interned);
+
+        assertEquals(node.negate().toString(), negated.toString());
+        assertSame(interned, table.negate(negated));
+        assertEquals("C-Invoke((T1 < 3) && ((T2 >= 6) || (T1 - T2 = 4)))", interned.toString());
+    }
+
+    public void testRenameVariables() throws TokenStreamException, RecognitionException
+    {
+        InternTable table = new InternTable();
+        InternedFunction interned = (InternedFunction) table.intern(parse("C-Invoke((T1 < 3) && ((T2 >= 6) || (T1 - T3 = 4)))"));
+        Map<String, String> renames = new HashMap<String, String>();
+        renames.put("T1", "T1_");
+
+        InternedFunction renamed = (InternedFunction) table.renameVariables(interned, renames);
+        assertEquals("C-Invoke((T1_ < 3) && ((T2 >= 6) || (T1_ - T3 = 4)))", renamed.toString());
+        assertEquals("C-Invoke((T1 < 3) && ((T2 >= 6) || (T1 - T3 = 4)))", interned.toString());
+
+        InternedBoolean before = (InternedBoolean) ((InternedBoolean) interned.getExpression()).getRightChild();
+        InternedBoolean after = (InternedBoolean) ((InternedBoolean) renamed.getExpression()).getRightChild();
+        assertSame(before.getLeftChild(), after.getLeftChild());
+
+        renames.clear();
+        renames.put("T4", "T5");
+        assertSame(interned, table.renameVariables(interned, renames));
+    }
+}
@@ -0,0 +1,54 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fr.isima.ponge.wsprotocol.timed.constraints.parser;
+
+import antlr.RecognitionException;
+import antlr.TokenStreamException;
+import fr.isima.ponge.wsprotocol.timed.constraints.ConstraintHelper;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+
+/**
+ * Shared fixtures for the temporal constraint tests.
+ *
+ * @author Julien Ponge (ponge@isima.fr)
+ */
+public class ConstraintFixtures
+{
+    private static final ConstraintHelper CONSTRAINT_HELPER = new ConstraintHelper();
+
+    private ConstraintFixtures()
+    {
+    }
+
+    /**
+     * Parses a temporal constraint through the grammar entry point.
+     *
+     * @param constraint the constraint text.
+     * @return the constraint tree.
+     * @throws TokenStreamException on lexing errors.
+     * @throws RecognitionException on parsing errors.
+     */
+    public static IConstraintNode parse(String constraint) throws TokenStreamException, RecognitionException
+    {
+        return CONSTRAINT_HELPER.parse(constraint);
+    }
+}
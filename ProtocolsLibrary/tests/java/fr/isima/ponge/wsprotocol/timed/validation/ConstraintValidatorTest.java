@@ -0,0 +1,140 @@
+/* 
+ * Copyright 2005-2008 Julien Ponge <http://julien.ponge.info/>.
+ * Copyright 2005-2008 Université Blaise Pascal, LIMOS, Clermont-Ferrand, France.
+ * Copyright 2005-2008 The University of New South Wales, Sydney, Australia.
+ * 
+ * This file is part of ServiceMosaic Protocols <http://servicemosaic.isima.fr/>.
+ * 
+ * ServiceMosaic Protocols is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ServiceMosaic Protocols is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ServiceMosaic Protocols.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package fr.isima.ponge.wsprotocol.timed.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
+import fr.isima.ponge.wsprotocol.Message;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.OperationKind;
+import fr.isima.ponge.wsprotocol.Polarity;
+import fr.isima.ponge.wsprotocol.StandardExtraProperties;
+import fr.isima.ponge.wsprotocol.State;
+import fr.isima.ponge.wsprotocol.impl.BusinessProtocolFactoryImpl;
+import junit.framework.TestCase;
+
+public class ConstraintValidatorTest extends TestCase
+{
+    private BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl();
+
+    private BusinessProtocol makeProtocol(String name, String... constraints)
+    {
+        BusinessProtocol protocol = factory.createBusinessProtocol(name);
+        State s0 = factory.createState("s0", false);
+        protocol.addState(s0);
+        protocol.setInitialState(s0);
+        for (int i = 0; i < constraints.length; ++i)
+        {
+            Message m = factory.createMessage("m" + i, Polarity.POSITIVE);
+            OperationKind kind = constraints[i].startsWith("M-Invoke") ? OperationKind.IMPLICIT : OperationKind.EXPLICIT;
+            Operation op = factory.createOperation("T" + i, s0, s0, m, kind);
+            op.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, constraints[i]);
+            protocol.addOperation(op);
+        }
+        return protocol;
+    }
+
+    public void testValidProtocol()
+    {
+        BusinessProtocol p = makeProtocol("p", "", "C-Invoke(T0 < 3)", "M-Invoke((T1 = 2) || (T0 = 1))");
+        assertTrue(new ConstraintValidator().validate(p).isEmpty());
+    }
+
+    public void testDiagnostics()
+    {
+        ConstraintValidator validator = new ConstraintValidator();
+
+        List<ConstraintDiagnostic> diagnostics = validator.validate(makeProtocol("p", "C-Invoke(T0 <"));
+        assertEquals(1, diagnostics.size());
+        assertSame(DiagnosticKind.PARSE_ERROR, diagnostics.get(0).getKind());
+        assertEquals("T0", diagnostics.get(0).getOperation().getName());
+
+        diagnostics = validator.validate(makeProtocol("p", "M-Invoke((T0 = 1) || (T0 < 3))"));
+        assertEquals(1, diagnostics.size());
+        assertSame(DiagnosticKind.PARSE_ERROR, diagnostics.get(0).getKind());
+        assertEquals("((T0 = 1) || (T0 < 3)) is not a valid M-Invoke constraint.", diagnostics.get(0).getMessage());
+
+        diagnostics = validator.validate(makeProtocol("p", "C-Invoke((Foo < 1) && (T0 > 1))"));
+        assertEquals(1, diagnostics.size());
+        assertSame(DiagnosticKind.UNKNOWN_VARIABLE, diagnostics.get(0).getKind());
+        assertEquals("Unknown operation: Foo", diagnostics.get(0).getMessage());
+
+        BusinessProtocol p = makeProtocol("p", "C-Invoke(T0 < 1)");
+        Operation explicit = factory.createOperation("T1", p.getInitialState(), p.getInitialState(),
+                factory.createMessage("n", Polarity.NEGATIVE), OperationKind.EXPLICIT);
+        explicit.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "M-Invoke(T0 = 1)");
+        p.addOperation(explicit);
+        diagnostics = validator.validate(p);
+        assertEquals(1, diagnostics.size());
+        assertSame(explicit, diagnostics.get(0).getOperation());
+        assertSame(DiagnosticKind.EXPLICIT_NOT_C_INVOKE, diagnostics.get(0).getKind());
+
+        p = makeProtocol("p", "C-Invoke(T0 < 1)");
+        Operation implicit = factory.createOperation("T1", p.getInitialState(), p.getInitialState(),
+                factory.createMessage("n", Polarity.NEGATIVE), OperationKind.IMPLICIT);
+        implicit.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "C-Invoke(T0 < 1)");
+        p.addOperation(implicit);
+        diagnostics = validator.validate(p);
+        assertEquals(1, diagnostics.size());
+        assertSame(implicit, diagnostics.get(0).getOperation());
+        assertSame(DiagnosticKind.IMPLICIT_NOT_M_INVOKE, diagnostics.get(0).getKind());
+    }
+
+    public void testValidateAll()
+    {
+        List<BusinessProtocol> protocols = new ArrayList<BusinessProtocol>();
+        for (int i = 0; i < 20; ++i)
+        {
+            String[] constraints = new String[10];
+            for (int j = 0; j < constraints.length; ++j)
+            {
+                constraints[j] = (j == i % 10) ? "C-Invoke(X < 1)" : "C-Invoke(T0 < " + j + ")";
+            }
+            protocols.add(makeProtocol("p" + i, constraints));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<ConstraintDiagnostic> diagnostics = new ConstraintValidator(executor, 3).validateAll(protocols);
+            assertEquals(20, diagnostics.size());
+            for (int i = 0; i < 20; ++i)
+            {
+                assertSame(protocols.get(i), diagnostics.get(i).getProtocol());
+                assertSame(DiagnosticKind.UNKNOWN_VARIABLE, diagnostics.get(i).getKind());
+            }
+            assertFalse(executor.isShutdown());
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        assertEquals(20, new ConstraintValidator().validateAll(protocols).size());
+    }
+}
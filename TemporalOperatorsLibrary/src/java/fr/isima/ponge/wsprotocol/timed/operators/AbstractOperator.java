@@ -27,6 +27,7 @@
 package fr.isima.ponge.wsprotocol.timed.operators;
 
 import java.io.StringReader;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -38,9 +39,14 @@ import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
 import fr.isima.ponge.wsprotocol.Operation;
 import fr.isima.ponge.wsprotocol.StandardExtraProperties;
 import fr.isima.ponge.wsprotocol.State;
+import fr.isima.ponge.wsprotocol.execution.OperatorContext;
 import fr.isima.ponge.wsprotocol.timed.constraints.BooleanNode;
 import fr.isima.ponge.wsprotocol.timed.constraints.CInvokeNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.CompiledConstraint;
+import fr.isima.ponge.wsprotocol.timed.constraints.ConstraintSimplifier;
 import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.SatisfiabilityChecker;
+import fr.isima.ponge.wsprotocol.timed.constraints.VariableTable;
 import fr.isima.ponge.wsprotocol.timed.constraints.parser.TemporalConstraintLexer;
 import fr.isima.ponge.wsprotocol.timed.constraints.parser.TemporalConstraintParser;
 import fr.isima.ponge.wsprotocol.timed.constraints.parser.TemporalConstraintTreeWalker;
@@ -72,6 +78,22 @@ public abstract class AbstractOperator implements IOperator
      */
     public abstract BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2);
 
+    /**
+     * Applies the operator, the context being only checked before and after. The operators that can take
+     * long override this method to check their context as they work.
+     * @see fr.isima.ponge.wsprotocol.timed.operators.IOperator#apply(fr.isima.ponge.wsprotocol.BusinessProtocol, fr.isima.ponge.wsprotocol.BusinessProtocol, fr.isima.ponge.wsprotocol.execution.OperatorContext)
+     */
+    public BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2, OperatorContext context)
+    {
+        context.check(0, 0);
+        BusinessProtocol result = apply(p1, p2);
+        if (result != null)
+        {
+            context.progress(result.getStates().size(), result.getOperations().size());
+        }
+        return result;
+    }
+
     /**
      * Removes isolated states (i.e., not reachable from the initial state) or the normal states without outgoing operations.
      * This method is intended to perform protocols cleanups at the end of the processing job found in <code>apply()</code>.
@@ -143,6 +165,38 @@ public abstract class AbstractOperator implements IOperator
         return result;
     }
 
+    /**
+     * Removes dead operations, i.e., operations whose temporal constraint can never be satisfied, then prunes
+     * the states that they were keeping alive.
+     * @param protocol The protocol.
+     * @param deadOperations The operations to remove.
+     * @return The cleaned protocol.
+     */
+    protected BusinessProtocol removeDeadOperations(BusinessProtocol protocol, Collection deadOperations)
+    {
+        if (deadOperations.isEmpty())
+        {
+            return protocol;
+        }
+        Iterator it = deadOperations.iterator();
+        while (it.hasNext())
+        {
+            protocol.removeOperation((Operation) it.next());
+        }
+        return (protocol.getInitialState() == null) ? protocol : pruneIsolatedStates(protocol);
+    }
+
+    /**
+     * Tests wether a temporal constraint can be satisfied. The answer is conservative: only the constraints
+     * that can never hold are rejected.
+     * @param constraint The constraint node, or <code>null</code>.
+     * @return <code>false</code> if the constraint can never be satisfied.
+     */
+    protected boolean isConstraintSatisfiable(IConstraintNode constraint)
+    {
+        return new SatisfiabilityChecker().isSatisfiable(constraint);
+    }
+
     /**
      * Generate a name for merged states.
      * @param s1 The first state.
@@ -239,13 +293,85 @@ public abstract class AbstractOperator implements IOperator
                     continue;
                 }
                 walker.rewriteFromMapping(cstNode, nameMappings);
-                operation.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, cstNode
-                        .toString());
+                writeConstraint(operation, cstNode);
             }
         }
         return protocol;
     }
 
+    /**
+     * Compiles the temporal constraint of an operation. The variables get their slots from a symbol table,
+     * so that the constraints of a whole protocol share the same slots layout.
+     * @param operation The operation.
+     * @param table The symbol table, where unknown variables get interned.
+     * @return The compiled constraint, or <code>null</code> if the operation has no constraint or if it could not be parsed.
+     */
+    protected CompiledConstraint compileConstraint(Operation operation, VariableTable table)
+    {
+        String constraint = (String) operation.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT);
+        if (isConstraintEmpty(constraint))
+        {
+            return null;
+        }
+        IConstraintNode cstNode = parseConstraint(constraint);
+        return (cstNode == null) ? null : CompiledConstraint.compile(cstNode, table);
+    }
+
+    /**
+     * Computes the conjunction of two compiled constraints sharing the same slots layout. This is the
+     * counterpart of {@link #temporalConstraintsConjunction(Operation, Operation)} once the variables of
+     * each protocol have been given distinct slots.
+     * @param c1 The first constraint, or <code>null</code>.
+     * @param c2 The second constraint, or <code>null</code>.
+     * @return The conjunction, or <code>null</code> if there is no constraint. Only C-Invoke constraints can be joined.
+     */
+    protected CompiledConstraint compiledConstraintsConjunction(CompiledConstraint c1, CompiledConstraint c2)
+    {
+        if (c1 == null)
+        {
+            return c2;
+        }
+        else if (c2 == null)
+        {
+            return c1;
+        }
+        else if (c1.isCInvoke() && c2.isCInvoke())
+        {
+            return c1.conjunction(c2);
+        }
+        return null;
+    }
+
+    /**
+     * Simplifies a constraint and writes it to an operation. The constraint is removed if it always holds.
+     * @param operation The operation.
+     * @param constraint The constraint node.
+     */
+    protected void writeConstraint(Operation operation, IConstraintNode constraint)
+    {
+        String simplified = (constraint == null) ? "" : simplifyConstraint(constraint);
+        if (isConstraintEmpty(simplified))
+        {
+            operation.removeExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT);
+        }
+        else
+        {
+            operation.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, simplified);
+        }
+    }
+
+    /**
+     * Simplifies a temporal constraint before it gets written to an operation: redundant bounds are merged,
+     * trivial comparisons are folded and subsumed disjuncts are removed.
+     * @param constraint The constraint node.
+     * @return The simplified constraint in human-readable form, or an empty string if it always holds.
+     */
+    protected String simplifyConstraint(IConstraintNode constraint)
+    {
+        IConstraintNode simplified = new ConstraintSimplifier().simplify(constraint);
+        return (simplified == null) ? "" : simplified.toString();
+    }
+
     /**
      * Parse a temporal constraint and returns either its C-Invoke or M-Invoke node.
      * @param constraint The human-readable representation of the constraint.
@@ -0,0 +1,119 @@
+/* 
+ * CDDL HEADER START 
+ * 
+ * The contents of this file are subject to the terms of the 
+ * Common Development and Distribution License (the "License"). 
+ * You may not use this file except in compliance with the License. 
+ * 
+ * You can obtain a copy of the license at LICENSE.txt 
+ * or at http://www.opensource.org/licenses/cddl1.php. 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License. 
+ * 
+ * When distributing Covered Code, include this CDDL HEADER in each 
+ * file and include the License file at LICENSE.txt. 
+ * If applicable, add the following below this CDDL HEADER, with the 
+ * fields enclosed by brackets "[]" replaced with your own identifying 
+ * information: Portions Copyright [yyyy] [name of copyright owner] 
+ * 
+ * CDDL HEADER END 
+ */ 
+
+/* 
+ * Copyright 2006 Julien Ponge. All rights reserved. 
+ * Use is subject to license terms. 
+ */ 
+
+
+package fr.isima.ponge.wsprotocol.timed.operators;
+
+import java.util.List;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
+import fr.isima.ponge.wsprotocol.execution.OperatorContext;
+import fr.isima.ponge.wsprotocol.cache.ProtocolResultCache;
+
+/**
+ * Decorates an operator with a cache of its results. The results are looked up by the operator name and
+ * the fingerprints of both protocols, and they are handed out as copies.
+ * @author Julien Ponge (ponge@isima.fr)
+ * @see ProtocolResultCache
+ *
+ */
+public class CachingOperator implements IOperator
+{
+    private final IOperator operator;
+
+    private final String operatorName;
+
+    private final ProtocolResultCache cache;
+
+    /**
+     * Instantiates a new operator with its own cache.
+     * @param operator The decorated operator.
+     * @param factory The factory to create the copies of the results.
+     */
+    public CachingOperator(IOperator operator, BusinessProtocolFactory factory)
+    {
+        this(operator, new ProtocolResultCache(factory));
+    }
+
+    /**
+     * Instantiates a new operator, the operator class name being used in the cache keys.
+     * @param operator The decorated operator.
+     * @param cache The cache, which may be shared with other operators.
+     */
+    public CachingOperator(IOperator operator, ProtocolResultCache cache)
+    {
+        this(operator, operator.getClass().getName(), cache);
+    }
+
+    /**
+     * Instantiates a new operator.
+     * @param operator The decorated operator.
+     * @param operatorName The name of the operator in the cache keys. Operators of the same class that do
+     *            not compute the same results, such as pipelines, must have distinct names.
+     * @param cache The cache, which may be shared with other operators.
+     */
+    public CachingOperator(IOperator operator, String operatorName, ProtocolResultCache cache)
+    {
+        super();
+        this.operator = operator;
+        this.operatorName = operatorName;
+        this.cache = cache;
+    }
+
+    /* (non-Javadoc)
+     * @see fr.isima.ponge.wsprotocol.timed.operators.IOperator#apply(fr.isima.ponge.wsprotocol.BusinessProtocol, fr.isima.ponge.wsprotocol.BusinessProtocol)
+     */
+    public BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2)
+    {
+        return apply(p1, p2, new OperatorContext());
+    }
+
+    /**
+     * Gets a cached result, or applies the decorated operator within the execution context.
+     * @see fr.isima.ponge.wsprotocol.timed.operators.IOperator#apply(fr.isima.ponge.wsprotocol.BusinessProtocol, fr.isima.ponge.wsprotocol.BusinessProtocol, fr.isima.ponge.wsprotocol.execution.OperatorContext)
+     */
+    public BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2, OperatorContext context)
+    {
+        List key = cache.createKey(operatorName, new BusinessProtocol[] { p1, p2 });
+        BusinessProtocol result = cache.get(key);
+        if (result == null)
+        {
+            result = operator.apply(p1, p2, context);
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the cache.
+     * @return The cache.
+     */
+    public ProtocolResultCache getCache()
+    {
+        return cache;
+    }
+}
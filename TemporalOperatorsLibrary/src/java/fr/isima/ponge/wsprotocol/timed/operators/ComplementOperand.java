@@ -0,0 +1,250 @@
+/* 
+ * CDDL HEADER START 
+ * 
+ * The contents of this file are subject to the terms of the 
+ * Common Development and Distribution License (the "License"). 
+ * You may not use this file except in compliance with the License. 
+ * 
+ * You can obtain a copy of the license at LICENSE.txt 
+ * or at http://www.opensource.org/licenses/cddl1.php. 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License. 
+ * 
+ * When distributing Covered Code, include this CDDL HEADER in each 
+ * file and include the License file at LICENSE.txt. 
+ * If applicable, add the following below this CDDL HEADER, with the 
+ * fields enclosed by brackets "[]" replaced with your own identifying 
+ * information: Portions Copyright [yyyy] [name of copyright owner] 
+ * 
+ * CDDL HEADER END 
+ */ 
+
+/* 
+ * Copyright 2006 Julien Ponge. All rights reserved. 
+ * Use is subject to license terms. 
+ */ 
+
+
+package fr.isima.ponge.wsprotocol.timed.operators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
+import fr.isima.ponge.wsprotocol.Message;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.StandardExtraProperties;
+import fr.isima.ponge.wsprotocol.State;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.IntervalConstraint;
+
+/**
+ * The implicit complement of a protocol, used as the second operand of a product. It has the same states
+ * and operations as the protocol, none of the states being final, plus a final <code>mu</code> sink. The
+ * complement also leads to the sink with:
+ * <ul>
+ * <li>the negated constraint of each constrained operation,</li>
+ * <li>the messages that a state has no operation for,</li>
+ * <li>every message, once in the sink.</li>
+ * </ul>
+ * These extra operations are only created when a product looks them up, and at most once.
+ * @author Julien Ponge (ponge@isima.fr)
+ * @see DifferenceOperator#computeComplement(BusinessProtocol)
+ *
+ */
+public class ComplementOperand extends ProtocolOperand
+{
+    private final IntersectionOperator operator;
+
+    private final BusinessProtocolFactory factory;
+
+    /**
+     * The sink state.
+     */
+    private final State mu;
+
+    /**
+     * The messages of the protocol, by join key.
+     */
+    private final Map alphabet = new HashMap();
+
+    /**
+     * The operations leading to the sink with a negated constraint, by operation. A <code>null</code> value
+     * means that the negation can never hold.
+     */
+    private final Map negations = new IdentityHashMap();
+
+    /**
+     * The operations leading to the sink with a missing message, by join key, by state.
+     */
+    private final Map completions = new IdentityHashMap();
+
+    /**
+     * The sink loops, by join key.
+     */
+    private final Map sinkLoops = new HashMap();
+
+    private int negationsCounter = 0;
+
+    private int completionsCounter = 0;
+
+    /**
+     * Instantiates a new operand.
+     * @param protocol The protocol to complement.
+     * @param operator The product operator, which gives the join keys.
+     * @param factory The factory to create the extra states and operations.
+     */
+    public ComplementOperand(BusinessProtocol protocol, IntersectionOperator operator, BusinessProtocolFactory factory)
+    {
+        this(protocol, protocol.getMessages(), operator, factory);
+    }
+
+    /**
+     * Instantiates a new operand over a given alphabet, which can have more messages than the protocol.
+     * @param protocol The protocol to complement.
+     * @param messages The messages of the complement.
+     * @param operator The product operator, which gives the join keys.
+     * @param factory The factory to create the extra states and operations.
+     */
+    public ComplementOperand(BusinessProtocol protocol, Set messages, IntersectionOperator operator,
+            BusinessProtocolFactory factory)
+    {
+        super(protocol, operator);
+        this.operator = operator;
+        this.factory = factory;
+        this.mu = factory.createState("mu", true);
+        Iterator it = messages.iterator();
+        while (it.hasNext())
+        {
+            Message message = (Message) it.next();
+            alphabet.put(operator.messageKey(message.getName(), message.getPolarity()), message);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see fr.isima.ponge.wsprotocol.timed.operators.ProtocolOperand#isFinalState(fr.isima.ponge.wsprotocol.State)
+     */
+    public boolean isFinalState(State state)
+    {
+        return state == mu;
+    }
+
+    /* (non-Javadoc)
+     * @see fr.isima.ponge.wsprotocol.timed.operators.ProtocolOperand#getOperations(fr.isima.ponge.wsprotocol.State, java.lang.String)
+     */
+    public List getOperations(State state, String key)
+    {
+        Message message = (Message) alphabet.get(key);
+        if (message == null)
+        {
+            return Collections.EMPTY_LIST;
+        }
+        if (state == mu)
+        {
+            return Collections.singletonList(getSinkLoop(key, message));
+        }
+
+        List operations = super.getOperations(state, key);
+        if (operations.isEmpty())
+        {
+            return Collections.singletonList(getCompletion(state, key, message));
+        }
+        List result = null;
+        Iterator it = operations.iterator();
+        while (it.hasNext())
+        {
+            Operation negation = getNegation((Operation) it.next());
+            if (negation != null)
+            {
+                if (result == null)
+                {
+                    result = new ArrayList(operations);
+                }
+                result.add(negation);
+            }
+        }
+        return (result == null) ? operations : result;
+    }
+
+    /**
+     * Gets the sink loop for a message.
+     * @param key The message join key.
+     * @param message The message.
+     * @return The loop.
+     */
+    private synchronized Operation getSinkLoop(String key, Message message)
+    {
+        Operation loop = (Operation) sinkLoops.get(key);
+        if (loop == null)
+        {
+            loop = factory.createOperation("Tmu" + sinkLoops.size(), mu, mu, copyMessage(message));
+            sinkLoops.put(key, loop);
+        }
+        return loop;
+    }
+
+    /**
+     * Gets the operation leading from a state to the sink for a message that the state has no operation for.
+     * @param state The state.
+     * @param key The message join key.
+     * @param message The message.
+     * @return The operation.
+     */
+    private synchronized Operation getCompletion(State state, String key, Message message)
+    {
+        Map stateCompletions = (Map) completions.get(state);
+        if (stateCompletions == null)
+        {
+            stateCompletions = new HashMap();
+            completions.put(state, stateCompletions);
+        }
+        Operation completion = (Operation) stateCompletions.get(key);
+        if (completion == null)
+        {
+            completion = factory.createOperation("TComp" + completionsCounter++, state, mu, copyMessage(message));
+            stateCompletions.put(key, completion);
+        }
+        return completion;
+    }
+
+    /**
+     * Gets the operation leading to the sink with the negated constraint of an operation.
+     * @param operation The operation.
+     * @return The operation, or <code>null</code> if the operation has no constraint or if its negation can
+     *         never hold.
+     */
+    private synchronized Operation getNegation(Operation operation)
+    {
+        if (negations.containsKey(operation))
+        {
+            return (Operation) negations.get(operation);
+        }
+        Operation negation = null;
+        String constraint = (String) operation.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT);
+        if (!operator.isConstraintEmpty(constraint))
+        {
+            IConstraintNode cstNode = operator.parseConstraint(constraint);
+            IConstraintNode negated = (cstNode == null) ? null : IntervalConstraint.negation(cstNode);
+            if (negated != null && operator.isConstraintSatisfiable(negated))
+            {
+                negation = factory.createOperation("Tcomp" + negationsCounter++, operation.getSourceState(), mu,
+                        copyMessage(operation.getMessage()));
+                negation.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, negated.toString());
+            }
+        }
+        negations.put(operation, negation);
+        return negation;
+    }
+
+    private Message copyMessage(Message message)
+    {
+        return factory.createMessage(message.getName(), message.getPolarity());
+    }
+}
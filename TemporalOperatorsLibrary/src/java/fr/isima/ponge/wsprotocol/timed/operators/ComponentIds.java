@@ -0,0 +1,86 @@
+/* 
+ * CDDL HEADER START 
+ * 
+ * The contents of this file are subject to the terms of the 
+ * Common Development and Distribution License (the "License"). 
+ * You may not use this file except in compliance with the License. 
+ * 
+ * You can obtain a copy of the license at LICENSE.txt 
+ * or at http://www.opensource.org/licenses/cddl1.php. 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License. 
+ * 
+ * When distributing Covered Code, include this CDDL HEADER in each 
+ * file and include the License file at LICENSE.txt. 
+ * If applicable, add the following below this CDDL HEADER, with the 
+ * fields enclosed by brackets "[]" replaced with your own identifying 
+ * information: Portions Copyright [yyyy] [name of copyright owner] 
+ * 
+ * CDDL HEADER END 
+ */ 
+
+/* 
+ * Copyright 2006 Julien Ponge. All rights reserved. 
+ * Use is subject to license terms. 
+ */ 
+
+
+/* 
+ * Copyright 2006 Julien Ponge. All rights reserved. 
+ * Use is subject to license terms. 
+ */ 
+
+package fr.isima.ponge.wsprotocol.timed.operators;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gives dense integer identifiers to the components of product elements. The pairs of components can then
+ * be looked up by a packed key, without building the names of the product elements.
+ * @author Julien Ponge (ponge@isima.fr)
+ *
+ */
+class ComponentIds
+{
+    /**
+     * The identifiers, by component.
+     */
+    private final Map ids = new HashMap();
+
+    /**
+     * Gets the identifier of a component, assigning the next one the first time.
+     * @param component The component.
+     * @return The identifier.
+     */
+    int idOf(Object component)
+    {
+        Integer id = (Integer) ids.get(component);
+        if (id == null)
+        {
+            id = Integer.valueOf(ids.size());
+            ids.put(component, id);
+        }
+        return id.intValue();
+    }
+
+    /**
+     * Gives the number of identified components.
+     * @return The number of components.
+     */
+    int size()
+    {
+        return ids.size();
+    }
+
+    /**
+     * Packs 2 identifiers into a key.
+     * @param id1 The first identifier.
+     * @param id2 The second identifier.
+     * @return The key.
+     */
+    static Long pack(int id1, int id2)
+    {
+        return Long.valueOf(((long) id1 << 32) | (id2 & 0xFFFFFFFFL));
+    }
+}
@@ -26,6 +26,10 @@
 
 package fr.isima.ponge.wsprotocol.timed.operators;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
 import fr.isima.ponge.wsprotocol.BusinessProtocol;
 import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
 import fr.isima.ponge.wsprotocol.Message;
@@ -40,6 +44,11 @@ import fr.isima.ponge.wsprotocol.Polarity;
 public class CompositionOperator extends IntersectionOperator
 {
 
+    /**
+     * The polarities that an operation can be matched against.
+     */
+    private static final Polarity[] POLARITIES = { Polarity.POSITIVE, Polarity.NEGATIVE, Polarity.NULL };
+
     /**
      * Instantiates a new operator.
      * @param factory The factory to create protocol elements.
@@ -49,6 +58,18 @@ public class CompositionOperator extends IntersectionOperator
         super(factory);
     }
 
+    /**
+     * Instantiates a new operator that builds the products in parallel.
+     * @param factory The factory to create protocol elements.
+     * @param executor The executor running the expansions, it is not shut down by the operator.
+     * @param parallelism The number of threads of the executor.
+     * @see IntersectionOperator#IntersectionOperator(BusinessProtocolFactory, ExecutorService, int)
+     */
+    public CompositionOperator(BusinessProtocolFactory factory, ExecutorService executor, int parallelism)
+    {
+        super(factory, executor, parallelism);
+    }
+
     /* (non-Javadoc)
      * @see fr.isima.ponge.wsprotocol.timed.operators.IntersectionOperator#createMessage(java.lang.String, fr.isima.ponge.wsprotocol.Polarity)
      */
@@ -66,12 +87,21 @@ public class CompositionOperator extends IntersectionOperator
     }
 
     /* (non-Javadoc)
-     * @see fr.isima.ponge.wsprotocol.timed.operators.IntersectionOperator#match(fr.isima.ponge.wsprotocol.Operation, fr.isima.ponge.wsprotocol.Operation)
+     * @see fr.isima.ponge.wsprotocol.timed.operators.IntersectionOperator#probeKeys(fr.isima.ponge.wsprotocol.Operation)
      */
-    protected boolean match(Operation op1, Operation op2)
+    protected String[] probeKeys(Operation op1)
     {
-        return op1.getMessage().getName().equals(op2.getMessage().getName())
-                && (!op1.getMessage().getPolarity().equals(op2.getMessage().getPolarity()));
+        String name = op1.getMessage().getName();
+        Polarity polarity = op1.getMessage().getPolarity();
+        List keys = new ArrayList(POLARITIES.length);
+        for (int i = 0; i < POLARITIES.length; ++i)
+        {
+            if (!POLARITIES[i].equals(polarity))
+            {
+                keys.add(messageKey(name, POLARITIES[i]));
+            }
+        }
+        return (String[]) keys.toArray(new String[keys.size()]);
     }
 
 }
@@ -32,6 +32,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import fr.isima.ponge.wsprotocol.BusinessProtocol;
 import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
@@ -39,24 +40,50 @@ import fr.isima.ponge.wsprotocol.Message;
 import fr.isima.ponge.wsprotocol.Operation;
 import fr.isima.ponge.wsprotocol.StandardExtraProperties;
 import fr.isima.ponge.wsprotocol.State;
-import fr.isima.ponge.wsprotocol.impl.BusinessProtocolImpl;
+import fr.isima.ponge.wsprotocol.automata.ProtocolDeterminizer;
+import fr.isima.ponge.wsprotocol.execution.OperatorContext;
 import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.IntervalConstraint;
 
 /**
- * The timed difference operator.
+ * The timed difference operator. The complement is only exact for deterministic protocols, so the protocols
+ * without temporal constraints are determinized before being complemented.
  * @author Julien Ponge (ponge@isima.fr)
  *
  */
 public class DifferenceOperator extends AbstractOperator
 {
+    /**
+     * The executor for building the product in parallel, <code>null</code> for a sequential construction.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The number of threads of the executor.
+     */
+    private final int parallelism;
+
     /**
      * Instantiates a new operator.
      * @param factory The factory to create protocol elements.
      */
     public DifferenceOperator(BusinessProtocolFactory factory)
     {
-        super(factory);
+        this(factory, null, 1);
+    }
 
+    /**
+     * Instantiates a new operator that builds the product against the complemented protocol in parallel.
+     * @param factory The factory to create protocol elements.
+     * @param executor The executor running the expansions, it is not shut down by the operator.
+     * @param parallelism The number of threads of the executor.
+     * @see IntersectionOperator#IntersectionOperator(BusinessProtocolFactory, ExecutorService, int)
+     */
+    public DifferenceOperator(BusinessProtocolFactory factory, ExecutorService executor, int parallelism)
+    {
+        super(factory);
+        this.executor = executor;
+        this.parallelism = parallelism;
     }
 
     /* (non-Javadoc)
@@ -64,20 +91,35 @@ public class DifferenceOperator extends AbstractOperator
      */
     public BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2)
     {
-        IntersectionOperator interOp = new IntersectionOperator(factory);
-        BusinessProtocol p2Compl = computeComplement(p2);
-        BusinessProtocol diff = interOp.apply(p1, p2Compl);
-        if (diff instanceof BusinessProtocolImpl)
-        {
-            BusinessProtocolImpl protocol = (BusinessProtocolImpl) diff;
-            protocol.setName(p1 + " ||td " + p2);            
-        }
-        
-        return diff;
+        return apply(p1, p2, new OperatorContext());
+    }
+
+    /* (non-Javadoc)
+     * @see fr.isima.ponge.wsprotocol.timed.operators.AbstractOperator#apply(fr.isima.ponge.wsprotocol.BusinessProtocol, fr.isima.ponge.wsprotocol.BusinessProtocol, fr.isima.ponge.wsprotocol.execution.OperatorContext)
+     */
+    public BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2, OperatorContext context)
+    {
+        // The complement of p2 is never materialized: the product only looks up the operations leaving the
+        // states it reaches
+        IntersectionOperator interOp = new IntersectionOperator(factory, executor, parallelism);
+        ComplementOperand complement = new ComplementOperand(determinized(p2), p2.getMessages(), interOp, factory);
+        return interOp.apply(p1, complement, p1 + " ||td " + p2, context);
+    }
+
+    /**
+     * Determinizes a protocol if it has no temporal constraint.
+     * @param p The protocol.
+     * @return The deterministic protocol, or <code>p</code> if it has temporal constraints.
+     */
+    protected BusinessProtocol determinized(BusinessProtocol p)
+    {
+        ProtocolDeterminizer determinizer = new ProtocolDeterminizer(factory);
+        return determinizer.canDeterminize(p) ? determinizer.determinize(p) : p;
     }
 
     /**
-     * Compute the complement of a protocol.
+     * Compute the complement of a protocol. The difference works on the implicit form given by
+     * {@link ComplementOperand}, this is its materialized counterpart.
      * @param p The protocol .
      * @return The completement of <code>p</code>
      */
@@ -85,10 +127,11 @@ public class DifferenceOperator extends AbstractOperator
     {
         int opCounter = 0;
         BusinessProtocol pc = factory.createBusinessProtocol("^" + p.getName());
+        BusinessProtocol d = determinized(p);
 
         // Copy the protocol and turn final states into normal states
         Map statesMapping = new HashMap();
-        Iterator iter = p.getStates().iterator();
+        Iterator iter = d.getStates().iterator();
         while (iter.hasNext())
         {
             State s = (State) iter.next();
@@ -100,7 +143,7 @@ public class DifferenceOperator extends AbstractOperator
             }
             statesMapping.put(s, sc);
         }
-        iter = p.getOperations().iterator();
+        iter = d.getOperations().iterator();
         while (iter.hasNext())
         {
             Operation op = (Operation) iter.next();
@@ -119,7 +162,7 @@ public class DifferenceOperator extends AbstractOperator
         // Create mu
         State mu = factory.createState("mu", true);
         pc.addState(mu);
-        iter = pc.getMessages().iterator();
+        iter = p.getMessages().iterator();
         while (iter.hasNext())
         {
             Message msg = (Message) iter.next();
@@ -154,9 +197,14 @@ public class DifferenceOperator extends AbstractOperator
                     {
                         continue;
                     }
+                    IConstraintNode negation = IntervalConstraint.negation(cstNode);
+                    if (!isConstraintSatisfiable(negation))
+                    {
+                        continue;
+                    }
                     Message m = factory.createMessage(op.getMessage().getName(), op.getMessage().getPolarity());
                     Operation o = factory.createOperation("Tcomp" + opCounter++, s, mu, m);
-                    o.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, cstNode.negate().toString());
+                    o.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, negation.toString());
                     pc.addOperation(o);
                 }
             }
@@ -27,6 +27,7 @@
 package fr.isima.ponge.wsprotocol.timed.operators;
 
 import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.execution.OperatorContext;
 
 /**
  * Interface of a timed operator.
@@ -42,4 +43,15 @@ public interface IOperator
      * @return The resulting protocol.
      */
     public BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2);
+
+    /**
+     * Applies the operator on 2 protocols within an execution context, and returns the result.
+     * @param p1 The first protocol.
+     * @param p2 The second protocol.
+     * @param context The execution context, which can stop the operator.
+     * @return The resulting protocol.
+     * @throws fr.isima.ponge.wsprotocol.execution.OperatorLimitExceededException If the context stops the
+     *             operator.
+     */
+    public BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2, OperatorContext context);
 }
@@ -26,10 +26,18 @@
 
 package fr.isima.ponge.wsprotocol.timed.operators;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import fr.isima.ponge.wsprotocol.BusinessProtocol;
 import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
@@ -38,6 +46,10 @@ import fr.isima.ponge.wsprotocol.Operation;
 import fr.isima.ponge.wsprotocol.Polarity;
 import fr.isima.ponge.wsprotocol.StandardExtraProperties;
 import fr.isima.ponge.wsprotocol.State;
+import fr.isima.ponge.wsprotocol.execution.OperatorContext;
+import fr.isima.ponge.wsprotocol.timed.constraints.CompiledConstraint;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.VariableTable;
 
 /**
  * The timed intersection operator.
@@ -46,14 +58,48 @@ import fr.isima.ponge.wsprotocol.State;
  */
 public class IntersectionOperator extends AbstractOperator
 {
+    /**
+     * The number of frontier chunks given to each thread in the parallel mode, to balance the load.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * The executor for the parallel mode, <code>null</code> for a sequential construction.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The number of threads of the executor.
+     */
+    private final int parallelism;
 
     /**
      * Instantiates a new operator.
      * @param factory The factory to create the protocol elements.
      */
     public IntersectionOperator(BusinessProtocolFactory factory)
+    {
+        this(factory, null, 1);
+    }
+
+    /**
+     * Instantiates a new operator that builds the products in parallel. The pairs of states that are
+     * reached at the same depth get expanded concurrently, while the product elements are created by the
+     * calling thread. The result is the same as with a sequential construction. The template methods
+     * involved in the matching of operations get called concurrently.
+     * @param factory The factory to create the protocol elements.
+     * @param executor The executor running the expansions, it is not shut down by the operator.
+     * @param parallelism The number of threads of the executor.
+     */
+    public IntersectionOperator(BusinessProtocolFactory factory, ExecutorService executor, int parallelism)
     {
         super(factory);
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("The parallelism must be positive: " + parallelism);
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
     }
 
     /* (non-Javadoc)
@@ -61,70 +107,505 @@ public class IntersectionOperator extends AbstractOperator
      */
     public BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2)
     {
+        return apply(p1, p2, new OperatorContext());
+    }
+
+    /**
+     * Applies the operator, the context being checked as the product gets explored. The progress is
+     * reported after each exploration level.
+     * @see fr.isima.ponge.wsprotocol.timed.operators.AbstractOperator#apply(fr.isima.ponge.wsprotocol.BusinessProtocol, fr.isima.ponge.wsprotocol.BusinessProtocol, fr.isima.ponge.wsprotocol.execution.OperatorContext)
+     */
+    public BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2, OperatorContext context)
+    {
+        return apply(p1, new ProtocolOperand(p2, this), generateProtocolName(p1, p2), context);
+    }
+
+    /**
+     * Applies the operator to a protocol and an operand that may not be materialized. Only the operations
+     * of the operand that leave the reached states get looked up. The constraints of the operations that
+     * the operand creates on demand are compiled when they are first met, their variables must be names
+     * of operations known up front.
+     * @param p1 The first protocol.
+     * @param p2 The second operand.
+     * @param name The name of the resulting protocol.
+     * @return The resulting protocol.
+     */
+    public BusinessProtocol apply(BusinessProtocol p1, ProductOperand p2, String name)
+    {
+        return apply(p1, p2, name, new OperatorContext());
+    }
+
+    /**
+     * Applies the operator to a protocol and an operand within an execution context.
+     * @param p1 The first protocol.
+     * @param p2 The second operand.
+     * @param name The name of the resulting protocol.
+     * @param operatorContext The execution context, which can stop the operator.
+     * @return The resulting protocol.
+     * @see #apply(BusinessProtocol, ProductOperand, String)
+     */
+    public BusinessProtocol apply(BusinessProtocol p1, ProductOperand p2, String name, OperatorContext operatorContext)
+    {
+        operatorContext.check(0, 0);
         // Result protocol
-        BusinessProtocol result = factory.createBusinessProtocol(generateProtocolName(p1, p2));
+        BusinessProtocol result = factory.createBusinessProtocol(name);
+
+        // Compile the constraints once: the variables of p2 are placed after those of p1
+        List operations1 = new ArrayList(p1.getOperations());
+        List operations2 = new ArrayList(p2.getOperations());
+        VariableTable table1 = new VariableTable();
+        VariableTable table2 = new VariableTable();
+        Map constraints1 = compileConstraints(operations1, table1);
+        Map constraints2 = compileConstraints(operations2, table2);
+        int offset = table1.size();
+        String[] layout = new String[offset + table2.size()];
+        for (int i = 0; i < table1.size(); ++i)
+        {
+            layout[i] = table1.nameOf(i) + "_";
+        }
+        for (int i = 0; i < table2.size(); ++i)
+        {
+            layout[offset + i] = "_" + table2.nameOf(i);
+        }
+        moveConstraints(constraints1, 0, layout);
+        moveConstraints(constraints2, offset, layout);
+        ProductContext context = new ProductContext(p2, constraints1, constraints2, table2, offset, layout,
+                operatorContext);
 
-        // First we need the product of the states
-        Set states1 = p1.getStates();
-        Set states2 = p2.getStates();
+        // Transitions mappings, from the slots of the layout to the resulting operations. These are identified
+        // by the pair of their operations names ids, their names are only built once the product is pruned.
+        ComponentIds lateIds = new ComponentIds();
+        Map operationIds = new HashMap();
+        List productOperations = new ArrayList();
+        int[] slotsMapping = new int[layout.length];
+        Arrays.fill(slotsMapping, -1);
+
+        // Explore the product from the pair of initial states. Only a graph of the reachable pairs of states
+        // is kept, the product elements are created once it has been pruned.
+        State initial1 = p1.getInitialState();
+        State initial2 = p2.getInitialState();
+        if (initial1 == null || initial2 == null)
+        {
+            return result;
+        }
+        ComponentIds states1 = new ComponentIds();
+        ComponentIds states2 = new ComponentIds();
         Map mapping = new HashMap();
-        Iterator sit1 = states1.iterator();
-        while (sit1.hasNext())
+        List nodes = new ArrayList();
+        List frontier = new ArrayList();
+        int operationsCount = 0;
+        ProductNode initialNode = getProductNode(mapping, nodes, frontier, states1.idOf(initial1), states2
+                .idOf(initial2), initial1, initial2, p2);
+        while (!frontier.isEmpty())
+        {
+            // The matching operations of a whole level are computed first, possibly in parallel, then
+            // they get linked in the exploration order
+            List expansions = expandFrontier(frontier, context);
+            List nextFrontier = new ArrayList();
+            for (int i = 0; i < expansions.size(); ++i)
+            {
+                ProductNode source = (ProductNode) frontier.get(i);
+                Iterator eit = ((List) expansions.get(i)).iterator();
+                while (eit.hasNext())
+                {
+                    ProductEdge edge = (ProductEdge) eit.next();
+                    Operation op1 = edge.op1;
+                    Operation op2 = edge.op2;
+                    int id1 = table1.idOf(op1.getName());
+                    int id2 = table2.idOf(op2.getName());
+                    Long key = ComponentIds.pack(id1, (id2 != -1) ? id2 : layout.length
+                            + lateIds.idOf(op2.getName()));
+                    Integer id = (Integer) operationIds.get(key);
+                    if (id == null)
+                    {
+                        id = Integer.valueOf(productOperations.size());
+                        operationIds.put(key, id);
+                        productOperations.add(edge);
+                    }
+                    edge.operationId = id.intValue();
+                    slotsMapping[id1] = edge.operationId;
+                    if (id2 != -1)
+                    {
+                        slotsMapping[offset + id2] = edge.operationId;
+                    }
+                    if (edge.dead)
+                    {
+                        continue;
+                    }
+
+                    edge.source = source;
+                    State target1 = op1.getTargetState();
+                    State target2 = op2.getTargetState();
+                    edge.target = getProductNode(mapping, nodes, nextFrontier, states1.idOf(target1), states2
+                            .idOf(target2), target1, target2, p2);
+                    source.edges.add(edge);
+                    edge.target.incoming.add(edge);
+                    ++operationsCount;
+                }
+                operatorContext.check(nodes.size(), operationsCount);
+            }
+            frontier = nextFrontier;
+            operatorContext.progress(nodes.size(), operationsCount);
+        }
+
+        // Prune the pairs of states that lead nowhere
+        LinkedList toPrune = new LinkedList();
+        Iterator it = nodes.iterator();
+        while (it.hasNext())
+        {
+            ProductNode node = (ProductNode) it.next();
+            node.liveEdges = node.edges.size();
+            if (node.liveEdges == 0 && !node.finalState)
+            {
+                node.pruned = true;
+                toPrune.add(node);
+            }
+        }
+        pruneNodes(toPrune);
+
+        // Final constraints, the variables that were not mapped keep their temporary names. Merging the
+        // variables of both protocols may still turn some constraints into dead ones, whose operations get
+        // pruned as well.
+        List finalNames = new ArrayList(productOperations.size());
+        it = productOperations.iterator();
+        while (it.hasNext())
+        {
+            ProductEdge edge = (ProductEdge) it.next();
+            finalNames.add(generateMergerOperationName(edge.op1, edge.op2));
+        }
+        for (int i = 0; i < slotsMapping.length; ++i)
+        {
+            if (slotsMapping[i] == -1)
+            {
+                slotsMapping[i] = finalNames.size();
+                finalNames.add(layout[i]);
+            }
+        }
+        String[] finalLayout = (String[]) finalNames.toArray(new String[finalNames.size()]);
+        it = nodes.iterator();
+        while (it.hasNext())
         {
-            State s1 = (State) sit1.next();
-            Iterator sit2 = states2.iterator();
-            while (sit2.hasNext())
+            ProductNode node = (ProductNode) it.next();
+            Iterator eit = node.edges.iterator();
+            while (eit.hasNext())
             {
-                State s2 = (State) sit2.next();
-                State merger = factory.createState(generateMergerStateName(s1, s2), s1
-                        .isFinalState()
-                        && s2.isFinalState());
-                merger.setInitialState(s1.isInitialState() && s2.isInitialState());
-                result.addState(merger);
-                mapping.put(generateMergerStateName(s1, s2), merger);
-                if (merger.isInitialState())
+                ProductEdge edge = (ProductEdge) eit.next();
+                if (edge.removed || edge.conjunction == null)
+                {
+                    continue;
+                }
+                edge.finalConstraint = edge.conjunction.remap(slotsMapping, finalLayout).decompile();
+                if (!isConstraintSatisfiable(edge.finalConstraint))
                 {
-                    result.setInitialState(merger);
+                    removeEdge(edge, toPrune);
                 }
             }
         }
+        pruneNodes(toPrune);
+
+        // Create what remains reachable, an initial state without operations means an empty protocol
+        if (initialNode.liveEdges == 0)
+        {
+            return result;
+        }
+        materialize(result, initialNode, finalLayout);
+        return result;
+    }
+
+    /**
+     * Gets the node of a pair of states, creating it and scheduling its exploration the first time.
+     * @param mapping The nodes, by packed pair of states ids.
+     * @param nodes The nodes, in creation order.
+     * @param toVisit The exploration frontier.
+     * @param id1 The id of the state of the first protocol.
+     * @param id2 The id of the state of the second operand.
+     * @param s1 The state of the first protocol.
+     * @param s2 The state of the second operand.
+     * @param operand The second operand, which tells wether its states are final.
+     * @return The node.
+     */
+    private ProductNode getProductNode(Map mapping, List nodes, List toVisit, int id1, int id2, State s1,
+            State s2, ProductOperand operand)
+    {
+        Long key = ComponentIds.pack(id1, id2);
+        ProductNode node = (ProductNode) mapping.get(key);
+        if (node == null)
+        {
+            node = new ProductNode(s1, s2, s1.isFinalState() && operand.isFinalState(s2));
+            mapping.put(key, node);
+            nodes.add(node);
+            toVisit.add(node);
+        }
+        return node;
+    }
+
+    /**
+     * Prunes the nodes of the product graph that are not final and have no operation left. Their incoming
+     * operations get removed, which may in turn leave other nodes without operations.
+     * @param toPrune The nodes to prune.
+     */
+    private void pruneNodes(LinkedList toPrune)
+    {
+        while (!toPrune.isEmpty())
+        {
+            ProductNode node = (ProductNode) toPrune.removeFirst();
+            Iterator it = node.incoming.iterator();
+            while (it.hasNext())
+            {
+                removeEdge((ProductEdge) it.next(), toPrune);
+            }
+        }
+    }
+
+    /**
+     * Removes an operation from the product graph.
+     * @param edge The operation.
+     * @param toPrune The nodes to prune, where the source node goes if it has no operation left.
+     */
+    private void removeEdge(ProductEdge edge, LinkedList toPrune)
+    {
+        if (edge.removed)
+        {
+            return;
+        }
+        edge.removed = true;
+        ProductNode source = edge.source;
+        source.liveEdges = source.liveEdges - 1;
+        if (source.liveEdges == 0 && !source.finalState && !source.pruned)
+        {
+            source.pruned = true;
+            toPrune.add(source);
+        }
+    }
+
+    /**
+     * Creates the states and operations of the product graph that remain reachable from the initial node.
+     * This is where the names of the product states get built.
+     * @param result The product protocol.
+     * @param initialNode The initial node.
+     * @param finalLayout The names of the product operations, by id.
+     */
+    private void materialize(BusinessProtocol result, ProductNode initialNode, String[] finalLayout)
+    {
+        LinkedList toVisit = new LinkedList();
+        initialNode.state = factory.createState(generateMergerStateName(initialNode.s1, initialNode.s2),
+                initialNode.finalState);
+        initialNode.state.setInitialState(true);
+        result.addState(initialNode.state);
+        result.setInitialState(initialNode.state);
+        toVisit.add(initialNode);
+        while (!toVisit.isEmpty())
+        {
+            ProductNode node = (ProductNode) toVisit.removeFirst();
+            Iterator it = node.edges.iterator();
+            while (it.hasNext())
+            {
+                ProductEdge edge = (ProductEdge) it.next();
+                if (edge.removed)
+                {
+                    continue;
+                }
+                ProductNode target = edge.target;
+                if (target.state == null)
+                {
+                    target.state = factory.createState(generateMergerStateName(target.s1, target.s2),
+                            target.finalState);
+                    result.addState(target.state);
+                    toVisit.add(target);
+                }
+                Message message = createMessage(edge.op1.getMessage().getName(), edge.op1.getMessage()
+                        .getPolarity());
+                Operation operation = factory.createOperation(finalLayout[edge.operationId], node.state, target.state, message);
+                if (edge.conjunction == null)
+                {
+                    operation.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "");
+                }
+                else
+                {
+                    writeConstraint(operation, edge.finalConstraint);
+                }
+                result.addOperation(operation);
+            }
+        }
+    }
+
+    /**
+     * Computes the matching operations of every pair of states in an exploration frontier. When an executor
+     * is available, the frontier is split into chunks that are expanded concurrently, each one into its own
+     * buffer.
+     * @param frontier The nodes to expand.
+     * @param context The product being built.
+     * @return The lists of product edges, in the frontier order.
+     */
+    private List expandFrontier(List frontier, ProductContext context)
+    {
+        int chunks = (executor == null) ? 1 : Math.min(frontier.size(), parallelism * CHUNKS_PER_THREAD);
+        if (chunks <= 1)
+        {
+            return expandChunk(frontier, context);
+        }
+
+        List tasks = new ArrayList(chunks);
+        int chunkSize = (frontier.size() + chunks - 1) / chunks;
+        for (int start = 0; start < frontier.size(); start += chunkSize)
+        {
+            tasks.add(new ExpansionTask(frontier.subList(start, Math.min(start + chunkSize, frontier.size())),
+                    context));
+        }
+        List expansions = new ArrayList(frontier.size());
+        try
+        {
+            Iterator it = executor.invokeAll(tasks).iterator();
+            while (it.hasNext())
+            {
+                expansions.addAll((List) ((Future) it.next()).get());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The product construction has been interrupted.");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause.getMessage());
+        }
+        return expansions;
+    }
 
-        // Transitions names mappings
-        Map tnameMap = new HashMap();
+    /**
+     * Computes the matching operations of some nodes. This method only modifies the shared state of the
+     * product under a lock. The execution context is checked before each node.
+     * @param chunk The nodes.
+     * @param context The product being built.
+     * @return The lists of product edges, one for each node.
+     */
+    private List expandChunk(List chunk, ProductContext context)
+    {
+        List expansions = new ArrayList(chunk.size());
+        Iterator it = chunk.iterator();
+        while (it.hasNext())
+        {
+            context.operatorContext.checkAlive();
+            expansions.add(expandNode((ProductNode) it.next(), context));
+        }
+        return expansions;
+    }
 
-        // Compute the matching operations
-        Set operations1 = p1.getOperations();
-        Set operations2 = p2.getOperations();
-        Iterator oit1 = operations1.iterator();
+    /**
+     * Computes the matching operations of a node.
+     * @param node The node.
+     * @param context The product being built.
+     * @return The product edges.
+     */
+    private List expandNode(ProductNode node, ProductContext context)
+    {
+        List edges = new ArrayList();
+        Iterator oit1 = node.s1.getOutgoingOperations().iterator();
         while (oit1.hasNext())
         {
             Operation op1 = (Operation) oit1.next();
-            Iterator oit2 = operations2.iterator();
-            while (oit2.hasNext())
+            String[] keys = probeKeys(op1);
+            for (int k = 0; k < keys.length; ++k)
             {
-                Operation op2 = (Operation) oit2.next();
-                if (match(op1, op2))
+                List matches = context.operand.getOperations(node.s2, keys[k]);
+                Iterator oit2 = matches.iterator();
+                while (oit2.hasNext())
                 {
-                    State merger1 = (State) mapping.get(generateMergerStateName(op1
-                            .getSourceState(), op2.getSourceState()));
-                    State merger2 = (State) mapping.get(generateMergerStateName(op1
-                            .getTargetState(), op2.getTargetState()));
-                    Message message = createMessage(op1.getMessage().getName(), op1.getMessage()
-                            .getPolarity());
-
-                    String name = generateMergerOperationName(op1, op2);
-                    tnameMap.put(op1.getName() + "_", name);
-                    tnameMap.put("_" + op2.getName(), name);
-
-                    Operation operation = factory.createOperation(name, merger1, merger2, message);
-                    operation.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT,
-                            temporalConstraintsConjunction(op1, op2));
-                    result.addOperation(operation);
+                    Operation op2 = (Operation) oit2.next();
+                    ProductEdge edge = new ProductEdge();
+                    edge.op1 = op1;
+                    edge.op2 = op2;
+                    edge.conjunction = compiledConstraintsConjunction((CompiledConstraint) context.constraints1
+                            .get(op1), getSecondConstraint(context, op2));
+                    edge.dead = (edge.conjunction != null) && !isConstraintSatisfiable(edge.conjunction.decompile());
+                    edges.add(edge);
                 }
             }
         }
+        return edges;
+    }
 
-        return rewriteFinalConstraints(pruneIsolatedStates(result), tnameMap);
+    /**
+     * Gets the compiled constraint of an operation from the second operand. The operations that were not
+     * known up front get their constraint compiled on the first lookup.
+     * @param context The product being built.
+     * @param op2 The operation from the second operand.
+     * @return The compiled constraint in the product slots layout, or <code>null</code>.
+     */
+    private CompiledConstraint getSecondConstraint(ProductContext context, Operation op2)
+    {
+        if (context.constraints2.containsKey(op2))
+        {
+            return (CompiledConstraint) context.constraints2.get(op2);
+        }
+        synchronized (context.lateConstraints)
+        {
+            if (context.lateConstraints.containsKey(op2))
+            {
+                return (CompiledConstraint) context.lateConstraints.get(op2);
+            }
+            CompiledConstraint constraint = compileConstraint(op2, context.table2);
+            if (constraint != null)
+            {
+                constraint = constraint.offset(context.offset, context.layout);
+            }
+            context.lateConstraints.put(op2, constraint);
+            return constraint;
+        }
+    }
+
+    /**
+     * Compiles the constraints of some operations. The operations names are interned first, so that
+     * they get the same slots in every constraint.
+     * @param operations The operations.
+     * @param table The symbol table.
+     * @return The compiled constraints by operation, <code>null</code> for the operations without a
+     *         constraint.
+     */
+    private Map compileConstraints(List operations, VariableTable table)
+    {
+        Iterator it = operations.iterator();
+        while (it.hasNext())
+        {
+            table.intern(((Operation) it.next()).getName());
+        }
+        Map constraints = new IdentityHashMap();
+        it = operations.iterator();
+        while (it.hasNext())
+        {
+            Operation operation = (Operation) it.next();
+            constraints.put(operation, compileConstraint(operation, table));
+        }
+        return constraints;
+    }
+
+    /**
+     * Moves some compiled constraints to the slots layout of a product.
+     * @param constraints The compiled constraints, by operation.
+     * @param offset The first slot of the constraints variables in the layout.
+     * @param layout The product slots layout.
+     */
+    private void moveConstraints(Map constraints, int offset, String[] layout)
+    {
+        Iterator it = constraints.entrySet().iterator();
+        while (it.hasNext())
+        {
+            Map.Entry entry = (Map.Entry) it.next();
+            if (entry.getValue() != null)
+            {
+                entry.setValue(((CompiledConstraint) entry.getValue()).offset(offset, layout));
+            }
+        }
     }
 
     /**
@@ -139,15 +620,35 @@ public class IntersectionOperator extends AbstractOperator
     }
 
     /**
-     * Template method for operations matching.
-     * @param op1 The first operation.
-     * @param op2 The second operation.
-     * @return Wether the 2 operations match according to this operator semantics or not.
+     * Template method giving the join key of an operation from the second protocol. Two operations match
+     * when the join key of the second one is among the probe keys of the first one.
+     * @param op2 The operation from the second protocol.
+     * @return The join key.
+     */
+    protected String joinKey(Operation op2)
+    {
+        return messageKey(op2.getMessage().getName(), op2.getMessage().getPolarity());
+    }
+
+    /**
+     * Template method giving the keys to look up for matching an operation from the first protocol.
+     * @param op1 The operation from the first protocol.
+     * @return The probe keys, they must be distinct.
+     */
+    protected String[] probeKeys(Operation op1)
+    {
+        return new String[] { messageKey(op1.getMessage().getName(), op1.getMessage().getPolarity()) };
+    }
+
+    /**
+     * Builds a join key out of a message name and polarity.
+     * @param name The message name.
+     * @param polarity The message polarity.
+     * @return The key.
      */
-    protected boolean match(Operation op1, Operation op2)
+    protected String messageKey(String name, Polarity polarity)
     {
-        return op1.getMessage().getName().equals(op2.getMessage().getName())
-                && op1.getMessage().getPolarity().equals(op2.getMessage().getPolarity());
+        return name + polarity.toString();
     }
 
     /**
@@ -161,4 +662,112 @@ public class IntersectionOperator extends AbstractOperator
         return p1.getName() + " ||ti " + p2.getName();
     }
 
+    /**
+     * A pair of states of the product graph.
+     */
+    private static class ProductNode
+    {
+        final State s1;
+
+        final State s2;
+
+        final boolean finalState;
+
+        final List edges = new ArrayList();
+
+        final List incoming = new ArrayList();
+
+        int liveEdges;
+
+        boolean pruned;
+
+        State state;
+
+        ProductNode(State s1, State s2, boolean finalState)
+        {
+            this.s1 = s1;
+            this.s2 = s2;
+            this.finalState = finalState;
+        }
+    }
+
+    /**
+     * A pair of matching operations, found while expanding a node.
+     */
+    private static class ProductEdge
+    {
+        Operation op1;
+
+        Operation op2;
+
+        int operationId;
+
+        CompiledConstraint conjunction;
+
+        boolean dead;
+
+        ProductNode source;
+
+        ProductNode target;
+
+        boolean removed;
+
+        IConstraintNode finalConstraint;
+    }
+
+    /**
+     * What the expansions of a product share. Only the late constraints get modified, under their lock.
+     */
+    private static class ProductContext
+    {
+        final ProductOperand operand;
+
+        final Map constraints1;
+
+        final Map constraints2;
+
+        final Map lateConstraints = new IdentityHashMap();
+
+        final VariableTable table2;
+
+        final int offset;
+
+        final String[] layout;
+
+        final OperatorContext operatorContext;
+
+        ProductContext(ProductOperand operand, Map constraints1, Map constraints2, VariableTable table2,
+                int offset, String[] layout, OperatorContext operatorContext)
+        {
+            this.operand = operand;
+            this.constraints1 = constraints1;
+            this.constraints2 = constraints2;
+            this.table2 = table2;
+            this.offset = offset;
+            this.layout = layout;
+            this.operatorContext = operatorContext;
+        }
+    }
+
+    /**
+     * Expands a chunk of an exploration frontier.
+     */
+    private class ExpansionTask implements Callable
+    {
+        private final List chunk;
+
+        private final ProductContext context;
+
+        ExpansionTask(List chunk, ProductContext context)
+        {
+            this.chunk = chunk;
+            this.context = context;
+        }
+
+        public Object call()
+        {
+            return expandChunk(chunk, context);
+        }
+    }
+
 }
@@ -0,0 +1,521 @@
+/* 
+ * CDDL HEADER START 
+ * 
+ * The contents of this file are subject to the terms of the 
+ * Common Development and Distribution License (the "License"). 
+ * You may not use this file except in compliance with the License. 
+ * 
+ * You can obtain a copy of the license at LICENSE.txt 
+ * or at http://www.opensource.org/licenses/cddl1.php. 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License. 
+ * 
+ * When distributing Covered Code, include this CDDL HEADER in each 
+ * file and include the License file at LICENSE.txt. 
+ * If applicable, add the following below this CDDL HEADER, with the 
+ * fields enclosed by brackets "[]" replaced with your own identifying 
+ * information: Portions Copyright [yyyy] [name of copyright owner] 
+ * 
+ * CDDL HEADER END 
+ */ 
+
+/* 
+ * Copyright 2006 Julien Ponge. All rights reserved. 
+ * Use is subject to license terms. 
+ */ 
+
+
+package fr.isima.ponge.wsprotocol.timed.operators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.Polarity;
+import fr.isima.ponge.wsprotocol.StandardExtraProperties;
+import fr.isima.ponge.wsprotocol.State;
+import fr.isima.ponge.wsprotocol.execution.OperatorContext;
+import fr.isima.ponge.wsprotocol.timed.constraints.CompiledConstraint;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.VariableTable;
+
+/**
+ * The timed composition of any number of protocols, computed in a single product pass. Each step of the
+ * product is a synchronization between 2 participants over operations that match as in
+ * {@link CompositionOperator}: same message name and different polarities. The other participants stay in
+ * their current state. Only the globally reachable tuples of states are explored.
+ * <p>
+ * With 2 participants, the result is the same as the one of {@link CompositionOperator}. The operations of
+ * the result are named after the operations of the participants, in order, with an empty name for the
+ * idle ones.
+ * @author Julien Ponge (ponge@isima.fr)
+ *
+ */
+public class MultiCompositionOperator extends AbstractOperator
+{
+    /**
+     * The polarities that an operation can be matched against.
+     */
+    private static final Polarity[] POLARITIES = { Polarity.POSITIVE, Polarity.NEGATIVE, Polarity.NULL };
+
+    /**
+     * The number of explored tuples of states between two progress reports.
+     */
+    private static final int PROGRESS_INTERVAL = 256;
+
+    /**
+     * Instantiates a new operator.
+     * @param factory The factory to create protocol elements.
+     */
+    public MultiCompositionOperator(BusinessProtocolFactory factory)
+    {
+        super(factory);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.isima.ponge.wsprotocol.timed.operators.IOperator#apply(fr.isima.ponge.wsprotocol.BusinessProtocol, fr.isima.ponge.wsprotocol.BusinessProtocol)
+     */
+    public BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2)
+    {
+        return apply(new BusinessProtocol[] { p1, p2 });
+    }
+
+    /* (non-Javadoc)
+     * @see fr.isima.ponge.wsprotocol.timed.operators.AbstractOperator#apply(fr.isima.ponge.wsprotocol.BusinessProtocol, fr.isima.ponge.wsprotocol.BusinessProtocol, fr.isima.ponge.wsprotocol.execution.OperatorContext)
+     */
+    public BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2, OperatorContext context)
+    {
+        return apply(new BusinessProtocol[] { p1, p2 }, context);
+    }
+
+    /**
+     * Computes the composition of some protocols.
+     * @param protocols The participants, at least 2 of them.
+     * @return The resulting protocol.
+     */
+    public BusinessProtocol apply(BusinessProtocol[] protocols)
+    {
+        return apply(protocols, new OperatorContext());
+    }
+
+    /**
+     * Computes the composition of some protocols within an execution context. The context is checked after
+     * each explored tuple of states.
+     * @param protocols The participants, at least 2 of them.
+     * @param context The execution context, which can stop the operator.
+     * @return The resulting protocol.
+     */
+    public BusinessProtocol apply(BusinessProtocol[] protocols, OperatorContext context)
+    {
+        int k = protocols.length;
+        if (k < 2)
+        {
+            throw new IllegalArgumentException("At least 2 protocols are required, got " + k);
+        }
+        context.check(0, 0);
+        BusinessProtocol result = factory.createBusinessProtocol(generateProtocolName(protocols));
+
+        // Compile the constraints once: the variables of each participant get their own slots range, named
+        // with as many '_' on each side as there are participants before and after it
+        VariableTable[] tables = new VariableTable[k];
+        Map[] constraints = new Map[k];
+        int[] offsets = new int[k];
+        int slots = 0;
+        for (int i = 0; i < k; ++i)
+        {
+            tables[i] = new VariableTable();
+            constraints[i] = compileConstraints(protocols[i], tables[i]);
+            offsets[i] = slots;
+            slots += tables[i].size();
+        }
+        String[] layout = new String[slots];
+        for (int i = 0; i < k; ++i)
+        {
+            for (int j = 0; j < tables[i].size(); ++j)
+            {
+                layout[offsets[i] + j] = underscores(i) + tables[i].nameOf(j) + underscores(k - 1 - i);
+            }
+        }
+        for (int i = 0; i < k; ++i)
+        {
+            Iterator it = constraints[i].entrySet().iterator();
+            while (it.hasNext())
+            {
+                Map.Entry entry = (Map.Entry) it.next();
+                entry.setValue(((CompiledConstraint) entry.getValue()).offset(offsets[i], layout));
+            }
+        }
+
+        // Transitions names mappings, from the slots of the layout to the resulting operations names. A
+        // synchronization is identified by the pair of slots of its operations, its name is built once.
+        VariableTable names = new VariableTable();
+        Map operationIds = new HashMap();
+        int[] slotsMapping = new int[slots];
+        Arrays.fill(slotsMapping, -1);
+        Map productConstraints = new IdentityHashMap();
+
+        // Explore the globally reachable tuples of states
+        State[] initials = new State[k];
+        for (int i = 0; i < k; ++i)
+        {
+            initials[i] = protocols[i].getInitialState();
+            if (initials[i] == null)
+            {
+                return result;
+            }
+        }
+        ComponentIds[] stateIds = new ComponentIds[k];
+        for (int i = 0; i < k; ++i)
+        {
+            stateIds[i] = new ComponentIds();
+        }
+        Map mapping = new HashMap();
+        Map joinIndexes = new IdentityHashMap();
+        List toVisit = new ArrayList();
+        State initialMerger = getMergerState(result, mapping, toVisit, stateIds, initials);
+        initialMerger.setInitialState(true);
+        result.setInitialState(initialMerger);
+        for (int v = 0; v < toVisit.size(); ++v)
+        {
+            Object[] entry = (Object[]) toVisit.get(v);
+            State[] tuple = (State[]) entry[0];
+            State source = (State) entry[1];
+            Map[] tupleIndexes = new Map[k];
+            for (int i = 0; i < k; ++i)
+            {
+                tupleIndexes[i] = getJoinIndex(joinIndexes, tuple[i]);
+            }
+
+            for (int i = 0; i < k; ++i)
+            {
+                Iterator oit1 = tuple[i].getOutgoingOperations().iterator();
+                while (oit1.hasNext())
+                {
+                    Operation op1 = (Operation) oit1.next();
+                    String[] keys = probeKeys(op1);
+                    for (int j = i + 1; j < k; ++j)
+                    {
+                        for (int key = 0; key < keys.length; ++key)
+                        {
+                            List matches = (List) tupleIndexes[j].get(keys[key]);
+                            if (matches == null)
+                            {
+                                continue;
+                            }
+                            Iterator oit2 = matches.iterator();
+                            while (oit2.hasNext())
+                            {
+                                Operation op2 = (Operation) oit2.next();
+                                int slot1 = offsets[i] + tables[i].idOf(op1.getName());
+                                int slot2 = offsets[j] + tables[j].idOf(op2.getName());
+                                Long pairKey = ComponentIds.pack(slot1, slot2);
+                                Integer id = (Integer) operationIds.get(pairKey);
+                                if (id == null)
+                                {
+                                    id = Integer.valueOf(names.intern(generateMergerOperationName(k, i, op1, j,
+                                            op2)));
+                                    operationIds.put(pairKey, id);
+                                }
+                                String name = names.nameOf(id.intValue());
+                                slotsMapping[slot1] = id.intValue();
+                                slotsMapping[slot2] = id.intValue();
+
+                                CompiledConstraint conjunction = compiledConstraintsConjunction(
+                                        (CompiledConstraint) constraints[i].get(op1), (CompiledConstraint) constraints[j]
+                                                .get(op2));
+                                if (conjunction != null && !isConstraintSatisfiable(conjunction.decompile()))
+                                {
+                                    // Dead operation
+                                    continue;
+                                }
+
+                                State[] targets = (State[]) tuple.clone();
+                                targets[i] = op1.getTargetState();
+                                targets[j] = op2.getTargetState();
+                                State target = getMergerState(result, mapping, toVisit, stateIds, targets);
+                                Operation operation = factory.createOperation(name, source, target, factory
+                                        .createMessage(op1.getMessage().getName(), Polarity.NULL));
+                                if (conjunction == null)
+                                {
+                                    operation.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "");
+                                }
+                                else
+                                {
+                                    productConstraints.put(operation, conjunction);
+                                }
+                                result.addOperation(operation);
+                            }
+                        }
+                    }
+                }
+            }
+            if ((v + 1) % PROGRESS_INTERVAL == 0)
+            {
+                context.progress(toVisit.size(), result.getOperations().size());
+            }
+            else
+            {
+                context.check(toVisit.size(), result.getOperations().size());
+            }
+        }
+        pruneIsolatedStates(result);
+
+        // Final constraints, the variables that were not mapped keep their temporary names
+        for (int i = 0; i < slotsMapping.length; ++i)
+        {
+            if (slotsMapping[i] == -1)
+            {
+                slotsMapping[i] = names.intern(layout[i]);
+            }
+        }
+        String[] finalLayout = names.getNames();
+        List deadOperations = new ArrayList();
+        Iterator it = result.getOperations().iterator();
+        while (it.hasNext())
+        {
+            Operation operation = (Operation) it.next();
+            CompiledConstraint constraint = (CompiledConstraint) productConstraints.get(operation);
+            if (constraint != null)
+            {
+                IConstraintNode finalConstraint = constraint.remap(slotsMapping, finalLayout).decompile();
+                if (isConstraintSatisfiable(finalConstraint))
+                {
+                    writeConstraint(operation, finalConstraint);
+                }
+                else
+                {
+                    deadOperations.add(operation);
+                }
+            }
+        }
+
+        return removeDeadOperations(result, deadOperations);
+    }
+
+    /**
+     * Gets the merger state of a tuple of states, creating it and scheduling its exploration the first time.
+     * @param result The product protocol.
+     * @param mapping The merger states, by tuple of states ids.
+     * @param toVisit The exploration worklist, holding the tuples of states and their merger.
+     * @param stateIds The states ids of each participant.
+     * @param tuple The tuple of states.
+     * @return The merger state.
+     */
+    private State getMergerState(BusinessProtocol result, Map mapping, List toVisit, ComponentIds[] stateIds,
+            State[] tuple)
+    {
+        int[] ids = new int[tuple.length];
+        for (int i = 0; i < tuple.length; ++i)
+        {
+            ids[i] = stateIds[i].idOf(tuple[i]);
+        }
+        TupleKey key = new TupleKey(ids);
+        State merger = (State) mapping.get(key);
+        if (merger == null)
+        {
+            boolean finalState = true;
+            for (int i = 0; i < tuple.length; ++i)
+            {
+                finalState = finalState && tuple[i].isFinalState();
+            }
+            merger = factory.createState(generateMergerStateName(tuple), finalState);
+            result.addState(merger);
+            mapping.put(key, merger);
+            toVisit.add(new Object[] { tuple, merger });
+        }
+        return merger;
+    }
+
+    /**
+     * Gets the outgoing operations of a state indexed by message name and polarity. Indexes are built on
+     * first use.
+     * @param joinIndexes The indexes built so far, by state.
+     * @param state The state.
+     * @return The lists of outgoing operations, by key.
+     */
+    private Map getJoinIndex(Map joinIndexes, State state)
+    {
+        Map index = (Map) joinIndexes.get(state);
+        if (index != null)
+        {
+            return index;
+        }
+        index = new HashMap();
+        joinIndexes.put(state, index);
+        Iterator it = state.getOutgoingOperations().iterator();
+        while (it.hasNext())
+        {
+            Operation op = (Operation) it.next();
+            String key = op.getMessage().getName() + op.getMessage().getPolarity();
+            List operations = (List) index.get(key);
+            if (operations == null)
+            {
+                operations = new ArrayList();
+                index.put(key, operations);
+            }
+            operations.add(op);
+        }
+        return index;
+    }
+
+    /**
+     * Gives the keys of the operations that match an operation: same message name, other polarities.
+     * @param op The operation.
+     * @return The keys.
+     */
+    private String[] probeKeys(Operation op)
+    {
+        String name = op.getMessage().getName();
+        Polarity polarity = op.getMessage().getPolarity();
+        List keys = new ArrayList(POLARITIES.length);
+        for (int i = 0; i < POLARITIES.length; ++i)
+        {
+            if (!POLARITIES[i].equals(polarity))
+            {
+                keys.add(name + POLARITIES[i]);
+            }
+        }
+        return (String[]) keys.toArray(new String[keys.size()]);
+    }
+
+    /**
+     * Compiles the constraints of the operations of a protocol.
+     * @param protocol The protocol.
+     * @param table The symbol table.
+     * @return The compiled constraints, by operation.
+     */
+    private Map compileConstraints(BusinessProtocol protocol, VariableTable table)
+    {
+        Iterator it = protocol.getOperations().iterator();
+        while (it.hasNext())
+        {
+            table.intern(((Operation) it.next()).getName());
+        }
+        Map constraints = new IdentityHashMap();
+        it = protocol.getOperations().iterator();
+        while (it.hasNext())
+        {
+            Operation operation = (Operation) it.next();
+            CompiledConstraint constraint = compileConstraint(operation, table);
+            if (constraint != null)
+            {
+                constraints.put(operation, constraint);
+            }
+        }
+        return constraints;
+    }
+
+    /**
+     * Builds a string of underscores.
+     * @param count The string length.
+     * @return The underscores.
+     */
+    private static String underscores(int count)
+    {
+        StringBuffer buffer = new StringBuffer(count);
+        for (int i = 0; i < count; ++i)
+        {
+            buffer.append('_');
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Generates a name for a tuple of merged states.
+     * @param tuple The states.
+     * @return The merged state name.
+     */
+    protected String generateMergerStateName(State[] tuple)
+    {
+        StringBuffer buffer = new StringBuffer(tuple[0].getName());
+        for (int i = 1; i < tuple.length; ++i)
+        {
+            buffer.append(',').append(tuple[i].getName());
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Generates a name for the synchronization of 2 participants.
+     * @param k The number of participants.
+     * @param i The index of the first participant.
+     * @param op1 The operation of the first participant.
+     * @param j The index of the second participant.
+     * @param op2 The operation of the second participant.
+     * @return The merged operation name.
+     */
+    protected String generateMergerOperationName(int k, int i, Operation op1, int j, Operation op2)
+    {
+        StringBuffer buffer = new StringBuffer();
+        for (int p = 0; p < k; ++p)
+        {
+            if (p > 0)
+            {
+                buffer.append('_');
+            }
+            if (p == i)
+            {
+                buffer.append(op1.getName());
+            }
+            else if (p == j)
+            {
+                buffer.append(op2.getName());
+            }
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Generates the name of the resulting protocol.
+     * @param protocols The participants.
+     * @return The protocol name.
+     */
+    protected String generateProtocolName(BusinessProtocol[] protocols)
+    {
+        StringBuffer buffer = new StringBuffer(protocols[0].getName());
+        for (int i = 1; i < protocols.length; ++i)
+        {
+            buffer.append(" ||tc ").append(protocols[i].getName());
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * A tuple of states ids, which identifies a merger state.
+     */
+    private static class TupleKey
+    {
+        private final int[] ids;
+
+        private final int hash;
+
+        TupleKey(int[] ids)
+        {
+            this.ids = ids;
+            int h = 1;
+            for (int i = 0; i < ids.length; ++i)
+            {
+                h = 31 * h + ids[i];
+            }
+            this.hash = h;
+        }
+
+        public boolean equals(Object obj)
+        {
+            return (obj instanceof TupleKey) && Arrays.equals(ids, ((TupleKey) obj).ids);
+        }
+
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+
+}
@@ -29,7 +29,9 @@ package fr.isima.ponge.wsprotocol.timed.operators;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
@@ -45,6 +47,7 @@ import fr.isima.ponge.wsprotocol.timed.constraints.BooleanNode;
 import fr.isima.ponge.wsprotocol.timed.constraints.CInvokeNode;
 import fr.isima.ponge.wsprotocol.timed.constraints.ComparisonNode;
 import fr.isima.ponge.wsprotocol.timed.constraints.ConstantNode;
+import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintFunctionNode;
 import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
 import fr.isima.ponge.wsprotocol.timed.constraints.IRootConstraintNode;
 import fr.isima.ponge.wsprotocol.timed.constraints.MInvokeNode;
@@ -112,7 +115,9 @@ public class Normalizer extends AbstractOperator
     }
     
     /**
-     * Normalizes a protocol.
+     * Normalizes a protocol. The operations are first taken into a snapshot where the merges of states get
+     * simulated, each constraint being parsed at most once and each inferred bound being computed once per
+     * implicit operation. The changes are then applied to the protocol in one batch.
      * @param p The protocol to normalize.
      * @return The same protocol instance, but normalized.
      */
@@ -120,158 +125,324 @@ public class Normalizer extends AbstractOperator
     {
         // Get the states depth
         Map statesDepth = computeStatesDepth(p);
+
+        // Snapshot of the operations, with the outgoing transitions of each state
+        List transitions = new ArrayList();
+        Map outgoing = new IdentityHashMap();
+        Iterator it = p.getOperations().iterator();
+        while (it.hasNext())
+        {
+            Transition t = new Transition((Operation) it.next());
+            transitions.add(t);
+            getOutgoing(outgoing, t.source).add(t);
+        }
         
         /*
-         * 1. Find all implicit operations
-         * 2. Infer temporal constraints
-         * 3. Merge states
+         * 1. Find all forward implicit operations and infer their temporal constraints
+         * 2. Merge states
+         * 3. Rewrite the constraints that referenced an implicit operation
+         * 4. Apply the changes to the protocol
          */
         Map inferredMoreMap = new HashMap();
-        Iterator it = new ArrayList(p.getOperations()).iterator();
+        List merges = new ArrayList();
+        it = transitions.iterator();
         while (it.hasNext())
         {
-            // Identify implicit operations
-            Operation op = (Operation) it.next();
-            State source = op.getSourceState();
-            State target = op.getTargetState();
-            if (op.getOperationKind().equals(OperationKind.EXPLICIT))
+            Transition t = (Transition) it.next();
+            if (t.operation.getOperationKind().equals(OperationKind.EXPLICIT) || t.source == t.target)
             {
                 continue;
             }
             
             // Ensure that it is a forward implicit transition
-            int sourceDepth = ((Integer)statesDepth.get(source)).intValue();
-            int targetDepth = ((Integer)statesDepth.get(target)).intValue();
-            if (sourceDepth > targetDepth)
+            Integer sourceDepth = (Integer) statesDepth.get(t.source);
+            Integer targetDepth = (Integer) statesDepth.get(t.target);
+            if (sourceDepth == null || targetDepth == null || sourceDepth.intValue() > targetDepth.intValue())
             {
                 continue;
             }
             
-            // Infer a constraint for C-Invoke
-            String minvokeCst = (String) op.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT);
-            if (isConstraintEmpty(minvokeCst))
+            // Infer the bounds for C-Invoke
+            if (isConstraintEmpty(t.text))
             {
                 continue;
             }
-            MInvokeNode minvoke = (MInvokeNode) parseConstraint(minvokeCst);
-            if (minvoke == null)
+            IConstraintNode node = parseConstraint(t.text);
+            if (!(node instanceof MInvokeNode))
             {
                 continue;
             }
-            ComparisonNode comparison = (ComparisonNode) minvoke.getNode();
+            ComparisonNode comparison = (ComparisonNode) ((MInvokeNode) node).getNode();
             VariableNode var = (VariableNode) ((comparison.getLeftChild() instanceof VariableNode) ? comparison.getLeftChild() : comparison.getRightChild());
             ConstantNode cst = (ConstantNode) ((comparison.getLeftChild() instanceof ConstantNode) ? comparison.getLeftChild() : comparison.getRightChild());
-            ComparisonNode inferredLess = new ComparisonNode(ComparisonNode.LESS, var, cst);
-            ComparisonNode inferredMore = new ComparisonNode(ComparisonNode.GREATER_EQ, var, cst);
-            inferredMoreMap.put(op.getName(), inferredMore);
-            
-            // Apply the inferred constraints
-            Iterator opIt = source.getOutgoingOperations().iterator();
-            while (opIt.hasNext())
+            t.inferredLess = new ComparisonNode(ComparisonNode.LESS, var, cst);
+            t.inferredMore = new ComparisonNode(ComparisonNode.GREATER_EQ, var, cst);
+            inferredMoreMap.put(t.operation.getName(), t.inferredMore);
+            merges.add(t);
+        }
+
+        // Merge the states in the snapshot, the transitions leaving a merged state move to its new source
+        Map mergedStates = new IdentityHashMap();
+        Map finalStates = new IdentityHashMap();
+        it = merges.iterator();
+        while (it.hasNext())
+        {
+            Transition merge = (Transition) it.next();
+            State source = merge.source;
+            State target = merge.target;
+            List sourceTransitions = getOutgoing(outgoing, source);
+            List targetTransitions = getOutgoing(outgoing, target);
+            Iterator tit = sourceTransitions.iterator();
+            while (tit.hasNext())
+            {
+                Transition t = (Transition) tit.next();
+                if (t != merge && t.operation.getOperationKind().equals(OperationKind.EXPLICIT))
+                {
+                    conjoin(t, merge.inferredLess);
+                }
+            }
+            tit = targetTransitions.iterator();
+            while (tit.hasNext())
             {
-                Operation o = (Operation) opIt.next();
-                if (o == op || o.getOperationKind().equals(OperationKind.IMPLICIT))
+                Transition t = (Transition) tit.next();
+                if (t.operation.getOperationKind().equals(OperationKind.EXPLICIT))
+                {
+                    conjoin(t, merge.inferredMore);
+                }
+                t.source = source;
+                t.moved = true;
+                sourceTransitions.add(t);
+            }
+            targetTransitions.clear();
+            sourceTransitions.remove(merge);
+            merge.removed = true;
+            if (target.isFinalState() || finalStates.containsKey(target))
+            {
+                finalStates.put(source, source);
+            }
+            mergedStates.put(target, target);
+        }
+        
+        // Rewrite constraints that referenced an implicit operation
+        if (!inferredMoreMap.isEmpty())
+        {
+            ImplicitConstraintRewriteWalker walker = new ImplicitConstraintRewriteWalker();
+            it = transitions.iterator();
+            while (it.hasNext())
+            {
+                Transition t = (Transition) it.next();
+                if (t.removed || (!t.changed && !mentionsAny(t.text, inferredMoreMap)))
                 {
                     continue;
                 }
-                
-                String oCst = (String) o.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT);
-                if (isConstraintEmpty(oCst))
+                CInvokeNode cinvoke = getConstraint(t);
+                if (cinvoke == null)
                 {
-                    CInvokeNode cinvoke = new CInvokeNode(inferredLess);
-                    o.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, cinvoke.toString());
+                    continue;
                 }
-                else
+                Iterator entryIt = inferredMoreMap.entrySet().iterator();
+                while (entryIt.hasNext())
                 {
-                    CInvokeNode cinvoke = (CInvokeNode) parseConstraint(oCst);
-                    if (cinvoke == null)
+                    Map.Entry entry = (Map.Entry) entryIt.next();
+                    String opName = (String) entry.getKey();
+                    if (!references(cinvoke, opName))
                     {
-                        cinvoke = new CInvokeNode(inferredLess);
-                        o.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, cinvoke.toString());
-                    }
-                    else
-                    {
-                        BooleanNode andNode = new BooleanNode(BooleanNode.AND, cinvoke.getNode(), inferredLess);
-                        cinvoke.setNode(andNode);
-                        o.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, cinvoke.toString());
+                        continue;
                     }
+                    ComparisonNode inferredMore = (ComparisonNode) entry.getValue();
+                    walker.walk(cinvoke, opName, inferredMore);
+                    cinvoke.setNode(new BooleanNode(BooleanNode.AND, cinvoke.getNode(), (IRootConstraintNode) inferredMore.deepCopy()));
+                    t.changed = true;
                 }
             }
+        }
 
-            // Merge states
-            opIt = new ArrayList(target.getOutgoingOperations()).iterator();
-            while (opIt.hasNext())
+        // Apply the changes
+        it = transitions.iterator();
+        while (it.hasNext())
+        {
+            Transition t = (Transition) it.next();
+            Operation op = t.operation;
+            if (t.removed)
             {
-                Operation o = (Operation) opIt.next();
-                Operation newOp = factory.createOperation(o.getName(), source, o.getTargetState(), o.getMessage());
-                                
-
-                String oCst = (String) o.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT);
-                if (isConstraintEmpty(oCst))
+                p.removeOperation(op);
+            }
+            else if (t.moved)
+            {
+                Operation newOp = factory.createOperation(op.getName(), t.source, t.target, op.getMessage(), op
+                        .getOperationKind());
+                if (t.changed)
                 {
-                    CInvokeNode cinvoke = new CInvokeNode(inferredMore);
-                    newOp.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, cinvoke.toString());
+                    newOp.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, t.constraint.toString());
                 }
-                else
+                else if (!isConstraintEmpty(t.text))
                 {
-                    CInvokeNode cinvoke = (CInvokeNode) parseConstraint(oCst);
-                    if (cinvoke == null)
-                    {
-                        cinvoke = new CInvokeNode(inferredMore);
-                        newOp.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, cinvoke.toString());
-                    }
-                    else
-                    {
-                        BooleanNode andNode = new BooleanNode(BooleanNode.AND, cinvoke.getNode(), inferredMore);
-                        cinvoke.setNode(andNode);
-                        newOp.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, cinvoke.toString());
-                    }
+                    newOp.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, t.text);
                 }
-                
-                p.removeOperation(o);
+                p.removeOperation(op);
                 p.addOperation(newOp);
             }
-            p.removeOperation(op);
-            if (target.isFinalState())
+            else if (t.changed)
             {
-                if (source instanceof StateImpl)
-                {
-                    StateImpl src = (StateImpl) source;
-                    src.setFinalState(true);
-                }
+                op.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, t.constraint.toString());
             }
-            p.removeState(target);
         }
-        
-        // Rewrite constraints that referenced an implicit operation
-        Iterator keyIt = inferredMoreMap.keySet().iterator();
-        while (keyIt.hasNext())
+        it = finalStates.keySet().iterator();
+        while (it.hasNext())
         {
-            String opName = (String) keyIt.next();
-            Iterator opIt = p.getOperations().iterator();
-            while (opIt.hasNext())
+            Object state = it.next();
+            if (state instanceof StateImpl)
             {
-                Operation op = (Operation) opIt.next(); 
-                String oCst = (String) op.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT);
-                if (isConstraintEmpty(oCst) || !oCst.contains(opName))
-                {
-                    continue;
-                }
-                CInvokeNode cinvoke = (CInvokeNode) parseConstraint(oCst);
-                if (cinvoke == null)
-                {
-                    continue;
-                }
-                ImplicitConstraintRewriteWalker walker = new ImplicitConstraintRewriteWalker();
-                walker.walk(cinvoke, opName, (ComparisonNode) inferredMoreMap.get(opName));
-                BooleanNode andNode = new BooleanNode(BooleanNode.AND, cinvoke.getNode(), (IRootConstraintNode) inferredMoreMap.get(opName));
-                cinvoke.setNode(andNode);
-                op.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, cinvoke.toString());
+                ((StateImpl) state).setFinalState(true);
             }
         }
+        it = mergedStates.keySet().iterator();
+        while (it.hasNext())
+        {
+            p.removeState((State) it.next());
+        }
 
         return p;
     }
+
+    /**
+     * Gets the outgoing transitions of a state in the snapshot.
+     * @param outgoing The outgoing transitions, by state.
+     * @param state The state.
+     * @return The transitions.
+     */
+    private List getOutgoing(Map outgoing, State state)
+    {
+        List transitions = (List) outgoing.get(state);
+        if (transitions == null)
+        {
+            transitions = new ArrayList();
+            outgoing.put(state, transitions);
+        }
+        return transitions;
+    }
+
+    /**
+     * Gets the C-Invoke constraint of a transition, parsing it on the first call.
+     * @param t The transition.
+     * @return The constraint, or <code>null</code> if there is none or if it is not a valid C-Invoke.
+     */
+    private CInvokeNode getConstraint(Transition t)
+    {
+        if (!t.parsed)
+        {
+            t.parsed = true;
+            if (!isConstraintEmpty(t.text))
+            {
+                IConstraintNode node = parseConstraint(t.text);
+                t.constraint = (node instanceof CInvokeNode) ? (CInvokeNode) node : null;
+            }
+        }
+        return t.constraint;
+    }
+
+    /**
+     * Adds an inferred bound to the C-Invoke constraint of a transition.
+     * @param t The transition.
+     * @param bound The bound, which gets copied.
+     */
+    private void conjoin(Transition t, ComparisonNode bound)
+    {
+        CInvokeNode cinvoke = getConstraint(t);
+        IRootConstraintNode copy = (IRootConstraintNode) bound.deepCopy();
+        if (cinvoke == null)
+        {
+            t.constraint = new CInvokeNode(copy);
+        }
+        else
+        {
+            cinvoke.setNode(new BooleanNode(BooleanNode.AND, cinvoke.getNode(), copy));
+        }
+        t.changed = true;
+    }
+
+    /**
+     * Quickly tells wether a constraint may mention one of some operations.
+     * @param constraint The constraint.
+     * @param names The operations names, as the keys of a map.
+     * @return <code>false</code> if none of the names occurs in the constraint.
+     */
+    private boolean mentionsAny(String constraint, Map names)
+    {
+        if (isConstraintEmpty(constraint))
+        {
+            return false;
+        }
+        Iterator it = names.keySet().iterator();
+        while (it.hasNext())
+        {
+            if (constraint.indexOf((String) it.next()) != -1)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells wether a constraint references a variable.
+     * @param node The constraint.
+     * @param varName The variable name.
+     * @return Wether the variable occurs in the constraint or not.
+     */
+    private boolean references(IConstraintNode node, String varName)
+    {
+        if (node instanceof VariableNode)
+        {
+            return varName.equals(((VariableNode) node).getVariableName());
+        }
+        else if (node instanceof IRootConstraintNode)
+        {
+            IRootConstraintNode root = (IRootConstraintNode) node;
+            return references(root.getLeftChild(), varName) || references(root.getRightChild(), varName);
+        }
+        else if (node instanceof IConstraintFunctionNode)
+        {
+            return references(((IConstraintFunctionNode) node).getNode(), varName);
+        }
+        return false;
+    }
+
+    /**
+     * An operation of the snapshot taken by the normalization.
+     */
+    private static class Transition
+    {
+        final Operation operation;
+
+        final State target;
+
+        final String text;
+
+        State source;
+
+        boolean parsed;
+
+        CInvokeNode constraint;
+
+        boolean changed;
+
+        boolean moved;
+
+        boolean removed;
+
+        ComparisonNode inferredLess;
+
+        ComparisonNode inferredMore;
+
+        Transition(Operation operation)
+        {
+            this.operation = operation;
+            this.source = operation.getSourceState();
+            this.target = operation.getTargetState();
+            this.text = (String) operation.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT);
+        }
+    }
     
     private class ImplicitConstraintRewriteWalker
     {
@@ -0,0 +1,113 @@
+/* 
+ * CDDL HEADER START 
+ * 
+ * The contents of this file are subject to the terms of the 
+ * Common Development and Distribution License (the "License"). 
+ * You may not use this file except in compliance with the License. 
+ * 
+ * You can obtain a copy of the license at LICENSE.txt 
+ * or at http://www.opensource.org/licenses/cddl1.php. 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License. 
+ * 
+ * When distributing Covered Code, include this CDDL HEADER in each 
+ * file and include the License file at LICENSE.txt. 
+ * If applicable, add the following below this CDDL HEADER, with the 
+ * fields enclosed by brackets "[]" replaced with your own identifying 
+ * information: Portions Copyright [yyyy] [name of copyright owner] 
+ * 
+ * CDDL HEADER END 
+ */ 
+
+/* 
+ * Copyright 2006 Julien Ponge. All rights reserved. 
+ * Use is subject to license terms. 
+ */ 
+
+
+package fr.isima.ponge.wsprotocol.timed.operators;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
+import fr.isima.ponge.wsprotocol.automata.ProtocolMinimizer;
+import fr.isima.ponge.wsprotocol.execution.OperatorContext;
+
+/**
+ * Chains the stages of a timed operation: both protocols get normalized in place, then the operator builds
+ * the result. The product based operators prune their result and rewrite its constraints on a graph of the
+ * reachable pairs of states, before any product element gets created, so the unpruned product is never
+ * materialized. When a minimizer is given, the normalized protocols are minimized before the operator runs,
+ * which keeps the products small.
+ * @author Julien Ponge (ponge@isima.fr)
+ *
+ */
+public class OperatorPipeline implements IOperator
+{
+    private final Normalizer normalizer;
+
+    private final ProtocolMinimizer minimizer;
+
+    private final IOperator operator;
+
+    /**
+     * Instantiates a new pipeline.
+     * @param factory The factory to create protocol elements.
+     * @param operator The operator.
+     */
+    public OperatorPipeline(BusinessProtocolFactory factory, IOperator operator)
+    {
+        this(new Normalizer(factory), operator);
+    }
+
+    /**
+     * Instantiates a new pipeline.
+     * @param normalizer The normalizer for the protocols.
+     * @param operator The operator.
+     */
+    public OperatorPipeline(Normalizer normalizer, IOperator operator)
+    {
+        this(normalizer, null, operator);
+    }
+
+    /**
+     * Instantiates a new pipeline.
+     * @param normalizer The normalizer for the protocols.
+     * @param minimizer The minimizer for the normalized protocols, or <code>null</code> to skip the minimization.
+     * @param operator The operator.
+     */
+    public OperatorPipeline(Normalizer normalizer, ProtocolMinimizer minimizer, IOperator operator)
+    {
+        super();
+        this.normalizer = normalizer;
+        this.minimizer = minimizer;
+        this.operator = operator;
+    }
+
+    /**
+     * Normalizes both protocols, then applies the operator. The protocols are modified.
+     * @see fr.isima.ponge.wsprotocol.timed.operators.IOperator#apply(fr.isima.ponge.wsprotocol.BusinessProtocol, fr.isima.ponge.wsprotocol.BusinessProtocol)
+     */
+    public BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2)
+    {
+        return apply(p1, p2, new OperatorContext());
+    }
+
+    /**
+     * Normalizes both protocols, then applies the operator within an execution context. The protocols are
+     * modified.
+     * @see fr.isima.ponge.wsprotocol.timed.operators.IOperator#apply(fr.isima.ponge.wsprotocol.BusinessProtocol, fr.isima.ponge.wsprotocol.BusinessProtocol, fr.isima.ponge.wsprotocol.execution.OperatorContext)
+     */
+    public BusinessProtocol apply(BusinessProtocol p1, BusinessProtocol p2, OperatorContext context)
+    {
+        context.checkAlive();
+        BusinessProtocol n1 = normalizer.normalizeProtocol(p1);
+        BusinessProtocol n2 = normalizer.normalizeProtocol(p2);
+        if (minimizer != null)
+        {
+            context.checkAlive();
+            n1 = minimizer.minimize(n1);
+            n2 = minimizer.minimize(n2);
+        }
+        return operator.apply(n1, n2, context);
+    }
+}
@@ -0,0 +1,72 @@
+/* 
+ * CDDL HEADER START 
+ * 
+ * The contents of this file are subject to the terms of the 
+ * Common Development and Distribution License (the "License"). 
+ * You may not use this file except in compliance with the License. 
+ * 
+ * You can obtain a copy of the license at LICENSE.txt 
+ * or at http://www.opensource.org/licenses/cddl1.php. 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License. 
+ * 
+ * When distributing Covered Code, include this CDDL HEADER in each 
+ * file and include the License file at LICENSE.txt. 
+ * If applicable, add the following below this CDDL HEADER, with the 
+ * fields enclosed by brackets "[]" replaced with your own identifying 
+ * information: Portions Copyright [yyyy] [name of copyright owner] 
+ * 
+ * CDDL HEADER END 
+ */ 
+
+/* 
+ * Copyright 2006 Julien Ponge. All rights reserved. 
+ * Use is subject to license terms. 
+ */ 
+
+
+package fr.isima.ponge.wsprotocol.timed.operators;
+
+import java.util.Collection;
+import java.util.List;
+
+import fr.isima.ponge.wsprotocol.State;
+
+/**
+ * The second operand of a product, seen from its states. The product operators only ask for the operations
+ * leaving the states they reach, for the join keys they look up, so an operand does not need to be a
+ * materialized protocol.
+ * @author Julien Ponge (ponge@isima.fr)
+ *
+ */
+public abstract class ProductOperand
+{
+    /**
+     * Gets the initial state.
+     * @return The initial state, or <code>null</code> if there is none.
+     */
+    public abstract State getInitialState();
+
+    /**
+     * Tells wether a state is final in this operand.
+     * @param state The state.
+     * @return Wether the state is final or not.
+     */
+    public abstract boolean isFinalState(State state);
+
+    /**
+     * Gets the operations that are known up front. Their names are the variables that the temporal
+     * constraints of the operand can refer to.
+     * @return The operations.
+     */
+    public abstract Collection getOperations();
+
+    /**
+     * Gets the operations leaving a state that have a given join key. This method may be called
+     * concurrently by a product operator working in parallel.
+     * @param state The state.
+     * @param key The join key.
+     * @return The operations, never <code>null</code>.
+     */
+    public abstract List getOperations(State state, String key);
+}
@@ -0,0 +1,125 @@
+/* 
+ * CDDL HEADER START 
+ * 
+ * The contents of this file are subject to the terms of the 
+ * Common Development and Distribution License (the "License"). 
+ * You may not use this file except in compliance with the License. 
+ * 
+ * You can obtain a copy of the license at LICENSE.txt 
+ * or at http://www.opensource.org/licenses/cddl1.php. 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License. 
+ * 
+ * When distributing Covered Code, include this CDDL HEADER in each 
+ * file and include the License file at LICENSE.txt. 
+ * If applicable, add the following below this CDDL HEADER, with the 
+ * fields enclosed by brackets "[]" replaced with your own identifying 
+ * information: Portions Copyright [yyyy] [name of copyright owner] 
+ * 
+ * CDDL HEADER END 
+ */ 
+
+/* 
+ * Copyright 2006 Julien Ponge. All rights reserved. 
+ * Use is subject to license terms. 
+ */ 
+
+
+package fr.isima.ponge.wsprotocol.timed.operators;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.State;
+
+/**
+ * A protocol used as the second operand of a product. The outgoing operations of its states are indexed by
+ * join key up front, so that concurrent expansions only read the indexes.
+ * @author Julien Ponge (ponge@isima.fr)
+ *
+ */
+public class ProtocolOperand extends ProductOperand
+{
+    /**
+     * The protocol.
+     */
+    protected final BusinessProtocol protocol;
+
+    /**
+     * The lists of outgoing operations by join key, by state.
+     */
+    private final Map joinIndexes = new IdentityHashMap();
+
+    /**
+     * Instantiates a new operand.
+     * @param protocol The protocol.
+     * @param operator The product operator, which gives the join keys.
+     */
+    public ProtocolOperand(BusinessProtocol protocol, IntersectionOperator operator)
+    {
+        super();
+        this.protocol = protocol;
+        Iterator sit = protocol.getStates().iterator();
+        while (sit.hasNext())
+        {
+            State state = (State) sit.next();
+            Map index = new HashMap();
+            Iterator it = state.getOutgoingOperations().iterator();
+            while (it.hasNext())
+            {
+                Operation operation = (Operation) it.next();
+                String key = operator.joinKey(operation);
+                List operations = (List) index.get(key);
+                if (operations == null)
+                {
+                    operations = new ArrayList();
+                    index.put(key, operations);
+                }
+                operations.add(operation);
+            }
+            joinIndexes.put(state, index);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see fr.isima.ponge.wsprotocol.timed.operators.ProductOperand#getInitialState()
+     */
+    public State getInitialState()
+    {
+        return protocol.getInitialState();
+    }
+
+    /* (non-Javadoc)
+     * @see fr.isima.ponge.wsprotocol.timed.operators.ProductOperand#isFinalState(fr.isima.ponge.wsprotocol.State)
+     */
+    public boolean isFinalState(State state)
+    {
+        return state.isFinalState();
+    }
+
+    /* (non-Javadoc)
+     * @see fr.isima.ponge.wsprotocol.timed.operators.ProductOperand#getOperations()
+     */
+    public Collection getOperations()
+    {
+        return protocol.getOperations();
+    }
+
+    /* (non-Javadoc)
+     * @see fr.isima.ponge.wsprotocol.timed.operators.ProductOperand#getOperations(fr.isima.ponge.wsprotocol.State, java.lang.String)
+     */
+    public List getOperations(State state, String key)
+    {
+        Map index = (Map) joinIndexes.get(state);
+        List operations = (index == null) ? null : (List) index.get(key);
+        return (operations == null) ? Collections.EMPTY_LIST : operations;
+    }
+}
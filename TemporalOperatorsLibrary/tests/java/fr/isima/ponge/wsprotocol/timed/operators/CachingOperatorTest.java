@@ -0,0 +1,71 @@
+/* 
+ * CDDL HEADER START 
+ * 
+ * The contents of this file are subject to the terms of the 
+ * Common Development and Distribution License (the "License"). 
+ * You may not use this file except in compliance with the License. 
+ * 
+ * You can obtain a copy of the license at LICENSE.txt 
+ * or at http://www.opensource.org/licenses/cddl1.php. 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License. 
+ * 
+ * When distributing Covered Code, include this CDDL HEADER in each 
+ * file and include the License file at LICENSE.txt. 
+ * If applicable, add the following below this CDDL HEADER, with the 
+ * fields enclosed by brackets "[]" replaced with your own identifying 
+ * information: Portions Copyright [yyyy] [name of copyright owner] 
+ * 
+ * CDDL HEADER END 
+ */ 
+
+/* 
+ * Copyright 2006 Julien Ponge. All rights reserved. 
+ * Use is subject to license terms. 
+ */ 
+
+package fr.isima.ponge.wsprotocol.timed.operators;
+
+import junit.framework.TestCase;
+
+import org.dom4j.DocumentException;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.impl.BusinessProtocolFactoryImpl;
+
+public class CachingOperatorTest extends TestCase
+{
+
+    public void testApply() throws DocumentException
+    {
+        BusinessProtocolFactoryImpl factory = new BusinessProtocolFactoryImpl();
+        CachingOperator operator = new CachingOperator(new IntersectionOperator(factory), factory);
+        BusinessProtocol p1 = TestUtils.loadProtocol("intersection/p1.wsprotocol");
+        BusinessProtocol p2 = TestUtils.loadProtocol("intersection/p2.wsprotocol");
+        BusinessProtocol expected = TestUtils.loadProtocol("intersection/p1-inter-p2.wsprotocol");
+
+        BusinessProtocol first = operator.apply(p1, p2);
+        TestCase.assertEquals(expected, first);
+        first.removeState(first.getInitialState());
+
+        BusinessProtocol second = operator.apply(TestUtils.loadProtocol("intersection/p1.wsprotocol"), TestUtils
+                .loadProtocol("intersection/p2.wsprotocol"));
+        TestCase.assertEquals(expected, second);
+        TestCase.assertEquals(1, operator.getCache().getHits());
+        TestCase.assertEquals(1, operator.getCache().getMisses());
+    }
+
+    public void testOperatorsKeys() throws DocumentException
+    {
+        BusinessProtocolFactoryImpl factory = new BusinessProtocolFactoryImpl();
+        CachingOperator intersection = new CachingOperator(new IntersectionOperator(factory), factory);
+        CachingOperator composition = new CachingOperator(new CompositionOperator(factory), intersection.getCache());
+        BusinessProtocol p1 = TestUtils.loadProtocol("intersection/p1.wsprotocol");
+        BusinessProtocol p2 = TestUtils.loadProtocol("intersection/p2.wsprotocol");
+
+        intersection.apply(p1, p2);
+        composition.apply(p1, p2);
+        TestCase.assertEquals(2, intersection.getCache().size());
+        TestCase.assertEquals(0, intersection.getCache().getHits());
+    }
+}
@@ -31,6 +31,9 @@ import junit.framework.TestCase;
 import org.dom4j.DocumentException;
 
 import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
+import fr.isima.ponge.wsprotocol.Polarity;
+import fr.isima.ponge.wsprotocol.State;
 import fr.isima.ponge.wsprotocol.impl.BusinessProtocolFactoryImpl;
 
 public class DifferenceOperatorTest extends TestCase
@@ -56,4 +59,38 @@ public class DifferenceOperatorTest extends TestCase
         
         TestCase.assertEquals(expected, result);
     }
+
+    public void testApplyMatchesMaterializedComplement() throws DocumentException
+    {
+        BusinessProtocol p1 = TestUtils.loadProtocol("difference/p1.wsprotocol");
+        BusinessProtocol p2 = TestUtils.loadProtocol("difference/p2.wsprotocol");
+        IntersectionOperator interOp = new IntersectionOperator(new BusinessProtocolFactoryImpl());
+        BusinessProtocol complement = operator.computeComplement(p1);
+        BusinessProtocol expected = interOp.apply(p2, new ProtocolOperand(complement, interOp), "p2 ||td p1");
+
+        TestCase.assertEquals(expected, operator.apply(p2, p1));
+    }
+
+    public void testUntimedNondeterministicDifference()
+    {
+        BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl();
+        BusinessProtocol p = factory.createBusinessProtocol("p");
+        State s0 = factory.createState("s0", false);
+        State s1 = factory.createState("s1", true);
+        State s2 = factory.createState("s2", false);
+        State s3 = factory.createState("s3", true);
+        p.addState(s0);
+        p.addState(s1);
+        p.addState(s2);
+        p.addState(s3);
+        s0.setInitialState(true);
+        p.setInitialState(s0);
+        p.addOperation(factory.createOperation("T1", s0, s1, factory.createMessage("a", Polarity.POSITIVE)));
+        p.addOperation(factory.createOperation("T2", s0, s2, factory.createMessage("a", Polarity.POSITIVE)));
+        p.addOperation(factory.createOperation("T3", s2, s3, factory.createMessage("b", Polarity.POSITIVE)));
+
+        BusinessProtocol complement = operator.computeComplement(p);
+        TestCase.assertEquals(4, complement.getStates().size());
+        TestCase.assertTrue(operator.apply(p, p).getFinalStates().isEmpty());
+    }
 }
@@ -26,13 +26,26 @@
 
 package fr.isima.ponge.wsprotocol.timed.operators;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import junit.framework.TestCase;
 
 import org.dom4j.DocumentException;
 
 import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
 import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.Polarity;
 import fr.isima.ponge.wsprotocol.StandardExtraProperties;
+import fr.isima.ponge.wsprotocol.State;
+import fr.isima.ponge.wsprotocol.execution.OperatorContext;
+import fr.isima.ponge.wsprotocol.execution.OperatorLimit;
+import fr.isima.ponge.wsprotocol.execution.OperatorLimitExceededException;
+import fr.isima.ponge.wsprotocol.execution.OperatorProgressListener;
 import fr.isima.ponge.wsprotocol.impl.BusinessProtocolFactoryImpl;
 
 public class IntersectionOperatorTest extends TestCase
@@ -59,4 +72,163 @@ public class IntersectionOperatorTest extends TestCase
         TestCase.assertEquals(o2.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT), o1
                 .getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT));
     }
+
+    public void testDeadOperations()
+    {
+        BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl();
+        IntersectionOperator operator = new IntersectionOperator(factory);
+        BusinessProtocol p1 = createProtocol(factory, "p1", "C-Invoke(T1 < 3)");
+        BusinessProtocol p2 = createProtocol(factory, "p2", "C-Invoke(T1 > 4)");
+        BusinessProtocol p3 = createProtocol(factory, "p3", "C-Invoke(T1 > 1)");
+
+        TestCase.assertTrue(operator.apply(p1, p2).getOperations().isEmpty());
+
+        BusinessProtocol result = operator.apply(p1, p3);
+        TestCase.assertEquals(2, result.getOperations().size());
+        TestCase.assertEquals("C-Invoke((T1_T1 > 1) && (T1_T1 < 3))", TestUtils.getOperationNamed(result, "T2_T2")
+                .getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT));
+    }
+
+    public void testDeadEndsPruning()
+    {
+        BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl();
+        BusinessProtocol protocol = factory.createBusinessProtocol("p");
+        State s0 = factory.createState("s0", false);
+        State s1 = factory.createState("s1", false);
+        State s2 = factory.createState("s2", false);
+        State s3 = factory.createState("s3", false);
+        State end = factory.createState("end", true);
+        s0.setInitialState(true);
+        protocol.addState(s0);
+        protocol.addState(s1);
+        protocol.addState(s2);
+        protocol.addState(s3);
+        protocol.addState(end);
+        protocol.setInitialState(s0);
+        protocol.addOperation(factory.createOperation("T1", s0, s1, factory.createMessage("a", Polarity.POSITIVE)));
+        protocol.addOperation(factory.createOperation("T2", s1, s2, factory.createMessage("b", Polarity.POSITIVE)));
+        protocol.addOperation(factory.createOperation("T3", s1, s3, factory.createMessage("c", Polarity.POSITIVE)));
+        protocol.addOperation(factory.createOperation("T4", s2, s3, factory.createMessage("c", Polarity.POSITIVE)));
+        protocol.addOperation(factory.createOperation("T5", s0, end, factory.createMessage("d", Polarity.POSITIVE)));
+
+        BusinessProtocol result = new IntersectionOperator(factory).apply(protocol, protocol);
+        TestCase.assertEquals(2, result.getStates().size());
+        TestCase.assertEquals(1, result.getOperations().size());
+        TestCase.assertNotNull(TestUtils.getOperationNamed(result, "T5_T5"));
+    }
+
+    public void testParallel()
+    {
+        BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl();
+        BusinessProtocol p1 = createWideProtocol(factory, "p1", 20);
+        BusinessProtocol p2 = createWideProtocol(factory, "p2", 20);
+        BusinessProtocol expected = new IntersectionOperator(factory).apply(p1, p2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            BusinessProtocol result = new IntersectionOperator(factory, executor, 4).apply(p1, p2);
+            TestCase.assertEquals(expected, result);
+            TestCase.assertEquals(expected.getOperations().size(), result.getOperations().size());
+            Iterator it = expected.getOperations().iterator();
+            while (it.hasNext())
+            {
+                Operation op = (Operation) it.next();
+                TestCase.assertEquals(op.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT), TestUtils
+                        .getOperationNamed(result, op.getName()).getExtraProperty(
+                                StandardExtraProperties.TEMPORAL_CONSTRAINT));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    public void testContext()
+    {
+        BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl();
+        BusinessProtocol p1 = createWideProtocol(factory, "p1", 20);
+        BusinessProtocol p2 = createWideProtocol(factory, "p2", 20);
+        IntersectionOperator operator = new IntersectionOperator(factory);
+
+        final List reports = new ArrayList();
+        OperatorContext context = new OperatorContext();
+        context.setProgressListener(new OperatorProgressListener()
+        {
+            public void progress(int states, int operations)
+            {
+                reports.add(new int[] { states, operations });
+            }
+        });
+        TestCase.assertEquals(operator.apply(p1, p2), operator.apply(p1, p2, context));
+        TestCase.assertEquals(3, reports.size());
+        TestCase.assertEquals(22, ((int[]) reports.get(2))[0]);
+        TestCase.assertEquals(40, ((int[]) reports.get(2))[1]);
+
+        context = new OperatorContext();
+        context.setMaxStates(10);
+        try
+        {
+            operator.apply(p1, p2, context);
+            TestCase.fail();
+        }
+        catch (OperatorLimitExceededException e)
+        {
+            TestCase.assertSame(OperatorLimit.STATES, e.getLimit());
+            TestCase.assertEquals(21, e.getStates());
+        }
+
+        context = new OperatorContext();
+        context.cancel();
+        try
+        {
+            new DifferenceOperator(factory).apply(p1, p2, context);
+            TestCase.fail();
+        }
+        catch (OperatorLimitExceededException e)
+        {
+            TestCase.assertSame(OperatorLimit.CANCELLED, e.getLimit());
+        }
+    }
+
+    private BusinessProtocol createWideProtocol(BusinessProtocolFactory factory, String name, int width)
+    {
+        BusinessProtocol protocol = factory.createBusinessProtocol(name);
+        State s0 = factory.createState("s0", false);
+        State end = factory.createState("end", true);
+        s0.setInitialState(true);
+        protocol.addState(s0);
+        protocol.addState(end);
+        protocol.setInitialState(s0);
+        for (int i = 0; i < width; ++i)
+        {
+            State s = factory.createState("s" + (i + 1), false);
+            protocol.addState(s);
+            protocol.addOperation(factory.createOperation("T" + i, s0, s, factory.createMessage("m" + i,
+                    Polarity.POSITIVE)));
+            Operation op = factory.createOperation("U" + i, s, end, factory.createMessage("b", Polarity.POSITIVE));
+            op.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "C-Invoke(T" + i + " < " + (i + 1) + ")");
+            protocol.addOperation(op);
+        }
+        return protocol;
+    }
+
+    private BusinessProtocol createProtocol(BusinessProtocolFactory factory, String name, String constraint)
+    {
+        BusinessProtocol protocol = factory.createBusinessProtocol(name);
+        State s0 = factory.createState("s0", false);
+        State s1 = factory.createState("s1", false);
+        State s2 = factory.createState("s2", true);
+        s0.setInitialState(true);
+        protocol.addState(s0);
+        protocol.addState(s1);
+        protocol.addState(s2);
+        protocol.setInitialState(s0);
+        protocol.addOperation(factory.createOperation("T1", s0, s1, factory.createMessage("a", Polarity.POSITIVE)));
+        Operation t2 = factory.createOperation("T2", s1, s2, factory.createMessage("b", Polarity.POSITIVE));
+        t2.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, constraint);
+        protocol.addOperation(t2);
+        return protocol;
+    }
 }
@@ -0,0 +1,106 @@
+/* 
+ * CDDL HEADER START 
+ * 
+ * The contents of this file are subject to the terms of the 
+ * Common Development and Distribution License (the "License"). 
+ * You may not use this file except in compliance with the License. 
+ * 
+ * You can obtain a copy of the license at LICENSE.txt 
+ * or at http://www.opensource.org/licenses/cddl1.php. 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License. 
+ * 
+ * When distributing Covered Code, include this CDDL HEADER in each 
+ * file and include the License file at LICENSE.txt. 
+ * If applicable, add the following below this CDDL HEADER, with the 
+ * fields enclosed by brackets "[]" replaced with your own identifying 
+ * information: Portions Copyright [yyyy] [name of copyright owner] 
+ * 
+ * CDDL HEADER END 
+ */ 
+
+/* 
+ * Copyright 2006 Julien Ponge. All rights reserved. 
+ * Use is subject to license terms. 
+ */ 
+
+
+package fr.isima.ponge.wsprotocol.timed.operators;
+
+import junit.framework.TestCase;
+
+import org.dom4j.DocumentException;
+
+import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.BusinessProtocolFactory;
+import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.Polarity;
+import fr.isima.ponge.wsprotocol.StandardExtraProperties;
+import fr.isima.ponge.wsprotocol.State;
+import fr.isima.ponge.wsprotocol.impl.BusinessProtocolFactoryImpl;
+
+public class MultiCompositionOperatorTest extends TestCase
+{
+    private BusinessProtocolFactory factory = new BusinessProtocolFactoryImpl();
+
+    public void testTwoParticipants() throws DocumentException
+    {
+        MultiCompositionOperator operator = new MultiCompositionOperator(factory);
+        BusinessProtocol p1 = TestUtils.loadProtocol("composition/p1.wsprotocol");
+        BusinessProtocol p2 = TestUtils.loadProtocol("composition/p2.wsprotocol");
+        BusinessProtocol expected = TestUtils.loadProtocol("composition/p1-comp-p2.wsprotocol");
+        BusinessProtocol result = operator.apply(p1, p2);
+
+        TestCase.assertEquals(expected, result);
+        TestCase.assertEquals(TestUtils.getOperationNamed(expected, "T1_T1").getExtraProperty(
+                StandardExtraProperties.TEMPORAL_CONSTRAINT), TestUtils.getOperationNamed(result, "T1_T1")
+                .getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT));
+    }
+
+    public void testThreeParticipants()
+    {
+        BusinessProtocol client = createProtocol("client", "a", Polarity.POSITIVE, "b", Polarity.NEGATIVE, null);
+        BusinessProtocol server = createProtocol("server", "a", Polarity.NEGATIVE, "c", Polarity.POSITIVE, null);
+        BusinessProtocol logger = createProtocol("logger", "c", Polarity.NEGATIVE, "b", Polarity.POSITIVE,
+                "C-Invoke(T1 < 5)");
+
+        BusinessProtocol result = new MultiCompositionOperator(factory).apply(new BusinessProtocol[] { client,
+                server, logger });
+
+        TestCase.assertEquals("client ||tc server ||tc logger", result.getName());
+        TestCase.assertEquals(4, result.getStates().size());
+        TestCase.assertEquals(3, result.getOperations().size());
+        TestCase.assertEquals("s0,s0,s0", result.getInitialState().getName());
+        Operation a = TestUtils.getOperationNamed(result, "T1_T1_");
+        Operation c = TestUtils.getOperationNamed(result, "_T2_T1");
+        Operation b = TestUtils.getOperationNamed(result, "T2__T2");
+        TestCase.assertEquals("s1,s1,s0", a.getTargetState().getName());
+        TestCase.assertSame(a.getTargetState(), c.getSourceState());
+        TestCase.assertSame(c.getTargetState(), b.getSourceState());
+        TestCase.assertTrue(b.getTargetState().isFinalState());
+        TestCase.assertEquals(Polarity.NULL, b.getMessage().getPolarity());
+        TestCase.assertEquals("C-Invoke(_T2_T1 < 5)", b.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT));
+    }
+
+    private BusinessProtocol createProtocol(String name, String m1, Polarity pol1, String m2, Polarity pol2,
+            String constraint)
+    {
+        BusinessProtocol protocol = factory.createBusinessProtocol(name);
+        State s0 = factory.createState("s0", false);
+        State s1 = factory.createState("s1", false);
+        State s2 = factory.createState("s2", true);
+        s0.setInitialState(true);
+        protocol.addState(s0);
+        protocol.addState(s1);
+        protocol.addState(s2);
+        protocol.setInitialState(s0);
+        protocol.addOperation(factory.createOperation("T1", s0, s1, factory.createMessage(m1, pol1)));
+        Operation t2 = factory.createOperation("T2", s1, s2, factory.createMessage(m2, pol2));
+        if (constraint != null)
+        {
+            t2.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, constraint);
+        }
+        protocol.addOperation(t2);
+        return protocol;
+    }
+}
@@ -34,6 +34,7 @@ import org.dom4j.DocumentException;
 
 import fr.isima.ponge.wsprotocol.BusinessProtocol;
 import fr.isima.ponge.wsprotocol.Operation;
+import fr.isima.ponge.wsprotocol.OperationKind;
 import fr.isima.ponge.wsprotocol.Polarity;
 import fr.isima.ponge.wsprotocol.StandardExtraProperties;
 import fr.isima.ponge.wsprotocol.State;
@@ -86,6 +87,44 @@ public class NormalizerTest extends TestCase
         TestCase.assertEquals("C-Invoke(T0_T0 < 10)", o.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT));
     }
     
+    public void testNormalizeImplicitChain()
+    {
+        BusinessProtocolFactoryImpl factory = new BusinessProtocolFactoryImpl();
+        BusinessProtocol p = factory.createBusinessProtocol("P");
+
+        State s0 = factory.createState("s0", false);
+        State s1 = factory.createState("s1", false);
+        State s2 = factory.createState("s2", false);
+        State s3 = factory.createState("s3", false);
+        State s4 = factory.createState("s4", true);
+
+        p.addState(s0);
+        p.setInitialState(s0);
+        p.addState(s1);
+        p.addState(s2);
+        p.addState(s3);
+        p.addState(s4);
+
+        p.addOperation(factory.createOperation("T0", s0, s1, factory.createMessage("a", Polarity.POSITIVE)));
+        Operation t1 = factory.createOperation("T1", s1, s2, factory.createMessage("b", Polarity.NULL), OperationKind.IMPLICIT);
+        t1.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "M-Invoke(T0 = 10)");
+        p.addOperation(t1);
+        Operation t2 = factory.createOperation("T2", s2, s3, factory.createMessage("c", Polarity.NULL), OperationKind.IMPLICIT);
+        t2.putExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT, "M-Invoke(T0 = 20)");
+        p.addOperation(t2);
+        p.addOperation(factory.createOperation("T3", s3, s4, factory.createMessage("d", Polarity.POSITIVE)));
+
+        BusinessProtocol result = new Normalizer(factory).normalizeProtocol(p);
+
+        TestCase.assertEquals(3, result.getStates().size());
+        TestCase.assertEquals(2, result.getOperations().size());
+        Operation o = TestUtils.getOperationNamed(result, "T3");
+        TestCase.assertSame(s1, o.getSourceState());
+        TestCase.assertSame(s4, o.getTargetState());
+        String constraint = (String) o.getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT);
+        TestCase.assertTrue(constraint.indexOf("T0 >= 20") != -1);
+    }
+
     public void testComputeStatesDepth()
     {
         BusinessProtocolFactoryImpl factory = new BusinessProtocolFactoryImpl();
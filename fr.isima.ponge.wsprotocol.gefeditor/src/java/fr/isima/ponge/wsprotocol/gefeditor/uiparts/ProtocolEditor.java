@@ -26,14 +26,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
-import java.io.StringReader;
 import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.EventObject;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 
 import org.dom4j.DocumentException;
 import org.eclipse.core.resources.IFile;
@@ -93,13 +91,7 @@ import org.eclipse.ui.part.FileEditorInput;
 import org.eclipse.ui.part.IPageSite;
 import org.eclipse.ui.views.contentoutline.IContentOutlinePage;
 
-import antlr.CommonAST;
-import antlr.RecognitionException;
-import antlr.TokenStreamException;
 import fr.isima.ponge.wsprotocol.BusinessProtocol;
-import fr.isima.ponge.wsprotocol.Operation;
-import fr.isima.ponge.wsprotocol.OperationKind;
-import fr.isima.ponge.wsprotocol.StandardExtraProperties;
 import fr.isima.ponge.wsprotocol.gefeditor.EditorPlugin;
 import fr.isima.ponge.wsprotocol.gefeditor.Messages;
 import fr.isima.ponge.wsprotocol.gefeditor.editparts.BusinessProtocolEditPartFactory;
@@ -107,12 +99,8 @@ import fr.isima.ponge.wsprotocol.gefeditor.editparts.BusinessProtocolTreeEditPar
 import fr.isima.ponge.wsprotocol.gefeditor.figures.layout.DepthLayout;
 import fr.isima.ponge.wsprotocol.impl.BusinessProtocolFactoryImpl;
 import fr.isima.ponge.wsprotocol.impl.BusinessProtocolImpl;
-import fr.isima.ponge.wsprotocol.timed.constraints.CInvokeNode;
-import fr.isima.ponge.wsprotocol.timed.constraints.IConstraintNode;
-import fr.isima.ponge.wsprotocol.timed.constraints.MInvokeNode;
-import fr.isima.ponge.wsprotocol.timed.constraints.parser.TemporalConstraintLexer;
-import fr.isima.ponge.wsprotocol.timed.constraints.parser.TemporalConstraintParser;
-import fr.isima.ponge.wsprotocol.timed.constraints.parser.TemporalConstraintTreeWalker;
+import fr.isima.ponge.wsprotocol.timed.validation.ConstraintDiagnostic;
+import fr.isima.ponge.wsprotocol.timed.validation.ConstraintValidator;
 import fr.isima.ponge.wsprotocol.xml.XmlIOManager;
 
 /**
@@ -725,64 +713,14 @@ public class ProtocolEditor extends GraphicalEditorWithFlyoutPalette implements
      */
     private void validateTemporalConstraints(IFile file)
     {
-        Set operations = getModel().getOperations();
-        Iterator it = operations.iterator();
+        List diagnostics = new ConstraintValidator().validate(getModel());
+        Iterator it = diagnostics.iterator();
         while (it.hasNext())
         {
-            Operation operation = (Operation) it.next();
-            String constraint = (String) operation
-                    .getExtraProperty(StandardExtraProperties.TEMPORAL_CONSTRAINT);
-            if (constraint == null || "".equals(constraint))
-            {
-                continue;
-            }
-
-            TemporalConstraintLexer lexer = new TemporalConstraintLexer(
-                    new StringReader(constraint));
-            TemporalConstraintParser parser = new TemporalConstraintParser(lexer);
-            TemporalConstraintTreeWalker walker = new TemporalConstraintTreeWalker();
-
-            try
-            {
-                parser.constraint();
-                CommonAST tree = (CommonAST) parser.getAST();
-                IConstraintNode constraintNode = walker.constraint(tree);
-
-                if (operation.getOperationKind().equals(OperationKind.EXPLICIT))
-                {
-                    if (!(constraintNode instanceof CInvokeNode))
-                    {
-                        reportTemporalConstraintProblem(
-                                file,
-                                operation.getName()
-                                        + ": "
-                                        + "Explicit operations only support C-Invoke temporal constraints.",
-                                operation.getName());
-                    }
-                }
-                else
-                {
-                    if (!(constraintNode instanceof MInvokeNode))
-                    {
-                        reportTemporalConstraintProblem(
-                                file,
-                                operation.getName()
-                                        + ": "
-                                        + "Implicit operations only support M-Invoke temporal constraints.",
-                                operation.getName());
-                    }
-                }
-            }
-            catch (RecognitionException e)
-            {
-                reportTemporalConstraintProblem(file, operation.getName() + ": " + e.getMessage(),
-                        operation.getName());
-            }
-            catch (TokenStreamException e)
-            {
-                reportTemporalConstraintProblem(file, operation.getName() + ": " + e.getMessage(),
-                        operation.getName());
-            }
+            ConstraintDiagnostic diagnostic = (ConstraintDiagnostic) it.next();
+            String operationName = diagnostic.getOperation().getName();
+            reportTemporalConstraintProblem(file, operationName + ": " + diagnostic.getMessage(),
+                    operationName);
         }
     }
 
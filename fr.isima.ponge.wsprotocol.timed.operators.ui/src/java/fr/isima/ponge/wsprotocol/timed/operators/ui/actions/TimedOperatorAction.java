@@ -31,13 +31,16 @@ import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.reflect.InvocationTargetException;
 
 import org.dom4j.DocumentException;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.ui.IObjectActionDelegate;
@@ -47,9 +50,12 @@ import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.ide.IDE;
 
 import fr.isima.ponge.wsprotocol.BusinessProtocol;
+import fr.isima.ponge.wsprotocol.execution.OperatorContext;
+import fr.isima.ponge.wsprotocol.execution.OperatorLimitExceededException;
+import fr.isima.ponge.wsprotocol.execution.OperatorProgressListener;
 import fr.isima.ponge.wsprotocol.impl.BusinessProtocolFactoryImpl;
 import fr.isima.ponge.wsprotocol.timed.operators.IOperator;
-import fr.isima.ponge.wsprotocol.timed.operators.Normalizer;
+import fr.isima.ponge.wsprotocol.timed.operators.OperatorPipeline;
 import fr.isima.ponge.wsprotocol.xml.XmlIOManager;
 
 /**
@@ -97,6 +103,17 @@ public abstract class TimedOperatorAction implements IObjectActionDelegate
      */
     protected abstract int getSecondFileIndex();
 
+    /**
+     * Creates the execution context of the operator. Subclasses can override this method to set
+     * some limits.
+     * 
+     * @return The context.
+     */
+    protected OperatorContext createOperatorContext()
+    {
+        return new OperatorContext();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -122,12 +139,45 @@ public abstract class TimedOperatorAction implements IObjectActionDelegate
         XmlIOManager xmlManager = new XmlIOManager(factory);
         try
         {
-            BusinessProtocol p1 = xmlManager.readBusinessProtocol(new InputStreamReader(p1File
+            final BusinessProtocol p1 = xmlManager.readBusinessProtocol(new InputStreamReader(p1File
                     .getContents()));
-            BusinessProtocol p2 = xmlManager.readBusinessProtocol(new InputStreamReader(p2File
+            final BusinessProtocol p2 = xmlManager.readBusinessProtocol(new InputStreamReader(p2File
                     .getContents()));
-            Normalizer normalizer = new Normalizer(factory);
-            BusinessProtocol result = getOperator().apply(normalizer.normalizeProtocol(p1), normalizer.normalizeProtocol(p2));
+            final OperatorPipeline pipeline = new OperatorPipeline(factory, getOperator());
+            final BusinessProtocol[] results = new BusinessProtocol[1];
+            PlatformUI.getWorkbench().getProgressService().busyCursorWhile(new IRunnableWithProgress()
+            {
+                public void run(final IProgressMonitor monitor) throws InvocationTargetException
+                {
+                    final OperatorContext context = createOperatorContext();
+                    context.setProgressListener(new OperatorProgressListener()
+                    {
+                        public void progress(int states, int operations)
+                        {
+                            if (monitor.isCanceled())
+                            {
+                                context.cancel();
+                            }
+                            monitor.subTask(states + " states, " + operations + " operations");
+                            monitor.worked(1);
+                        }
+                    });
+                    monitor.beginTask("Applying the operator", IProgressMonitor.UNKNOWN);
+                    try
+                    {
+                        results[0] = pipeline.apply(p1, p2, context);
+                    }
+                    catch (OperatorLimitExceededException e)
+                    {
+                        throw new InvocationTargetException(e);
+                    }
+                    finally
+                    {
+                        monitor.done();
+                    }
+                }
+            });
+            BusinessProtocol result = results[0];
 
             Path resultPath = new Path(getResultingFilename(p1File, p2File));
             IFile resultFile = ((IContainer) p1File.getParent()).getFile(resultPath);
@@ -155,6 +205,14 @@ public abstract class TimedOperatorAction implements IObjectActionDelegate
         {
             e.printStackTrace();
         }
+        catch (InvocationTargetException e)
+        {
+            e.getCause().printStackTrace();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /*